@@ -0,0 +1,116 @@
+/*****************************************************************************
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package com.google.mu.benchmarks;
+
+import static java.util.stream.Collectors.toList;
+
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import com.google.caliper.BeforeExperiment;
+import com.google.caliper.Benchmark;
+import com.google.caliper.Param;
+import com.google.mu.util.stream.BiStream;
+
+/**
+ * Benchmarks for pair pipelines that filter after mapping, which used to allocate a {@code
+ * Map.Entry} for every pair in every filtering stage.
+ */
+public class BiStreamBenchmark {
+  @Param({"100", "10000", "1000000"})
+  int size;
+
+  private List<Integer> numbers;
+
+  @BeforeExperiment
+  void setUp() {
+    numbers = IntStream.range(0, size).boxed().collect(toList());
+  }
+
+  @Benchmark
+  int biStream(int n) {
+    int total = 0;
+    for (int i = 0; i < n; i++) {
+      Map<Integer, Integer> map =
+          BiStream.biStream(numbers)
+              .mapKeys(k -> k + 1)
+              .filter((k, v) -> k % 2 == 0)
+              .mapValues(v -> v * 2)
+              .filterValues(v -> v % 3 == 0)
+              .toMap();
+      total += map.size();
+    }
+    return total;
+  }
+
+  @Benchmark
+  long peekFilterMapToObj(int n) {
+    long total = 0;
+    for (int i = 0; i < n; i++) {
+      total +=
+          BiStream.biStream(numbers)
+              .peek((k, v) -> {})
+              .filter((k, v) -> k % 2 == 0)
+              .mapToObj((k, v) -> k + v)
+              .filter(sum -> sum % 3 == 0)
+              .count();
+    }
+    return total;
+  }
+
+  @Benchmark
+  long mapThenFilter(int n) {
+    long total = 0;
+    for (int i = 0; i < n; i++) {
+      total +=
+          BiStream.biStream(numbers)
+              .map((k, v) -> k + v, (k, v) -> k - v)
+              .filterKeys(k -> k % 3 == 0)
+              .keys()
+              .count();
+    }
+    return total;
+  }
+
+  @Benchmark
+  int noStages(int n) {
+    // Control: no stage to fuse.
+    int total = 0;
+    for (int i = 0; i < n; i++) {
+      total += BiStream.biStream(numbers).toMap().size();
+    }
+    return total;
+  }
+
+  @Benchmark
+  int entryPerStage(int n) {
+    // The same pipeline with an entry allocated for each pair in each stage.
+    int total = 0;
+    for (int i = 0; i < n; i++) {
+      Map<Integer, Integer> map =
+          numbers.stream()
+              .map(k -> new SimpleImmutableEntry<>(k + 1, k))
+              .filter(e -> e.getKey() % 2 == 0)
+              .map(e -> new SimpleImmutableEntry<>(e.getKey(), e.getValue() * 2))
+              .filter(e -> e.getValue() % 3 == 0)
+              .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+      total += map.size();
+    }
+    return total;
+  }
+}
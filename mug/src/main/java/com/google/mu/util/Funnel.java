@@ -51,7 +51,8 @@ import java.util.function.Function;
  * conversion.
  *
  * @param <T> the output type
- * @deprecated too niche
+ * @deprecated too niche. Consider {@link com.google.mu.util.concurrent.ConcurrentFunnel}, which
+ *     runs the batch conversions concurrently.
  */
 @Deprecated
 public final class Funnel<T> {
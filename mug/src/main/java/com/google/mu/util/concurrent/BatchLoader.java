@@ -0,0 +1,193 @@
+/*****************************************************************************
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package com.google.mu.util.concurrent;
+
+import static java.util.Objects.requireNonNull;
+import static java.util.function.Function.identity;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Automatically batches individual {@link #load} calls from many threads into batch calls, to
+ * avoid the N+1 RPC problem in request handlers.
+ *
+ * <p>For example:
+ *
+ * <pre>{@code
+ * BatchLoader<UserId, User> userLoader =
+ *     new BatchLoader<>(userService::batchGetUsers, 100, Duration.ofMillis(5), executor);
+ *
+ * CompletionStage<User> author = userLoader.load(post.getAuthorId());
+ * CompletionStage<User> editor = userLoader.load(post.getEditorId());
+ * }</pre>
+ *
+ * <p>Keys passed to {@code load()} are buffered until either {@code maxBatchSize} distinct keys
+ * are pending, or {@code maxDelay} has elapsed since the first key was buffered, whichever happens
+ * first; then all pending keys are sent to the batch function in a single call. Duplicate keys
+ * within the same batch are sent only once, and every caller of the same key shares the result.
+ *
+ * <p>Like {@link com.google.mu.util.Funnel.Batch}, the batch function maps a list of keys to
+ * a list of results in the same order. If it throws, or returns a different number of results than
+ * the keys, all callers of the batch fail with the exception.
+ *
+ * <p>The batch function is invoked in {@code executor}. So are the dependent actions of the stages
+ * returned by {@code load()} unless they use an async method with a different executor. If
+ * {@code executor} rejects the delayed dispatch or the batch call (for example because it's been
+ * shut down), the affected stages fail with the {@link RejectedExecutionException}.
+ *
+ * <p>This class is thread safe.
+ *
+ * @since 8.6
+ */
+public final class BatchLoader<K, V> {
+  private final Function<? super List<K>, ? extends Collection<? extends V>> batchFunction;
+  private final int maxBatchSize;
+  private final Duration maxDelay;
+  private final ScheduledExecutorService executor;
+  private final Object lock = new Object();
+  private Map<K, CompletableFuture<V>> pending = new LinkedHashMap<>();  // guarded by lock
+  private ScheduledFuture<?> delayedFlush;  // of pending, guarded by lock
+
+  /**
+   * Constructs a {@code BatchLoader} that sends at most {@code maxBatchSize} keys to
+   * {@code batchFunction} per call, with no key waiting for longer than {@code maxDelay}.
+   *
+   * @param batchFunction maps a list of distinct keys to the results in the same order
+   * @param maxBatchSize the max number of keys per batch. Reaching it dispatches the batch
+   *     immediately.
+   * @param maxDelay the max time to wait for more keys to join the batch
+   * @param executor used to run the batch function and to schedule the delayed dispatches
+   */
+  public BatchLoader(
+      Function<? super List<K>, ? extends Collection<? extends V>> batchFunction,
+      int maxBatchSize,
+      Duration maxDelay,
+      ScheduledExecutorService executor) {
+    if (maxBatchSize <= 0) throw new IllegalArgumentException("maxBatchSize = " + maxBatchSize);
+    if (maxDelay.isNegative()) throw new IllegalArgumentException("Negative maxDelay: " + maxDelay);
+    this.batchFunction = requireNonNull(batchFunction);
+    this.maxBatchSize = maxBatchSize;
+    this.maxDelay = maxDelay;
+    this.executor = requireNonNull(executor);
+  }
+
+  /**
+   * Returns a {@link CompletionStage} of the result for {@code key}, which will be loaded together
+   * with other keys in a batch call.
+   *
+   * <p>Each caller gets its own stage: canceling it doesn't affect the other callers of the same
+   * key or the batch call.
+   */
+  public CompletionStage<V> load(K key) {
+    requireNonNull(key);
+    CompletableFuture<V> result;
+    Map<K, CompletableFuture<V>> full = null;
+    synchronized (lock) {
+      result = pending.get(key);
+      if (result == null) {
+        result = new CompletableFuture<>();
+        if (pending.isEmpty()) {
+          Map<K, CompletableFuture<V>> batch = pending;
+          try {
+            delayedFlush =
+                executor.schedule(() -> flush(batch), maxDelay.toNanos(), TimeUnit.NANOSECONDS);
+          } catch (RejectedExecutionException e) {
+            result.completeExceptionally(e);
+            return result.thenApply(identity());
+          }
+        }
+        pending.put(key, result);
+        if (pending.size() >= maxBatchSize) {
+          full = takePending();
+        }
+      }
+    }
+    if (full != null) dispatch(full);
+    return result.thenApply(identity());
+  }
+
+  /**
+   * Dispatches the currently pending keys immediately without waiting for more keys to join,
+   * for example when the request handler knows it's done issuing {@code load()} calls.
+   */
+  public void flush() {
+    Map<K, CompletableFuture<V>> batch;
+    synchronized (lock) {
+      batch = takePending();
+    }
+    dispatch(batch);
+  }
+
+  private void flush(Map<K, CompletableFuture<V>> batch) {
+    synchronized (lock) {
+      // Already dispatched because the batch got full, or was flushed explicitly.
+      if (pending != batch) return;
+      delayedFlush = null;  // Running now.
+      takePending();
+    }
+    dispatch(batch);
+  }
+
+  private Map<K, CompletableFuture<V>> takePending() {
+    if (delayedFlush != null) {
+      // So that the scheduled task doesn't hold on to the batch until maxDelay elapses.
+      delayedFlush.cancel(false);
+      delayedFlush = null;
+    }
+    Map<K, CompletableFuture<V>> batch = pending;
+    pending = new LinkedHashMap<>();
+    return batch;
+  }
+
+  private void dispatch(Map<K, CompletableFuture<V>> batch) {
+    if (batch.isEmpty()) return;
+    try {
+      executor.execute(() -> call(batch));
+    } catch (RejectedExecutionException e) {
+      batch.values().forEach(future -> future.completeExceptionally(e));
+    }
+  }
+
+  private void call(Map<K, CompletableFuture<V>> batch) {
+    List<K> keys = new ArrayList<>(batch.keySet());
+    List<V> results;
+    try {
+      results = new ArrayList<>(batchFunction.apply(keys));
+      if (keys.size() != results.size()) {
+        throw new IllegalStateException(
+            batchFunction + " expected to return " + keys.size() + " elements for input "
+                + keys + ", but got " + results + " of size " + results.size() + ".");
+      }
+    } catch (Throwable e) {
+      batch.values().forEach(future -> future.completeExceptionally(e));
+      return;
+    }
+    for (int i = 0; i < keys.size(); i++) {
+      batch.get(keys.get(i)).complete(results.get(i));
+    }
+  }
+}
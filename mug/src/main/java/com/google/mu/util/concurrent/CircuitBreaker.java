@@ -0,0 +1,296 @@
+/*****************************************************************************
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package com.google.mu.util.concurrent;
+
+import static java.util.Objects.requireNonNull;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.AbstractList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.google.mu.function.CheckedSupplier;
+import com.google.mu.util.concurrent.Retryer.Delay;
+
+/**
+ * A lock-free circuit breaker that short-circuits calls to a failing dependency.
+ *
+ * <p>The breaker starts {@link State#CLOSED closed}, recording the outcome of each call in a
+ * sliding window of the most recent {@code windowSize} calls. Once the window is full and the
+ * failure rate reaches {@code failureRateThreshold}, the breaker trips {@link State#OPEN open}
+ * and rejects all calls with {@link CircuitBreakerOpenException} until {@code coolDown} has
+ * elapsed. The first call after the cool-down moves the breaker to {@link State#HALF_OPEN
+ * half-open} and is let through as a trial: if it succeeds, the breaker closes with a fresh window;
+ * if it fails, the breaker opens again for another cool-down. Concurrent calls are rejected while
+ * the trial call is in flight.
+ *
+ * <p>To integrate with {@link Retryer}, wrap the retried operation with {@link #call call()} and
+ * the delays with {@link #guard guard()}, so that retrying stops immediately as soon as the breaker
+ * opens, instead of waiting through the remaining backoff delays:
+ *
+ * <pre>{@code
+ *   CircuitBreaker breaker = new CircuitBreaker(100, 0.5, Duration.ofSeconds(30));
+ *   new Retryer()
+ *       .upon(RpcException.class, breaker.guard(Delay.ofMillis(30).exponentialBackoff(2, 5)))
+ *       .retryBlockingly(() -> breaker.call(this::getAccount));
+ * }</pre>
+ *
+ * <p>A single {@code CircuitBreaker} instance is meant to be shared by all callers of the same
+ * dependency. It's thread safe.
+ *
+ * @since 8.6
+ */
+public final class CircuitBreaker {
+  private final int windowSize;
+  private final double failureRateThreshold;
+  private final Duration coolDown;
+  private final Clock clock;
+  private final AtomicReference<Phase> phase;
+
+  /**
+   * Constructs a closed {@code CircuitBreaker}.
+   *
+   * @param windowSize the number of most recent calls the failure rate is computed from
+   * @param failureRateThreshold in the range of (0, 1]. The breaker opens when the failure rate
+   *     of a full window reaches this threshold.
+   * @param coolDown how long the breaker stays open before letting a trial call through
+   */
+  public CircuitBreaker(int windowSize, double failureRateThreshold, Duration coolDown) {
+    this(windowSize, failureRateThreshold, coolDown, Clock.systemUTC());
+  }
+
+  /**
+   * Constructs a closed {@code CircuitBreaker}, using {@code clock} to measure the cool-down.
+   *
+   * @param windowSize the number of most recent calls the failure rate is computed from
+   * @param failureRateThreshold in the range of (0, 1]. The breaker opens when the failure rate
+   *     of a full window reaches this threshold.
+   * @param coolDown how long the breaker stays open before letting a trial call through
+   * @param clock used to measure time
+   */
+  public CircuitBreaker(
+      int windowSize, double failureRateThreshold, Duration coolDown, Clock clock) {
+    if (windowSize <= 0) throw new IllegalArgumentException("windowSize = " + windowSize);
+    if (!(failureRateThreshold > 0 && failureRateThreshold <= 1)) {
+      throw new IllegalArgumentException(
+          "failureRateThreshold must be in range of (0, 1]: " + failureRateThreshold);
+    }
+    if (coolDown.isNegative()) throw new IllegalArgumentException("Negative coolDown: " + coolDown);
+    this.windowSize = windowSize;
+    this.failureRateThreshold = failureRateThreshold;
+    this.coolDown = coolDown;
+    this.clock = requireNonNull(clock);
+    this.phase = new AtomicReference<>(new Closed());
+  }
+
+  /** The states of a circuit breaker. */
+  public enum State {
+    /** Calls are permitted and their outcomes recorded. */
+    CLOSED,
+    /** Calls are rejected until the cool-down has elapsed. */
+    OPEN,
+    /** A trial call is permitted to decide whether the breaker should close or open again. */
+    HALF_OPEN,
+  }
+
+  /** Returns the current state. */
+  public State state() {
+    return phase.get().state();
+  }
+
+  /**
+   * Invokes {@code supplier} if the breaker permits, and records whether it succeeded or failed.
+   * Any exception thrown by {@code supplier} is counted as a failure and then propagated.
+   *
+   * @throws CircuitBreakerOpenException if the breaker is open, in which case {@code supplier}
+   *     isn't invoked.
+   */
+  public <T, E extends Throwable> T call(CheckedSupplier<T, E> supplier) throws E {
+    requireNonNull(supplier);
+    Permit permit = acquire();
+    T result;
+    try {
+      result = supplier.get();
+    } catch (Throwable e) {
+      permit.record(true);
+      throw e;
+    }
+    permit.record(false);
+    return result;
+  }
+
+  /**
+   * Invokes {@code asyncSupplier} if the breaker permits, and records whether the returned stage
+   * succeeded or failed upon its completion.
+   *
+   * <p>If the breaker is open, {@code asyncSupplier} isn't invoked and the returned stage is
+   * completed exceptionally with {@link CircuitBreakerOpenException}.
+   */
+  public <T, E extends Throwable> CompletionStage<T> callAsync(
+      CheckedSupplier<? extends CompletionStage<T>, E> asyncSupplier) throws E {
+    requireNonNull(asyncSupplier);
+    Permit permit;
+    try {
+      permit = acquire();
+    } catch (CircuitBreakerOpenException e) {
+      CompletableFuture<T> rejected = new CompletableFuture<>();
+      rejected.completeExceptionally(e);
+      return rejected;
+    }
+    CompletionStage<T> stage;
+    try {
+      stage = asyncSupplier.get();
+    } catch (Throwable e) {
+      permit.record(true);
+      throw e;
+    }
+    stage.whenComplete((v, e) -> permit.record(e != null));
+    return stage;
+  }
+
+  /**
+   * Returns a view of {@code delays} that will appear empty while the breaker is rejecting calls,
+   * as if another thread had just concurrently removed all elements from it.
+   *
+   * <p>Pass the view to {@link Retryer#upon Retryer.upon()} so that retries are stopped
+   * immediately once the breaker opens, instead of sleeping through backoff delays only to be
+   * rejected by the breaker. For example:
+   *
+   * <pre>{@code
+   *   new Retryer()
+   *       .upon(RpcException.class, breaker.guard(Delay.ofMillis(30).exponentialBackoff(2, 5)))
+   *       .retry(() -> breaker.call(this::getAccount), executor);
+   * }</pre>
+   *
+   * <p>Similar to {@link Delay#timed}, the returned {@code List} view's state is dependent on the
+   * state of the breaker. Beware of copying the list.
+   */
+  public <T extends Delay<?>> List<T> guard(List<T> delays) {
+    requireNonNull(delays);
+    return new AbstractList<T>() {
+      @Override public T get(int index) {
+        if (isRejecting()) throw new IndexOutOfBoundsException();
+        return delays.get(index);
+      }
+      @Override public int size() {
+        return isRejecting() ? 0 : delays.size();
+      }
+    };
+  }
+
+  @Override public String toString() {
+    return "CircuitBreaker(" + state() + ")";
+  }
+
+  private boolean isRejecting() {
+    Phase current = phase.get();
+    return current instanceof HalfOpen
+        || (current instanceof Open && !((Open) current).coolDownElapsed());
+  }
+
+  private Permit acquire() {
+    for (; ; ) {
+      Phase current = phase.get();
+      if (current instanceof Closed) return (Closed) current;
+      if (current instanceof Open && ((Open) current).coolDownElapsed()) {
+        HalfOpen trial = new HalfOpen();
+        if (phase.compareAndSet(current, trial)) return trial;
+        continue;  // Someone else changed the state. Start over.
+      }
+      throw new CircuitBreakerOpenException(this);
+    }
+  }
+
+  private interface Permit {
+    void record(boolean failed);
+  }
+
+  private abstract static class Phase {
+    abstract State state();
+  }
+
+  private final class Closed extends Phase implements Permit {
+    private final Window window = new Window(windowSize);
+
+    @Override State state() {
+      return State.CLOSED;
+    }
+
+    @Override public void record(boolean failed) {
+      int failures = window.record(failed);
+      if (window.isFull() && failures >= failureRateThreshold * windowSize) {
+        phase.compareAndSet(this, new Open());
+      }
+    }
+  }
+
+  private final class Open extends Phase {
+    private final Instant until = clock.instant().plus(coolDown);
+
+    @Override State state() {
+      return State.OPEN;
+    }
+
+    boolean coolDownElapsed() {
+      return !clock.instant().isBefore(until);
+    }
+  }
+
+  private final class HalfOpen extends Phase implements Permit {
+    @Override State state() {
+      return State.HALF_OPEN;
+    }
+
+    @Override public void record(boolean failed) {
+      phase.compareAndSet(this, failed ? new Open() : new Closed());
+    }
+  }
+
+  /** Ring buffer of the most recent call outcomes. */
+  private static final class Window {
+    private static final int EMPTY = 0;
+    private static final int SUCCESS = 1;
+    private static final int FAILURE = 2;
+
+    private final AtomicIntegerArray outcomes;
+    private final AtomicInteger cursor = new AtomicInteger();
+    private final AtomicInteger filled = new AtomicInteger();
+    private final AtomicInteger failures = new AtomicInteger();
+
+    Window(int size) {
+      this.outcomes = new AtomicIntegerArray(size);
+    }
+
+    /** Records the outcome and returns the number of failures in the window. */
+    int record(boolean failed) {
+      int outcome = failed ? FAILURE : SUCCESS;
+      int slot = Math.floorMod(cursor.getAndIncrement(), outcomes.length());
+      int evicted = outcomes.getAndSet(slot, outcome);
+      if (evicted == EMPTY) filled.incrementAndGet();
+      int delta = (outcome == FAILURE ? 1 : 0) - (evicted == FAILURE ? 1 : 0);
+      return failures.addAndGet(delta);
+    }
+
+    boolean isFull() {
+      return filled.get() >= outcomes.length();
+    }
+  }
+}
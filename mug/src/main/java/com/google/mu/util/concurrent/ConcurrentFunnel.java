@@ -0,0 +1,227 @@
+/*****************************************************************************
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package com.google.mu.util.concurrent;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * A funnel that dispatches a sequence of inputs through arbitrary batch conversions while
+ * maintaining first-in-first-out order, running the batch conversions concurrently with a {@link
+ * Parallelizer}.
+ *
+ * <p>For example, the following code batch loads users from a user store and from a third party
+ * user store at the same time, in RPCs of at most 100 users each, or else creates a dummy user
+ * immediately without conversion:
+ *
+ * <pre>{@code
+ * ConcurrentFunnel<User> funnel = new ConcurrentFunnel<>(Fanout.withMaxConcurrency(10), 100);
+ * ConcurrentFunnel.Batch<Long, User> userStoreBatch = funnel.through(userStore::loadUsers);
+ * ConcurrentFunnel.Batch<ThirdPartyUser, User> thirdPartyBatch =
+ *     funnel.through(thirdPartyClient::loadUsers);
+ * for (UserDto dto : users) {
+ *   if (dto.hasUserId()) {
+ *     userStoreBatch.accept(dto.getUserId());
+ *   } else if (dto.hasThirdParty()) {
+ *     thirdPartyBatch.accept(dto.getThirdParty());
+ *   } else {
+ *     funnel.add(createDummyUser(dto));
+ *   }
+ * }
+ * List<User> users = funnel.run();
+ * }</pre>
+ *
+ * <p>Elements flow out of the funnel in the same order as they enter, regardless of which
+ * {@link Batch} converted them, how the batches were split, or if they were directly {@link #add
+ * added} into the funnel without conversion.
+ *
+ * <p>Batch converter functions are invoked concurrently and must be thread safe. Everything else,
+ * including the post-conversion functions passed to {@link Batch#accept(Object, Function)
+ * Batch.accept()} and the aftereffects passed to {@link Batch#acceptAndThen
+ * Batch.acceptAndThen()}, is run in the calling thread.
+ *
+ * <p>This class isn't thread safe. Elements are expected to be added from a single thread.
+ *
+ * @param <T> the output type
+ * @since 8.6
+ */
+public final class ConcurrentFunnel<T> {
+  private final Parallelizer parallelizer;
+  private final int maxBatchSize;
+  private int size = 0;
+  private final List<Batch<?, T>> batches = new ArrayList<>();
+  private final Batch<T, T> passthrough;
+
+  /**
+   * Constructs a funnel that runs batch conversions with {@code parallelizer}, passing no more than
+   * {@code maxBatchSize} elements to each invocation of the batch converter functions.
+   */
+  public ConcurrentFunnel(Parallelizer parallelizer, int maxBatchSize) {
+    if (maxBatchSize <= 0) throw new IllegalArgumentException("maxBatchSize = " + maxBatchSize);
+    this.parallelizer = requireNonNull(parallelizer);
+    this.maxBatchSize = maxBatchSize;
+    this.passthrough = new Batch<>(this, null);
+  }
+
+  /**
+   * Holds the elements to be converted through a single batch conversion.
+   *
+   * @param <F> batch input element type
+   * @param <T> batch output element type
+   */
+  public static final class Batch<F, T> implements Consumer<F> {
+    private final ConcurrentFunnel<T> funnel;
+    private final Function<? super List<F>, ? extends Collection<? extends T>> converter;
+    private final List<Indexed<F, T>> indexedSources = new ArrayList<>();
+
+    Batch(
+        ConcurrentFunnel<T> funnel,
+        Function<? super List<F>, ? extends Collection<? extends T>> converter) {
+      this.funnel = funnel;
+      this.converter = converter;
+    }
+
+    /** Adds {@code source} to be converted. */
+    @Override public void accept(F source) {
+      accept(source, Function.identity());
+    }
+
+    /**
+     * Adds {@code source} to be converted.
+     * {@code postConversion} will be applied in the calling thread of {@link
+     * ConcurrentFunnel#run} after the batch conversion completes, to compute the final result for
+     * this input.
+     */
+    public void accept(F source, Function<? super T, ? extends T> postConversion) {
+      indexedSources.add(new Indexed<>(funnel.size++, source, postConversion));
+    }
+
+    /**
+     * Adds {@code source} to be converted.
+     * {@code aftereffect} will be applied in the calling thread of {@link ConcurrentFunnel#run}
+     * against the conversion result after the batch completes.
+     *
+     * <p>Named differently from {@link #accept(Object, Function)} so that a lambda like {@code
+     * v -> log(v)} is never ambiguous between the two.
+     */
+    public void acceptAndThen(F source, Consumer<? super T> aftereffect) {
+      requireNonNull(aftereffect);
+      accept(source, v -> {
+        aftereffect.accept(v);
+        return v;
+      });
+    }
+
+    /** Returns the tasks to convert each chunk of up to {@code maxBatchSize} elements. */
+    Stream<Runnable> conversions(int maxBatchSize, List<Object> rawResults) {
+      List<Runnable> tasks = new ArrayList<>();
+      for (int from = 0; from < indexedSources.size(); from += maxBatchSize) {
+        List<Indexed<F, T>> chunk =
+            indexedSources.subList(from, Math.min(from + maxBatchSize, indexedSources.size()));
+        tasks.add(() -> convertInto(chunk, rawResults));
+      }
+      return tasks.stream();
+    }
+
+    private void convertInto(List<Indexed<F, T>> chunk, List<Object> rawResults) {
+      List<F> params = new ArrayList<>(chunk.size());
+      for (Indexed<F, T> indexed : chunk) {
+        params.add(indexed.value);
+      }
+      List<T> results = new ArrayList<>(converter.apply(params));
+      if (params.size() != results.size()) {
+        throw new IllegalStateException(
+            converter + " expected to return " + params.size() + " elements for input "
+                + params + ", but got " + results + " of size " + results.size() + ".");
+      }
+      for (int i = 0; i < chunk.size(); i++) {
+        rawResults.set(chunk.get(i).index, results.get(i));
+      }
+    }
+
+    @SuppressWarnings("unchecked")  // rawResults are set at the indices by the Batch of type T.
+    void postConvertInto(List<Object> rawResults, List<T> output) {
+      for (Indexed<F, T> indexed : indexedSources) {
+        T raw = converter == null ? (T) indexed.value : (T) rawResults.get(indexed.index);
+        output.set(indexed.index, indexed.converter.apply(raw));
+      }
+    }
+  }
+
+  /**
+   * Returns a {@link Batch} accepting elements that, when {@link #run} is called,
+   * will be converted in batches of up to {@code maxBatchSize} elements through {@code converter}.
+   */
+  public <F> Batch<F, T> through(
+      Function<? super List<F>, ? extends Collection<? extends T>> converter) {
+    Batch<F, T> batch = new Batch<>(this, requireNonNull(converter));
+    batches.add(batch);
+    return batch;
+  }
+
+  /** Adds {@code element} to the funnel. */
+  public void add(T element) {
+    passthrough.accept(element);
+  }
+
+  /**
+   * Runs all batch conversions concurrently and returns conversion results together with elements
+   * {@link #add added} as is, in encounter order.
+   *
+   * <p>Blocks until all batch conversions have completed. If any batch conversion fails, the
+   * pending conversions are canceled.
+   *
+   * @throws StructuredConcurrencyInterruptedException if the current thread is interrupted while
+   *     waiting for the batch conversions to complete. The unfinished batch conversions will be
+   *     canceled.
+   * @throws RuntimeException wrapping the original exception if any batch conversion failed
+   */
+  public List<T> run() {
+    List<Object> rawResults = new ArrayList<>(Collections.nCopies(size, null));
+    try (Completion completion = new Completion()) {
+      parallelizer.parallelize(
+          batches.stream()
+              .flatMap(batch -> batch.conversions(maxBatchSize, rawResults))
+              .map(conversion -> () -> completion.run(conversion)));
+    } catch (InterruptedException e) {
+      throw new StructuredConcurrencyInterruptedException(e);
+    }
+    List<T> output = new ArrayList<>(Collections.nCopies(size, null));
+    passthrough.postConvertInto(rawResults, output);
+    for (Batch<?, T> batch : batches) {
+      batch.postConvertInto(rawResults, output);
+    }
+    return output;
+  }
+
+  private static final class Indexed<F, T> {
+    final int index;
+    final F value;
+    final Function<? super T, ? extends T> converter;
+
+    Indexed(int index, F value, Function<? super T, ? extends T> converter) {
+      this.index = index;
+      this.value = requireNonNull(value);
+      this.converter = requireNonNull(converter);
+    }
+  }
+}
@@ -429,7 +429,7 @@ public final class Fanout {
    * propagation etc.
    */
   public static Parallelizer withMaxConcurrency(int maxConcurrency) {
-    return new Parallelizer(Scope.executor, maxConcurrency);
+    return new Parallelizer(structuredConcurrencyExecutor(), maxConcurrency);
   }
 
   /**
@@ -442,6 +442,11 @@ public final class Fanout {
     return withMaxConcurrency(Integer.MAX_VALUE);
   }
 
+  /** Returns the executor configured through {@link StructuredConcurrencyExecutorPlugin}. */
+  static ExecutorService structuredConcurrencyExecutor() {
+    return Scope.executor;
+  }
+
   /** Function to join two results from concurrent computation. */
   public interface Join2<A, B, R, X extends Throwable> {
     R join(A a, B b) throws X;
@@ -482,7 +487,9 @@ public final class Fanout {
 
     void run() throws StructuredConcurrencyInterruptedException {
       try (Completion completion = new Completion()) {
-        withUnlimitedConcurrency().parallelize(runnables.stream().map(completion::toRun));
+        // Join each task only once it starts. Tasks canceled before running would never arrive.
+        withUnlimitedConcurrency()
+            .parallelize(runnables.stream().map(task -> () -> completion.run(task)));
       } catch (InterruptedException e) {
         throw new StructuredConcurrencyInterruptedException(e);
       }
@@ -491,7 +498,8 @@ public final class Fanout {
     @Deprecated
     void runUninterruptibly() {
       try (Completion completion = new Completion()) {
-        withUnlimitedConcurrency().parallelizeUninterruptibly(runnables.stream().map(completion::toRun));
+        withUnlimitedConcurrency()
+            .parallelizeUninterruptibly(runnables.stream().map(task -> () -> completion.run(task)));
       }
     }
   }
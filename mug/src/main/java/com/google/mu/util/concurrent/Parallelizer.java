@@ -618,9 +618,14 @@ public final class Parallelizer {
     }
   }
 
-  /** While we don't pull in Guava for its {@code UncheckedExecutionException}. */
-  static class UncheckedExecutionException extends RuntimeException {
-    UncheckedExecutionException(Throwable cause) {
+  /**
+   * Wraps the exception thrown by a concurrent task, and propagated to the waiting thread.
+   * While we don't pull in Guava for its {@code UncheckedExecutionException}.
+   *
+   * @since 8.6
+   */
+  public static class UncheckedExecutionException extends RuntimeException {
+    public UncheckedExecutionException(Throwable cause) {
       super(cause);
     }
     private static final long serialVersionUID = 1L;
@@ -0,0 +1,148 @@
+/*****************************************************************************
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package com.google.mu.util.concurrent;
+
+import static java.util.Objects.requireNonNull;
+import static java.util.function.Function.identity;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Function;
+
+import com.google.mu.util.concurrent.Parallelizer.UncheckedExecutionException;
+
+/**
+ * Coalesces concurrent requests for the same key into a single in-flight call, to protect the
+ * backend from thundering herds when many threads miss the same hot key at once.
+ *
+ * <p>For example:
+ *
+ * <pre>{@code
+ * private final SingleFlight<UserId, User> userLoads = new SingleFlight<>();
+ *
+ * User getUser(UserId id) {
+ *   User cached = cache.get(id);
+ *   if (cached != null) return cached;
+ *   return userLoads.load(id, userService::fetchUser);
+ * }
+ * }</pre>
+ *
+ * <p>The first caller for a key invokes the loader; concurrent callers for the same key wait for
+ * and share its result. Once the call completes, the key is forgotten and the next caller will
+ * invoke the loader again. That is, this class doesn't cache: it only deduplicates the calls that
+ * overlap in time.
+ *
+ * <p>Failures are propagated per key: if the in-flight call fails, every caller that shares it
+ * fails too, while calls for other keys are unaffected. Consistent with {@link Fanout}, the caller
+ * that invoked the loader sees the original exception, while the other callers see a {@link
+ * RuntimeException} wrapping it; and a waiting caller that is interrupted throws {@link
+ * StructuredConcurrencyInterruptedException} (with the thread's interrupted bit set), leaving the
+ * shared call running for the remaining callers.
+ *
+ * <p>Memory consistency effects: actions in the loader <i>happen-before</i> the {@code load()}
+ * method returns in each of the callers that share the result.
+ *
+ * <p>Keys must implement {@link Object#equals} and {@link Object#hashCode} consistently.
+ *
+ * @since 8.6
+ */
+public final class SingleFlight<K, V> {
+  private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+  /**
+   * Returns the result of {@code loader} for {@code key}, blocking until it's available.
+   *
+   * <p>If another call for the same key is already in flight, waits for and returns its result
+   * instead of invoking {@code loader}. Otherwise {@code loader} is invoked in the current thread.
+   *
+   * @throws StructuredConcurrencyInterruptedException if the current thread is interrupted while
+   *     waiting for the in-flight call started by another thread
+   * @throws RuntimeException wrapping the original exception if the in-flight call started by
+   *     another thread failed
+   */
+  public V load(K key, Function<? super K, ? extends V> loader) {
+    requireNonNull(key);
+    requireNonNull(loader);
+    CompletableFuture<V> mine = new CompletableFuture<>();
+    CompletableFuture<V> shared = inFlight.putIfAbsent(key, mine);
+    if (shared != null) return await(shared);
+    try {
+      V result = loader.apply(key);
+      inFlight.remove(key, mine);
+      mine.complete(result);
+      return result;
+    } catch (Throwable e) {
+      inFlight.remove(key, mine);
+      mine.completeExceptionally(e);
+      throw e;
+    }
+  }
+
+  /**
+   * Returns a {@link CompletionStage} of the result of {@code asyncLoader} for {@code key}.
+   *
+   * <p>If another call for the same key is already in flight (started by either {@code load()} or
+   * {@code loadAsync()}), the returned stage completes with its result instead of invoking
+   * {@code asyncLoader}. Otherwise {@code asyncLoader} is invoked in the current thread.
+   * Unchecked exceptions thrown by {@code asyncLoader} directly are propagated, and the callers
+   * sharing the call fail with the same exception.
+   *
+   * <p>Each caller gets its own stage: canceling it doesn't affect the other callers or the shared
+   * in-flight call.
+   */
+  public CompletionStage<V> loadAsync(
+      K key, Function<? super K, ? extends CompletionStage<? extends V>> asyncLoader) {
+    requireNonNull(key);
+    requireNonNull(asyncLoader);
+    CompletableFuture<V> mine = new CompletableFuture<>();
+    CompletableFuture<V> shared = inFlight.putIfAbsent(key, mine);
+    if (shared != null) return shared.thenApply(identity());
+    CompletionStage<? extends V> stage;
+    try {
+      stage = requireNonNull(asyncLoader.apply(key));
+    } catch (Throwable e) {
+      inFlight.remove(key, mine);
+      mine.completeExceptionally(e);
+      throw e;
+    }
+    stage.whenComplete((v, e) -> {
+      inFlight.remove(key, mine);
+      if (e == null) {
+        mine.complete(v);
+      } else {
+        mine.completeExceptionally(e);
+      }
+    });
+    return mine.thenApply(identity());
+  }
+
+  /** Returns whether a call for {@code key} is currently in flight. */
+  public boolean isInFlight(K key) {
+    return inFlight.containsKey(key);
+  }
+
+  private static <V> V await(CompletableFuture<V> shared) {
+    try {
+      return shared.get();
+    } catch (InterruptedException e) {
+      throw new StructuredConcurrencyInterruptedException(e);
+    } catch (ExecutionException e) {
+      throw new UncheckedExecutionException(e.getCause());
+    }
+  }
+}
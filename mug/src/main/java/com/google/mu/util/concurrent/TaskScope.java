@@ -0,0 +1,369 @@
+/*****************************************************************************
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package com.google.mu.util.concurrent;
+
+import static java.util.Objects.requireNonNull;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import com.google.mu.util.concurrent.Parallelizer.UncheckedExecutionException;
+
+/**
+ * A structured concurrency scope for long-running units of work that may fork thousands of
+ * subtasks, similar to the JDK {@code StructuredTaskScope.ShutdownOnFailure}, but available on
+ * Java 8+.
+ *
+ * <p>For example:
+ *
+ * <pre>{@code
+ * try (TaskScope scope = TaskScope.open(10)) {
+ *   List<TaskScope.Subtask<Page>> pages = new ArrayList<>();
+ *   for (PageId id : pageIds) {
+ *     pages.add(scope.fork(() -> fetchPage(id)));
+ *   }
+ *   scope.join(Duration.ofMinutes(5));
+ *   ...
+ * }
+ * }</pre>
+ *
+ * <p>Only the in-flight subtasks are tracked by the scope. Subtasks that have completed are
+ * forgotten, so the memory used by the scope is proportional to the number of concurrently running
+ * subtasks, regardless of how many are forked in total. With a max concurrency, {@link #fork
+ * fork()} blocks until a running subtask completes, which bounds the memory further and applies
+ * backpressure to the forking thread.
+ *
+ * <p>If any subtask fails, the scope is {@link #shutdown shut down}: running subtasks are canceled,
+ * subsequent forks are skipped, and {@link #join join()} throws. Subtasks can also check {@link
+ * #isShutdown} to stop cooperatively.
+ *
+ * <p>The forking and joining are expected to be done by the thread that opened the scope. No
+ * subtask outlives the scope: {@link #close} shuts the scope down and waits for all subtasks to
+ * terminate.
+ *
+ * <p>By default, subtasks run in the executor configured through {@link
+ * StructuredConcurrencyExecutorPlugin}, which is virtual threads if available.
+ *
+ * <p>Memory consistency effects: Actions in the forking thread prior to {@code fork()}
+ * <i>happen-before</i> the subtask runs, which happens-before {@code join()} returns.
+ *
+ * @since 8.6
+ */
+public final class TaskScope implements AutoCloseable {
+  private final ExecutorService executor;
+  private final Semaphore permits;
+  private final ConcurrentMap<Subtask<?>, Future<?>> inFlight = new ConcurrentHashMap<>();
+  private final AtomicReference<Throwable> failure = new AtomicReference<>();
+  private volatile boolean shutdown;
+  private final Object lock = new Object();
+  private int outstanding;  // guarded by lock
+
+  /**
+   * Constructs a {@code TaskScope} that runs subtasks with {@code executor}, with at most
+   * {@code maxConcurrency} subtasks running concurrently.
+   */
+  public TaskScope(ExecutorService executor, int maxConcurrency) {
+    if (maxConcurrency <= 0) throw new IllegalArgumentException("maxConcurrency = " + maxConcurrency);
+    this.executor = requireNonNull(executor);
+    this.permits = new Semaphore(maxConcurrency);
+  }
+
+  /**
+   * Opens a {@code TaskScope} with unlimited concurrency using the currently configured standard
+   * (virtual thread) executor.
+   */
+  public static TaskScope open() {
+    return open(Integer.MAX_VALUE);
+  }
+
+  /**
+   * Opens a {@code TaskScope} with at most {@code maxConcurrency} subtasks running concurrently,
+   * using the currently configured standard (virtual thread) executor.
+   */
+  public static TaskScope open(int maxConcurrency) {
+    return new TaskScope(Fanout.structuredConcurrencyExecutor(), maxConcurrency);
+  }
+
+  /**
+   * Forks {@code task} to run concurrently in the scope, blocking if the max concurrency has been
+   * reached.
+   *
+   * <p>If the scope is already shut down, {@code task} is skipped and the returned subtask is
+   * {@link Subtask.State#CANCELLED canceled}.
+   *
+   * @throws StructuredConcurrencyInterruptedException if the current thread is interrupted while
+   *     waiting for a running subtask to complete
+   */
+  public <T> Subtask<T> fork(Supplier<? extends T> task) {
+    requireNonNull(task);
+    Subtask<T> subtask = new Subtask<>();
+    if (shutdown) {
+      subtask.cancelIfNotStarted();
+      return subtask;
+    }
+    try {
+      permits.acquire();
+    } catch (InterruptedException e) {
+      throw new StructuredConcurrencyInterruptedException(e);
+    }
+    synchronized (lock) {
+      outstanding++;
+    }
+    Future<?> future;
+    try {
+      future = executor.submit(() -> run(subtask, task));
+    } catch (RuntimeException e) {
+      subtask.cancelIfNotStarted();
+      finish();
+      throw e;
+    }
+    inFlight.put(subtask, future);
+    // Either the subtask or shutdown() may have missed the put() if racing with it.
+    if (subtask.isDone()) inFlight.remove(subtask);
+    if (shutdown) cancel(subtask, future);
+    return subtask;
+  }
+
+  /**
+   * Waits for all forked subtasks to complete.
+   *
+   * @throws StructuredConcurrencyInterruptedException if the current thread is interrupted while
+   *     waiting. The scope is shut down.
+   * @throws RuntimeException wrapping the original exception if any subtask failed
+   */
+  public void join() {
+    try {
+      await(Long.MAX_VALUE);
+    } catch (InterruptedException e) {
+      shutdown();
+      throw new StructuredConcurrencyInterruptedException(e);
+    }
+    propagateFailure();
+  }
+
+  /**
+   * Waits for all forked subtasks to complete, up to {@code timeout}.
+   *
+   * @throws TimeoutException if {@code timeout} has elapsed before all subtasks complete.
+   *     The scope is shut down and the still running subtasks are canceled.
+   * @throws StructuredConcurrencyInterruptedException if the current thread is interrupted while
+   *     waiting. The scope is shut down.
+   * @throws RuntimeException wrapping the original exception if any subtask failed
+   */
+  public void join(Duration timeout) throws TimeoutException {
+    boolean completed;
+    try {
+      completed = await(timeout.toNanos());
+    } catch (InterruptedException e) {
+      shutdown();
+      throw new StructuredConcurrencyInterruptedException(e);
+    }
+    propagateFailure();
+    if (!completed) {
+      shutdown();
+      throw new TimeoutException("Subtasks not completed in " + timeout);
+    }
+  }
+
+  /**
+   * Shuts down the scope: running subtasks are canceled (interrupted), the not-yet-started subtasks
+   * are skipped and subsequent {@link #fork forks} are ignored.
+   *
+   * <p>Can be called from any thread, including from within a subtask.
+   */
+  public void shutdown() {
+    shutdown = true;
+    for (Map.Entry<Subtask<?>, Future<?>> entry : inFlight.entrySet()) {
+      cancel(entry.getKey(), entry.getValue());
+    }
+  }
+
+  /** Returns true if the scope has been shut down, either explicitly or due to failure. */
+  public boolean isShutdown() {
+    return shutdown;
+  }
+
+  /**
+   * Shuts down the scope and waits for all subtasks to terminate.
+   *
+   * <p>The wait is uninterruptible to make sure no subtask outlives the scope. If the current
+   * thread is interrupted while waiting, the interrupted bit is restored upon return.
+   */
+  @Override public void close() {
+    shutdown();
+    boolean interrupted = false;
+    for (; ; ) {
+      try {
+        await(Long.MAX_VALUE);
+        break;
+      } catch (InterruptedException e) {
+        interrupted = true;
+      }
+    }
+    if (interrupted) Thread.currentThread().interrupt();
+  }
+
+  private <T> void run(Subtask<T> subtask, Supplier<? extends T> task) {
+    if (!subtask.start()) return;  // canceled before started.
+    try {
+      subtask.succeeded(task.get());
+    } catch (Throwable e) {
+      subtask.failed();
+      if (!failure.compareAndSet(null, e) && !Thread.currentThread().isInterrupted()) {
+        // If interrupted, it's likely due to the cancellation upon the first failure. Don't add
+        // the noise.
+        failure.get().addSuppressed(e);
+      }
+      shutdown();
+    } finally {
+      inFlight.remove(subtask);
+      finish();
+    }
+  }
+
+  private void cancel(Subtask<?> subtask, Future<?> future) {
+    if (subtask.cancelIfNotStarted()) {
+      inFlight.remove(subtask);
+      future.cancel(false);
+      finish();
+    } else {
+      future.cancel(true);
+    }
+  }
+
+  private void finish() {
+    permits.release();
+    synchronized (lock) {
+      if (--outstanding == 0) {
+        lock.notifyAll();
+      }
+    }
+  }
+
+  /**
+   * Returns false if {@code timeoutNanos} has elapsed before all subtasks completed.
+   * {@code Long.MAX_VALUE} waits forever.
+   */
+  private boolean await(long timeoutNanos) throws InterruptedException {
+    long start = System.nanoTime();
+    synchronized (lock) {
+      while (outstanding > 0) {
+        if (timeoutNanos == Long.MAX_VALUE) {
+          lock.wait();
+        } else {
+          long remaining = timeoutNanos - (System.nanoTime() - start);
+          if (remaining <= 0) return false;
+          TimeUnit.NANOSECONDS.timedWait(lock, remaining);
+        }
+      }
+    }
+    return true;
+  }
+
+  private void propagateFailure() {
+    Throwable exception = failure.get();
+    if (exception != null) {
+      throw new UncheckedExecutionException(exception);
+    }
+  }
+
+  /**
+   * A subtask forked in a {@link TaskScope}. Only holds the result, with no reference back to the
+   * scope.
+   */
+  public static final class Subtask<T> implements Supplier<T> {
+    /** The states of a subtask. */
+    public enum State {
+      /** Not yet completed. */
+      PENDING,
+      /** Completed with a result. */
+      SUCCEEDED,
+      /** Completed with an exception. */
+      FAILED,
+      /** Skipped because the scope was shut down before the subtask had a chance to run. */
+      CANCELLED,
+    }
+
+    private static final int NEW = 0;
+    private static final int RUNNING = 1;
+    private static final int SUCCEEDED = 2;
+    private static final int FAILED = 3;
+    private static final int CANCELLED = 4;
+
+    private final AtomicInteger state = new AtomicInteger(NEW);
+    private T result;  // published by state
+
+    Subtask() {}
+
+    /** Returns the current state of the subtask. */
+    public State state() {
+      switch (state.get()) {
+        case SUCCEEDED:
+          return State.SUCCEEDED;
+        case FAILED:
+          return State.FAILED;
+        case CANCELLED:
+          return State.CANCELLED;
+        default:
+          return State.PENDING;
+      }
+    }
+
+    /**
+     * Returns the result of the subtask.
+     *
+     * @throws IllegalStateException if the subtask hasn't {@link State#SUCCEEDED succeeded}
+     */
+    @Override public T get() {
+      Utils.checkState(state.get() == SUCCEEDED, "Subtask is %s", state());
+      return result;
+    }
+
+    @Override public String toString() {
+      return "Subtask(" + state() + ")";
+    }
+
+    boolean start() {
+      return state.compareAndSet(NEW, RUNNING);
+    }
+
+    boolean cancelIfNotStarted() {
+      return state.compareAndSet(NEW, CANCELLED);
+    }
+
+    boolean isDone() {
+      return state.get() > RUNNING;
+    }
+
+    void succeeded(T value) {
+      result = value;
+      state.set(SUCCEEDED);
+    }
+
+    void failed() {
+      state.set(FAILED);
+    }
+  }
+}
@@ -0,0 +1,256 @@
+/*****************************************************************************
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package com.google.mu.util.graph;
+
+import static com.google.mu.util.graph.Walker.nonNullList;
+import static com.google.mu.util.stream.MoreStreams.whileNotNull;
+import static java.util.Objects.requireNonNull;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import com.google.mu.util.concurrent.Parallelizer.UncheckedExecutionException;
+import com.google.mu.util.concurrent.StructuredConcurrencyInterruptedException;
+
+/**
+ * Walker for graphs whose successors are looked up asynchronously, for example through an RPC
+ * client returning {@link CompletionStage}. Up to {@code maxInFlight} successor lookups are kept
+ * in flight at any time, so that crawling a large remote graph isn't bottlenecked on one round
+ * trip at a time.
+ *
+ * <p>For example:
+ *
+ * <pre>{@code
+ * try (Stream<PackageId> packages =
+ *     AsyncGraphWalker.inGraph(depsClient::getDirectDependenciesAsync, 20).walkFrom(root)) {
+ *   packages.filter(PackageId::isDeprecated).forEach(...);
+ * }
+ * }</pre>
+ *
+ * <p>The start nodes are visited first. After that, a node is visited as soon as the lookup
+ * that discovered it resolves. So the order is roughly breadth-first, but not deterministic.
+ *
+ * <p>The lookups are initiated, and the node tracker called, only from the thread consuming the
+ * stream. The tracker therefore doesn't need to be thread safe.
+ *
+ * <p>Closing the returned stream cancels all in-flight lookups. It's recommended to use
+ * try-with-resources, in particular if the stream may be short-circuited (by {@code findFirst()}
+ * or {@code limit()} for example). If any lookup fails, or {@code findSuccessors} throws, the
+ * other in-flight lookups are canceled too, and the exception is propagated wrapped in an {@link
+ * UncheckedExecutionException}, the same as with {@link
+ * GraphWalker#breadthFirstLevelsFrom(com.google.mu.util.concurrent.Parallelizer, Iterable)
+ * breadthFirstLevelsFrom(Parallelizer)}.
+ *
+ * @param <N> the graph node type
+ * @since 8.6
+ */
+public final class AsyncGraphWalker<N> {
+  private final Function<? super N, ? extends CompletionStage<? extends Collection<? extends N>>>
+      findSuccessors;
+  private final Supplier<? extends Predicate<? super N>> newTracker;
+  private final int maxInFlight;
+
+  private AsyncGraphWalker(
+      Function<? super N, ? extends CompletionStage<? extends Collection<? extends N>>>
+          findSuccessors,
+      Supplier<? extends Predicate<? super N>> newTracker,
+      int maxInFlight) {
+    this.findSuccessors = requireNonNull(findSuccessors);
+    if (maxInFlight <= 0) throw new IllegalArgumentException("maxInFlight = " + maxInFlight);
+    this.newTracker = newTracker;
+    this.maxInFlight = maxInFlight;
+  }
+
+  /**
+   * Returns an {@code AsyncGraphWalker} to walk the graph topology (possibly with cycles) as
+   * observed by the {@code findSuccessors} function, with at most {@code maxInFlight} lookups
+   * in flight at any time.
+   *
+   * <p>Because the traversal needs to remember which node(s) have been traversed, memory usage is
+   * linear to the number of traversed nodes.
+   *
+   * @param findSuccessors Function to asynchronously look up the successor nodes for a given node.
+   *        No successor if null or empty collection is returned.
+   * @param maxInFlight the max number of concurrent lookups
+   */
+  public static <N> AsyncGraphWalker<N> inGraph(
+      Function<? super N, ? extends CompletionStage<? extends Collection<? extends N>>>
+          findSuccessors,
+      int maxInFlight) {
+    return new AsyncGraphWalker<>(findSuccessors, () -> new HashSet<N>()::add, maxInFlight);
+  }
+
+  /**
+   * Similar to {@link #inGraph(Function, int)}, but uses {@code tracker} to track every node being
+   * traversed. When the walker is about to visit a node, {@code tracker.test(node)} will be called
+   * and the node (together with its edges) will be skipped if false is returned.
+   *
+   * @param findSuccessors Function to asynchronously look up the successor nodes for a given node.
+   *        No successor if null or empty collection is returned.
+   * @param tracker Tracks each node being visited during traversal. Returns false if the node
+   *        and its edges should be skipped for traversal (for example because it has already been
+   *        traversed).
+   * @param maxInFlight the max number of concurrent lookups
+   */
+  public static <N> AsyncGraphWalker<N> inGraph(
+      Function<? super N, ? extends CompletionStage<? extends Collection<? extends N>>>
+          findSuccessors,
+      Predicate<? super N> tracker,
+      int maxInFlight) {
+    requireNonNull(tracker);
+    return new AsyncGraphWalker<>(findSuccessors, () -> tracker, maxInFlight);
+  }
+
+  /**
+   * Starts from {@code startNodes} and walks the graph, yielding each node as it's discovered.
+   *
+   * <p>Closing the returned stream cancels the in-flight lookups.
+   *
+   * @throws StructuredConcurrencyInterruptedException if the consuming thread is interrupted while
+   *     waiting for a lookup to resolve. The in-flight lookups are canceled.
+   */
+  @SafeVarargs public final Stream<N> walkFrom(N... startNodes) {
+    return walkFrom(nonNullList(startNodes));
+  }
+
+  /**
+   * Starts from {@code startNodes} and walks the graph, yielding each node as it's discovered.
+   *
+   * <p>Closing the returned stream cancels the in-flight lookups.
+   *
+   * @throws StructuredConcurrencyInterruptedException if the consuming thread is interrupted while
+   *     waiting for a lookup to resolve. The in-flight lookups are canceled.
+   */
+  public Stream<N> walkFrom(Iterable<? extends N> startNodes) {
+    Walk walk = new Walk(startNodes);
+    return whileNotNull(walk::next).onClose(walk::cancel);
+  }
+
+  private final class Walk {
+    private final Predicate<? super N> tracker = newTracker.get();
+    private final Deque<N> toVisit = new ArrayDeque<>();
+    private final Deque<N> toExpand = new ArrayDeque<>();
+    /** The unresolved lookups. The same stage may be returned for different nodes. */
+    private final List<CompletionStage<?>> inFlight = new ArrayList<>();
+    private final BlockingQueue<Lookup> resolved = new LinkedBlockingQueue<>();
+    private Iterable<? extends N> startNodes;
+    private boolean canceled;
+
+    Walk(Iterable<? extends N> startNodes) {
+      this.startNodes = requireNonNull(startNodes);
+    }
+
+    private void discover(N node) {
+      if (tracker.test(requireNonNull(node))) {
+        toVisit.add(node);
+        toExpand.add(node);
+      }
+    }
+
+    N next() {
+      if (startNodes != null) {
+        startNodes.forEach(this::discover);
+        startNodes = null;
+      }
+      while (toVisit.isEmpty()) {
+        while (inFlight.size() < maxInFlight && !toExpand.isEmpty() && !canceled) {
+          expand(toExpand.remove());
+        }
+        if (inFlight.isEmpty()) return null;
+        Lookup lookup;
+        try {
+          lookup = resolved.take();
+        } catch (InterruptedException e) {
+          cancel();
+          throw new StructuredConcurrencyInterruptedException(e);
+        }
+        release(lookup.stage);
+        if (lookup.exception != null) {
+          cancel();
+          throw new UncheckedExecutionException(lookup.exception);
+        }
+        if (lookup.successors != null) lookup.successors.forEach(this::discover);
+      }
+      return toVisit.remove();
+    }
+
+    void cancel() {
+      canceled = true;
+      for (CompletionStage<?> stage : inFlight) {
+        try {
+          stage.toCompletableFuture().cancel(true);
+        } catch (UnsupportedOperationException e) {
+          // Without a Future we cannot propagate cancellation. The result will be ignored anyway.
+        }
+      }
+      inFlight.clear();
+      toExpand.clear();
+    }
+
+    /** Removes one occurrence of {@code stage}, by identity rather than {@code equals()}. */
+    private void release(CompletionStage<?> stage) {
+      for (int i = inFlight.size() - 1; i >= 0; i--) {
+        if (inFlight.get(i) == stage) {
+          inFlight.remove(i);
+          return;
+        }
+      }
+    }
+
+    private void expand(N node) {
+      CompletionStage<? extends Collection<? extends N>> stage;
+      try {
+        stage = findSuccessors.apply(node);
+      } catch (RuntimeException | Error e) {
+        cancel();
+        throw new UncheckedExecutionException(e);
+      }
+      if (stage == null) return;
+      inFlight.add(stage);
+      stage.whenComplete(
+          (successors, e) -> resolved.add(new Lookup(stage, successors, unwrap(e))));
+    }
+
+    private final class Lookup {
+      final CompletionStage<?> stage;
+      final Collection<? extends N> successors;
+      final Throwable exception;
+
+      Lookup(CompletionStage<?> stage, Collection<? extends N> successors, Throwable exception) {
+        this.stage = stage;
+        this.successors = successors;
+        this.exception = exception;
+      }
+    }
+  }
+
+  private static Throwable unwrap(Throwable exception) {
+    return exception instanceof CompletionException && exception.getCause() != null
+        ? exception.getCause()
+        : exception;
+  }
+}
@@ -15,7 +15,6 @@
 package com.google.mu.util.graph;
 
 import static com.google.mu.util.stream.MoreStreams.whileNotNull;
-import static com.google.mu.util.stream.MoreStreams.withSideEffect;
 import static java.util.Arrays.asList;
 import static java.util.Objects.requireNonNull;
 
@@ -23,8 +22,12 @@ import java.util.ArrayDeque;
 import java.util.BitSet;
 import java.util.Deque;
 import java.util.Queue;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
 import java.util.function.UnaryOperator;
 import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Walker for binary tree topology (see {@link Walker#inBinaryTree Walker.inBinaryTree()}).
@@ -47,18 +50,27 @@ public final class BinaryTreeWalker<N> extends Walker<N> {
   /**
    * Returns a lazy stream for breadth-first traversal from {@code root}.
    * Empty stream is returned if {@code roots} is empty.
+   *
+   * <p>If the stream is {@link Stream#parallel parallel}, batches of the nodes pending in the
+   * frontier are handed off to other threads, while their children are found by the thread that
+   * continues the traversal. The encounter order is preserved.
    */
   @Override
   public Stream<N> breadthFirstFrom(Iterable<? extends N> roots) {
-    return topDown(roots, Queue::add);
+    return StreamSupport.stream(new BreadthFirst(roots), false);
   }
 
   /**
    * Returns a lazy stream for pre-order traversal from {@code roots}.
    * Empty stream is returned if {@code roots} is empty.
+   *
+   * <p>If the stream is {@link Stream#parallel parallel}, the subtrees are split across threads,
+   * each traversing its own subtrees (the {@code getLeft} and {@code getRight} functions then need
+   * to be thread safe). Splitting is lazy so infinite trees can still be traversed with
+   * short-circuiting operations like {@code limit()}; and the encounter order is preserved.
    */
   @Override public Stream<N> preOrderFrom(Iterable<? extends N> roots) {
-    return inBinaryTree(getRight, getLeft).topDown(roots, Deque::push);
+    return StreamSupport.stream(new PreOrder(toDeque(roots), null, Long.MAX_VALUE), false);
   }
 
   /**
@@ -106,16 +118,128 @@ public final class BinaryTreeWalker<N> extends Walker<N> {
     return whileNotNull(new InOrder(roots)::nextOrNull);
   }
 
-  private Stream<N> topDown(Iterable<? extends N> roots, InsertionOrder order) {
-    Deque<N> horizon = toDeque(roots);
-    return withSideEffect(
-        whileNotNull(horizon::poll),
-        n -> {
-          N left = getLeft.apply(n);
-          N right = getRight.apply(n);
-          if (left != null) order.insertInto(horizon, left);
-          if (right != null) order.insertInto(horizon, right);
-        });
+  /**
+   * Pre-order as a stack of pending subtrees. Splitting hands off the subtrees closest to the top
+   * of the stack, which come first in the encounter order.
+   */
+  private final class PreOrder implements Spliterator<N> {
+    private final Deque<N> horizon;
+    private N expanded;  // if set, already has its children pushed, and is the next to return.
+    private long estimate;
+
+    PreOrder(Deque<N> horizon, N expanded, long estimate) {
+      this.horizon = horizon;
+      this.expanded = expanded;
+      this.estimate = estimate;
+    }
+
+    @Override public boolean tryAdvance(Consumer<? super N> action) {
+      N node = expanded;
+      if (node == null) {
+        node = horizon.poll();
+        if (node == null) return false;
+        expand(node);
+      } else {
+        expanded = null;
+      }
+      action.accept(node);
+      return true;
+    }
+
+    @Override public Spliterator<N> trySplit() {
+      if (expanded == null && horizon.size() == 1) {
+        // A single subtree: split its root and left subtree from its right subtree.
+        expanded = horizon.pop();
+        expand(expanded);
+      }
+      int subtrees = horizon.size() / 2;
+      if (expanded == null && subtrees == 0) return null;
+      Deque<N> prefix = new ArrayDeque<>(subtrees);
+      for (int i = 0; i < subtrees; i++) {
+        prefix.add(horizon.pop());
+      }
+      // Like Stream.generate(), halve the unknown size so that infinite trees stop splitting.
+      estimate >>>= 1;
+      Spliterator<N> split = new PreOrder(prefix, expanded, estimate);
+      expanded = null;
+      return split;
+    }
+
+    @Override public long estimateSize() {
+      return expanded == null && horizon.isEmpty() ? 0 : estimate;
+    }
+
+    @Override public int characteristics() {
+      return Spliterator.ORDERED | Spliterator.NONNULL;
+    }
+
+    private void expand(N node) {
+      N right = getRight.apply(node);
+      N left = getLeft.apply(node);
+      if (right != null) horizon.push(right);
+      if (left != null) horizon.push(left);
+    }
+  }
+
+  /**
+   * Breadth-first as a queue of pending nodes. The encounter order interleaves the subtrees, so
+   * splitting instead hands off a batch of nodes from the head of the queue. These nodes stay
+   * at the head so that their children are still queued in order, but won't be returned again.
+   */
+  private final class BreadthFirst implements Spliterator<N> {
+    private static final int MAX_BATCH = 1 << 20;
+    private final Deque<N> horizon;
+    private int returned;  // The number of nodes at the head of the queue already returned.
+    private int batch = 1;
+
+    BreadthFirst(Iterable<? extends N> roots) {
+      this.horizon = toDeque(roots);
+    }
+
+    @Override public boolean tryAdvance(Consumer<? super N> action) {
+      expandReturned();
+      N node = horizon.poll();
+      if (node == null) return false;
+      expand(node);
+      action.accept(node);
+      return true;
+    }
+
+    @Override public Spliterator<N> trySplit() {
+      expandReturned();
+      int size = Math.min(horizon.size(), batch);
+      if (size == 0) return null;
+      Object[] prefix = new Object[size];
+      int i = 0;
+      for (N node : horizon) {
+        if (i == size) break;
+        prefix[i++] = node;
+      }
+      returned = size;
+      batch = Math.min(batch * 2, MAX_BATCH);
+      return Spliterators.spliterator(prefix, Spliterator.ORDERED | Spliterator.NONNULL);
+    }
+
+    @Override public long estimateSize() {
+      return horizon.isEmpty() ? 0 : Long.MAX_VALUE;
+    }
+
+    @Override public int characteristics() {
+      return Spliterator.ORDERED | Spliterator.NONNULL;
+    }
+
+    private void expandReturned() {
+      for (; returned > 0; returned--) {
+        expand(horizon.poll());
+      }
+    }
+
+    private void expand(N node) {
+      N left = getLeft.apply(node);
+      N right = getRight.apply(node);
+      if (left != null) horizon.add(left);
+      if (right != null) horizon.add(right);
+    }
   }
 
   private final class InOrder {
@@ -0,0 +1,287 @@
+/*****************************************************************************
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package com.google.mu.util.graph;
+
+import static java.util.Objects.requireNonNull;
+import static java.util.stream.Collectors.toList;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ToDoubleBiFunction;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import com.google.mu.util.stream.BiStream;
+
+/**
+ * An immutable directed graph stored in the compressed sparse row (CSR) format: nodes are
+ * assigned dense {@code int} ids, and the edges are stored in a few primitive arrays, taking about
+ * 4 bytes per edge (12 bytes if weighted) instead of multiple objects per edge.
+ *
+ * <p>For example:
+ *
+ * <pre>{@code
+ * CsrGraph<String> graph = CsrGraph.fromEdges(BiStream.from(dependencies));
+ * List<String> buildOrder = graph.walker().topologicalOrderFrom(targets);
+ * }</pre>
+ *
+ * <p>The graph works with the existing algorithms through {@link #successors} and {@link
+ * #weightedSuccessors} (for example {@code Walker.inGraph(graph::successors)}). But the {@link
+ * #walker} and {@link ShortestPath#shortestPathsFrom(Object, CsrGraph)} provide fast paths that
+ * operate on the {@code int} ids, and track visited nodes in bit sets and arrays instead of hash
+ * sets.
+ *
+ * <p>The successors of each node are in the same order as the edges are added.
+ *
+ * @param <N> the graph node type. Must implement {@link Object#equals} and {@link
+ *     Object#hashCode}.
+ * @since 8.6
+ */
+public final class CsrGraph<N> {
+  private final List<N> nodes;
+  private final Map<N, Integer> ids;
+  private final int[] offsets;
+  private final int[] targets;
+  private final double[] weights;  // null if unweighted
+
+  private CsrGraph(
+      List<N> nodes, Map<N, Integer> ids, int[] offsets, int[] targets, double[] weights) {
+    this.nodes = nodes;
+    this.ids = ids;
+    this.offsets = offsets;
+    this.targets = targets;
+    this.weights = weights;
+  }
+
+  /**
+   * Builds an unweighted graph from {@code edges}, with each pair being the source and the target
+   * node of an edge. Every edge has a weight of {@code 1}.
+   */
+  public static <N> CsrGraph<N> fromEdges(BiStream<? extends N, ? extends N> edges) {
+    Builder<N> builder = new Builder<>(false);
+    edges.forEachOrdered((from, to) -> builder.add(from, to, 1));
+    return builder.build();
+  }
+
+  /**
+   * Builds a weighted graph from {@code edges}, with each pair being the source and the target node
+   * of an edge, and with the weight of each edge computed by {@code weightFunction}.
+   */
+  public static <N> CsrGraph<N> fromWeightedEdges(
+      BiStream<? extends N, ? extends N> edges,
+      ToDoubleBiFunction<? super N, ? super N> weightFunction) {
+    requireNonNull(weightFunction);
+    Builder<N> builder = new Builder<>(true);
+    edges.forEachOrdered(
+        (from, to) -> builder.add(from, to, weightFunction.applyAsDouble(from, to)));
+    return builder.build();
+  }
+
+  /** Returns all nodes in the graph, in the order they were first encountered in the edges. */
+  public List<N> nodes() {
+    return nodes;
+  }
+
+  /** Returns the number of edges in the graph. */
+  public int edgeCount() {
+    return targets.length;
+  }
+
+  /** Returns true if {@code node} is in the graph. */
+  public boolean contains(N node) {
+    return ids.containsKey(requireNonNull(node));
+  }
+
+  /**
+   * Returns the direct successors of {@code node}.
+   *
+   * @throws IllegalArgumentException if {@code node} isn't in the graph
+   */
+  public Stream<N> successors(N node) {
+    int id = idOf(node);
+    return IntStream.range(offsets[id], offsets[id + 1]).mapToObj(i -> nodes.get(targets[i]));
+  }
+
+  /**
+   * Returns the direct successors of {@code node} with the weights of the edges. Can be used with
+   * {@link ShortestPath#shortestPathsFrom(Object, java.util.function.Function)}.
+   *
+   * @throws IllegalArgumentException if {@code node} isn't in the graph
+   */
+  public BiStream<N, Double> weightedSuccessors(N node) {
+    int id = idOf(node);
+    return BiStream.biStream(IntStream.range(offsets[id], offsets[id + 1]).boxed())
+        .mapKeys(i -> nodes.get(targets[i]))
+        .mapValues(this::weight);
+  }
+
+  /**
+   * Returns a {@code GraphWalker} over this graph. Pre-order, post-order, breadth-first,
+   * topological order, strongly connected components and cyclic components run over the {@code
+   * int} ids using an {@link IntGraphWalker}, without hashing the nodes during traversal.
+   *
+   * <p>All start nodes must be in the graph, or else {@link IllegalArgumentException} is thrown.
+   */
+  public GraphWalker<N> walker() {
+    IntGraphWalker intWalker = IntGraphWalker.inGraph(offsets, targets);
+    return new GraphWalker<N>() {
+      @Override Walk<N> start() {
+        return new Walk<>(CsrGraph.this::successors, new HashSet<>()::add);
+      }
+
+      @Override Stream<N> preOrder(Iterable<? extends N> startNodes) {
+        return intWalker.preOrderFrom(idsOf(startNodes)).mapToObj(nodes::get);
+      }
+
+      @Override Stream<N> postOrder(Iterable<? extends N> startNodes) {
+        return intWalker.postOrderFrom(idsOf(startNodes)).mapToObj(nodes::get);
+      }
+
+      @Override Stream<N> breadthFirst(Iterable<? extends N> startNodes) {
+        return intWalker.breadthFirstFrom(idsOf(startNodes)).mapToObj(nodes::get);
+      }
+
+      @Override List<N> topologicalOrder(Iterable<? extends N> startNodes) {
+        int[] order;
+        try {
+          order = intWalker.topologicalOrderFrom(idsOf(startNodes));
+        } catch (CyclicGraphException e) {
+          throw new CyclicGraphException(
+              e.cyclicPath().stream().map(id -> nodes.get((Integer) id)).collect(toList()));
+        }
+        return Collections.unmodifiableList(toNodes(order));
+      }
+
+      @Override Stream<List<N>> stronglyConnectedComponents(Iterable<? extends N> startNodes) {
+        return intWalker.stronglyConnectedComponentsFrom(idsOf(startNodes))
+            .map(CsrGraph.this::toNodes);
+      }
+
+      @Override Stream<List<N>> cyclicComponents(Iterable<? extends N> startNodes) {
+        return intWalker.cyclicComponentsFrom(idsOf(startNodes)).map(CsrGraph.this::toNodes);
+      }
+    };
+  }
+
+  @Override public String toString() {
+    return "CsrGraph(" + nodes.size() + " nodes, " + targets.length + " edges)";
+  }
+
+  int nodeCount() {
+    return nodes.size();
+  }
+
+  N node(int id) {
+    return nodes.get(id);
+  }
+
+  int idOf(N node) {
+    Integer id = ids.get(requireNonNull(node));
+    if (id == null) throw new IllegalArgumentException("Node not in graph: " + node);
+    return id;
+  }
+
+  /** Returns the index of the first edge from node {@code id}. */
+  int firstEdge(int id) {
+    return offsets[id];
+  }
+
+  /** Returns the index after the last edge from node {@code id}. */
+  int endEdge(int id) {
+    return offsets[id + 1];
+  }
+
+  int target(int edge) {
+    return targets[edge];
+  }
+
+  double weight(int edge) {
+    return weights == null ? 1 : weights[edge];
+  }
+
+  private int[] idsOf(Iterable<? extends N> startNodes) {
+    IntStream.Builder builder = IntStream.builder();
+    for (N node : startNodes) {
+      builder.add(idOf(node));
+    }
+    return builder.build().toArray();
+  }
+
+  private List<N> toNodes(int[] nodeIds) {
+    List<N> list = new ArrayList<>(nodeIds.length);
+    for (int id : nodeIds) {
+      list.add(nodes.get(id));
+    }
+    return list;
+  }
+
+  private static final class Builder<N> {
+    private final List<N> nodes = new ArrayList<>();
+    private final Map<N, Integer> ids = new HashMap<>();
+    private int[] sources = new int[16];
+    private int[] targets = new int[16];
+    private double[] weights;
+    private int size;
+
+    Builder(boolean weighted) {
+      this.weights = weighted ? new double[16] : null;
+    }
+
+    void add(N from, N to, double weight) {
+      if (size == sources.length) {
+        sources = Arrays.copyOf(sources, size * 2);
+        targets = Arrays.copyOf(targets, size * 2);
+        if (weights != null) weights = Arrays.copyOf(weights, size * 2);
+      }
+      sources[size] = idOf(from);
+      targets[size] = idOf(to);
+      if (weights != null) weights[size] = weight;
+      size++;
+    }
+
+    CsrGraph<N> build() {
+      // Counting sort by source, stable to keep the edges of each node in encounter order.
+      int[] offsets = new int[nodes.size() + 1];
+      for (int i = 0; i < size; i++) {
+        offsets[sources[i] + 1]++;
+      }
+      for (int i = 0; i < nodes.size(); i++) {
+        offsets[i + 1] += offsets[i];
+      }
+      int[] next = Arrays.copyOf(offsets, nodes.size());
+      int[] sortedTargets = new int[size];
+      double[] sortedWeights = weights == null ? null : new double[size];
+      for (int i = 0; i < size; i++) {
+        int edge = next[sources[i]]++;
+        sortedTargets[edge] = targets[i];
+        if (weights != null) sortedWeights[edge] = weights[i];
+      }
+      return new CsrGraph<>(
+          Collections.unmodifiableList(nodes), ids, offsets, sortedTargets, sortedWeights);
+    }
+
+    private int idOf(N node) {
+      return ids.computeIfAbsent(requireNonNull(node), n -> {
+        nodes.add(n);
+        return nodes.size() - 1;
+      });
+    }
+  }
+}
@@ -18,23 +18,39 @@ import static com.google.mu.util.stream.MoreCollectors.toListAndThen;
 import static com.google.mu.util.stream.MoreStreams.whileNotNull;
 import static com.google.mu.util.stream.MoreStreams.withSideEffect;
 import static java.util.Objects.requireNonNull;
+import static java.util.stream.Collectors.toList;
 
 import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.Deque;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Queue;
 import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Predicate;
+import java.util.function.Supplier;
 import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import com.google.mu.util.concurrent.Parallelizer;
+import com.google.mu.util.concurrent.StructuredConcurrencyInterruptedException;
 
 /**
  * Walker for graph topology (see {@link Walker#inGraph Walker.inGraph()}).
@@ -43,21 +59,105 @@ import java.util.stream.Stream;
  * #breadthFirstFrom breadth-first} traversals, also supports {@link #topologicalOrderFrom
  * topologicalOrderFrom()}, {@link #detectCycleFrom detectCycleFrom()} and
  * {@link #stronglyConnectedComponentsFrom stronglyConnectedComponentsFrom()}.
+ * When {@code findSuccessors} is expensive (an RPC or a disk read for example), {@link
+ * #breadthFirstLevelsFrom breadthFirstLevelsFrom()} expands each level concurrently. And {@link
+ * #forEachInTopologicalOrderFrom forEachInTopologicalOrderFrom()} runs a DAG of tasks concurrently,
+ * each as soon as its predecessors are done.
  *
  * @param <N> the graph node type
  * @since 4.3
  */
 public abstract class GraphWalker<N> extends Walker<N> {
   @Override public final Stream<N> preOrderFrom(Iterable<? extends N> startNodes) {
-    return start().preOrder(startNodes);
+    return preOrder(startNodes);
   }
 
   @Override public final Stream<N> postOrderFrom(Iterable<? extends N> startNodes) {
-    return start().postOrder(startNodes);
+    return postOrder(startNodes);
   }
 
   @Override public final Stream<N> breadthFirstFrom(Iterable<? extends N> startNodes) {
-    return start().breadthFirst(startNodes);
+    return breadthFirst(startNodes);
+  }
+
+  /**
+   * Starts from {@code startNodes} and walks in breadth-first order, one level at a time, with the
+   * successors of all nodes in the same level found concurrently using {@code parallelizer}.
+   *
+   * <p>For example, to crawl the dependency graph with at most 10 concurrent RPCs:
+   *
+   * <pre>{@code
+   * Walker.inGraph(dependencyService::getDirectDependencies)
+   *     .breadthFirstLevelsFrom(Fanout.withMaxConcurrency(10), rootPackage)
+   *     .forEach(level -> ...);
+   * }</pre>
+   *
+   * <p>Each element of the returned stream is a non-empty level: the first level is the distinct
+   * {@code startNodes}; every subsequent level is the nodes first discovered from the previous
+   * level, in the same order as {@link #breadthFirstFrom breadthFirstFrom()} would encounter them.
+   * Concatenating the levels therefore produces the same sequence as {@code breadthFirstFrom()}.
+   *
+   * <p>Only {@code findSuccessors} is called concurrently, and the successor stream it returns is
+   * consumed in the same worker thread. The node tracker is only ever called from the thread
+   * consuming the returned stream, so it doesn't need to be thread safe, and the traversal is
+   * deterministic regardless of the timing of {@code findSuccessors}.
+   *
+   * <p>The stream is lazy: the next level isn't expanded until the current level has been consumed.
+   * It may be infinite if the graph has infinite depth, and the stream can be short-circuited.
+   *
+   * <p>If any {@code findSuccessors} call throws, the pending calls of the same level are canceled
+   * and the exception is propagated wrapped in a {@link RuntimeException}.
+   *
+   * @param parallelizer to find the successors of the nodes in each level concurrently
+   * @param startNodes the entry point nodes to start walking the graph.
+   * @throws com.google.mu.util.concurrent.StructuredConcurrencyInterruptedException if the
+   *     consuming thread is interrupted while waiting for the successors to be found
+   * @since 8.6
+   */
+  @SafeVarargs public final Stream<List<N>> breadthFirstLevelsFrom(
+      Parallelizer parallelizer, N... startNodes) {
+    return breadthFirstLevelsFrom(parallelizer, nonNullList(startNodes));
+  }
+
+  /**
+   * Starts from {@code startNodes} and walks in breadth-first order, one level at a time, with the
+   * successors of all nodes in the same level found concurrently using {@code parallelizer}.
+   *
+   * <p>For example, to crawl the dependency graph with at most 10 concurrent RPCs:
+   *
+   * <pre>{@code
+   * Walker.inGraph(dependencyService::getDirectDependencies)
+   *     .breadthFirstLevelsFrom(Fanout.withMaxConcurrency(10), rootPackages)
+   *     .forEach(level -> ...);
+   * }</pre>
+   *
+   * <p>Each element of the returned stream is a non-empty level: the first level is the distinct
+   * {@code startNodes}; every subsequent level is the nodes first discovered from the previous
+   * level, in the same order as {@link #breadthFirstFrom breadthFirstFrom()} would encounter them.
+   * Concatenating the levels therefore produces the same sequence as {@code breadthFirstFrom()}.
+   *
+   * <p>Only {@code findSuccessors} is called concurrently, and the successor stream it returns is
+   * consumed in the same worker thread. The node tracker is only ever called from the thread
+   * consuming the returned stream, so it doesn't need to be thread safe, and the traversal is
+   * deterministic regardless of the timing of {@code findSuccessors}.
+   *
+   * <p>The stream is lazy: the next level isn't expanded until the current level has been consumed.
+   * It may be infinite if the graph has infinite depth, and the stream can be short-circuited.
+   *
+   * <p>If any {@code findSuccessors} call throws, the pending calls of the same level are canceled
+   * and the exception is propagated wrapped in a {@link RuntimeException}.
+   *
+   * @param parallelizer to find the successors of the nodes in each level concurrently
+   * @param startNodes the entry point nodes to start walking the graph.
+   * @throws com.google.mu.util.concurrent.StructuredConcurrencyInterruptedException if the
+   *     consuming thread is interrupted while waiting for the successors to be found
+   * @since 8.6
+   */
+  public final Stream<List<N>> breadthFirstLevelsFrom(
+      Parallelizer parallelizer, Iterable<? extends N> startNodes) {
+    requireNonNull(parallelizer);
+    requireNonNull(startNodes);
+    return start().breadthFirstLevels(parallelizer, startNodes);
   }
 
   /**
@@ -145,7 +245,129 @@ public abstract class GraphWalker<N> extends Walker<N> {
    * @since 4.3
    */
   public final List<N> topologicalOrderFrom(Iterable<? extends N> startNodes) {
-    return start().topologicalOrder(startNodes);
+    return topologicalOrder(startNodes);
+  }
+
+  /**
+   * Fully traverses the graph by starting from {@code startNodes}, and returns the nodes grouped
+   * into "waves" in topological order, using Kahn's algorithm.
+   *
+   * <p>The first wave contains the nodes with no predecessor in the traversed graph; each
+   * subsequent wave contains the nodes whose predecessors are all in the previous waves. The nodes
+   * within the same wave don't depend on each other, so they can be processed concurrently once
+   * the previous waves are done. For example, with edges {@code a -> b, a -> c, b -> d, c -> d},
+   * the waves are {@code [[a], [b, c], [d]]}.
+   *
+   * <p>Concatenating the waves produces a valid topological order, although not necessarily the
+   * same order as {@link #topologicalOrderFrom topologicalOrderFrom()}.
+   *
+   * <p>Unlike the other {@code Walker} utilities, this method is not lazy: it has to traverse the
+   * entire graph in order to figure out the waves.
+   *
+   * @param startNodes the entry point nodes to start traversing the graph.
+   * @return immutable list of non-empty waves
+   * @throws CyclicGraphException if the graph has cycles.
+   * @since 8.6
+   */
+  @SafeVarargs public final List<List<N>> topologicalWavesFrom(N... startNodes) {
+    return topologicalWavesFrom(nonNullList(startNodes));
+  }
+
+  /**
+   * Fully traverses the graph by starting from {@code startNodes}, and returns the nodes grouped
+   * into "waves" in topological order, using Kahn's algorithm.
+   *
+   * <p>The first wave contains the nodes with no predecessor in the traversed graph; each
+   * subsequent wave contains the nodes whose predecessors are all in the previous waves. The nodes
+   * within the same wave don't depend on each other, so they can be processed concurrently once
+   * the previous waves are done. For example, with edges {@code a -> b, a -> c, b -> d, c -> d},
+   * the waves are {@code [[a], [b, c], [d]]}.
+   *
+   * <p>Concatenating the waves produces a valid topological order, although not necessarily the
+   * same order as {@link #topologicalOrderFrom topologicalOrderFrom()}.
+   *
+   * <p>Unlike the other {@code Walker} utilities, this method is not lazy: it has to traverse the
+   * entire graph in order to figure out the waves.
+   *
+   * @param startNodes the entry point nodes to start traversing the graph.
+   * @return immutable list of non-empty waves
+   * @throws CyclicGraphException if the graph has cycles.
+   * @since 8.6
+   */
+  public final List<List<N>> topologicalWavesFrom(Iterable<? extends N> startNodes) {
+    return start().new Dag(startNodes).waves();
+  }
+
+  /**
+   * Fully traverses the graph by starting from {@code startNodes}, then runs {@code action} for
+   * each node concurrently using {@code parallelizer}, in topological order: the action for a node
+   * is started as soon as the actions of all its predecessors have completed, without waiting for
+   * the unrelated nodes (as would be the case if running {@link #topologicalWavesFrom waves} one
+   * after another).
+   *
+   * <p>For example, to build a DAG of build targets, with at most 10 concurrent builds:
+   *
+   * <pre>{@code
+   * Walker.inGraph(Target::dependents)
+   *     .forEachInTopologicalOrderFrom(
+   *         Fanout.withMaxConcurrency(10), Target::build, rootTargets);
+   * }</pre>
+   *
+   * <p>The graph is traversed and checked for cycles in the calling thread before any {@code
+   * action} is run, so {@code findSuccessors} is never called concurrently.
+   *
+   * <p>If any {@code action} throws, no more actions are started, the pending actions are canceled
+   * and the exception is propagated wrapped in a {@link RuntimeException}.
+   *
+   * @param parallelizer to run {@code action} concurrently
+   * @param action to run for each node
+   * @param startNodes the entry point nodes to start traversing the graph.
+   * @throws CyclicGraphException if the graph has cycles, in which case no action is run.
+   * @throws com.google.mu.util.concurrent.StructuredConcurrencyInterruptedException if the
+   *     calling thread is interrupted while waiting for the actions. The pending actions are
+   *     canceled.
+   * @since 8.6
+   */
+  @SafeVarargs public final void forEachInTopologicalOrderFrom(
+      Parallelizer parallelizer, Consumer<? super N> action, N... startNodes) {
+    forEachInTopologicalOrderFrom(parallelizer, action, nonNullList(startNodes));
+  }
+
+  /**
+   * Fully traverses the graph by starting from {@code startNodes}, then runs {@code action} for
+   * each node concurrently using {@code parallelizer}, in topological order: the action for a node
+   * is started as soon as the actions of all its predecessors have completed, without waiting for
+   * the unrelated nodes (as would be the case if running {@link #topologicalWavesFrom waves} one
+   * after another).
+   *
+   * <p>For example, to build a DAG of build targets, with at most 10 concurrent builds:
+   *
+   * <pre>{@code
+   * Walker.inGraph(Target::dependents)
+   *     .forEachInTopologicalOrderFrom(
+   *         Fanout.withMaxConcurrency(10), Target::build, rootTargets);
+   * }</pre>
+   *
+   * <p>The graph is traversed and checked for cycles in the calling thread before any {@code
+   * action} is run, so {@code findSuccessors} is never called concurrently.
+   *
+   * <p>If any {@code action} throws, no more actions are started, the pending actions are canceled
+   * and the exception is propagated wrapped in a {@link RuntimeException}.
+   *
+   * @param parallelizer to run {@code action} concurrently
+   * @param action to run for each node
+   * @param startNodes the entry point nodes to start traversing the graph.
+   * @throws CyclicGraphException if the graph has cycles, in which case no action is run.
+   * @throws com.google.mu.util.concurrent.StructuredConcurrencyInterruptedException if the
+   *     calling thread is interrupted while waiting for the actions. The pending actions are
+   *     canceled.
+   * @since 8.6
+   */
+  public final void forEachInTopologicalOrderFrom(
+      Parallelizer parallelizer, Consumer<? super N> action, Iterable<? extends N> startNodes) {
+    requireNonNull(parallelizer);
+    requireNonNull(action);
+    start().new Dag(startNodes).forEachInTopologicalOrder(parallelizer, action);
   }
 
   /**
@@ -154,7 +376,9 @@ public abstract class GraphWalker<N> extends Walker<N> {
    * connected components</a> found in the graph.
    *
    * <p>Implements the <a href="https://en.wikipedia.org/wiki/Tarjan%27s_strongly_connected_components_algorithm">
-   * Tarjan algorithm</a> in linear time ({@code O(V + E)}).
+   * Tarjan algorithm</a> in linear time ({@code O(V + E)}), without recursion. Uses Pearce's
+   * variant, which needs a single {@code int} and a bit per node, besides the node tracker. Nodes
+   * are released as soon as they are assigned to a component.
    *
    * <p>The strongly connected components (represented by the list of nodes in each component)
    * are returned in a lazy stream, in depth-first post order. If you need topological order from
@@ -178,7 +402,9 @@ public abstract class GraphWalker<N> extends Walker<N> {
    * connected components</a> found in the graph.
    *
    * <p>Implements the <a href="https://en.wikipedia.org/wiki/Tarjan%27s_strongly_connected_components_algorithm">
-   * Tarjan algorithm</a> in linear time ({@code O(V + E)}).
+   * Tarjan algorithm</a> in linear time ({@code O(V + E)}), without recursion. Uses Pearce's
+   * variant, which needs a single {@code int} and a bit per node, besides the node tracker. Nodes
+   * are released as soon as they are assigned to a component.
    *
    * <p>The strongly connected components (represented by the list of nodes in each component)
    * are returned in a lazy stream, in depth-first post order. If you need topological order from
@@ -193,11 +419,89 @@ public abstract class GraphWalker<N> extends Walker<N> {
    * @since 4.4
    */
   public final Stream<List<N>> stronglyConnectedComponentsFrom(Iterable<? extends N> startNodes) {
-    return start().new StronglyConnected().componentsFrom(startNodes);
+    return stronglyConnectedComponents(startNodes);
+  }
+
+  /**
+   * Walks the graph by starting from {@code startNodes}, and returns a lazy stream of the
+   * <a href="https://en.wikipedia.org/wiki/Strongly_connected_component">strongly
+   * connected components</a> that have cycles: either with more than one node, or with a single
+   * node having an edge to itself.
+   *
+   * <p>While {@link #detectCycleFrom detectCycleFrom()} reports the path to the first cycle found,
+   * this method reports every cyclic component reachable from {@code startNodes}, without keeping
+   * track of the paths. For example, to report all dependency cycles in a large build graph:
+   *
+   * <pre>{@code
+   * Walker.inGraph(Target::dependencies)
+   *     .cyclicComponentsFrom(rootTarget)
+   *     .forEach(cycle -> logger.warning("Circular dependency: " + cycle));
+   * }</pre>
+   *
+   * <p>The components are returned in depth-first post order, same as {@link
+   * #stronglyConnectedComponentsFrom stronglyConnectedComponentsFrom()}.
+   *
+   * @param startNodes the entry point nodes to start traversing the graph.
+   * @since 8.6
+   */
+  @SafeVarargs public final Stream<List<N>> cyclicComponentsFrom(N... startNodes) {
+    return cyclicComponentsFrom(nonNullList(startNodes));
+  }
+
+  /**
+   * Walks the graph by starting from {@code startNodes}, and returns a lazy stream of the
+   * <a href="https://en.wikipedia.org/wiki/Strongly_connected_component">strongly
+   * connected components</a> that have cycles: either with more than one node, or with a single
+   * node having an edge to itself.
+   *
+   * <p>While {@link #detectCycleFrom detectCycleFrom()} reports the path to the first cycle found,
+   * this method reports every cyclic component reachable from {@code startNodes}, without keeping
+   * track of the paths. For example, to report all dependency cycles in a large build graph:
+   *
+   * <pre>{@code
+   * Walker.inGraph(Target::dependencies)
+   *     .cyclicComponentsFrom(rootTargets)
+   *     .forEach(cycle -> logger.warning("Circular dependency: " + cycle));
+   * }</pre>
+   *
+   * <p>The components are returned in depth-first post order, same as {@link
+   * #stronglyConnectedComponentsFrom stronglyConnectedComponentsFrom()}.
+   *
+   * @param startNodes the entry point nodes to start traversing the graph.
+   * @since 8.6
+   */
+  public final Stream<List<N>> cyclicComponentsFrom(Iterable<? extends N> startNodes) {
+    return cyclicComponents(startNodes);
   }
 
   abstract Walk<N> start();
 
+  // The following can be overridden to provide fast paths for special graph representations.
+
+  Stream<N> preOrder(Iterable<? extends N> startNodes) {
+    return start().preOrder(startNodes);
+  }
+
+  Stream<N> postOrder(Iterable<? extends N> startNodes) {
+    return start().postOrder(startNodes);
+  }
+
+  Stream<N> breadthFirst(Iterable<? extends N> startNodes) {
+    return start().breadthFirst(startNodes);
+  }
+
+  List<N> topologicalOrder(Iterable<? extends N> startNodes) {
+    return start().topologicalOrder(startNodes);
+  }
+
+  Stream<List<N>> stronglyConnectedComponents(Iterable<? extends N> startNodes) {
+    return whileNotNull(start().new StronglyConnected(startNodes, false));
+  }
+
+  Stream<List<N>> cyclicComponents(Iterable<? extends N> startNodes) {
+    return whileNotNull(start().new StronglyConnected(startNodes, true));
+  }
+
   GraphWalker() {}
 
   static final class Walk<N> implements Consumer<N> {
@@ -222,16 +526,37 @@ public abstract class GraphWalker<N> extends Walker<N> {
       return topDown(Queue::add);
     }
 
+    Stream<List<N>> breadthFirstLevels(
+        Parallelizer parallelizer, Iterable<? extends N> startNodes) {
+      AtomicReference<List<N>> previous = new AtomicReference<>();
+      return whileNotNull(() -> {
+        List<N> last = previous.get();
+        Stream<? extends N> candidates =
+            last == null
+                ? StreamSupport.stream(startNodes.spliterator(), false)
+                : last.stream()
+                    .collect(parallelizer.inParallel(this::successorList))
+                    .values()
+                    .flatMap(List::stream);
+        List<N> level = candidates.<N>map(Objects::requireNonNull).filter(tracker).collect(toList());
+        if (level.isEmpty()) return null;
+        previous.set(level);
+        return level;
+      });
+    }
+
+    private List<N> successorList(N node) {
+      Stream<? extends N> successors = findSuccessors.apply(node);
+      return successors == null ? Collections.emptyList() : successors.collect(toList());
+    }
+
     Stream<N> preOrder(Iterable<? extends N> startNodes) {
       horizon.push(startNodes.spliterator());
       return topDown(Deque::push);
     }
 
     Stream<N> postOrder(Iterable<? extends N> startNodes) {
-      return postOrder(startNodes, new ArrayDeque<>());
-    }
-
-    private Stream<N> postOrder(Iterable<? extends N> startNodes, Deque<N> roots) {
+      Deque<N> roots = new ArrayDeque<>();
       horizon.push(startNodes.spliterator());
       return whileNotNull(() -> {
         while (visitNext()) {
@@ -309,76 +634,206 @@ public abstract class GraphWalker<N> extends Walker<N> {
       }
     }
 
-    final class StronglyConnected {
-      private long index;
-      private final Deque<N> roots = new ArrayDeque<>();
-      private final Map<N, Tarjan<N>> currentPath = new HashMap<>();
-      private final Deque<Tarjan<N>> connected = new ArrayDeque<>();
-
-      Stream<List<N>> componentsFrom(Iterable<? extends N> startNodes) {
-        return new Walk<>(findSuccessors, this::track)
-            .postOrder(startNodes, roots)
-            .map(currentPath::remove)
-            .filter(Tarjan::isComponentRoot)
-            .map(this::toConnectedComponent);
+    /** The graph reachable from the start nodes, verified to be acyclic. */
+    final class Dag {
+      private final Map<N, List<N>> successors = new LinkedHashMap<>();
+      private final Map<N, Integer> indegrees = new HashMap<>();
+      private final List<List<N>> waves = new ArrayList<>();
+
+      Dag(Iterable<? extends N> startNodes) {
+        Queue<N> discovered = new ArrayDeque<>();
+        for (N node : startNodes) {
+          if (tracker.test(requireNonNull(node))) discovered.add(node);
+        }
+        for (N node = discovered.poll(); node != null; node = discovered.poll()) {
+          List<N> nodeSuccessors = successorList(node);
+          successors.put(node, nodeSuccessors);
+          for (N successor : nodeSuccessors) {
+            if (tracker.test(requireNonNull(successor))) discovered.add(successor);
+          }
+        }
+        // Drop the edges to the nodes the tracker rejected for reasons other than being visited.
+        successors.replaceAll((node, list) -> filterKnown(list));
+        for (N node : successors.keySet()) indegrees.put(node, 0);
+        for (List<N> list : successors.values()) {
+          for (N successor : list) indegrees.merge(successor, 1, Integer::sum);
+        }
+        int sorted = 0;
+        Map<N, Integer> remaining = new HashMap<>(indegrees);
+        List<N> wave = new ArrayList<>();
+        for (N node : successors.keySet()) {
+          if (indegrees.get(node) == 0) wave.add(node);
+        }
+        while (!wave.isEmpty()) {
+          waves.add(Collections.unmodifiableList(wave));
+          sorted += wave.size();
+          List<N> next = new ArrayList<>();
+          for (N node : wave) {
+            for (N successor : successors.get(node)) {
+              if (remaining.merge(successor, -1, Integer::sum) == 0) next.add(successor);
+            }
+          }
+          wave = next;
+        }
+        if (sorted < successors.size()) {
+          // Let the depth-first search find the cyclic path.
+          new Walk<N>(n -> successors.get(n).stream(), new HashSet<>()::add)
+              .topologicalOrder(successors.keySet());
+          throw new AssertionError("Cycle expected but not found");
+        }
+      }
+
+      List<List<N>> waves() {
+        return Collections.unmodifiableList(waves);
       }
 
-      private boolean track(N node) {
-        if (tracker.test(node)) {
-          push(node);
-          return true;
-        } else {
-          Tarjan<N> back = currentPath.get(node);
-          if (back != null) top().uponBackEdge(back);
-          return false;
+      void forEachInTopologicalOrder(Parallelizer parallelizer, Consumer<? super N> action) {
+        Map<N, AtomicInteger> pending = new HashMap<>();
+        indegrees.forEach((node, indegree) -> pending.put(node, new AtomicInteger(indegree)));
+        // Empty signals that an action has failed.
+        BlockingQueue<Optional<N>> ready = new LinkedBlockingQueue<>();
+        if (!waves.isEmpty()) waves.get(0).forEach(node -> ready.add(Optional.of(node)));
+        int[] unscheduled = {successors.size()};
+        AtomicBoolean interrupted = new AtomicBoolean();
+        Stream<Runnable> tasks = whileNotNull(() -> {
+          if (unscheduled[0] == 0) return null;
+          Optional<N> next;
+          try {
+            next = ready.take();
+          } catch (InterruptedException e) {
+            // Stop scheduling and let parallelize() cancel the in-flight actions.
+            Thread.currentThread().interrupt();
+            interrupted.set(true);
+            return null;
+          }
+          if (!next.isPresent()) return null;  // parallelize() will propagate the failure
+          unscheduled[0]--;
+          N node = next.get();
+          return () -> {
+            try {
+              action.accept(node);
+            } catch (Throwable e) {
+              ready.add(Optional.empty());
+              throw e;
+            }
+            for (N successor : successors.get(node)) {
+              if (pending.get(successor).decrementAndGet() == 0) ready.add(Optional.of(successor));
+            }
+          };
+        });
+        try {
+          parallelizer.parallelize(tasks);
+        } catch (InterruptedException e) {
+          throw new StructuredConcurrencyInterruptedException(e);
+        }
+        if (interrupted.get()) {
+          throw new StructuredConcurrencyInterruptedException(new InterruptedException());
         }
       }
 
-      private Tarjan<N> top() {
-        return currentPath.get(roots.peek());
+      private List<N> filterKnown(List<N> nodes) {
+        return nodes.stream().filter(successors::containsKey).collect(toList());
       }
+    }
 
-      private void push(N node) {
-        Tarjan<N> indexed = new Tarjan<>(top(), node, ++index);
-        currentPath.put(node, indexed);
-        connected.push(indexed);
+    /**
+     * Pearce's space-efficient variant of Tarjan's algorithm, without recursion. Nodes are
+     * numbered densely as they are discovered; a single {@code rindex} per node serves as both the
+     * index and the lowlink. Once a node is assigned to a component, it's removed from {@code ids},
+     * and the node tracker keeps it from being visited again. So edges into completed components
+     * are ignored, as they must be. Only the nodes still pending are retained, plus an {@code int}
+     * and a bit per node discovered, and a frame per node on the current depth-first path.
+     */
+    final class StronglyConnected implements Supplier<List<N>>, Consumer<N> {
+      private final boolean cyclicOnly;
+      private final Map<N, Integer> ids = new HashMap<>();  // Only the pending nodes.
+      private final BitSet selfLoops = new BitSet();
+      private final Deque<Frame<N>> path = new ArrayDeque<>();
+      private int[] rindex = new int[16];
+      private int[] connected = new int[16];
+      private final List<N> connectedNodes = new ArrayList<>();  // Parallel to connected.
+      private int connectedSize;
+      private int discovered;
+      private N next;
+
+      StronglyConnected(Iterable<? extends N> startNodes, boolean cyclicOnly) {
+        this.cyclicOnly = cyclicOnly;
+        path.push(new Frame<>(-1, startNodes.spliterator()));
       }
 
-      private List<N> toConnectedComponent(Tarjan<N> root) {
-        List<N> list = new ArrayList<>();
-        for (; ;) {
-          Tarjan<N> node = connected.pop();
-          list.add(node.payload);
-          if (node == root) {
-            return list;
+      @Override public void accept(N node) {
+        this.next = requireNonNull(node);
+      }
+
+      @Override public List<N> get() {
+        while (!path.isEmpty()) {
+          Frame<N> top = path.peek();
+          if (!top.successors.tryAdvance(this)) {
+            path.pop();
+            if (top.id < 0) continue;
+            if (top.isRoot) {
+              List<N> component = toConnectedComponent(top.id);
+              if (!cyclicOnly || component.size() > 1 || selfLoops.get(top.id)) return component;
+              continue;
+            }
+            lowerRindex(path.peek(), top.id);
+            continue;
+          }
+          Integer id = ids.get(next);
+          if (id == null) {
+            if (tracker.test(next)) discover(next);
+          } else if (top.id >= 0) {
+            if (id == top.id) selfLoops.set(id);
+            lowerRindex(top, id);
           }
         }
+        return null;
       }
-    }
-  }
 
-  private static final class Tarjan<N> {
-    final N payload;
-    private final long index;
-    private final Tarjan<N> parent;
-    private long lowlink;
-
-    Tarjan(Tarjan<N> parent, N payload, long index) {
-      this.parent = parent;
-      this.payload = payload;
-      this.index = index;
-      this.lowlink = index;
-    }
+      private void discover(N node) {
+        int id = discovered++;
+        ids.put(node, id);
+        if (id == rindex.length) rindex = Arrays.copyOf(rindex, id * 2);
+        rindex[id] = id + 1;
+        if (connectedSize == connected.length) {
+          connected = Arrays.copyOf(connected, connectedSize * 2);
+        }
+        connected[connectedSize++] = id;
+        connectedNodes.add(node);
+        Stream<? extends N> successors = findSuccessors.apply(node);
+        path.push(
+            new Frame<>(
+                id, successors == null ? Spliterators.emptySpliterator() : successors.spliterator()));
+      }
 
-    boolean isComponentRoot() {
-      if (parent != null) {
-        parent.lowlink = Math.min(parent.lowlink, lowlink);
+      private void lowerRindex(Frame<N> frame, int successor) {
+        if (frame.id >= 0 && rindex[successor] < rindex[frame.id]) {
+          rindex[frame.id] = rindex[successor];
+          frame.isRoot = false;
+        }
+      }
+
+      private List<N> toConnectedComponent(int root) {
+        List<N> list = new ArrayList<>();
+        for (; ;) {
+          int id = connected[--connectedSize];
+          N node = connectedNodes.remove(connectedSize);
+          ids.remove(node);
+          list.add(node);
+          if (id == root) return list;
+        }
       }
-      return lowlink == index;
     }
+  }
+
+  private static final class Frame<N> {
+    final int id;  // -1 for the start nodes
+    final Spliterator<? extends N> successors;
+    boolean isRoot = true;
 
-    void uponBackEdge(Tarjan<N> back) {
-      this.lowlink = Math.min(lowlink, back.index);
+    Frame(int id, Spliterator<? extends N> successors) {
+      this.id = id;
+      this.successors = successors;
     }
   }
 }
@@ -0,0 +1,106 @@
+/*****************************************************************************
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package com.google.mu.util.graph;
+
+import java.util.Arrays;
+
+/**
+ * Binary min-heap of {@code int} ids in the range of {@code [0, capacity)} keyed by primitive
+ * {@code double} priorities, with {@code O(log n)} decrease-key. Each id can be added at most once:
+ * after being polled, it's considered settled and subsequent offers are ignored.
+ */
+final class IndexedMinHeap {
+  private static final int ABSENT = -1;
+  private static final int REMOVED = -2;
+
+  private final double[] keys;
+  private final int[] heap;
+  private final int[] positions;  // id -> index in heap, or ABSENT/REMOVED
+  private int size;
+
+  IndexedMinHeap(int capacity) {
+    this.keys = new double[capacity];
+    this.heap = new int[capacity];
+    this.positions = new int[capacity];
+    Arrays.fill(positions, ABSENT);
+  }
+
+  boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   * Adds {@code id} with {@code key}, or decreases its key if {@code id} is already in the heap
+   * with a greater key. Returns true if the heap is changed.
+   */
+  boolean offer(int id, double key) {
+    int position = positions[id];
+    if (position == REMOVED) return false;
+    if (position == ABSENT) {
+      position = size++;
+    } else if (key >= keys[id]) {
+      return false;
+    }
+    keys[id] = key;
+    siftUp(position, id);
+    return true;
+  }
+
+  /** Returns the key of the id at the top of the heap. */
+  double peekKey() {
+    return keys[heap[0]];
+  }
+
+  /** Removes and returns the id with the smallest key. */
+  int poll() {
+    int top = heap[0];
+    positions[top] = REMOVED;
+    int last = heap[--size];
+    if (size > 0) siftDown(0, last);
+    return top;
+  }
+
+  private void siftUp(int position, int id) {
+    double key = keys[id];
+    while (position > 0) {
+      int parent = (position - 1) >>> 1;
+      int parentId = heap[parent];
+      if (keys[parentId] <= key) break;
+      place(position, parentId);
+      position = parent;
+    }
+    place(position, id);
+  }
+
+  private void siftDown(int position, int id) {
+    double key = keys[id];
+    int half = size >>> 1;
+    while (position < half) {
+      int child = 2 * position + 1;
+      int right = child + 1;
+      if (right < size && keys[heap[right]] < keys[heap[child]]) child = right;
+      int childId = heap[child];
+      if (key <= keys[childId]) break;
+      place(position, childId);
+      position = child;
+    }
+    place(position, id);
+  }
+
+  private void place(int position, int id) {
+    heap[position] = id;
+    positions[id] = position;
+  }
+}
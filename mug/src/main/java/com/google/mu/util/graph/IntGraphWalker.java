@@ -0,0 +1,526 @@
+/*****************************************************************************
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package com.google.mu.util.graph;
+
+import static com.google.mu.util.stream.MoreStreams.whileNotNull;
+import static java.util.Objects.requireNonNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Walker for graphs with dense {@code int} node ids in the range of {@code [0, nodeCount)}.
+ *
+ * <p>Compared to {@link Walker#inGraph Walker.inGraph()}, nodes are never boxed, visited nodes are
+ * tracked with a {@link BitSet} (one bit per node), and the traversal stack is maintained in
+ * primitive arrays. This makes it practical to walk graphs with tens of millions of nodes, for
+ * example when the nodes are already stored in arrays and identified by their index.
+ *
+ * <p>The traversal orders are the same as those of {@link GraphWalker}: {@link #preOrderFrom
+ * pre-order}, {@link #postOrderFrom post-order}, {@link #breadthFirstFrom breadth-first},
+ * {@link #topologicalOrderFrom topological order} and
+ * {@link #stronglyConnectedComponentsFrom strongly connected components}.
+ *
+ * <p>Successors can be provided either by an {@code IntFunction<int[]>} with
+ * {@link #inGraph(int, IntFunction)}, or as compressed sparse row (CSR) adjacency arrays with
+ * {@link #inGraph(int[], int[])}, in which case no array is allocated per node.
+ *
+ * <p>Like {@code Walker}, the returned streams are lazy and not safe to run in parallel.
+ *
+ * @since 8.6
+ */
+public final class IntGraphWalker {
+  private static final int[] NO_SUCCESSORS = new int[0];
+
+  private final int nodeCount;
+  private final Adjacency adjacency;
+
+  private IntGraphWalker(int nodeCount, Adjacency adjacency) {
+    this.nodeCount = nodeCount;
+    this.adjacency = adjacency;
+  }
+
+  /**
+   * Returns an {@code IntGraphWalker} to walk the graph of nodes in the range of
+   * {@code [0, nodeCount)}, with the successors of each node returned by {@code findSuccessors}.
+   *
+   * @param nodeCount the number of nodes in the graph
+   * @param findSuccessors Function to get the successor nodes for a given node.
+   *        No successor if null or empty array is returned. The returned array isn't modified.
+   */
+  public static IntGraphWalker inGraph(int nodeCount, IntFunction<int[]> findSuccessors) {
+    if (nodeCount < 0) throw new IllegalArgumentException("nodeCount = " + nodeCount);
+    requireNonNull(findSuccessors);
+    return new IntGraphWalker(nodeCount, new Adjacency() {
+      @Override int[] targets(int node) {
+        int[] successors = findSuccessors.apply(node);
+        return successors == null ? NO_SUCCESSORS : successors;
+      }
+
+      @Override int begin(int node, int[] targets) {
+        return 0;
+      }
+
+      @Override int end(int node, int[] targets) {
+        return targets.length;
+      }
+    });
+  }
+
+  /**
+   * Returns an {@code IntGraphWalker} to walk the graph represented in the compressed sparse row
+   * format, where the successors of node {@code n} are {@code targets[offsets[n]]} through
+   * {@code targets[offsets[n + 1] - 1]}. The number of nodes is {@code offsets.length - 1}.
+   *
+   * <p>The arrays are not copied and are expected not to be modified during traversal.
+   *
+   * @throws IllegalArgumentException if {@code offsets} is empty, not ascending, or out of the
+   *     bounds of {@code targets}
+   */
+  public static IntGraphWalker inGraph(int[] offsets, int[] targets) {
+    requireNonNull(targets);
+    if (offsets.length == 0) throw new IllegalArgumentException("offsets is empty");
+    for (int i = 0; i < offsets.length; i++) {
+      int offset = offsets[i];
+      if (offset < (i == 0 ? 0 : offsets[i - 1]) || offset > targets.length) {
+        throw new IllegalArgumentException("offsets[" + i + "] = " + offset);
+      }
+    }
+    return new IntGraphWalker(offsets.length - 1, new Adjacency() {
+      @Override int[] targets(int node) {
+        return targets;
+      }
+
+      @Override int begin(int node, int[] targets) {
+        return offsets[node];
+      }
+
+      @Override int end(int node, int[] targets) {
+        return offsets[node + 1];
+      }
+    });
+  }
+
+  /** Returns the number of nodes in the graph. */
+  public int nodeCount() {
+    return nodeCount;
+  }
+
+  /**
+   * Starts from {@code startNodes} and walks depth first in pre-order.
+   *
+   * @throws IllegalArgumentException if any node is out of the range of {@code [0, nodeCount)}
+   */
+  public IntStream preOrderFrom(int... startNodes) {
+    Traversal traversal = new Traversal(startNodes);
+    return stream(() -> {
+      while (!traversal.isEmpty()) {
+        if (!traversal.hasNextSuccessor()) {
+          traversal.pop();
+          continue;
+        }
+        int node = traversal.nextSuccessor();
+        if (traversal.visit(node)) {
+          traversal.push(node);
+          return node;
+        }
+      }
+      return -1;
+    });
+  }
+
+  /**
+   * Starts from {@code startNodes} and walks depth first in post-order
+   * (the reverse of a topological sort).
+   *
+   * @throws IllegalArgumentException if any node is out of the range of {@code [0, nodeCount)}
+   */
+  public IntStream postOrderFrom(int... startNodes) {
+    Traversal traversal = new Traversal(startNodes);
+    return stream(() -> {
+      while (!traversal.isEmpty()) {
+        if (!traversal.hasNextSuccessor()) {
+          int finished = traversal.pop();
+          if (finished >= 0) return finished;
+          continue;
+        }
+        int node = traversal.nextSuccessor();
+        if (traversal.visit(node)) traversal.push(node);
+      }
+      return -1;
+    });
+  }
+
+  /**
+   * Starts from {@code startNodes} and walks in breadth-first order.
+   *
+   * @throws IllegalArgumentException if any node is out of the range of {@code [0, nodeCount)}
+   */
+  public IntStream breadthFirstFrom(int... startNodes) {
+    int[] starts = startNodes.clone();
+    BitSet visited = new BitSet(nodeCount);
+    IntQueue toExpand = new IntQueue();
+    return stream(new NextNode() {
+      private int[] targets = starts;
+      private int position = 0;
+      private int end = starts.length;
+
+      @Override public int next() {
+        for (; ; ) {
+          if (position < end) {
+            int node = targets[position++];
+            if (visit(visited, node)) {
+              toExpand.add(node);
+              return node;
+            }
+          } else if (toExpand.isEmpty()) {
+            return -1;
+          } else {
+            int node = toExpand.remove();
+            targets = adjacency.targets(node);
+            position = adjacency.begin(node, targets);
+            end = adjacency.end(node, targets);
+          }
+        }
+      }
+    });
+  }
+
+  /**
+   * Fully traverses the graph by starting from {@code startNodes}, and returns the nodes in
+   * topological order.
+   *
+   * <p>Unlike the other methods, this method is not lazy: it has to traverse the entire graph in
+   * order to figure out the topological order.
+   *
+   * @throws CyclicGraphException if the graph has cycles. The {@link
+   *     CyclicGraphException#cyclicPath cyclic path} is a list of {@code Integer}s.
+   * @throws IllegalArgumentException if any node is out of the range of {@code [0, nodeCount)}
+   */
+  public int[] topologicalOrderFrom(int... startNodes) {
+    Traversal traversal = new Traversal(startNodes);
+    BitSet onPath = new BitSet(nodeCount);
+    IntStack postOrder = new IntStack();
+    while (!traversal.isEmpty()) {
+      if (!traversal.hasNextSuccessor()) {
+        int finished = traversal.pop();
+        if (finished >= 0) {
+          onPath.clear(finished);
+          postOrder.push(finished);
+        }
+        continue;
+      }
+      int node = traversal.nextSuccessor();
+      if (traversal.visit(node)) {
+        onPath.set(node);
+        traversal.push(node);
+      } else if (onPath.get(node)) {
+        List<Integer> cyclicPath = new ArrayList<>();
+        traversal.currentPath().forEach(cyclicPath::add);
+        cyclicPath.add(node);
+        throw new CyclicGraphException(cyclicPath);
+      }
+    }
+    int[] result = new int[postOrder.size()];
+    for (int i = 0; i < result.length; i++) {
+      result[i] = postOrder.pop();
+    }
+    return result;
+  }
+
+  /**
+   * Walks the graph by starting from {@code startNodes}, and returns a lazy stream of
+   * <a href="https://en.wikipedia.org/wiki/Strongly_connected_component">strongly
+   * connected components</a> found in the graph.
+   *
+   * <p>Implements the <a href="https://en.wikipedia.org/wiki/Tarjan%27s_strongly_connected_components_algorithm">
+   * Tarjan algorithm</a> in linear time ({@code O(V + E)}), without recursion. Uses Pearce's
+   * variant, which needs a single {@code int} and a bit per node in addition to the traversal.
+   *
+   * <p>Same as {@link GraphWalker#stronglyConnectedComponentsFrom}, the components are returned in
+   * depth-first post order.
+   *
+   * @throws IllegalArgumentException if any node is out of the range of {@code [0, nodeCount)}
+   */
+  public Stream<int[]> stronglyConnectedComponentsFrom(int... startNodes) {
+    return whileNotNull(new StronglyConnected(startNodes, false));
+  }
+
+  /**
+   * Walks the graph by starting from {@code startNodes}, and returns a lazy stream of the
+   * strongly connected components that have cycles: either with more than one node, or with a
+   * single node having an edge to itself.
+   *
+   * <p>Unlike {@link #topologicalOrderFrom}, which stops at the first cycle, this reports every
+   * cyclic component reachable from {@code startNodes}, in depth-first post order.
+   *
+   * @throws IllegalArgumentException if any node is out of the range of {@code [0, nodeCount)}
+   */
+  public Stream<int[]> cyclicComponentsFrom(int... startNodes) {
+    return whileNotNull(new StronglyConnected(startNodes, true));
+  }
+
+  private IntStream stream(NextNode next) {
+    PrimitiveIterator.OfInt iterator = new PrimitiveIterator.OfInt() {
+      private int pending = -1;
+      private boolean done;
+
+      @Override public boolean hasNext() {
+        if (pending < 0 && !done) {
+          pending = next.next();
+          done = pending < 0;
+        }
+        return pending >= 0;
+      }
+
+      @Override public int nextInt() {
+        if (!hasNext()) throw new NoSuchElementException();
+        int result = pending;
+        pending = -1;
+        return result;
+      }
+    };
+    return StreamSupport.intStream(
+        Spliterators.spliteratorUnknownSize(
+            iterator, Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL),
+        false);
+  }
+
+  private boolean visit(BitSet visited, int node) {
+    if (node < 0 || node >= nodeCount) {
+      throw new IllegalArgumentException(
+          "node (" + node + ") out of range [0, " + nodeCount + ")");
+    }
+    if (visited.get(node)) return false;
+    visited.set(node);
+    return true;
+  }
+
+  /**
+   * Pearce's space-efficient variant of Tarjan's algorithm: a single {@code rindex} per node
+   * serves as both the index and the lowlink, and once a node is assigned to a component, its
+   * {@code rindex} is set to the component number counting down from {@code Integer.MAX_VALUE},
+   * which is greater than the index of any node still pending. So no separate "on stack" bit is
+   * needed.
+   */
+  private final class StronglyConnected implements Supplier<int[]> {
+    private final Traversal traversal;
+    private final boolean cyclicOnly;
+    private final int[] rindex = new int[nodeCount];
+    private final BitSet nonRoots = new BitSet(nodeCount);
+    private final BitSet selfLoops = new BitSet(nodeCount);
+    private final IntStack connected = new IntStack();
+    private int counter;
+    private int componentNumber = Integer.MAX_VALUE;
+
+    StronglyConnected(int[] startNodes, boolean cyclicOnly) {
+      this.traversal = new Traversal(startNodes);
+      this.cyclicOnly = cyclicOnly;
+    }
+
+    @Override public int[] get() {
+      while (!traversal.isEmpty()) {
+        if (!traversal.hasNextSuccessor()) {
+          int finished = traversal.pop();
+          if (finished < 0) continue;
+          if (!nonRoots.get(finished)) {
+            int[] component = toConnectedComponent(finished);
+            if (!cyclicOnly || component.length > 1 || selfLoops.get(finished)) return component;
+            continue;
+          }
+          lowerRindex(traversal.top(), finished);
+          continue;
+        }
+        int node = traversal.nextSuccessor();
+        if (traversal.visit(node)) {
+          rindex[node] = ++counter;
+          connected.push(node);
+          traversal.push(node);
+        } else {
+          int current = traversal.top();
+          if (current == node) selfLoops.set(node);
+          if (current >= 0) lowerRindex(current, node);
+        }
+      }
+      return null;
+    }
+
+    private void lowerRindex(int node, int successor) {
+      if (rindex[successor] < rindex[node]) {
+        rindex[node] = rindex[successor];
+        nonRoots.set(node);
+      }
+    }
+
+    private int[] toConnectedComponent(int root) {
+      IntStack component = new IntStack();
+      for (; ; ) {
+        int node = connected.pop();
+        rindex[node] = componentNumber;
+        component.push(node);
+        if (node == root) {
+          componentNumber--;
+          return component.toArray();
+        }
+      }
+    }
+  }
+
+  /** The depth-first traversal stack, with one frame per node whose successors are being walked. */
+  private final class Traversal {
+    private final BitSet visited = new BitSet(nodeCount);
+    private int[] owners = new int[16];
+    private int[][] targets = new int[16][];
+    private int[] positions = new int[16];
+    private int[] ends = new int[16];
+    private int size;
+
+    Traversal(int[] startNodes) {
+      pushFrame(-1, startNodes.clone(), 0, startNodes.length);
+    }
+
+    boolean isEmpty() {
+      return size == 0;
+    }
+
+    boolean hasNextSuccessor() {
+      return positions[size - 1] < ends[size - 1];
+    }
+
+    int nextSuccessor() {
+      return targets[size - 1][positions[size - 1]++];
+    }
+
+    boolean visit(int node) {
+      return IntGraphWalker.this.visit(visited, node);
+    }
+
+    /** Pushes the frame for the successors of {@code node}. */
+    void push(int node) {
+      int[] successors = adjacency.targets(node);
+      pushFrame(
+          node, successors, adjacency.begin(node, successors), adjacency.end(node, successors));
+    }
+
+    /** Pops the top frame and returns its node, or -1 if it's the frame of the start nodes. */
+    int pop() {
+      size--;
+      targets[size] = null;
+      return owners[size];
+    }
+
+    /** Returns the node of the top frame, or -1 if it's the frame of the start nodes. */
+    int top() {
+      return size == 0 ? -1 : owners[size - 1];
+    }
+
+    /** Returns the nodes of all the frames from the bottom up. */
+    IntStream currentPath() {
+      return IntStream.range(1, size).map(i -> owners[i]);
+    }
+
+    private void pushFrame(int owner, int[] frameTargets, int begin, int end) {
+      if (size == owners.length) {
+        int capacity = size * 2;
+        owners = Arrays.copyOf(owners, capacity);
+        targets = Arrays.copyOf(targets, capacity);
+        positions = Arrays.copyOf(positions, capacity);
+        ends = Arrays.copyOf(ends, capacity);
+      }
+      owners[size] = owner;
+      targets[size] = frameTargets;
+      positions[size] = begin;
+      ends[size] = end;
+      size++;
+    }
+  }
+
+  private static final class IntStack {
+    private int[] elements = new int[16];
+    private int size;
+
+    void push(int value) {
+      if (size == elements.length) elements = Arrays.copyOf(elements, size * 2);
+      elements[size++] = value;
+    }
+
+    int pop() {
+      return elements[--size];
+    }
+
+    int size() {
+      return size;
+    }
+
+    int[] toArray() {
+      return Arrays.copyOf(elements, size);
+    }
+  }
+
+  private static final class IntQueue {
+    private int[] elements = new int[16];
+    private int head;
+    private int size;
+
+    void add(int value) {
+      if (size == elements.length) {
+        int[] grown = new int[size * 2];
+        int firstPart = elements.length - head;
+        System.arraycopy(elements, head, grown, 0, firstPart);
+        System.arraycopy(elements, 0, grown, firstPart, head);
+        elements = grown;
+        head = 0;
+      }
+      elements[(head + size++) % elements.length] = value;
+    }
+
+    int remove() {
+      int value = elements[head];
+      head = (head + 1) % elements.length;
+      size--;
+      return value;
+    }
+
+    boolean isEmpty() {
+      return size == 0;
+    }
+  }
+
+  /** Returns the next node, or negative if no more. */
+  @FunctionalInterface
+  private interface NextNode {
+    int next();
+  }
+
+  /** The successors of a node are {@code targets[begin]} through {@code targets[end - 1]}. */
+  private abstract static class Adjacency {
+    abstract int[] targets(int node);
+
+    abstract int begin(int node, int[] targets);
+
+    abstract int end(int node, int[] targets);
+  }
+}
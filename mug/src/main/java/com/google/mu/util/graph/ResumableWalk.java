@@ -0,0 +1,305 @@
+/*****************************************************************************
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package com.google.mu.util.graph;
+
+import static com.google.mu.util.stream.MoreStreams.whileNotNull;
+import static java.util.Objects.requireNonNull;
+
+import java.io.Serializable;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * A pre-order or breadth-first graph walk that can be suspended and later resumed, possibly in a
+ * different process, from a serializable {@link Checkpoint}.
+ *
+ * <p>For example, to crawl the web breadth-first and save a checkpoint every 1000 pages, so that
+ * the crawl can pick up where it left off after a restart:
+ *
+ * <pre>{@code
+ * ResumableWalk<Url> crawl =
+ *     loadCheckpoint()
+ *         .map(checkpoint -> ResumableWalk.resume(this::fetchLinks, checkpoint))
+ *         .orElseGet(() -> ResumableWalk.breadthFirstFrom(this::fetchLinks, homePage));
+ * crawl.stream()
+ *     .forEach(page -> {
+ *       index(page);
+ *       if (++crawled % 1000 == 0) saveCheckpoint(crawl.checkpoint());
+ *     });
+ * }</pre>
+ *
+ * <p>Unlike {@link Walker}, which accepts arbitrary node trackers, the visited nodes are tracked in
+ * a {@code HashSet} owned by the walk so that they can be saved in the checkpoint. The walk visits
+ * the nodes in the same order as {@link Walker#preOrderFrom Walker.inGraph().preOrderFrom()} or
+ * {@link Walker#breadthFirstFrom Walker.inGraph().breadthFirstFrom()} would.
+ *
+ * <p>The successor streams are consumed lazily, so they can be infinite. A checkpoint saves the
+ * nodes whose successors are partially walked, and how many of their successors were consumed.
+ * Upon resuming, {@code findSuccessors} is called again for these nodes, and the successors already
+ * consumed are skipped. So {@code findSuccessors} should return the same successors in the same
+ * order; otherwise the resumed walk may miss or add some of them.
+ *
+ * <p>Instances are not thread safe.
+ *
+ * @param <N> the graph node type. Must implement {@link Object#equals} and {@link
+ *     Object#hashCode}; and must be {@link Serializable} in order to serialize the checkpoint.
+ * @since 8.6
+ */
+public final class ResumableWalk<N> {
+  private final Function<? super N, ? extends Stream<? extends N>> findSuccessors;
+  private final boolean depthFirst;
+  private final Set<N> visited;
+  private final Deque<Frame<N>> horizon = new ArrayDeque<>();
+  private N candidate;
+
+  private ResumableWalk(
+      Function<? super N, ? extends Stream<? extends N>> findSuccessors,
+      boolean depthFirst,
+      Set<N> visited,
+      Iterable<Frame<N>> frames) {
+    this.findSuccessors = requireNonNull(findSuccessors);
+    this.depthFirst = depthFirst;
+    this.visited = visited;
+    for (Frame<N> frame : frames) {
+      horizon.add(frame);
+    }
+  }
+
+  private ResumableWalk(
+      Function<? super N, ? extends Stream<? extends N>> findSuccessors,
+      boolean depthFirst,
+      Iterable<? extends N> startNodes) {
+    this(
+        findSuccessors,
+        depthFirst,
+        new HashSet<>(),
+        Collections.singletonList(new Frame<>(null, startNodes.spliterator())));
+  }
+
+  /**
+   * Starts a resumable pre-order walk from {@code startNodes}, with {@code findSuccessors} to find
+   * the successors of each node.
+   */
+  @SafeVarargs public static <N> ResumableWalk<N> preOrderFrom(
+      Function<? super N, ? extends Stream<? extends N>> findSuccessors, N... startNodes) {
+    return preOrderFrom(findSuccessors, Walker.nonNullList(startNodes));
+  }
+
+  /**
+   * Starts a resumable pre-order walk from {@code startNodes}, with {@code findSuccessors} to find
+   * the successors of each node.
+   */
+  public static <N> ResumableWalk<N> preOrderFrom(
+      Function<? super N, ? extends Stream<? extends N>> findSuccessors,
+      Iterable<? extends N> startNodes) {
+    return new ResumableWalk<>(findSuccessors, true, startNodes);
+  }
+
+  /**
+   * Starts a resumable breadth-first walk from {@code startNodes}, with {@code findSuccessors} to
+   * find the successors of each node.
+   */
+  @SafeVarargs public static <N> ResumableWalk<N> breadthFirstFrom(
+      Function<? super N, ? extends Stream<? extends N>> findSuccessors, N... startNodes) {
+    return breadthFirstFrom(findSuccessors, Walker.nonNullList(startNodes));
+  }
+
+  /**
+   * Starts a resumable breadth-first walk from {@code startNodes}, with {@code findSuccessors} to
+   * find the successors of each node.
+   */
+  public static <N> ResumableWalk<N> breadthFirstFrom(
+      Function<? super N, ? extends Stream<? extends N>> findSuccessors,
+      Iterable<? extends N> startNodes) {
+    return new ResumableWalk<>(findSuccessors, false, startNodes);
+  }
+
+  /**
+   * Resumes the walk saved in {@code checkpoint}, in the same order (pre-order or breadth-first)
+   * as the original walk. The nodes visited before the checkpoint won't be visited again.
+   */
+  public static <N> ResumableWalk<N> resume(
+      Function<? super N, ? extends Stream<? extends N>> findSuccessors,
+      Checkpoint<N> checkpoint) {
+    List<Frame<N>> frames = new ArrayList<>(checkpoint.frames.size());
+    for (Frame<N> frame : checkpoint.frames) {
+      frames.add(frame.snapshot());
+    }
+    return new ResumableWalk<>(
+        findSuccessors, checkpoint.depthFirst, new HashSet<>(checkpoint.visited), frames);
+  }
+
+  /**
+   * Returns a lazy stream of the nodes not yet visited by this walk. Each node is visited only
+   * once: the nodes consumed from one stream won't show up in a subsequently returned stream.
+   */
+  public Stream<N> stream() {
+    return whileNotNull(this::visitNext);
+  }
+
+  /**
+   * Returns a snapshot of the current state of this walk, which can be saved and later passed to
+   * {@link #resume} to continue walking from here.
+   *
+   * <p>Can be called while the stream returned by {@link #stream} is being consumed (in the same
+   * thread). The snapshot then resumes right after the node currently being consumed.
+   *
+   * <p>Taking a snapshot doesn't consume the pending successor streams, which may be infinite.
+   * It copies the set of visited nodes, the nodes whose successors are partially walked, and the
+   * start nodes not yet walked. So it's {@code O(visited + partially walked + start nodes)}.
+   */
+  public Checkpoint<N> checkpoint() {
+    ArrayList<Frame<N>> frames = new ArrayList<>(horizon.size());
+    for (Frame<N> frame : horizon) {
+      frames.add(frame.snapshot());
+    }
+    return new Checkpoint<>(depthFirst, frames, new HashSet<>(visited));
+  }
+
+  @Override public String toString() {
+    return (depthFirst ? "pre-order" : "breadth-first") + " walk (" + visited.size() + " visited)";
+  }
+
+  private N visitNext() {
+    while (!horizon.isEmpty()) {
+      Frame<N> top = horizon.getFirst();
+      Spliterator<? extends N> successors = top.successors(findSuccessors);
+      while (successors.tryAdvance(n -> candidate = requireNonNull(n))) {
+        top.consumed++;
+        N node = candidate;
+        if (visited.add(node)) {
+          Stream<? extends N> next = findSuccessors.apply(node);
+          if (next != null) {
+            Frame<N> frame = new Frame<>(node, next.spliterator());
+            if (depthFirst) {
+              horizon.push(frame);
+            } else {
+              horizon.add(frame);
+            }
+          }
+          return node;
+        }
+      }
+      horizon.removeFirst();
+    }
+    return null;
+  }
+
+  /**
+   * The successors of {@code node} being walked, or the start nodes if {@code node} is null. Only
+   * the node and the number of consumed successors are saved in a checkpoint, except that the
+   * remaining start nodes are saved as is.
+   */
+  private static final class Frame<N> implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final N node;
+    private final ArrayList<N> startNodes;
+    private long consumed;
+    private transient Spliterator<? extends N> successors;
+
+    Frame(N node, Spliterator<? extends N> successors) {
+      this(node, null, 0);
+      this.successors = successors;
+    }
+
+    private Frame(N node, ArrayList<N> startNodes, long consumed) {
+      this.node = node;
+      this.startNodes = startNodes;
+      this.consumed = consumed;
+    }
+
+    Spliterator<? extends N> successors(
+        Function<? super N, ? extends Stream<? extends N>> findSuccessors) {
+      if (successors == null) {
+        if (node == null) {
+          successors = startNodes.spliterator();
+        } else {
+          Stream<? extends N> stream = findSuccessors.apply(node);
+          successors = stream == null ? Spliterators.emptySpliterator() : stream.spliterator();
+          for (long i = 0; i < consumed && successors.tryAdvance(n -> {}); i++) {}
+        }
+      }
+      return successors;
+    }
+
+    /** Returns a copy that shares no state with this frame. */
+    Frame<N> snapshot() {
+      if (node != null) return new Frame<>(node, null, consumed);
+      ArrayList<N> remaining = new ArrayList<>();
+      if (successors == null) {
+        remaining.addAll(startNodes);
+      } else {
+        successors.forEachRemaining(n -> remaining.add(requireNonNull(n)));
+      }
+      successors = new ArrayList<>(remaining).spliterator();
+      consumed = 0;
+      return new Frame<>(null, remaining, 0);
+    }
+  }
+
+  /**
+   * A serializable snapshot of a {@link ResumableWalk}: the nodes already visited, and where to
+   * pick up the successor streams being walked.
+   *
+   * <p>The checkpoint is serializable as long as the nodes are.
+   *
+   * @param <N> the graph node type
+   * @since 8.6
+   */
+  public static final class Checkpoint<N> implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final boolean depthFirst;
+    private final ArrayList<Frame<N>> frames;
+    private final HashSet<N> visited;
+
+    Checkpoint(boolean depthFirst, ArrayList<Frame<N>> frames, HashSet<N> visited) {
+      this.depthFirst = depthFirst;
+      this.frames = frames;
+      this.visited = visited;
+    }
+
+    /** Returns the nodes already visited at the time of the checkpoint. */
+    public Set<N> visited() {
+      return Collections.unmodifiableSet(visited);
+    }
+
+    /**
+     * Returns the visited nodes whose successors were not yet fully walked at the time of the
+     * checkpoint, in the order they will be walked upon resuming.
+     */
+    public List<N> expanding() {
+      List<N> nodes = new ArrayList<>(frames.size());
+      for (Frame<N> frame : frames) {
+        if (frame.node != null) nodes.add(frame.node);
+      }
+      return Collections.unmodifiableList(nodes);
+    }
+
+    @Override public String toString() {
+      return "Checkpoint(" + visited.size() + " visited, " + expanding().size() + " expanding)";
+    }
+  }
+}
@@ -22,14 +22,18 @@ import static java.util.stream.Collectors.joining;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.PriorityQueue;
 import java.util.Set;
 import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
 import java.util.stream.Stream;
 
 import com.google.mu.util.stream.BiStream;
@@ -107,6 +111,46 @@ public final class ShortestPath<N> {
                 }));
   }
 
+  /**
+   * Returns a lazy stream of shortest paths starting from {@code startNode} in {@code graph}.
+   *
+   * <p>Equivalent to {@code shortestPathsFrom(startNode, graph::weightedSuccessors)}, but runs over
+   * the {@code int} ids of the nodes, with tentative distances in a primitive indexed heap
+   * supporting decrease-key. No stale heap entries are left behind upon relaxing an edge, and
+   * {@code ShortestPath} objects are only created for the paths in the returned stream.
+   *
+   * @throws IllegalArgumentException if {@code startNode} isn't in {@code graph}, or if any edge
+   *     with negative weight is encountered
+   * @since 8.6
+   */
+  public static <N> Stream<ShortestPath<N>> shortestPathsFrom(N startNode, CsrGraph<N> graph) {
+    int start = graph.idOf(startNode);
+    IndexedMinHeap horizon = new IndexedMinHeap(graph.nodeCount());
+    int[] predecessors = new int[graph.nodeCount()];
+    @SuppressWarnings("unchecked")  // Only ever stores ShortestPath<N>
+    ShortestPath<N>[] settled = (ShortestPath<N>[]) new ShortestPath<?>[graph.nodeCount()];
+    horizon.offer(start, 0);
+    predecessors[start] = -1;
+    return whileNotNull(() -> {
+      if (horizon.isEmpty()) return null;
+      double distance = horizon.peekKey();
+      int id = horizon.poll();
+      int predecessor = predecessors[id];
+      ShortestPath<N> path =
+          predecessor < 0
+              ? new ShortestPath<>(graph.node(id))
+              : new ShortestPath<>(graph.node(id), settled[predecessor], distance);
+      settled[id] = path;
+      for (int edge = graph.firstEdge(id); edge < graph.endEdge(id); edge++) {
+        double weight = graph.weight(edge);
+        checkNotNegative(weight, "distance");
+        int neighbor = graph.target(edge);
+        if (horizon.offer(neighbor, distance + weight)) predecessors[neighbor] = id;
+      }
+      return path;
+    });
+  }
+
   /**
    * Returns a lazy stream of unweighted shortest paths starting from {@code startNode}.
    *
@@ -132,6 +176,104 @@ public final class ShortestPath<N> {
     return walker.breadthFirstFrom(new ShortestPath<>(startNode));
   }
 
+  /**
+   * Returns the shortest path from {@code startNode} to {@code goal} using the A* algorithm, or
+   * empty if {@code goal} isn't reachable from {@code startNode}.
+   *
+   * <p>The {@code findSuccessors} function is called on-the-fly to find the successors of the
+   * current node, along with their distances from the current node. It may return null or empty
+   * stream if there are no successors.
+   *
+   * <p>The {@code heuristic} function estimates the distance from a node to {@code goal}. As long
+   * as it never overestimates (and it's trivially so if it always returns 0, in which case this is
+   * equivalent to Dijkstra), the returned path is the shortest. The closer the estimation is to
+   * the actual distance, the fewer nodes are explored before reaching {@code goal}. And if the
+   * estimation is also consistent (the estimation of a node is no greater than the distance to a
+   * successor plus the successor's estimation, such as the straight-line distance on a map), each
+   * node's successors are looked up at most once.
+   *
+   * <p>The search stops as soon as the shortest path to {@code goal} is found.
+   *
+   * @param <N> The node type. Must implement {@link Object#equals} and {@link Object#hashCode}.
+   * @throws IllegalArgumentException if any negative distance or estimation is encountered
+   * @since 8.6
+   */
+  public static <N> Optional<ShortestPath<N>> aStar(
+      N startNode,
+      N goal,
+      Function<? super N, ? extends BiStream<? extends N, Double>> findSuccessors,
+      ToDoubleFunction<? super N> heuristic) {
+    requireNonNull(goal);
+    Frontier<N> frontier = new Frontier<>(startNode, findSuccessors, heuristic);
+    for (ShortestPath<N> path = frontier.peek(); path != null; path = frontier.peek()) {
+      if (path.to().equals(goal)) return Optional.of(path);
+      frontier.expand(improved -> {});
+    }
+    return Optional.empty();
+  }
+
+  /**
+   * Returns the shortest path from {@code startNode} to {@code goal}, or empty if {@code goal}
+   * isn't reachable from {@code startNode}.
+   *
+   * <p>Dijkstra runs from both ends, forward from {@code startNode} using {@code findSuccessors},
+   * and backward from {@code goal} using {@code findPredecessors}, until the two searches meet in
+   * the middle. This usually explores far fewer nodes than searching from {@code startNode} alone.
+   *
+   * <p>{@code findSuccessors} and {@code findPredecessors} are called on-the-fly to find the direct
+   * successors (or predecessors) of the current node, along with the distances of the edges. They
+   * may return null or empty stream if there are no such nodes. For undirected graphs, pass the
+   * same function for both.
+   *
+   * @param <N> The node type. Must implement {@link Object#equals} and {@link Object#hashCode}.
+   * @throws IllegalArgumentException if any negative distance is encountered
+   * @since 8.6
+   */
+  public static <N> Optional<ShortestPath<N>> bidirectionalShortestPath(
+      N startNode,
+      N goal,
+      Function<? super N, ? extends BiStream<? extends N, Double>> findSuccessors,
+      Function<? super N, ? extends BiStream<? extends N, Double>> findPredecessors) {
+    Frontier<N> forward = new Frontier<>(startNode, findSuccessors, n -> 0);
+    Frontier<N> backward = new Frontier<>(goal, findPredecessors, n -> 0);
+    Meeting<N> meeting = new Meeting<>();
+    meeting.consider(forward.tentative(goal), backward.tentative(goal));  // if startNode is goal
+    for (ShortestPath<N> forwardTop = forward.peek(), backwardTop = backward.peek();
+        forwardTop != null && backwardTop != null
+            && forwardTop.distance() + backwardTop.distance() < meeting.distance;
+        forwardTop = forward.peek(), backwardTop = backward.peek()) {
+      if (forwardTop.distance() <= backwardTop.distance()) {
+        forward.expand(path -> meeting.consider(path, backward.tentative(path.to())));
+      } else {
+        backward.expand(path -> meeting.consider(forward.tentative(path.to()), path));
+      }
+    }
+    return Optional.ofNullable(meeting.path());
+  }
+
+  /**
+   * Returns the unweighted shortest path from {@code startNode} to {@code goal}, or empty if
+   * {@code goal} isn't reachable from {@code startNode}.
+   *
+   * <p>Equivalent to {@link #bidirectionalShortestPath} with every edge having distance of 1.
+   * For undirected graphs, pass the same function as both {@code findSuccessors} and {@code
+   * findPredecessors}.
+   *
+   * @param <N> The node type. Must implement {@link Object#equals} and {@link Object#hashCode}.
+   * @since 8.6
+   */
+  public static <N> Optional<ShortestPath<N>> unweightedBidirectionalShortestPath(
+      N startNode,
+      N goal,
+      Function<? super N, ? extends Stream<? extends N>> findSuccessors,
+      Function<? super N, ? extends Stream<? extends N>> findPredecessors) {
+    requireNonNull(findSuccessors);
+    requireNonNull(findPredecessors);
+    return bidirectionalShortestPath(
+        startNode, goal, n -> unitDistances(findSuccessors.apply(n)),
+        n -> unitDistances(findPredecessors.apply(n)));
+  }
+
   private ShortestPath(N node) {
     this(node, null, 0);
   }
@@ -191,8 +333,115 @@ public final class ShortestPath<N> {
     return stream == null ? null : stream.map(mapper);
   }
 
+  private static <N> BiStream<N, Double> unitDistances(Stream<? extends N> nodes) {
+    // mapKeys() widens the keys from the wildcard capture to N.
+    return nodes == null ? null : BiStream.biStream(nodes).<N>mapKeys(n -> n).mapValues(n -> 1D);
+  }
+
   private static <K, V> void forEachPairOrNull(
       BiStream<? extends K, ? extends V> stream, BiConsumer<? super K, ? super V> consumer) {
     if (stream != null) stream.forEachOrdered(consumer);
   }
+
+  /**
+   * The tentative paths of a Dijkstra or A* search, prioritized by the path distance plus the
+   * heuristic estimation of the remaining distance.
+   */
+  private static final class Frontier<N> {
+    private final Function<? super N, ? extends BiStream<? extends N, Double>> findNeighbors;
+    private final ToDoubleFunction<? super N> heuristic;
+    private final Map<N, ShortestPath<N>> tentative = new HashMap<>();
+    // Among equal priorities, prefer the longer path since it's probably closer to the goal.
+    private final PriorityQueue<Estimate<N>> queue = new PriorityQueue<>(
+        Comparator.<Estimate<N>>comparingDouble(e -> e.priority)
+            .thenComparingDouble(e -> -e.path.distance()));
+
+    Frontier(
+        N origin,
+        Function<? super N, ? extends BiStream<? extends N, Double>> findNeighbors,
+        ToDoubleFunction<? super N> heuristic) {
+      this.findNeighbors = requireNonNull(findNeighbors);
+      this.heuristic = requireNonNull(heuristic);
+      offer(new ShortestPath<>(origin));
+    }
+
+    /** Returns the shortest tentative path to {@code node}, or null if not yet reached. */
+    ShortestPath<N> tentative(N node) {
+      return tentative.get(node);
+    }
+
+    /** Returns the path with the lowest priority, or null if all reachable paths are expanded. */
+    ShortestPath<N> peek() {
+      for (Estimate<N> top = queue.peek(); top != null; top = queue.peek()) {
+        // Superseded by a shorter path to the same node.
+        if (tentative.get(top.path.to()) == top.path) return top.path;
+        queue.poll();
+      }
+      return null;
+    }
+
+    /**
+     * Removes the path returned by {@link #peek} and extends it to the neighbor nodes, passing
+     * each newly found shorter path to {@code onShorterPath}.
+     */
+    void expand(Consumer<ShortestPath<N>> onShorterPath) {
+      ShortestPath<N> path = queue.poll().path;
+      forEachPairOrNull(
+          findNeighbors.apply(path.to()),
+          (neighbor, distance) -> {
+            requireNonNull(neighbor);
+            checkNotNegative(distance, "distance");
+            ShortestPath<N> old = tentative.get(neighbor);
+            if (old == null || path.distance() + distance < old.distance()) {
+              ShortestPath<N> shorter = path.extendTo(neighbor, distance);
+              offer(shorter);
+              onShorterPath.accept(shorter);
+            }
+          });
+    }
+
+    private void offer(ShortestPath<N> path) {
+      double estimation = heuristic.applyAsDouble(path.to());
+      checkNotNegative(estimation, "heuristic estimation");
+      tentative.put(path.to(), path);
+      queue.add(new Estimate<>(path, path.distance() + estimation));
+    }
+  }
+
+  /** The best known meeting point of a bidirectional search. */
+  private static final class Meeting<N> {
+    private ShortestPath<N> forward;  // from the start node to the meeting point
+    private ShortestPath<N> backward;  // from the goal backward to the meeting point
+    double distance = Double.POSITIVE_INFINITY;
+
+    void consider(ShortestPath<N> forwardPath, ShortestPath<N> backwardPath) {
+      if (forwardPath == null || backwardPath == null) return;
+      double total = forwardPath.distance() + backwardPath.distance();
+      if (total < distance) {
+        forward = forwardPath;
+        backward = backwardPath;
+        distance = total;
+      }
+    }
+
+    /** Returns the joined path from the start node to the goal, or null if they never met. */
+    ShortestPath<N> path() {
+      if (forward == null) return null;
+      ShortestPath<N> path = forward;
+      for (ShortestPath<N> b = backward; b.predecessor != null; b = b.predecessor) {
+        path = path.extendTo(b.predecessor.node, b.distance - b.predecessor.distance);
+      }
+      return path;
+    }
+  }
+
+  private static final class Estimate<N> {
+    final ShortestPath<N> path;
+    final double priority;
+
+    Estimate(ShortestPath<N> path, double priority) {
+      this.path = path;
+      this.priority = priority;
+    }
+  }
 }
@@ -24,10 +24,14 @@ import java.util.Comparator;
 import java.util.DoubleSummaryStatistics;
 import java.util.IntSummaryStatistics;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.LongSummaryStatistics;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.function.BiFunction;
 import java.util.function.BiPredicate;
 import java.util.function.BinaryOperator;
@@ -150,6 +154,60 @@ public final class BiCollectors {
     };
   }
 
+  /**
+   * Returns a {@link BiCollector} that collects the key-value pairs into a {@link ConcurrentMap}.
+   *
+   * <p>The returned collector is {@link Collector.Characteristics#CONCURRENT concurrent} and
+   * {@link Collector.Characteristics#UNORDERED unordered}: when the {@code BiStream} is parallel,
+   * all threads insert into the same map instead of building one map per thread to be merged
+   * afterwards.
+   *
+   * <p>Duplicate keys will cause {@link IllegalArgumentException} to be thrown, with the offending
+   * key reported in the error message. Null keys and values aren't supported.
+   *
+   * @since 8.6
+   */
+  public static <K, V> BiCollector<K, V, ConcurrentMap<K, V>> toConcurrentMap() {
+    return new BiCollector<K, V, ConcurrentMap<K, V>>() {
+      @Override
+      public <E> Collector<E, ?, ConcurrentMap<K, V>> collectorOf(
+          Function<E, K> toKey, Function<E, V> toValue) {
+        return Collector.<E, ConcurrentMap<K, V>>of(
+            ConcurrentHashMap::new,
+            (map, e) -> putUnique(map, toKey.apply(e), toValue.apply(e)),
+            (map1, map2) -> {
+              map2.forEach((k, v) -> putUnique(map1, k, v));
+              return map1;
+            },
+            Collector.Characteristics.CONCURRENT,
+            Collector.Characteristics.UNORDERED);
+      }
+    };
+  }
+
+  /**
+   * Returns a {@link BiCollector} that collects the key-value pairs into a {@link ConcurrentMap},
+   * using {@code valueMerger} to merge values of duplicate keys. Values of the same key are merged
+   * atomically, so {@code valueMerger} doesn't need to be thread safe.
+   *
+   * <p>The returned collector is {@link Collector.Characteristics#CONCURRENT concurrent} and
+   * {@link Collector.Characteristics#UNORDERED unordered}; in a parallel {@code BiStream}, all
+   * threads insert into the same map. Null keys and values aren't supported.
+   *
+   * @since 8.6
+   */
+  public static <K, V> BiCollector<K, V, ConcurrentMap<K, V>> toConcurrentMap(
+      BinaryOperator<V> valueMerger) {
+    requireNonNull(valueMerger);
+    return new BiCollector<K, V, ConcurrentMap<K, V>>() {
+      @Override
+      public <E> Collector<E, ?, ConcurrentMap<K, V>> collectorOf(
+          Function<E, K> toKey, Function<E, V> toValue) {
+        return Collectors.toConcurrentMap(toKey, toValue, valueMerger);
+      }
+    };
+  }
+
   /**
    * Returns a counting {@link BiCollector} that counts the number of input entries.
    *
@@ -175,6 +233,34 @@ public final class BiCollectors {
         Collectors.collectingAndThen(Collectors.toSet(), Set::size));
   }
 
+  /**
+   * Returns a {@link BiCollector} that estimates the number of distinct input entries, using a
+   * {@link HyperLogLog} sketch in fixed memory instead of keeping track of all distinct entries
+   * like {@link #countingDistinct} does. The standard error is about 0.8%.
+   *
+   * <p>Keys and values are hashed from {@link Object#hashCode}. The collector is {@link
+   * Collector.Characteristics#UNORDERED unordered}.
+   *
+   * @since 8.6
+   */
+  public static <K, V> BiCollector<K, V, Long> countingDistinctApproximately() {
+    return new BiCollector<K, V, Long>() {
+      @Override
+      public <E> Collector<E, ?, Long> collectorOf(Function<E, K> toKey, Function<E, V> toValue) {
+        return Collector.of(
+            HyperLogLog::create,
+            (sketch, e) -> {
+              long keyHash = Objects.hashCode(toKey.apply(e));
+              long valueHash = Objects.hashCode(toValue.apply(e));
+              sketch.addHash(HyperLogLog.mix(keyHash << 32 | (valueHash & 0xFFFFFFFFL)));
+            },
+            HyperLogLog::merge,
+            HyperLogLog::estimate,
+            Collector.Characteristics.UNORDERED);
+      }
+    };
+  }
+
   /**
    * Returns a {@link BiCollector} that produces the sum of an integer-valued
    * function applied to the input pair.  If no input entries are present,
@@ -454,6 +540,65 @@ public final class BiCollectors {
     };
   }
 
+  /**
+   * Groups input pairs by {@code classifier} and reduces values belonging to the same group using
+   * {@code groupReducer}, into a {@link ConcurrentMap}. For example, the following code totals
+   * the bytes served by each host from a large parallel stream of log records:
+   *
+   * <pre>{@code
+   * ConcurrentMap<Host, Long> bytesPerHost =
+   *     biStream(logRecords.parallelStream())
+   *         .mapKeys(LogRecord::url)
+   *         .mapValues(LogRecord::bytes)
+   *         .collect(groupingByConcurrent(Url::host, Long::sum));
+   * }</pre>
+   *
+   * <p>The returned collector is {@link Collector.Characteristics#CONCURRENT concurrent} and
+   * {@link Collector.Characteristics#UNORDERED unordered}: in a parallel {@code BiStream}, all
+   * threads accumulate into the same map, and values of the same group are reduced atomically.
+   * Null groups and values aren't supported.
+   *
+   * @since 8.6
+   */
+  public static <K, V, G> BiCollector<K, V, ConcurrentMap<G, V>> groupingByConcurrent(
+      Function<? super K, ? extends G> classifier, BinaryOperator<V> groupReducer) {
+    requireNonNull(classifier);
+    requireNonNull(groupReducer);
+    return new BiCollector<K, V, ConcurrentMap<G, V>>() {
+      @Override
+      public <E> Collector<E, ?, ConcurrentMap<G, V>> collectorOf(
+          Function<E, K> toKey, Function<E, V> toValue) {
+        return Collectors.toConcurrentMap(toKey.andThen(classifier), toValue, groupReducer);
+      }
+    };
+  }
+
+  /**
+   * Groups input pairs by {@code classifier} and collects values belonging to the same group
+   * using {@code groupCollector}, into a {@link ConcurrentMap}.
+   *
+   * <p>The returned collector is {@link Collector.Characteristics#UNORDERED unordered}, and in a
+   * parallel {@code BiStream} all threads share the same map. It's also {@link
+   * Collector.Characteristics#CONCURRENT concurrent} if {@code groupCollector} is. Otherwise the
+   * values of each group are collected under that group's lock, like {@link
+   * Collectors#groupingByConcurrent(Function, Collector)}. Null groups aren't supported.
+   *
+   * @since 8.6
+   */
+  public static <K, V, G, R> BiCollector<K, V, ConcurrentMap<G, R>> groupingByConcurrent(
+      Function<? super K, ? extends G> classifier, Collector<? super V, ?, R> groupCollector) {
+    requireNonNull(classifier);
+    requireNonNull(groupCollector);
+    return new BiCollector<K, V, ConcurrentMap<G, R>>() {
+      @Override
+      public <E> Collector<E, ?, ConcurrentMap<G, R>> collectorOf(
+          Function<E, K> toKey, Function<E, V> toValue) {
+        return Collectors.groupingByConcurrent(
+            toKey.andThen(classifier), Collectors.mapping(toValue, groupCollector));
+      }
+    };
+  }
+
 /**
  * Returns a BiCollector that partitions the incoming pairs into two groups: elements that match
  * {@code predicate}, and those that don't. Both groups are stored in a BiStream.
@@ -827,6 +972,52 @@ public static <K, V, T, F> BiCollector<K, V, Both<T, F>> partitioningBy(
             .thenComparing(comparingByValue(valueComparator)));
   }
 
+  /**
+   * Returns a {@link BiCollector} that collects the {@code k} pairs with the greatest values
+   * (relative to {@code valueComparator}), in descending order of the values. For example, to find
+   * the 10 most popular products:
+   *
+   * <pre>{@code
+   * BiStream<Product, Long> bestSellers =
+   *     BiStream.from(salesCounts).collect(greatestByValue(10, naturalOrder()));
+   * }</pre>
+   *
+   * <p>Only up to {@code k} pairs are retained, in a bounded heap. Ties are resolved in favor of
+   * the pairs encountered first. See {@link MoreCollectors#greatest}.
+   *
+   * @throws IllegalArgumentException if {@code k} is negative
+   * @since 8.6
+   */
+  public static <K, V> BiCollector<K, V, BiStream<K, V>> greatestByValue(
+      int k, Comparator<? super V> valueComparator) {
+    return leastByValue(k, valueComparator.reversed());
+  }
+
+  /**
+   * Returns a {@link BiCollector} that collects the {@code k} pairs with the least values
+   * (relative to {@code valueComparator}), in ascending order of the values.
+   *
+   * <p>Only up to {@code k} pairs are retained, in a bounded heap. Ties are resolved in favor of
+   * the pairs encountered first. See {@link MoreCollectors#least}.
+   *
+   * @throws IllegalArgumentException if {@code k} is negative
+   * @since 8.6
+   */
+  public static <K, V> BiCollector<K, V, BiStream<K, V>> leastByValue(
+      int k, Comparator<? super V> valueComparator) {
+    Collector<Map.Entry<K, V>, ?, List<Map.Entry<K, V>>> least =
+        MoreCollectors.least(k, Map.Entry.<K, V>comparingByValue(valueComparator));
+    return new BiCollector<K, V, BiStream<K, V>>() {
+      @Override
+      public <E> Collector<E, ?, BiStream<K, V>> collectorOf(
+          Function<E, K> toKey, Function<E, V> toValue) {
+        return Collectors.collectingAndThen(
+            Collectors.mapping((E e) -> BiStream.kv(toKey.apply(e), toValue.apply(e)), least),
+            entries -> BiStream.fromEntries(entries.stream()));
+      }
+    };
+  }
+
   private static <K, V> BiCollector<K, V, BiOptional<K, V>> minBy(
       Comparator<? super Map.Entry<K, V>> comparator) {
     return maxBy(comparator.reversed());
@@ -868,5 +1059,11 @@ public static <K, V, T, F> BiCollector<K, V, Both<T, F>> partitioningBy(
     return BiOptional.from(optional).map(Map.Entry::getKey, Map.Entry::getValue);
   }
 
+  private static <K, V> void putUnique(Map<K, V> map, K key, V value) {
+    if (map.putIfAbsent(key, value) != null) {
+      throw new IllegalArgumentException("Duplicate key: [" + key + "]");
+    }
+  }
+
   private BiCollectors() {}
 }
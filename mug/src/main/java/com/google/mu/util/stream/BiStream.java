@@ -27,6 +27,12 @@ import static java.util.stream.StreamSupport.intStream;
 import static java.util.stream.StreamSupport.longStream;
 import static java.util.stream.StreamSupport.stream;
 
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.io.ObjectOutputStream;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.AbstractMap;
 import java.util.Collection;
 import java.util.Comparator;
@@ -52,8 +58,10 @@ import java.util.function.LongConsumer;
 import java.util.function.Predicate;
 import java.util.function.Supplier;
 import java.util.function.ToDoubleBiFunction;
+import java.util.function.ToDoubleFunction;
 import java.util.function.ToIntBiFunction;
 import java.util.function.ToLongBiFunction;
+import java.util.function.ToLongFunction;
 import java.util.stream.Collector;
 import java.util.stream.Collectors;
 import java.util.stream.DoubleStream;
@@ -632,15 +640,91 @@ public abstract class BiStream<K, V> implements AutoCloseable {
    * <p>The resulting stream will only be as long as the shorter of the two input streams; if one
    * stream is longer, its extra elements will be ignored.
    *
-   * <p>The resulting stream by default runs sequentially regardless of the input streams. This is
-   * because the implementation is not <a
-   * href="http://gee.cs.oswego.edu/dl/html/StreamParallelGuidance.html">efficiently splittable</a>.
+   * <p>The streams returned by {@link #mapToObj mapToObj()} and the primitive variants are
+   * parallel only if both input streams are. If both input streams are {@link Spliterator#SIZED
+   * sized} with the same number of elements, as in streams over {@code ArrayList}s or arrays, both
+   * sides are split in lockstep so the resulting stream can run efficiently in {@link
+   * Stream#parallel parallel}. Otherwise the implementation is not <a
+   * href="http://gee.cs.oswego.edu/dl/html/StreamParallelGuidance.html">efficiently splittable</a>
    * and may not perform well if run in parallel.
    */
   public static <L, R> BiStream<L, R> zip(Stream<L> left, Stream<R> right) {
     return new ZippingStream<>(left, right);
   }
 
+  /**
+   * Returns a {@code BiStream} of the pairs in {@code left} and {@code right} with equal keys, as
+   * determined by {@code keyOrder}. Both sides must already be sorted by {@code keyOrder}. For
+   * example:
+   *
+   * <pre>{@code
+   * mergeJoin(
+   *         biStream(employees).mapKeys(Employee::departmentId).mapValues(Employee::name),
+   *         biStream(departments).mapKeys(Department::id).mapValues(Department::name),
+   *         naturalOrder())
+   *     .mapValues(both -> both.andThen((employee, department) -> employee + " @ " + department))
+   * }</pre>
+   *
+   * <p>The pairs are joined in a single streaming pass, in {@code O(n + m)} time. The result is
+   * sorted by key, and is keyed by the left keys. If multiple pairs on either side have equal keys,
+   * every combination of them is joined, in encounter order. Memory use is bounded by the largest
+   * number of right pairs with equal keys; {@code O(1)} if the right keys are unique.
+   *
+   * <p>The result stream is sequential, and closing it closes both sides.
+   *
+   * @throws IllegalArgumentException upon consumption, if either side isn't sorted by {@code
+   *     keyOrder}
+   * @since 8.6
+   */
+  public static <K, L, R> BiStream<K, Both<L, R>> mergeJoin(
+      BiStream<? extends K, ? extends L> left,
+      BiStream<? extends K, ? extends R> right,
+      Comparator<? super K> keyOrder) {
+    requireNonNull(left);
+    requireNonNull(right);
+    requireNonNull(keyOrder);
+    return fromEntries(Joins.mergeJoin(left, right, keyOrder, false));
+  }
+
+  /**
+   * Same as {@link #mergeJoin mergeJoin()}, except that pairs in {@code left} without any equal key
+   * in {@code right} are retained, and joined with null.
+   *
+   * @throws IllegalArgumentException upon consumption, if either side isn't sorted by {@code
+   *     keyOrder}
+   * @since 8.6
+   */
+  public static <K, L, R> BiStream<K, Both<L, R>> leftOuterMergeJoin(
+      BiStream<? extends K, ? extends L> left,
+      BiStream<? extends K, ? extends R> right,
+      Comparator<? super K> keyOrder) {
+    requireNonNull(left);
+    requireNonNull(right);
+    requireNonNull(keyOrder);
+    return fromEntries(Joins.mergeJoin(left, right, keyOrder, true));
+  }
+
+  /**
+   * Returns a {@code BiStream} of the pairs in {@code left} and {@code right} with equal keys
+   * (according to {@link Object#equals}), for sides that aren't sorted.
+   *
+   * <p>A hash table is built from the right side, or from the left side if the sizes of both are
+   * known (as in streams over collections) and the left side is smaller. The other side is then
+   * streamed through, so the result is in encounter order of that side, and is keyed by its keys.
+   * If multiple pairs on either side have equal keys, every combination of them is joined.
+   *
+   * <p>The hash table is built when the result stream is consumed. The result stream is
+   * sequential, and closing it closes both sides.
+   *
+   * @since 8.6
+   */
+  public static <K, L, R> BiStream<K, Both<L, R>> hashJoin(
+      BiStream<? extends K, ? extends L> left, BiStream<? extends K, ? extends R> right) {
+    requireNonNull(left);
+    requireNonNull(right);
+    return fromEntries(Joins.hashJoin(left, right));
+  }
+
   /**
    * Short-hand for {@code from(elements, identity(), identity())}. Typically followed by {@link
    * #mapKeys} or {@link #mapValues}. For example:
@@ -889,6 +973,59 @@ public abstract class BiStream<K, V> implements AutoCloseable {
     boolean belong(A a1, B b1, A a2, B b2);
   }
 
+  /**
+   * Writes pairs to and reads them back from temp files, for {@link #sortedByKeys(Comparator, int,
+   * PairSerializer)}. For example, to sort pairs of strings and longs compactly:
+   *
+   * <pre>{@code
+   * new PairSerializer<String, Long>() {
+   *   public void write(String key, Long value, ObjectOutput out) throws IOException {
+   *     out.writeUTF(key);
+   *     out.writeLong(value);
+   *   }
+   *
+   *   public Map.Entry<String, Long> read(ObjectInput in) throws IOException {
+   *     return new AbstractMap.SimpleImmutableEntry<>(in.readUTF(), in.readLong());
+   *   }
+   * }
+   * }</pre>
+   *
+   * @since 8.6
+   */
+  public interface PairSerializer<K, V> {
+    /**
+     * Returns a serializer that uses Java serialization. The keys and values must be {@link
+     * java.io.Serializable}.
+     */
+    static <K, V> PairSerializer<K, V> javaSerialization() {
+      return new PairSerializer<K, V>() {
+        @Override public void write(K key, V value, ObjectOutput out) throws IOException {
+          out.writeObject(key);
+          out.writeObject(value);
+          if (out instanceof ObjectOutputStream) {
+            // Don't retain references to the written objects, on either side.
+            ((ObjectOutputStream) out).reset();
+          }
+        }
+
+        @SuppressWarnings("unchecked") // Reading back what was written.
+        @Override public Map.Entry<K, V> read(ObjectInput in) throws IOException {
+          try {
+            return kv((K) in.readObject(), (V) in.readObject());
+          } catch (ClassNotFoundException e) {
+            throw new IOException(e);
+          }
+        }
+      };
+    }
+
+    /** Writes the pair of {@code key} and {@code value} to {@code out}. */
+    void write(K key, V value, ObjectOutput out) throws IOException;
+
+    /** Reads back a pair written by {@link #write}. */
+    Map.Entry<K, V> read(ObjectInput in) throws IOException;
+  }
+
   /** @since 7.1 */
   public static <K, V, E extends Map.Entry<? extends K, ? extends V>> BiStream<K, V> fromEntries(
       Stream<E> entryStream) {
@@ -920,6 +1057,14 @@ public abstract class BiStream<K, V> implements AutoCloseable {
       @Override Stream<E> mapToEntry() { // Reuse the same Entry objects. Don't allocate new ones
         return entryStream;
       }
+
+      @Override BiStream<K, V> peekPairs(BiConsumer<? super K, ? super V> action) {
+        return fromEntries(entryStream.peek(e -> action.accept(e.getKey(), e.getValue())));
+      }
+
+      @Override BiStream<K, V> filterPairs(BiPredicate<? super K, ? super V> predicate) {
+        return fromEntries(entryStream.filter(e -> predicate.test(e.getKey(), e.getValue())));
+      }
     };
   }
 
@@ -1033,6 +1178,37 @@ public abstract class BiStream<K, V> implements AutoCloseable {
   /** Maps each value to another value of type {@code V2}. */
   public abstract <V2> BiStream<K, V2> mapValues(Function<? super V, ? extends V2> valueMapper);
 
+  /**
+   * Maps each value to a primitive {@code long}, returning a sequential {@link ObjLongBiStream}
+   * that doesn't box the values. For example:
+   *
+   * <pre>{@code
+   * Map<String, Long> totalSizes = biStream(files)
+   *     .mapKeys(File::getParent)
+   *     .mapValuesToLong(File::length)
+   *     .sumByKey();
+   * }</pre>
+   *
+   * @since 8.6
+   */
+  public ObjLongBiStream<K> mapValuesToLong(ToLongFunction<? super V> valueMapper) {
+    requireNonNull(valueMapper);
+    return ObjLongBiStream.from(
+        mapToEntry(), Map.Entry::getKey, e -> valueMapper.applyAsLong(e.getValue()));
+  }
+
+  /**
+   * Maps each value to a primitive {@code double}, returning a sequential {@link
+   * ObjDoubleBiStream} that doesn't box the values.
+   *
+   * @since 8.6
+   */
+  public ObjDoubleBiStream<K> mapValuesToDouble(ToDoubleFunction<? super V> valueMapper) {
+    requireNonNull(valueMapper);
+    return ObjDoubleBiStream.from(
+        mapToEntry(), Map.Entry::getKey, e -> valueMapper.applyAsDouble(e.getValue()));
+  }
+
   /**
    * Maps a single pair to zero or more objects of type {@code T}.
    *
@@ -1300,7 +1476,7 @@ public abstract class BiStream<K, V> implements AutoCloseable {
    */
   public final BiStream<K, V> peek(BiConsumer<? super K, ? super V> action) {
     requireNonNull(action);
-    return fromEntries(mapToEntry().peek(e -> action.accept(e.getKey(), e.getValue())));
+    return peekPairs(action);
   }
 
   /**
@@ -1311,7 +1487,7 @@ public abstract class BiStream<K, V> implements AutoCloseable {
    */
   public final BiStream<K, V> filter(BiPredicate<? super K, ? super V> predicate) {
     requireNonNull(predicate);
-    return fromEntries(mapToEntry().filter(kv -> predicate.test(kv.getKey(), kv.getValue())));
+    return filterPairs(predicate);
   }
 
   /**
@@ -1493,6 +1669,65 @@ public abstract class BiStream<K, V> implements AutoCloseable {
     return sorted(comparingByKey(comparator));
   }
 
+  /**
+   * Returns a {@code BiStream} consisting of the pairs in this stream, in the order produced by
+   * applying {@code comparator} on the keys of each pair, for streams that may not fit in memory.
+   *
+   * <p>Pairs are sorted in runs of up to {@code maxRunSize}. Each full run is spilled to a temp
+   * file in {@code java.io.tmpdir} using {@code serializer}, and the runs are then merged lazily
+   * as the returned stream is consumed. So memory use is bounded by {@code maxRunSize} pairs, plus
+   * a read buffer for each run. For example, in an offline batch job:
+   *
+   * <pre>{@code
+   * try (BiStream<String, Long> sorted =
+   *     readClicks().sortedByKeys(naturalOrder(), 1_000_000, PairSerializer.javaSerialization())) {
+   *   sorted.forEach(writer::write);
+   * }
+   * }</pre>
+   *
+   * <p>If all pairs fit in a single run, they are sorted in memory and nothing is spilled. The sort
+   * is stable: pairs with equal keys retain their encounter order.
+   *
+   * <p>The temp files are readable only by the owner where the file system supports POSIX
+   * permissions. They are deleted once read through. It's recommended to use try-with-resources so
+   * that closing the returned stream deletes them even if the stream isn't consumed to the end.
+   * I/O failures are thrown as {@link java.io.UncheckedIOException}.
+   *
+   * @throws IllegalArgumentException if {@code maxRunSize} isn't positive
+   * @since 8.6
+   */
+  public final BiStream<K, V> sortedByKeys(
+      Comparator<? super K> comparator, int maxRunSize, PairSerializer<K, V> serializer) {
+    return sortedByKeys(
+        comparator, maxRunSize, serializer, Paths.get(System.getProperty("java.io.tmpdir")));
+  }
+
+  /**
+   * Same as {@link #sortedByKeys(Comparator, int, PairSerializer)}, but spills the runs to temp
+   * files in {@code tempDirectory}, such as a scratch disk with enough space for all pairs.
+   *
+   * @throws IllegalArgumentException if {@code maxRunSize} isn't positive
+   * @since 8.6
+   */
+  @SuppressWarnings("unchecked") // Immutable Map.Entry<> is covariant.
+  public final BiStream<K, V> sortedByKeys(
+      Comparator<? super K> comparator,
+      int maxRunSize,
+      PairSerializer<K, V> serializer,
+      Path tempDirectory) {
+    requireNonNull(comparator);
+    requireNonNull(serializer);
+    requireNonNull(tempDirectory);
+    if (maxRunSize <= 0) throw new IllegalArgumentException("maxRunSize = " + maxRunSize);
+    return fromEntries(
+        ExternalSort.sort(
+            (Stream<Map.Entry<K, V>>) mapToEntry(),
+            comparingByKey(comparator),
+            maxRunSize,
+            serializer,
+            tempDirectory));
+  }
+
   /**
    * Returns a {@code BiStream} consisting of the pairs in this stream, in the order produced by
    * applying {@code comparator} on the values of each pair.
@@ -1950,6 +2185,14 @@ public abstract class BiStream<K, V> implements AutoCloseable {
     return StreamSupport.stream(Runner::new, characteristics, NOT_PARALLEL);
   }
 
+  BiStream<K, V> peekPairs(BiConsumer<? super K, ? super V> action) {
+    return fromEntries(mapToEntry().peek(e -> action.accept(e.getKey(), e.getValue())));
+  }
+
+  BiStream<K, V> filterPairs(BiPredicate<? super K, ? super V> predicate) {
+    return fromEntries(mapToEntry().filter(kv -> predicate.test(kv.getKey(), kv.getValue())));
+  }
+
   static <K, V> Map.Entry<K, V> kv(K key, V value) {
     return new AbstractMap.SimpleImmutableEntry<>(key, value);
   }
@@ -1982,9 +2225,9 @@ public abstract class BiStream<K, V> implements AutoCloseable {
    *
    * <p>Doing so isn't always feasible. For example {@link #filter} and {@link #peek} both need to
    * evaluate the entry by invoking {@code toKey} and {@code toValue} and the return values need to
-   * be stored to avoid invoking the functions again. For these cases, the stream will be
-   * degeneralized into {@code Stream<Map.Entry<K, V>>} so as to guarantee the "at-most-once"
-   * semantic.
+   * be stored to avoid invoking the functions again. For these cases, the stream is turned into a
+   * {@link FusedStream} that passes the keys and values along as separate arguments, so as to
+   * guarantee the "at-most-once" semantic without allocating a {@code Map.Entry} per pair.
    */
   private static class GenericEntryStream<E, K, V> extends BiStream<K, V> {
     private final Stream<E> underlying;
@@ -2027,6 +2270,20 @@ public abstract class BiStream<K, V> implements AutoCloseable {
       return from(underlying, toKey, toValue.andThen(valueMapper));
     }
 
+    @Override public final ObjLongBiStream<K> mapValuesToLong(
+        ToLongFunction<? super V> valueMapper) {
+      requireNonNull(valueMapper);
+      return ObjLongBiStream.from(
+          underlying, toKey, e -> valueMapper.applyAsLong(toValue.apply(e)));
+    }
+
+    @Override public final ObjDoubleBiStream<K> mapValuesToDouble(
+        ToDoubleFunction<? super V> valueMapper) {
+      requireNonNull(valueMapper);
+      return ObjDoubleBiStream.from(
+          underlying, toKey, e -> valueMapper.applyAsDouble(toValue.apply(e)));
+    }
+
     @Override public final BiStream<V, K> inverse() {
       return from(underlying, toValue, toKey);
     }
@@ -2088,10 +2345,455 @@ public abstract class BiStream<K, V> implements AutoCloseable {
       };
     }
 
+    @Override public <K2, V2> BiStream<K2, V2> map(
+        BiFunction<? super K, ? super V, ? extends K2> keyMapper,
+        BiFunction<? super K, ? super V, ? extends V2> valueMapper) {
+      return fused().map(keyMapper, valueMapper);
+    }
+
+    @Override BiStream<K, V> peekPairs(BiConsumer<? super K, ? super V> action) {
+      return fused().peekPairs(action);
+    }
+
+    @Override BiStream<K, V> filterPairs(BiPredicate<? super K, ? super V> predicate) {
+      return fused().filterPairs(predicate);
+    }
+
     final <T> Function<E, T> forEntry(BiFunction<? super K, ? super V, T> function) {
       requireNonNull(function);
       return e -> function.apply(toKey.apply(e), toValue.apply(e));
     }
+
+    private FusedStream<K, V> fused() {
+      // Links the underlying stream now, so that branching fails right away, as in the JDK.
+      // The elements aren't traversed until a terminal operation.
+      Spliterator<E> elements = underlying.spliterator();
+      return new FusedStream<>(
+          () -> new EntryPairs<>(elements, toKey, toValue),
+          underlying.isParallel(),
+          underlying::close);
+    }
+  }
+
+  /**
+   * A {@code BiStream} whose stages pass each key and value along as separate arguments, instead
+   * of allocating a {@code Map.Entry} for every pair in every stage.
+   *
+   * <p>Like the JDK's stream pipelines, a stage can only be used once: deriving another stage from
+   * it or running a terminal operation on it links it, and using it again throws {@link
+   * IllegalStateException}. The pairs aren't pulled from the source until a terminal operation.
+   *
+   * <p>Sequential terminal operations also consume the pairs directly. Parallel terminal operations
+   * other than {@link #mapToObj} and its primitive variants use a stream of entries, as do {@link
+   * #limit} and {@link #skip}, which aren't easily splittable.
+   */
+  private static final class FusedStream<K, V> extends BiStream<K, V> {
+    private final Supplier<? extends PairSpliterator<K, V>> source;
+    private final boolean parallel;
+    private final Runnable closeHandler;
+    private boolean linked;
+
+    FusedStream(
+        Supplier<? extends PairSpliterator<K, V>> source, boolean parallel, Runnable closeHandler) {
+      this.source = source;
+      this.parallel = parallel;
+      this.closeHandler = closeHandler;
+    }
+
+    @Override public <T> Stream<T> mapToObj(BiFunction<? super K, ? super V, ? extends T> mapper) {
+      requireNonNull(mapper);
+      Supplier<? extends PairSpliterator<K, V>> pairs = link();
+      return stream(() -> new ToObj<K, V, T>(pairs.get(), mapper), ORDERED, parallel)
+          .onClose(closeHandler);
+    }
+
+    @Override public DoubleStream mapToDouble(ToDoubleBiFunction<? super K, ? super V> mapper) {
+      requireNonNull(mapper);
+      Supplier<? extends PairSpliterator<K, V>> pairs = link();
+      return doubleStream(() -> new ToDouble<>(pairs.get(), mapper), ORDERED, parallel)
+          .onClose(closeHandler);
+    }
+
+    @Override public IntStream mapToInt(ToIntBiFunction<? super K, ? super V> mapper) {
+      requireNonNull(mapper);
+      Supplier<? extends PairSpliterator<K, V>> pairs = link();
+      return intStream(() -> new ToInt<>(pairs.get(), mapper), ORDERED, parallel)
+          .onClose(closeHandler);
+    }
+
+    @Override public LongStream mapToLong(ToLongBiFunction<? super K, ? super V> mapper) {
+      requireNonNull(mapper);
+      Supplier<? extends PairSpliterator<K, V>> pairs = link();
+      return longStream(() -> new ToLong<>(pairs.get(), mapper), ORDERED, parallel)
+          .onClose(closeHandler);
+    }
+
+    @Override public <K2, V2> BiStream<K2, V2> map(
+        BiFunction<? super K, ? super V, ? extends K2> keyMapper,
+        BiFunction<? super K, ? super V, ? extends V2> valueMapper) {
+      requireNonNull(keyMapper);
+      requireNonNull(valueMapper);
+      return then(pairs -> new PairStage<K, V, K2, V2>(pairs) {
+        @Override boolean emit(K k, V v, BiConsumer<? super K2, ? super V2> action) {
+          action.accept(keyMapper.apply(k, v), valueMapper.apply(k, v));
+          return true;
+        }
+      });
+    }
+
+    @Override public <K2> BiStream<K2, V> mapKeys(Function<? super K, ? extends K2> keyMapper) {
+      requireNonNull(keyMapper);
+      return map((k, v) -> keyMapper.apply(k), (k, v) -> v);
+    }
+
+    @Override public <V2> BiStream<K, V2> mapValues(Function<? super V, ? extends V2> valueMapper) {
+      requireNonNull(valueMapper);
+      return map((k, v) -> k, (k, v) -> valueMapper.apply(v));
+    }
+
+    @Override public BiStream<V, K> inverse() {
+      return map((k, v) -> v, (k, v) -> k);
+    }
+
+    @Override BiStream<K, V> peekPairs(BiConsumer<? super K, ? super V> peeker) {
+      return then(pairs -> new PairStage<K, V, K, V>(pairs) {
+        @Override boolean emit(K k, V v, BiConsumer<? super K, ? super V> action) {
+          peeker.accept(k, v);
+          action.accept(k, v);
+          return true;
+        }
+      });
+    }
+
+    @Override BiStream<K, V> filterPairs(BiPredicate<? super K, ? super V> predicate) {
+      return then(pairs -> new PairStage<K, V, K, V>(pairs) {
+        @Override boolean emit(K k, V v, BiConsumer<? super K, ? super V> action) {
+          if (!predicate.test(k, v)) return false;
+          action.accept(k, v);
+          return true;
+        }
+      });
+    }
+
+    @Override public void forEach(BiConsumer<? super K, ? super V> action) {
+      requireNonNull(action);
+      if (parallel) {
+        entries().forEach(action);
+      } else {
+        pairs().forEachRemaining(action);
+      }
+    }
+
+    @Override public void forEachOrdered(BiConsumer<? super K, ? super V> action) {
+      requireNonNull(action);
+      if (parallel) {
+        entries().forEachOrdered(action);
+      } else {
+        pairs().forEachRemaining(action);
+      }
+    }
+
+    @Override public boolean allMatch(BiPredicate<? super K, ? super V> predicate) {
+      requireNonNull(predicate);
+      return parallel ? entries().allMatch(predicate) : !any(false, predicate);
+    }
+
+    @Override public boolean anyMatch(BiPredicate<? super K, ? super V> predicate) {
+      requireNonNull(predicate);
+      return parallel ? entries().anyMatch(predicate) : any(true, predicate);
+    }
+
+    @Override public BiStream<K, V> limit(int maxSize) {
+      return entries().limit(maxSize);
+    }
+
+    @Override public BiStream<K, V> skip(int n) {
+      return entries().skip(n);
+    }
+
+    @Override public <R> R collect(BiCollector<? super K, ? super V, R> collector) {
+      requireNonNull(collector);
+      if (parallel) {
+        return entries().collect(collector);
+      }
+      Temp<K> currentKey = new Temp<>();
+      Temp<V> currentValue = new Temp<>();
+      return collectWith(
+          collector.collectorOf(x -> currentKey.value, x -> currentValue.value),
+          currentKey, currentValue);
+    }
+
+    @Override public <A> A collect(
+        A container, BiAccumulator<? super A, ? super K, ? super V> accumulator) {
+      requireNonNull(accumulator);
+      pairs().forEachRemaining((k, v) -> accumulator.accumulate(container, k, v));
+      return container;
+    }
+
+    @Override public void close() {
+      closeHandler.run();
+    }
+
+    @Override BiIterator<K, V> iterator() {
+      return pairs()::tryAdvance;
+    }
+
+    /** Returns the supplier of the pairs, after making sure this stage is only used once. */
+    private Supplier<? extends PairSpliterator<K, V>> link() {
+      if (linked) {
+        throw new IllegalStateException("stream has already been operated upon or closed");
+      }
+      linked = true;
+      return source;
+    }
+
+    private PairSpliterator<K, V> pairs() {
+      return link().get();
+    }
+
+    private <K2, V2> FusedStream<K2, V2> then(
+        Function<? super PairSpliterator<K, V>, ? extends PairSpliterator<K2, V2>> stage) {
+      Supplier<? extends PairSpliterator<K, V>> upstream = link();
+      return new FusedStream<>(() -> stage.apply(upstream.get()), parallel, closeHandler);
+    }
+
+    private BiStream<K, V> entries() {
+      return fromEntries(mapToEntry());
+    }
+
+    /** Returns true if {@code predicate} evaluates to {@code expected} for any pair. */
+    private boolean any(boolean expected, BiPredicate<? super K, ? super V> predicate) {
+      PairSpliterator<K, V> pairs = pairs();
+      Temp<Boolean> found = new Temp<>();
+      while (found.value == null
+          && pairs.tryAdvance((k, v) -> {
+            if (predicate.test(k, v) == expected) found.value = true;
+          })) {}
+      return found.value != null;
+    }
+
+    /** {@code collector} internally reads from {@code currentKey} and {@code currentValue}. */
+    private <A, R> R collectWith(
+        Collector<Void, A, R> collector, Temp<K> currentKey, Temp<V> currentValue) {
+      A container = collector.supplier().get();
+      BiConsumer<A, Void> accumulator = collector.accumulator();
+      pairs().forEachRemaining((k, v) -> {
+        currentKey.value = k;
+        currentValue.value = v;
+        accumulator.accept(container, null);
+      });
+      return collector.finisher().apply(container);
+    }
+  }
+
+  /** Like {@link Spliterator}, but passes each key and value as separate arguments. */
+  private abstract static class PairSpliterator<K, V> {
+    abstract boolean tryAdvance(BiConsumer<? super K, ? super V> action);
+
+    void forEachRemaining(BiConsumer<? super K, ? super V> action) {
+      while (tryAdvance(action)) {}
+    }
+
+    /** Returns the pairs split off from the beginning, or null if can't be split. */
+    abstract PairSpliterator<K, V> trySplit();
+
+    abstract long estimateSize();
+  }
+
+  /** The pairs extracted from each element, with each function invoked exactly once. */
+  private static final class EntryPairs<E, K, V> extends PairSpliterator<K, V> {
+    private final Spliterator<E> elements;
+    private final Function<? super E, ? extends K> toKey;
+    private final Function<? super E, ? extends V> toValue;
+
+    EntryPairs(
+        Spliterator<E> elements,
+        Function<? super E, ? extends K> toKey,
+        Function<? super E, ? extends V> toValue) {
+      this.elements = elements;
+      this.toKey = toKey;
+      this.toValue = toValue;
+    }
+
+    @Override boolean tryAdvance(BiConsumer<? super K, ? super V> action) {
+      return elements.tryAdvance(e -> action.accept(toKey.apply(e), toValue.apply(e)));
+    }
+
+    @Override void forEachRemaining(BiConsumer<? super K, ? super V> action) {
+      elements.forEachRemaining(e -> action.accept(toKey.apply(e), toValue.apply(e)));
+    }
+
+    @Override PairSpliterator<K, V> trySplit() {
+      Spliterator<E> split = elements.trySplit();
+      return split == null ? null : new EntryPairs<>(split, toKey, toValue);
+    }
+
+    @Override long estimateSize() {
+      return elements.estimateSize();
+    }
+  }
+
+  /** A stage that passes zero or one pair for each pair from {@code source}. */
+  private abstract static class PairStage<K0, V0, K, V> extends PairSpliterator<K, V> {
+    private final PairSpliterator<K0, V0> source;
+    private boolean emitted;
+
+    PairStage(PairSpliterator<K0, V0> source) {
+      this.source = source;
+    }
+
+    /** Passes the pair(s) derived from {@code (k, v)} to {@code action}, if any. */
+    abstract boolean emit(K0 k, V0 v, BiConsumer<? super K, ? super V> action);
+
+    @Override final boolean tryAdvance(BiConsumer<? super K, ? super V> action) {
+      while (source.tryAdvance((k, v) -> emitted = emit(k, v, action))) {
+        if (emitted) return true;
+      }
+      return false;
+    }
+
+    @Override final void forEachRemaining(BiConsumer<? super K, ? super V> action) {
+      source.forEachRemaining((k, v) -> emit(k, v, action));
+    }
+
+    @Override final PairSpliterator<K, V> trySplit() {
+      PairSpliterator<K0, V0> split = source.trySplit();
+      if (split == null) return null;
+      PairStage<K0, V0, K, V> outer = this;
+      return new PairStage<K0, V0, K, V>(split) {
+        @Override boolean emit(K0 k, V0 v, BiConsumer<? super K, ? super V> action) {
+          return outer.emit(k, v, action);
+        }
+      };
+    }
+
+    @Override final long estimateSize() {
+      return source.estimateSize();
+    }
+  }
+
+  private static final class ToObj<K, V, T> implements Spliterator<T> {
+    private final PairSpliterator<K, V> pairs;
+    private final BiFunction<? super K, ? super V, ? extends T> mapper;
+
+    ToObj(PairSpliterator<K, V> pairs, BiFunction<? super K, ? super V, ? extends T> mapper) {
+      this.pairs = pairs;
+      this.mapper = mapper;
+    }
+
+    @Override public boolean tryAdvance(Consumer<? super T> action) {
+      return pairs.tryAdvance((k, v) -> action.accept(mapper.apply(k, v)));
+    }
+
+    @Override public void forEachRemaining(Consumer<? super T> action) {
+      pairs.forEachRemaining((k, v) -> action.accept(mapper.apply(k, v)));
+    }
+
+    @Override public Spliterator<T> trySplit() {
+      PairSpliterator<K, V> split = pairs.trySplit();
+      return split == null ? null : new ToObj<>(split, mapper);
+    }
+
+    @Override public long estimateSize() {
+      return pairs.estimateSize();
+    }
+
+    @Override public int characteristics() {
+      return ORDERED;  // Must match what FusedStream declares.
+    }
+  }
+
+  private static final class ToInt<K, V> implements Spliterator.OfInt {
+    private final PairSpliterator<K, V> pairs;
+    private final ToIntBiFunction<? super K, ? super V> mapper;
+
+    ToInt(PairSpliterator<K, V> pairs, ToIntBiFunction<? super K, ? super V> mapper) {
+      this.pairs = pairs;
+      this.mapper = mapper;
+    }
+
+    @Override public boolean tryAdvance(IntConsumer action) {
+      return pairs.tryAdvance((k, v) -> action.accept(mapper.applyAsInt(k, v)));
+    }
+
+    @Override public void forEachRemaining(IntConsumer action) {
+      pairs.forEachRemaining((k, v) -> action.accept(mapper.applyAsInt(k, v)));
+    }
+
+    @Override public Spliterator.OfInt trySplit() {
+      PairSpliterator<K, V> split = pairs.trySplit();
+      return split == null ? null : new ToInt<>(split, mapper);
+    }
+
+    @Override public long estimateSize() {
+      return pairs.estimateSize();
+    }
+
+    @Override public int characteristics() {
+      return ORDERED;  // Must match what FusedStream declares.
+    }
+  }
+
+  private static final class ToLong<K, V> implements Spliterator.OfLong {
+    private final PairSpliterator<K, V> pairs;
+    private final ToLongBiFunction<? super K, ? super V> mapper;
+
+    ToLong(PairSpliterator<K, V> pairs, ToLongBiFunction<? super K, ? super V> mapper) {
+      this.pairs = pairs;
+      this.mapper = mapper;
+    }
+
+    @Override public boolean tryAdvance(LongConsumer action) {
+      return pairs.tryAdvance((k, v) -> action.accept(mapper.applyAsLong(k, v)));
+    }
+
+    @Override public void forEachRemaining(LongConsumer action) {
+      pairs.forEachRemaining((k, v) -> action.accept(mapper.applyAsLong(k, v)));
+    }
+
+    @Override public Spliterator.OfLong trySplit() {
+      PairSpliterator<K, V> split = pairs.trySplit();
+      return split == null ? null : new ToLong<>(split, mapper);
+    }
+
+    @Override public long estimateSize() {
+      return pairs.estimateSize();
+    }
+
+    @Override public int characteristics() {
+      return ORDERED;  // Must match what FusedStream declares.
+    }
+  }
+
+  private static final class ToDouble<K, V> implements Spliterator.OfDouble {
+    private final PairSpliterator<K, V> pairs;
+    private final ToDoubleBiFunction<? super K, ? super V> mapper;
+
+    ToDouble(PairSpliterator<K, V> pairs, ToDoubleBiFunction<? super K, ? super V> mapper) {
+      this.pairs = pairs;
+      this.mapper = mapper;
+    }
+
+    @Override public boolean tryAdvance(DoubleConsumer action) {
+      return pairs.tryAdvance((k, v) -> action.accept(mapper.applyAsDouble(k, v)));
+    }
+
+    @Override public void forEachRemaining(DoubleConsumer action) {
+      pairs.forEachRemaining((k, v) -> action.accept(mapper.applyAsDouble(k, v)));
+    }
+
+    @Override public Spliterator.OfDouble trySplit() {
+      PairSpliterator<K, V> split = pairs.trySplit();
+      return split == null ? null : new ToDouble<>(split, mapper);
+    }
+
+    @Override public long estimateSize() {
+      return pairs.estimateSize();
+    }
+
+    @Override public int characteristics() {
+      return ORDERED;  // Must match what FusedStream declares.
+    }
   }
 
   private static final class ZippingStream<K, V> extends BiStream<K, V> {
@@ -2105,32 +2807,44 @@ public abstract class BiStream<K, V> implements AutoCloseable {
 
     @Override public <T> Stream<T> mapToObj(BiFunction<? super K, ? super V, ? extends T> mapper) {
       requireNonNull(mapper);
-      return stream(() -> new Spliteration().<T>ofObj(mapper), ORDERED, NOT_PARALLEL)
+      Spliteration spliteration = new Spliteration();  // Links both sides, as in the JDK.
+      return stream(() -> spliteration.<T>ofObj(mapper), ORDERED, isParallel())
           .onClose(left::close)
           .onClose(right::close);
     }
 
     @Override public DoubleStream mapToDouble(ToDoubleBiFunction<? super K, ? super V> mapper) {
       requireNonNull(mapper);
-      return doubleStream(() -> new Spliteration().ofDouble(mapper), ORDERED, NOT_PARALLEL)
+      Spliteration spliteration = new Spliteration();  // Links both sides, as in the JDK.
+      return doubleStream(() -> spliteration.ofDouble(mapper), ORDERED, isParallel())
           .onClose(left::close)
           .onClose(right::close);
     }
 
     @Override public IntStream mapToInt(ToIntBiFunction<? super K, ? super V> mapper) {
       requireNonNull(mapper);
-      return intStream(() -> new Spliteration().ofInt(mapper), ORDERED, NOT_PARALLEL)
+      Spliteration spliteration = new Spliteration();  // Links both sides, as in the JDK.
+      return intStream(() -> spliteration.ofInt(mapper), ORDERED, isParallel())
           .onClose(left::close)
           .onClose(right::close);
     }
 
     @Override public LongStream mapToLong(ToLongBiFunction<? super K, ? super V> mapper) {
       requireNonNull(mapper);
-      return longStream(() -> new Spliteration().ofLong(mapper), ORDERED, NOT_PARALLEL)
+      Spliteration spliteration = new Spliteration();  // Links both sides, as in the JDK.
+      return longStream(() -> spliteration.ofLong(mapper), ORDERED, isParallel())
           .onClose(left::close)
           .onClose(right::close);
     }
 
+    /**
+     * Parallel if both sides are. Only sides that can be split in lockstep are actually processed
+     * in parallel. Otherwise the zipped spliterator doesn't split, and runs sequentially.
+     */
+    private boolean isParallel() {
+      return left.isParallel() && right.isParallel();
+    }
+
     @Override public <K2> BiStream<K2, V> mapKeys(Function<? super K, ? extends K2> keyMapper) {
       return zip(left.map(keyMapper), right);
     }
@@ -2225,38 +2939,72 @@ public abstract class BiStream<K, V> implements AutoCloseable {
         }
       }
 
+      /** Whether both sides can be split in lockstep, and therefore efficiently in parallel. */
+      boolean isSplittable() {
+        return Lockstep.canSplit(leftIt, rightIt);
+      }
+
       <T> Spliterator<T> ofObj(BiFunction<? super K, ? super V, ? extends T> mapper) {
+        if (isSplittable()) {
+          return new ObjLockstep<>(leftIt, rightIt, mapper);
+        }
         return new AbstractSpliterator<T>(estimateSize(), ORDERED) {
           @Override public boolean tryAdvance(Consumer<? super T> consumer) {
             return advance() && emit(mapper.apply(currentLeft.value, currentRight.value), consumer);
           }
+
+          // Without lockstep, splitting would only buffer pairs read sequentially anyway.
+          @Override public Spliterator<T> trySplit() {
+            return null;
+          }
         };
       }
 
       Spliterator.OfInt ofInt(ToIntBiFunction<? super K, ? super V> mapper) {
+        if (isSplittable()) {
+          return new IntLockstep<>(leftIt, rightIt, mapper);
+        }
         return new AbstractIntSpliterator(estimateSize(), ORDERED) {
           @Override public boolean tryAdvance(IntConsumer consumer) {
             return advance()
                 && emit(mapper.applyAsInt(currentLeft.value, currentRight.value), consumer);
           }
+
+          @Override public Spliterator.OfInt trySplit() {
+            return null;
+          }
         };
       }
 
       Spliterator.OfLong ofLong(ToLongBiFunction<? super K, ? super V> mapper) {
+        if (isSplittable()) {
+          return new LongLockstep<>(leftIt, rightIt, mapper);
+        }
         return new AbstractLongSpliterator(estimateSize(), ORDERED) {
           @Override public boolean tryAdvance(LongConsumer consumer) {
             return advance()
                 && emit(mapper.applyAsLong(currentLeft.value, currentRight.value), consumer);
           }
+
+          @Override public Spliterator.OfLong trySplit() {
+            return null;
+          }
         };
       }
 
       Spliterator.OfDouble ofDouble(ToDoubleBiFunction<? super K, ? super V> mapper) {
+        if (isSplittable()) {
+          return new DoubleLockstep<>(leftIt, rightIt, mapper);
+        }
         return new AbstractDoubleSpliterator(estimateSize(), ORDERED) {
           @Override public boolean tryAdvance(DoubleConsumer consumer) {
             return advance()
                 && emit(mapper.applyAsDouble(currentLeft.value, currentRight.value), consumer);
           }
+
+          @Override public Spliterator.OfDouble trySplit() {
+            return null;
+          }
         };
       }
 
@@ -2302,6 +3050,145 @@ public abstract class BiStream<K, V> implements AutoCloseable {
       consumer.accept(result);
       return true;
     }
+
+    /**
+     * Zips two {@code SIZED} and {@code SUBSIZED} spliterators of the same size, such as those of
+     * {@code ArrayList} or arrays, by splitting both in lockstep. If the two sides ever split at
+     * different indexes, the split halves are joined back and splitting stops.
+     */
+    private abstract static class Lockstep<K, V, S extends Spliterator<?>> {
+      private static final int SIZED_SUBSIZED = Spliterator.SIZED | Spliterator.SUBSIZED;
+      final Temp<K> currentLeft = new Temp<>();
+      final Temp<V> currentRight = new Temp<>();
+      private Spliterator<K> left;
+      private Spliterator<V> right;
+      private boolean aligned = true;
+
+      Lockstep(Spliterator<K> left, Spliterator<V> right) {
+        this.left = left;
+        this.right = right;
+      }
+
+      static boolean canSplit(Spliterator<?> left, Spliterator<?> right) {
+        return left.hasCharacteristics(SIZED_SUBSIZED)
+            && right.hasCharacteristics(SIZED_SUBSIZED)
+            && left.estimateSize() == right.estimateSize();
+      }
+
+      abstract S split(Spliterator<K> leftPrefix, Spliterator<V> rightPrefix);
+
+      public final S trySplit() {
+        if (!aligned) return null;
+        Spliterator<K> leftPrefix = left.trySplit();
+        if (leftPrefix == null) return null;
+        Spliterator<V> rightPrefix = right.trySplit();
+        if (rightPrefix != null && rightPrefix.estimateSize() == leftPrefix.estimateSize()) {
+          return split(leftPrefix, rightPrefix);
+        }
+        aligned = false;
+        left = concat(leftPrefix, left);
+        if (rightPrefix != null) right = concat(rightPrefix, right);
+        return null;
+      }
+
+      public final long estimateSize() {
+        return Math.min(left.estimateSize(), right.estimateSize());
+      }
+
+      public final int characteristics() {
+        return ORDERED;  // Same as the sequential spliterators, as declared for the stream.
+      }
+
+      final boolean advance() {
+        return left.tryAdvance(currentLeft) && right.tryAdvance(currentRight);
+      }
+
+      private static <T> Spliterator<T> concat(Spliterator<T> prefix, Spliterator<T> suffix) {
+        return Stream.concat(stream(prefix, false), stream(suffix, false)).spliterator();
+      }
+    }
+
+    private static final class ObjLockstep<K, V, T>
+        extends Lockstep<K, V, Spliterator<T>> implements Spliterator<T> {
+      private final BiFunction<? super K, ? super V, ? extends T> mapper;
+
+      ObjLockstep(
+          Spliterator<K> left, Spliterator<V> right,
+          BiFunction<? super K, ? super V, ? extends T> mapper) {
+        super(left, right);
+        this.mapper = mapper;
+      }
+
+      @Override Spliterator<T> split(Spliterator<K> leftPrefix, Spliterator<V> rightPrefix) {
+        return new ObjLockstep<>(leftPrefix, rightPrefix, mapper);
+      }
+
+      @Override public boolean tryAdvance(Consumer<? super T> consumer) {
+        return advance() && emit(mapper.apply(currentLeft.value, currentRight.value), consumer);
+      }
+    }
+
+    private static final class IntLockstep<K, V>
+        extends Lockstep<K, V, Spliterator.OfInt> implements Spliterator.OfInt {
+      private final ToIntBiFunction<? super K, ? super V> mapper;
+
+      IntLockstep(
+          Spliterator<K> left, Spliterator<V> right, ToIntBiFunction<? super K, ? super V> mapper) {
+        super(left, right);
+        this.mapper = mapper;
+      }
+
+      @Override Spliterator.OfInt split(Spliterator<K> leftPrefix, Spliterator<V> rightPrefix) {
+        return new IntLockstep<>(leftPrefix, rightPrefix, mapper);
+      }
+
+      @Override public boolean tryAdvance(IntConsumer consumer) {
+        return advance()
+            && emit(mapper.applyAsInt(currentLeft.value, currentRight.value), consumer);
+      }
+    }
+
+    private static final class LongLockstep<K, V>
+        extends Lockstep<K, V, Spliterator.OfLong> implements Spliterator.OfLong {
+      private final ToLongBiFunction<? super K, ? super V> mapper;
+
+      LongLockstep(
+          Spliterator<K> left, Spliterator<V> right,
+          ToLongBiFunction<? super K, ? super V> mapper) {
+        super(left, right);
+        this.mapper = mapper;
+      }
+
+      @Override Spliterator.OfLong split(Spliterator<K> leftPrefix, Spliterator<V> rightPrefix) {
+        return new LongLockstep<>(leftPrefix, rightPrefix, mapper);
+      }
+
+      @Override public boolean tryAdvance(LongConsumer consumer) {
+        return advance()
+            && emit(mapper.applyAsLong(currentLeft.value, currentRight.value), consumer);
+      }
+    }
+
+    private static final class DoubleLockstep<K, V>
+        extends Lockstep<K, V, Spliterator.OfDouble> implements Spliterator.OfDouble {
+      private final ToDoubleBiFunction<? super K, ? super V> mapper;
+
+      DoubleLockstep(
+          Spliterator<K> left, Spliterator<V> right,
+          ToDoubleBiFunction<? super K, ? super V> mapper) {
+        super(left, right);
+        this.mapper = mapper;
+      }
+
+      @Override Spliterator.OfDouble split(Spliterator<K> leftPrefix, Spliterator<V> rightPrefix) {
+        return new DoubleLockstep<>(leftPrefix, rightPrefix, mapper);
+      }
+
+      @Override public boolean tryAdvance(DoubleConsumer consumer) {
+        return advance()
+            && emit(mapper.applyAsDouble(currentLeft.value, currentRight.value), consumer);
+      }
+    }
   }
 
   static final class Temp<T> implements Consumer<T> {
@@ -0,0 +1,161 @@
+/*****************************************************************************
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package com.google.mu.util.stream;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.stream.Collector;
+
+/**
+ * A <a href="https://en.wikipedia.org/wiki/Count%E2%80%93min_sketch">Count-Min sketch</a> that
+ * estimates how many times each element occurs, in fixed memory of {@code width * depth} counters.
+ * For example, to find out whether a search query is a heavy hitter without counting every query
+ * exactly:
+ *
+ * <pre>{@code
+ * CountMinSketch sketch = queries.stream().collect(CountMinSketch.toCountMinSketch(2048, 5));
+ * boolean popular = sketch.estimateCount(query) > sketch.totalCount() / 100;
+ * }</pre>
+ *
+ * <p>The estimate is never less than the true count. It overestimates by no more than {@code
+ * 2 * totalCount() / width}, with a probability of failure of at most {@code 1 / 2^depth}.
+ *
+ * <p>Sketches with the same dimensions can be {@link #merge merged}, for example to combine the
+ * partial results of different workers. The sketch is serializable for that purpose.
+ *
+ * <p>Elements are hashed from {@link Object#hashCode}, so elements with colliding hash codes are
+ * counted together. Instances are not thread safe.
+ *
+ * @since 8.6
+ */
+public final class CountMinSketch implements Serializable {
+  private static final long serialVersionUID = 1L;
+
+  private final int width;
+  private final long[][] counters;
+  private long totalCount;
+
+  private CountMinSketch(int width, int depth) {
+    checkDimensions(width, depth);
+    this.width = width;
+    this.counters = new long[depth][width];
+  }
+
+  /**
+   * Returns an empty sketch with {@code depth} rows of {@code width} counters each.
+   *
+   * @throws IllegalArgumentException if {@code width} or {@code depth} isn't positive
+   */
+  public static CountMinSketch create(int width, int depth) {
+    return new CountMinSketch(width, depth);
+  }
+
+  /**
+   * Returns a collector that counts the input elements in a sketch with {@code depth} rows of
+   * {@code width} counters each.
+   *
+   * @throws IllegalArgumentException if {@code width} or {@code depth} isn't positive
+   */
+  public static <T> Collector<T, ?, CountMinSketch> toCountMinSketch(int width, int depth) {
+    checkDimensions(width, depth);
+    return Collector.of(
+        () -> new CountMinSketch(width, depth),
+        CountMinSketch::add,
+        CountMinSketch::merge,
+        Collector.Characteristics.UNORDERED);
+  }
+
+  /** Counts one occurrence of {@code element}, which may be null. */
+  public void add(Object element) {
+    add(element, 1);
+  }
+
+  /**
+   * Counts {@code count} occurrences of {@code element}, which may be null.
+   *
+   * @throws IllegalArgumentException if {@code count} is negative
+   */
+  public void add(Object element, long count) {
+    if (count < 0) throw new IllegalArgumentException("count = " + count);
+    long hash = HyperLogLog.mix(Objects.hashCode(element));
+    for (int row = 0; row < counters.length; row++) {
+      counters[row][indexOf(hash, row)] += count;
+    }
+    totalCount += count;
+  }
+
+  /** Returns the estimated number of occurrences of {@code element}. */
+  public long estimateCount(Object element) {
+    long hash = HyperLogLog.mix(Objects.hashCode(element));
+    long min = Long.MAX_VALUE;
+    for (int row = 0; row < counters.length; row++) {
+      min = Math.min(min, counters[row][indexOf(hash, row)]);
+    }
+    return min;
+  }
+
+  /** Returns the total number of occurrences counted by this sketch. */
+  public long totalCount() {
+    return totalCount;
+  }
+
+  /**
+   * Adds all the counts of {@code that} sketch to this sketch, and returns this sketch.
+   *
+   * @throws IllegalArgumentException if the two sketches have different dimensions
+   */
+  public CountMinSketch merge(CountMinSketch that) {
+    if (that.width != width || that.counters.length != counters.length) {
+      throw new IllegalArgumentException(
+          "Cannot merge sketch of " + that.width + "x" + that.counters.length
+              + " into " + width + "x" + counters.length);
+    }
+    for (int row = 0; row < counters.length; row++) {
+      for (int i = 0; i < width; i++) {
+        counters[row][i] += that.counters[row][i];
+      }
+    }
+    totalCount += that.totalCount;
+    return this;
+  }
+
+  @Override public boolean equals(Object obj) {
+    if (obj instanceof CountMinSketch) {
+      CountMinSketch that = (CountMinSketch) obj;
+      return width == that.width && Arrays.deepEquals(counters, that.counters);
+    }
+    return false;
+  }
+
+  @Override public int hashCode() {
+    return Arrays.deepHashCode(counters);
+  }
+
+  @Override public String toString() {
+    return "CountMinSketch(" + width + "x" + counters.length + ", total = " + totalCount + ")";
+  }
+
+  private static void checkDimensions(int width, int depth) {
+    if (width <= 0) throw new IllegalArgumentException("width = " + width);
+    if (depth <= 0) throw new IllegalArgumentException("depth = " + depth);
+  }
+
+  /** Derives the hash of each row from the two halves of {@code hash}, by double hashing. */
+  private int indexOf(long hash, int row) {
+    int combined = (int) hash + row * (int) (hash >>> 32);
+    return (combined & Integer.MAX_VALUE) % width;
+  }
+}
@@ -0,0 +1,235 @@
+/*****************************************************************************
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package com.google.mu.util.stream;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import com.google.mu.util.stream.BiStream.PairSerializer;
+
+/**
+ * External merge sort of pairs that may not fit in memory. Sorted runs of up to {@code maxRunSize}
+ * pairs are spilled to temp files, which are then lazily k-way merged. The sort is stable.
+ */
+final class ExternalSort<K, V> {
+  /** The max number of runs merged at once, to bound the number of open files. */
+  private static final int MAX_FAN_IN = 64;
+
+  private final Comparator<? super Map.Entry<K, V>> comparator;
+  private final int maxRunSize;
+  private final PairSerializer<K, V> serializer;
+  private final Path tempDirectory;
+  private final List<SpilledRun> spilled = new ArrayList<>();
+
+  private ExternalSort(
+      Comparator<? super Map.Entry<K, V>> comparator,
+      int maxRunSize,
+      PairSerializer<K, V> serializer,
+      Path tempDirectory) {
+    this.comparator = comparator;
+    this.maxRunSize = maxRunSize;
+    this.serializer = serializer;
+    this.tempDirectory = tempDirectory;
+  }
+
+  /**
+   * Returns a lazy stream of {@code entries} sorted by {@code comparator}. Nothing is read from
+   * {@code entries} until the returned stream is consumed. Temp files are created in {@code
+   * tempDirectory}. Closing the returned stream deletes the remaining temp files.
+   */
+  static <K, V> Stream<Map.Entry<K, V>> sort(
+      Stream<Map.Entry<K, V>> entries,
+      Comparator<? super Map.Entry<K, V>> comparator,
+      int maxRunSize,
+      PairSerializer<K, V> serializer,
+      Path tempDirectory) {
+    ExternalSort<K, V> sort =
+        new ExternalSort<>(comparator, maxRunSize, serializer, tempDirectory);
+    return StreamSupport.stream(
+            () -> sort.sorted(entries.spliterator()), Spliterator.ORDERED, false)
+        .onClose(sort::deleteSpilledRuns)
+        .onClose(entries::close);
+  }
+
+  private Spliterator<Map.Entry<K, V>> sorted(Spliterator<Map.Entry<K, V>> entries) {
+    try {
+      List<Iterator<Map.Entry<K, V>>> runs = new ArrayList<>();
+      List<Map.Entry<K, V>> buffer = new ArrayList<>();
+      entries.forEachRemaining(entry -> {
+        buffer.add(entry);
+        if (buffer.size() >= maxRunSize) {
+          buffer.sort(comparator);
+          runs.add(spill(buffer.iterator()));
+          buffer.clear();
+        }
+      });
+      buffer.sort(comparator);
+      if (runs.isEmpty()) return buffer.spliterator();  // Fits in memory.
+      runs.add(buffer.iterator());
+      // Merge level by level so that each pair is re-spilled once per level. Merging adjacent
+      // runs in order keeps the sort stable.
+      List<Iterator<Map.Entry<K, V>>> level = runs;
+      while (level.size() > MAX_FAN_IN) {
+        List<Iterator<Map.Entry<K, V>>> merged = new ArrayList<>();
+        for (int i = 0; i < level.size(); i += MAX_FAN_IN) {
+          merged.add(spill(merge(level.subList(i, Math.min(i + MAX_FAN_IN, level.size())))));
+        }
+        level = merged;
+      }
+      return Spliterators.spliteratorUnknownSize(
+          merge(level), Spliterator.ORDERED | Spliterator.NONNULL);
+    } catch (RuntimeException | Error e) {
+      deleteSpilledRuns();
+      throw e;
+    }
+  }
+
+  private SpilledRun spill(Iterator<Map.Entry<K, V>> sorted) {
+    Path file;
+    long size = 0;
+    try {
+      // Owner-only permissions on POSIX file systems.
+      file = Files.createTempFile(tempDirectory, "mug-sort", ".run");
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    SpilledRun run = new SpilledRun(file);
+    spilled.add(run);
+    try (ObjectOutputStream out =
+        new ObjectOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+      while (sorted.hasNext()) {
+        Map.Entry<K, V> entry = sorted.next();
+        serializer.write(entry.getKey(), entry.getValue(), out);
+        size++;
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    run.remaining = size;
+    return run;
+  }
+
+  /** Merges {@code runs}, with ties resolved in the order of the runs. */
+  private Iterator<Map.Entry<K, V>> merge(List<Iterator<Map.Entry<K, V>>> runs) {
+    PriorityQueue<Head> heads = new PriorityQueue<>(runs.size());
+    for (int i = 0; i < runs.size(); i++) {
+      Iterator<Map.Entry<K, V>> run = runs.get(i);
+      if (run.hasNext()) heads.add(new Head(i, run));
+    }
+    return new Iterator<Map.Entry<K, V>>() {
+      @Override public boolean hasNext() {
+        return !heads.isEmpty();
+      }
+
+      @Override public Map.Entry<K, V> next() {
+        Head head = heads.poll();
+        if (head == null) throw new NoSuchElementException();
+        Map.Entry<K, V> entry = head.entry;
+        if (head.run.hasNext()) {
+          head.entry = head.run.next();
+          heads.add(head);
+        }
+        return entry;
+      }
+    };
+  }
+
+  private void deleteSpilledRuns() {
+    for (SpilledRun run : spilled) {
+      run.delete();
+    }
+    spilled.clear();
+  }
+
+  private final class Head implements Comparable<Head> {
+    private final int index;
+    private final Iterator<Map.Entry<K, V>> run;
+    Map.Entry<K, V> entry;
+
+    Head(int index, Iterator<Map.Entry<K, V>> run) {
+      this.index = index;
+      this.run = run;
+      this.entry = run.next();
+    }
+
+    @Override public int compareTo(Head that) {
+      int result = comparator.compare(entry, that.entry);
+      return result != 0 ? result : Integer.compare(index, that.index);
+    }
+  }
+
+  /** A sorted run in a temp file, which is deleted once read through. */
+  private final class SpilledRun implements Iterator<Map.Entry<K, V>> {
+    private final Path file;
+    private ObjectInputStream in;
+    long remaining;
+
+    SpilledRun(Path file) {
+      this.file = file;
+    }
+
+    @Override public boolean hasNext() {
+      return remaining > 0;
+    }
+
+    @Override public Map.Entry<K, V> next() {
+      if (remaining <= 0) throw new NoSuchElementException();
+      try {
+        if (in == null) {
+          in = new ObjectInputStream(new BufferedInputStream(Files.newInputStream(file)));
+        }
+        Map.Entry<K, V> entry = serializer.read(in);
+        if (--remaining == 0) delete();
+        return entry;
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+
+    void delete() {
+      remaining = 0;
+      if (in != null) {
+        try {
+          in.close();
+        } catch (IOException e) {
+          // The run is no longer needed.
+        }
+        in = null;
+      }
+      try {
+        Files.deleteIfExists(file);
+      } catch (IOException e) {
+        // Best effort. Closing the stream retries deleting the remaining runs.
+      }
+    }
+  }
+}
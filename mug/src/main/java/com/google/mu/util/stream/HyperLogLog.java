@@ -0,0 +1,180 @@
+/*****************************************************************************
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package com.google.mu.util.stream;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.stream.Collector;
+
+/**
+ * A <a href="https://en.wikipedia.org/wiki/HyperLogLog">HyperLogLog</a> sketch that estimates the
+ * number of distinct elements in fixed memory ({@code 2^precision} bytes), as an alternative to
+ * collecting the elements into a {@code HashSet} when an approximate count will do:
+ *
+ * <pre>{@code
+ * long uniqueVisitors =
+ *     clicks.stream().map(Click::visitorId).collect(HyperLogLog.toHyperLogLog()).estimate();
+ * }</pre>
+ *
+ * <p>The standard error of the estimate is about {@code 1.04 / sqrt(2^precision)}, or 0.8% at the
+ * default precision of 14 (16KB).
+ *
+ * <p>Sketches with the same precision can be {@link #merge merged}, for example to combine the
+ * partial results of different workers. The sketch is serializable for that purpose.
+ *
+ * <p>Elements are hashed from {@link Object#hashCode}, which makes elements with colliding hash
+ * codes count as one. For better accuracy with billions of distinct elements, hash them with a
+ * stronger 64-bit hash function and call {@link #addHash}.
+ *
+ * <p>Instances are not thread safe.
+ *
+ * @since 8.6
+ */
+public final class HyperLogLog implements Serializable {
+  private static final long serialVersionUID = 1L;
+  private static final int DEFAULT_PRECISION = 14;
+
+  private final int precision;
+  private final byte[] registers;
+
+  private HyperLogLog(int precision) {
+    this.precision = checkPrecision(precision);
+    this.registers = new byte[1 << precision];
+  }
+
+  /** Returns an empty sketch with the default precision of 14. */
+  public static HyperLogLog create() {
+    return new HyperLogLog(DEFAULT_PRECISION);
+  }
+
+  /**
+   * Returns an empty sketch that uses {@code 2^precision} registers.
+   *
+   * @throws IllegalArgumentException if {@code precision} isn't in the range of {@code [4, 18]}
+   */
+  public static HyperLogLog create(int precision) {
+    return new HyperLogLog(precision);
+  }
+
+  /** Returns a collector that adds the input elements into a sketch of the default precision. */
+  public static <T> Collector<T, ?, HyperLogLog> toHyperLogLog() {
+    return toHyperLogLog(DEFAULT_PRECISION);
+  }
+
+  /**
+   * Returns a collector that adds the input elements into a sketch of {@code precision}.
+   *
+   * @throws IllegalArgumentException if {@code precision} isn't in the range of {@code [4, 18]}
+   */
+  public static <T> Collector<T, ?, HyperLogLog> toHyperLogLog(int precision) {
+    checkPrecision(precision);
+    return Collector.of(
+        () -> new HyperLogLog(precision),
+        HyperLogLog::add,
+        HyperLogLog::merge,
+        Collector.Characteristics.UNORDERED);
+  }
+
+  /** Adds {@code element}, which may be null, to this sketch. */
+  public void add(Object element) {
+    addHash(mix(Objects.hashCode(element)));
+  }
+
+  /**
+   * Adds an element with the 64-bit {@code hash} to this sketch. The hash function should be of
+   * good quality, with all bits well distributed.
+   */
+  public void addHash(long hash) {
+    int index = (int) (hash >>> (64 - precision));
+    int rank = Long.numberOfLeadingZeros((hash << precision) | (1L << (precision - 1))) + 1;
+    if (rank > registers[index]) {
+      registers[index] = (byte) rank;
+    }
+  }
+
+  /**
+   * Adds all elements of {@code that} sketch to this sketch, and returns this sketch.
+   *
+   * @throws IllegalArgumentException if the two sketches have different precisions
+   */
+  public HyperLogLog merge(HyperLogLog that) {
+    if (that.precision != precision) {
+      throw new IllegalArgumentException(
+          "Cannot merge sketch of precision " + that.precision + " into " + precision);
+    }
+    for (int i = 0; i < registers.length; i++) {
+      if (that.registers[i] > registers[i]) {
+        registers[i] = that.registers[i];
+      }
+    }
+    return this;
+  }
+
+  /** Returns the estimated number of distinct elements added to this sketch. */
+  public long estimate() {
+    int m = registers.length;
+    double sum = 0;
+    int zeros = 0;
+    for (byte register : registers) {
+      sum += 1.0 / (1L << register);
+      if (register == 0) zeros++;
+    }
+    double estimate = 0.7213 / (1 + 1.079 / m) * m * m / sum;
+    if (estimate <= 2.5 * m && zeros > 0) {
+      // Linear counting is more accurate for small cardinalities.
+      estimate = m * Math.log((double) m / zeros);
+    }
+    return Math.round(estimate);
+  }
+
+  /** Returns the precision of this sketch. */
+  public int precision() {
+    return precision;
+  }
+
+  @Override public boolean equals(Object obj) {
+    if (obj instanceof HyperLogLog) {
+      HyperLogLog that = (HyperLogLog) obj;
+      return precision == that.precision && Arrays.equals(registers, that.registers);
+    }
+    return false;
+  }
+
+  @Override public int hashCode() {
+    return Arrays.hashCode(registers);
+  }
+
+  @Override public String toString() {
+    return "HyperLogLog(precision = " + precision + ", estimate = " + estimate() + ")";
+  }
+
+  private static int checkPrecision(int precision) {
+    if (precision < 4 || precision > 18) {
+      throw new IllegalArgumentException("precision = " + precision);
+    }
+    return precision;
+  }
+
+  /** The MurmurHash3 64-bit finalizer, to spread the bits of {@code hash}. */
+  static long mix(long hash) {
+    hash ^= hash >>> 33;
+    hash *= 0xff51afd7ed558ccdL;
+    hash ^= hash >>> 33;
+    hash *= 0xc4ceb9fe1a85ec53L;
+    hash ^= hash >>> 33;
+    return hash;
+  }
+}
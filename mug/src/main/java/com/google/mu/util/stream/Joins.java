@@ -0,0 +1,211 @@
+/*****************************************************************************
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package com.google.mu.util.stream;
+
+import static com.google.mu.util.stream.BiStream.kv;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators.AbstractSpliterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import com.google.mu.util.Both;
+
+/** Implementation of the keyed joins between two {@link BiStream}s. */
+final class Joins {
+  /**
+   * Merge-joins {@code left} and {@code right}, both sorted by {@code keyOrder}. If {@code outer},
+   * left pairs without a match are paired with null.
+   */
+  static <K, L, R> Stream<Map.Entry<K, Both<L, R>>> mergeJoin(
+      BiStream<? extends K, ? extends L> left,
+      BiStream<? extends K, ? extends R> right,
+      Comparator<? super K> keyOrder,
+      boolean outer) {
+    return StreamSupport.stream(
+            () -> new MergeJoin<K, L, R>(
+                left.mapToEntry().spliterator(),
+                right.mapToEntry().spliterator(),
+                keyOrder,
+                outer),
+            Spliterator.ORDERED,
+            false)
+        .onClose(left::close)
+        .onClose(right::close);
+  }
+
+  /**
+   * Hash-joins {@code left} and {@code right}. The hash table is built from the left side if both
+   * sizes are known and the left side is smaller; otherwise from the right side.
+   */
+  static <K, L, R> Stream<Map.Entry<K, Both<L, R>>> hashJoin(
+      BiStream<? extends K, ? extends L> left, BiStream<? extends K, ? extends R> right) {
+    return StreamSupport.stream(
+            () -> {
+              Spliterator<? extends Map.Entry<? extends K, ? extends L>> lefts =
+                  left.mapToEntry().spliterator();
+              Spliterator<? extends Map.Entry<? extends K, ? extends R>> rights =
+                  right.mapToEntry().spliterator();
+              long leftSize = lefts.getExactSizeIfKnown();
+              long rightSize = rights.getExactSizeIfKnown();
+              if (leftSize >= 0 && rightSize >= 0 && leftSize < rightSize) {
+                Map<Object, List<L>> table = buildTable(lefts);
+                return StreamSupport.stream(rights, false)
+                    .<Map.Entry<K, Both<L, R>>>flatMap(r -> lookUp(table, r.getKey()).stream()
+                        .map(l -> kv(r.getKey(), Both.of(l, r.getValue()))))
+                    .spliterator();
+              }
+              Map<Object, List<R>> table = buildTable(rights);
+              return StreamSupport.stream(lefts, false)
+                  .<Map.Entry<K, Both<L, R>>>flatMap(l -> lookUp(table, l.getKey()).stream()
+                      .map(r -> kv(l.getKey(), Both.of(l.getValue(), r))))
+                  .spliterator();
+            },
+            Spliterator.ORDERED,
+            false)
+        .onClose(left::close)
+        .onClose(right::close);
+  }
+
+  private static <V> Map<Object, List<V>> buildTable(
+      Spliterator<? extends Map.Entry<?, ? extends V>> entries) {
+    Map<Object, List<V>> table = new HashMap<>();
+    entries.forEachRemaining(
+        e -> table.computeIfAbsent(e.getKey(), k -> new ArrayList<>(1)).add(e.getValue()));
+    return table;
+  }
+
+  private static <V> List<V> lookUp(Map<Object, List<V>> table, Object key) {
+    return table.getOrDefault(key, Collections.emptyList());
+  }
+
+  private static final class MergeJoin<K, L, R>
+      extends AbstractSpliterator<Map.Entry<K, Both<L, R>>> {
+    private final Spliterator<? extends Map.Entry<? extends K, ? extends L>> lefts;
+    private final Spliterator<? extends Map.Entry<? extends K, ? extends R>> rights;
+    private final Comparator<? super K> keyOrder;
+    private final boolean outer;
+    private final Consumer<Map.Entry<? extends K, ? extends L>> nextLeft = this::setLeft;
+    private final Consumer<Map.Entry<? extends K, ? extends R>> nextRight = this::setRight;
+
+    /** The current left pair, and its index into the right values with equal keys. */
+    private boolean hasLeft;
+    private K leftKey;
+    private L leftValue;
+    private int matchIndex;
+
+    /** The right values with key equal to {@code groupKey}. */
+    private final List<R> group = new ArrayList<>();
+    private boolean hasGroup;
+    private K groupKey;
+
+    /** The next right pair that isn't in {@code group}. */
+    private boolean hasRight;
+    private boolean rightStarted;
+    private K rightKey;
+    private R rightValue;
+
+    MergeJoin(
+        Spliterator<? extends Map.Entry<? extends K, ? extends L>> lefts,
+        Spliterator<? extends Map.Entry<? extends K, ? extends R>> rights,
+        Comparator<? super K> keyOrder,
+        boolean outer) {
+      super(Long.MAX_VALUE, Spliterator.ORDERED);
+      this.lefts = lefts;
+      this.rights = rights;
+      this.keyOrder = keyOrder;
+      this.outer = outer;
+    }
+
+    @Override public boolean tryAdvance(Consumer<? super Map.Entry<K, Both<L, R>>> action) {
+      while (true) {
+        if (hasLeft && matchIndex < group.size()) {
+          action.accept(kv(leftKey, Both.of(leftValue, group.get(matchIndex++))));
+          return true;
+        }
+        if (!advanceLeft()) return false;
+        matchIndex = 0;
+        match(leftKey);
+        if (group.isEmpty()) {
+          if (outer) {
+            action.accept(kv(leftKey, Both.of(leftValue, null)));
+            return true;
+          }
+          // Subsequent left keys are no less, so nothing can match once the right side runs out.
+          if (!hasRight) return false;
+        }
+      }
+    }
+
+    private boolean advanceLeft() {
+      K previous = leftKey;
+      boolean hadLeft = hasLeft;
+      hasLeft = lefts.tryAdvance(nextLeft);
+      if (hasLeft && hadLeft && keyOrder.compare(previous, leftKey) > 0) {
+        throw new IllegalArgumentException(
+            "Left side not sorted by key: " + leftKey + " after " + previous);
+      }
+      return hasLeft;
+    }
+
+    /** Collects the right values with key equal to {@code key} into {@code group}. */
+    private void match(K key) {
+      if (hasGroup && keyOrder.compare(groupKey, key) == 0) return;
+      if (!rightStarted) {
+        rightStarted = true;
+        advanceRight();
+      }
+      group.clear();
+      while (hasRight && keyOrder.compare(rightKey, key) < 0) {
+        advanceRight();
+      }
+      while (hasRight && keyOrder.compare(rightKey, key) == 0) {
+        group.add(rightValue);
+        advanceRight();
+      }
+      hasGroup = true;
+      groupKey = key;
+    }
+
+    private void advanceRight() {
+      K previous = rightKey;
+      boolean hadRight = hasRight;
+      hasRight = rights.tryAdvance(nextRight);
+      if (hasRight && hadRight && keyOrder.compare(previous, rightKey) > 0) {
+        throw new IllegalArgumentException(
+            "Right side not sorted by key: " + rightKey + " after " + previous);
+      }
+    }
+
+    private void setLeft(Map.Entry<? extends K, ? extends L> entry) {
+      leftKey = entry.getKey();
+      leftValue = entry.getValue();
+    }
+
+    private void setRight(Map.Entry<? extends K, ? extends R> entry) {
+      rightKey = entry.getKey();
+      rightValue = entry.getValue();
+    }
+  }
+
+  private Joins() {}
+}
@@ -19,6 +19,7 @@ import static java.util.Objects.requireNonNull;
 import static java.util.stream.Collectors.toList;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
@@ -729,6 +730,58 @@ public final class MoreCollectors {
     return Collector.of(Builder::new, Builder::add, Builder::merge, Builder::build);
   }
 
+  /**
+   * Returns a {@code Collector} that collects the {@code k} greatest (relative to the specified
+   * {@code Comparator}) input elements, in descending order. For example:
+   *
+   * <pre>{@code
+   * Stream.of("foo", "quux", "banana", "papaya", "kiwi")
+   *     .collect(greatest(2, comparingInt(String::length)))
+   * // returns ["banana", "papaya"]
+   * }</pre>
+   *
+   * <p>Unlike sorting the entire stream and then calling {@code limit(k)}, only up to {@code k}
+   * elements are retained in a bounded heap, which takes {@code O(n log k)} time and {@code O(k)}
+   * space. Ties are resolved in favor of the elements encountered first, and equal elements are
+   * returned in encounter order, also for parallel streams.
+   *
+   * <p>Null elements are supported as long as {@code comparator} supports them.
+   *
+   * @return an immutable list of up to {@code k} elements
+   * @throws IllegalArgumentException if {@code k} is negative
+   * @since 8.6
+   */
+  public static <T> Collector<T, ?, List<T>> greatest(int k, Comparator<? super T> comparator) {
+    return least(k, comparator.reversed());
+  }
+
+  /**
+   * Returns a {@code Collector} that collects the {@code k} least (relative to the specified
+   * {@code Comparator}) input elements, in ascending order. For example:
+   *
+   * <pre>{@code
+   * Stream.of("foo", "quux", "banana", "bar", "kiwi")
+   *     .collect(least(3, comparingInt(String::length)))
+   * // returns ["foo", "bar", "quux"]
+   * }</pre>
+   *
+   * <p>Unlike sorting the entire stream and then calling {@code limit(k)}, only up to {@code k}
+   * elements are retained in a bounded heap, which takes {@code O(n log k)} time and {@code O(k)}
+   * space. Ties are resolved in favor of the elements encountered first, and equal elements are
+   * returned in encounter order, also for parallel streams.
+   *
+   * <p>Null elements are supported as long as {@code comparator} supports them.
+   *
+   * @return an immutable list of up to {@code k} elements
+   * @throws IllegalArgumentException if {@code k} is negative
+   * @since 8.6
+   */
+  public static <T> Collector<T, ?, List<T>> least(int k, Comparator<? super T> comparator) {
+    requireNonNull(comparator);
+    if (k < 0) throw new IllegalArgumentException("k = " + k);
+    return Collector.of(() -> new TopK<T>(k, comparator), TopK::add, TopK::merge, TopK::toList);
+  }
+
   private static <T, R> Collector<T, ?, R> switching(List<FixedSizeCollector<T, ?, R>> cases) {
     if (cases.size() == 1) {
       return cases.get(0);
@@ -746,5 +799,109 @@ public final class MoreCollectors {
     });
   }
 
+  /**
+   * Retains the {@code k} least elements in a binary max-heap, with the worst of them at the root.
+   * Each element is paired with its encounter sequence number to break ties, so that earlier
+   * elements are preferred and equal elements stay in encounter order.
+   */
+  private static final class TopK<T> {
+    private final int k;
+    private final Comparator<? super T> comparator;
+    private Object[] elements = new Object[0];
+    private long[] sequences = new long[0];
+    private int size;
+    private long encountered;
+
+    TopK(int k, Comparator<? super T> comparator) {
+      this.k = k;
+      this.comparator = comparator;
+    }
+
+    void add(T element) {
+      offer(element, encountered++);
+    }
+
+    TopK<T> merge(TopK<T> that) {
+      // All elements in "that" were encountered after the elements in "this".
+      for (int i = 0; i < that.size; i++) {
+        offer(that.elementAt(i), encountered + that.sequences[i]);
+      }
+      encountered += that.encountered;
+      return this;
+    }
+
+    List<T> toList() {
+      Object[] sorted = new Object[size];
+      for (int i = size - 1; i >= 0; i--) {
+        sorted[i] = elements[0];
+        set(0, elements[size - 1], sequences[size - 1]);
+        elements[--size] = null;
+        siftDown(0);
+      }
+      @SuppressWarnings("unchecked") // Only T elements were added.
+      List<T> list = (List<T>) Collections.unmodifiableList(Arrays.asList(sorted));
+      return list;
+    }
+
+    private void offer(T element, long sequence) {
+      if (size < k) {
+        if (size == elements.length) {
+          int capacity = (int) Math.min(k, Math.max(8, size * 2L));
+          elements = Arrays.copyOf(elements, capacity);
+          sequences = Arrays.copyOf(sequences, capacity);
+        }
+        set(size++, element, sequence);
+        siftUp(size - 1);
+      } else if (k > 0 && compare(0, element, sequence) > 0) {
+        set(0, element, sequence);
+        siftDown(0);
+      }
+    }
+
+    private void siftUp(int index) {
+      Object element = elements[index];
+      long sequence = sequences[index];
+      while (index > 0) {
+        int parent = (index - 1) >>> 1;
+        if (compare(parent, element, sequence) >= 0) break;
+        set(index, elements[parent], sequences[parent]);
+        index = parent;
+      }
+      set(index, element, sequence);
+    }
+
+    private void siftDown(int index) {
+      if (size == 0) return;
+      Object element = elements[index];
+      long sequence = sequences[index];
+      for (int child = index * 2 + 1; child < size; child = index * 2 + 1) {
+        if (child + 1 < size && compare(child + 1, elements[child], sequences[child]) > 0) {
+          child++;
+        }
+        if (compare(child, element, sequence) <= 0) break;
+        set(index, elements[child], sequences[child]);
+        index = child;
+      }
+      set(index, element, sequence);
+    }
+
+    /** Compares the element at {@code index} with {@code (element, sequence)}. */
+    @SuppressWarnings("unchecked") // Only T elements were added.
+    private int compare(int index, Object element, long sequence) {
+      int result = comparator.compare(elementAt(index), (T) element);
+      return result != 0 ? result : Long.compare(sequences[index], sequence);
+    }
+
+    @SuppressWarnings("unchecked") // Only T elements were added.
+    private T elementAt(int index) {
+      return (T) elements[index];
+    }
+
+    private void set(int index, Object element, long sequence) {
+      elements[index] = element;
+      sequences[index] = sequence;
+    }
+  }
+
   private MoreCollectors() {}
 }
@@ -20,18 +20,27 @@ import static java.util.Objects.requireNonNull;
 import java.util.AbstractMap;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Queue;
 import java.util.Spliterator;
+import java.util.TreeMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.Spliterators.AbstractSpliterator;
 import java.util.function.BiPredicate;
 import java.util.function.BinaryOperator;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
 import java.util.stream.Collector;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
@@ -266,6 +275,132 @@ public final class MoreStreams {
             stream, sameGroup, Collector.of(Run::new, Run::add, Run::merge, Run::toEntry)));
   }
 
+  /**
+   * Groups the elements of {@code stream} into fixed-size, non-overlapping windows of event time,
+   * and collects the elements of each window using {@code windowCollector}. The returned {@code
+   * BiStream} is keyed by the start of each window, which is a multiple of {@code size}.
+   *
+   * <p>For example, to count the requests of each minute given a stream of requests with
+   * timestamps in milliseconds, tolerating requests that arrive up to 5 seconds out of order:
+   *
+   * <pre>{@code
+   * tumblingWindows(requests, Request::timestampMillis, 60_000, 5_000, counting())
+   *     .forEach((minute, count) -> ...);
+   * }</pre>
+   *
+   * <p>Windows are emitted lazily, in order of their start, as soon as the event time passes the
+   * end of the window by {@code allowedLateness}. So the stream doesn't need to be buffered and can
+   * be infinite. An element whose event time is more than {@code allowedLateness} behind the
+   * greatest event time seen so far is dropped. Pass 0 for {@code allowedLateness} if the elements
+   * are known to be in event time order.
+   *
+   * <p>The windows are computed sequentially, even if {@code stream} is parallel.
+   *
+   * @throws IllegalArgumentException if {@code size} isn't positive or if {@code allowedLateness}
+   *     is negative
+   * @since 8.6
+   */
+  public static <T, R> BiStream<Long, R> tumblingWindows(
+      Stream<T> stream,
+      ToLongFunction<? super T> eventTime,
+      long size,
+      long allowedLateness,
+      Collector<? super T, ?, R> windowCollector) {
+    return slidingWindows(stream, eventTime, size, size, allowedLateness, windowCollector);
+  }
+
+  /**
+   * Groups the elements of {@code stream} into fixed-size windows of event time that start every
+   * {@code slide}, and collects the elements of each window using {@code windowCollector}. When
+   * {@code slide} is less than {@code size}, the windows overlap and an element belongs to more
+   * than one of them. The returned {@code BiStream} is keyed by the start of each window, which is
+   * a multiple of {@code slide}.
+   *
+   * <p>For example, to compute the 5-minute moving average of a metric every minute:
+   *
+   * <pre>{@code
+   * slidingWindows(
+   *         samples, Sample::timestampMillis, 300_000, 60_000, 0, averagingDouble(Sample::value))
+   *     .forEach((start, average) -> ...);
+   * }</pre>
+   *
+   * <p>Windows are emitted lazily, in order of their start, as soon as the event time passes the
+   * end of the window by {@code allowedLateness}. So the stream doesn't need to be buffered and can
+   * be infinite. An element whose event time is more than {@code allowedLateness} behind the
+   * greatest event time seen so far is dropped. Only windows with at least one element are emitted.
+   *
+   * <p>The windows are computed sequentially, even if {@code stream} is parallel.
+   *
+   * @throws IllegalArgumentException if {@code size} or {@code slide} isn't positive, or if {@code
+   *     allowedLateness} is negative
+   * @since 8.6
+   */
+  public static <T, R> BiStream<Long, R> slidingWindows(
+      Stream<T> stream,
+      ToLongFunction<? super T> eventTime,
+      long size,
+      long slide,
+      long allowedLateness,
+      Collector<? super T, ?, R> windowCollector) {
+    requireNonNull(stream);
+    requireNonNull(eventTime);
+    requireNonNull(windowCollector);
+    if (size <= 0) throw new IllegalArgumentException("size = " + size);
+    if (slide <= 0) throw new IllegalArgumentException("slide = " + slide);
+    checkAllowedLateness(allowedLateness);
+    return BiStream.fromEntries(
+        mapBySpliterator(
+            stream.sequential(),
+            Spliterator.ORDERED,
+            it -> new SlidingWindows<>(
+                it, eventTime, allowedLateness, windowCollector, size, slide)));
+  }
+
+  /**
+   * Groups the elements of {@code stream} into sessions of activity, and collects the elements of
+   * each session using {@code sessionCollector}. A session ends when no element arrives within
+   * {@code gap} after its last element, in event time. The returned {@code BiStream} is keyed by
+   * the event time of the first element of each session.
+   *
+   * <p>For example, to find the page views of each visit given a user's page views, where a visit
+   * ends after 30 minutes of inactivity:
+   *
+   * <pre>{@code
+   * sessionWindows(pageViews, PageView::timestampMillis, 1_800_000, 10_000, toList())
+   *     .forEach((visitStart, views) -> ...);
+   * }</pre>
+   *
+   * <p>Sessions are emitted lazily, in order of their start, as soon as the event time passes the
+   * last element of the session by more than {@code gap + allowedLateness}. So the stream doesn't
+   * need to be buffered and can be infinite. An element whose event time is more than {@code
+   * allowedLateness} behind the greatest event time seen so far is dropped. When an out-of-order
+   * element bridges two sessions, they are combined using the combiner of {@code
+   * sessionCollector}.
+   *
+   * <p>The sessions are computed sequentially, even if {@code stream} is parallel.
+   *
+   * @throws IllegalArgumentException if {@code gap} isn't positive or if {@code allowedLateness}
+   *     is negative
+   * @since 8.6
+   */
+  public static <T, R> BiStream<Long, R> sessionWindows(
+      Stream<T> stream,
+      ToLongFunction<? super T> eventTime,
+      long gap,
+      long allowedLateness,
+      Collector<? super T, ?, R> sessionCollector) {
+    requireNonNull(stream);
+    requireNonNull(eventTime);
+    requireNonNull(sessionCollector);
+    if (gap <= 0) throw new IllegalArgumentException("gap = " + gap);
+    checkAllowedLateness(allowedLateness);
+    return BiStream.fromEntries(
+        mapBySpliterator(
+            stream.sequential(),
+            Spliterator.ORDERED,
+            it -> new SessionWindows<>(it, eventTime, allowedLateness, sessionCollector, gap)));
+  }
+
   /**
    * Iterates through {@code stream} <em>only once</em>. It's strongly recommended
    * to avoid assigning the return value to a variable or passing it to any other method because
@@ -355,6 +490,54 @@ public final class MoreStreams {
     return new DicedSpliterator<T>(spliterator, maxSize);
   }
 
+  /**
+   * Dices {@code stream} into chunks each with up to {@code maxSize} elements, reading ahead up to
+   * {@code prefetch} chunks on {@code executor} while the current chunk is being processed. Use it
+   * when reading from {@code stream} is I/O bound, such as paging through a database cursor or
+   * reading files, to overlap the I/O with the processing:
+   *
+   * <pre>{@code
+   * try (Stream<List<Row>> batches = dice(cursor.rows(), 1000, 2, executor)) {
+   *   batches.forEach(this::upload);
+   * }
+   * }</pre>
+   *
+   * <p>The elements are read from {@code stream} sequentially by a single task submitted to {@code
+   * executor} when the returned stream starts to be consumed. The task blocks once {@code prefetch}
+   * chunks are pending, so a slow consumer isn't overwhelmed. The chunks are in encounter order,
+   * and all chunks but the last contain exactly {@code maxSize} elements.
+   *
+   * <p>Closing the returned stream stops the read-ahead task, which then closes {@code stream} on
+   * its own thread once it's done reading. It's recommended to use try-with-resources, in
+   * particular if the stream may be short-circuited (by {@code findFirst()} or {@code limit()} for
+   * example). Otherwise the task remains blocked, occupying a thread of {@code executor}. If reading
+   * {@code stream} fails, the exception is propagated to the consumer wrapped in a {@link
+   * CompletionException}.
+   *
+   * <p>{@code executor} must run the task on another thread. A direct executor such as {@code
+   * Runnable::run} would block the consumer on the read-ahead, and is rejected.
+   *
+   * @param stream the source stream to be diced
+   * @param maxSize the maximum size for each chunk
+   * @param prefetch the maximum number of chunks to read ahead
+   * @param executor the executor to read {@code stream}
+   * @throws IllegalArgumentException if {@code maxSize} or {@code prefetch} isn't positive, or
+   *     upon consumption if {@code executor} runs the read-ahead task on the consuming thread
+   * @throws CompletionException if reading {@code stream} fails, or if the consuming thread is
+   *     interrupted while waiting for a chunk, in which case the read-ahead task is stopped and the
+   *     thread is re-interrupted
+   * @since 8.6
+   */
+  public static <T> Stream<List<T>> dice(
+      Stream<? extends T> stream, int maxSize, int prefetch, Executor executor) {
+    requireNonNull(stream);
+    requireNonNull(executor);
+    if (maxSize <= 0) throw new IllegalArgumentException("maxSize = " + maxSize);
+    if (prefetch <= 0) throw new IllegalArgumentException("prefetch = " + prefetch);
+    PrefetchingDicer<T> dicer = new PrefetchingDicer<>(stream, maxSize, prefetch, executor);
+    return whileNotNull(dicer::next).onClose(dicer::close);
+  }
+
   /**
    * Returns an infinite {@link Stream} starting from {@code firstIndex}.
    * Can be used together with {@link BiStream#zip} to iterate over a stream with index.
@@ -536,6 +719,22 @@ public final class MoreStreams {
         Stream.Builder::build);
   }
 
+  private static void checkAllowedLateness(long allowedLateness) {
+    if (allowedLateness < 0) {
+      throw new IllegalArgumentException("allowedLateness = " + allowedLateness);
+    }
+  }
+
+  /** Returns {@code time + delta} for non-negative {@code delta}, capped at Long.MAX_VALUE. */
+  private static long saturatedAdd(long time, long delta) {
+    return time > Long.MAX_VALUE - delta ? Long.MAX_VALUE : time + delta;
+  }
+
+  /** Returns {@code time - delta} for non-negative {@code delta}, capped at Long.MIN_VALUE. */
+  private static long saturatedSubtract(long time, long delta) {
+    return time < Long.MIN_VALUE + delta ? Long.MIN_VALUE : time - delta;
+  }
+
   private static <T> BiPredicate<T, T> by(Function<? super T, ?> keyFunction) {
     requireNonNull(keyFunction);
     return (a, b) -> Objects.equals(keyFunction.apply(a), keyFunction.apply(b));
@@ -601,6 +800,107 @@ public final class MoreStreams {
     }
   }
 
+  /** Reads the chunks on a background task, with up to {@code prefetch} chunks pending. */
+  private static final class PrefetchingDicer<T> {
+    private static final Object END = new Object();
+
+    private final Stream<? extends T> stream;
+    private final int maxSize;
+    private final Executor executor;
+    private final Semaphore permits;
+    private final BlockingQueue<Object> chunks = new LinkedBlockingQueue<>();
+    /** Whoever claims {@code stream} closes it: the read-ahead task, or close() if it never ran. */
+    private final AtomicBoolean claimed = new AtomicBoolean();
+    private volatile boolean stopped;
+    private Spliterator<List<T>> diced;
+    private boolean started;
+
+    PrefetchingDicer(Stream<? extends T> stream, int maxSize, int prefetch, Executor executor) {
+      this.stream = stream;
+      this.maxSize = maxSize;
+      this.executor = executor;
+      this.permits = new Semaphore(prefetch);
+    }
+
+    @SuppressWarnings("unchecked")  // Only List<T> is added besides END and exceptions.
+    List<T> next() {
+      if (!started) {
+        submitReader();
+        started = true;  // Only once submitted, so a rejected submission can be retried.
+      }
+      Object chunk;
+      try {
+        chunk = chunks.take();
+      } catch (InterruptedException e) {
+        stop();
+        Thread.currentThread().interrupt();
+        throw new CompletionException(e);
+      }
+      if (chunk == END) {
+        chunks.add(END);  // In case next() is called again.
+        return null;
+      }
+      if (chunk instanceof Throwable) {
+        chunks.add(chunk);
+        throw new CompletionException((Throwable) chunk);
+      }
+      permits.release();
+      return (List<T>) chunk;
+    }
+
+    void stop() {
+      stopped = true;
+      permits.release();  // Unblock the reader so that it can exit and close the stream.
+    }
+
+    void close() {
+      stop();
+      if (claimed.compareAndSet(false, true)) {
+        stream.close();  // The reader never ran.
+      }
+    }
+
+    private void submitReader() {
+      if (diced == null) {
+        diced = dice(stream.spliterator(), maxSize);
+      }
+      Spliterator<List<T>> source = diced;
+      Thread consumer = Thread.currentThread();
+      boolean[] ranOnConsumer = new boolean[1];
+      executor.execute(() -> {
+        if (Thread.currentThread() == consumer) {
+          ranOnConsumer[0] = true;
+          return;
+        }
+        read(source);
+      });
+      if (ranOnConsumer[0]) {
+        throw new IllegalArgumentException(
+            "executor (" + executor + ") must not run the read-ahead task on the consuming thread");
+      }
+    }
+
+    private void read(Spliterator<List<T>> diced) {
+      if (!claimed.compareAndSet(false, true)) return;  // Already closed.
+      try {
+        // Close on this thread so that it doesn't race with reading.
+        try {
+          do {
+            permits.acquire();
+          } while (!stopped && diced.tryAdvance(chunks::add));
+        } finally {
+          stream.close();
+        }
+        chunks.add(END);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        chunks.add(e);
+      } catch (Throwable e) {
+        chunks.add(e);
+      }
+    }
+  }
+
   private static final class FlattenedSpliterator<T> implements Spliterator<T> {
     private final Spliterator<? extends Stream<? extends T>> blocks;
     private Spliterator<? extends T> currentBlock;
@@ -657,5 +957,188 @@ public final class MoreStreams {
     }
   }
 
+  /**
+   * Assigns the elements to windows of event time, and emits each window once the watermark (the
+   * greatest event time seen, minus the allowed lateness) guarantees that it's complete.
+   */
+  private abstract static class WindowSpliterator<T, A, R>
+      extends AbstractSpliterator<Map.Entry<Long, R>> {
+    private final Spliterator<T> upstream;
+    private final ToLongFunction<? super T> eventTime;
+    private final long allowedLateness;
+    private final Queue<Map.Entry<Long, R>> ready = new ArrayDeque<>();
+    private final Consumer<T> onElement = this::accept;
+    final Collector<? super T, A, R> collector;
+    private long watermark = Long.MIN_VALUE;
+
+    WindowSpliterator(
+        Spliterator<T> upstream,
+        ToLongFunction<? super T> eventTime,
+        long allowedLateness,
+        Collector<? super T, A, R> collector) {
+      super(Long.MAX_VALUE, Spliterator.ORDERED);
+      this.upstream = upstream;
+      this.eventTime = eventTime;
+      this.allowedLateness = allowedLateness;
+      this.collector = collector;
+    }
+
+    /** Adds {@code element} with event time of {@code time} to its windows. */
+    abstract void add(T element, long time);
+
+    /** Emits the windows that can't receive any element at or after {@code watermark}. */
+    abstract void close(long watermark);
+
+    /** Emits all remaining windows. */
+    abstract void closeAll();
+
+    final void emit(long start, A container) {
+      ready.add(BiStream.kv(start, collector.finisher().apply(container)));
+    }
+
+    @Override public final boolean tryAdvance(Consumer<? super Map.Entry<Long, R>> action) {
+      while (ready.isEmpty()) {
+        if (!upstream.tryAdvance(onElement)) {
+          closeAll();
+          if (ready.isEmpty()) return false;
+        }
+      }
+      action.accept(ready.remove());
+      return true;
+    }
+
+    private void accept(T element) {
+      long time = eventTime.applyAsLong(element);
+      if (time < watermark) return;  // Too late
+      add(element, time);
+      long advanced = saturatedSubtract(time, allowedLateness);
+      if (advanced > watermark) {
+        watermark = advanced;
+        close(watermark);
+      }
+    }
+  }
+
+  private static final class SlidingWindows<T, A, R> extends WindowSpliterator<T, A, R> {
+    private final long size;
+    private final long slide;
+    private final TreeMap<Long, A> windows = new TreeMap<>();
+
+    SlidingWindows(
+        Spliterator<T> upstream,
+        ToLongFunction<? super T> eventTime,
+        long allowedLateness,
+        Collector<? super T, A, R> collector,
+        long size,
+        long slide) {
+      super(upstream, eventTime, allowedLateness, collector);
+      this.size = size;
+      this.slide = slide;
+    }
+
+    @Override void add(T element, long time) {
+      for (long offset = Math.floorMod(time, slide); offset < size; offset += slide) {
+        // A window starting before Long.MIN_VALUE is truncated to start at Long.MIN_VALUE.
+        long start = saturatedSubtract(time, offset);
+        A container = windows.get(start);
+        if (container == null) {
+          container = collector.supplier().get();
+          windows.put(start, container);
+        }
+        collector.accumulator().accept(container, element);
+        if (start == Long.MIN_VALUE || offset > Long.MAX_VALUE - slide) break;
+      }
+    }
+
+    @Override void close(long watermark) {
+      // start + size <= watermark, without overflow.
+      long limit = saturatedSubtract(watermark, size - 1);
+      while (!windows.isEmpty() && windows.firstKey() < limit) {
+        Map.Entry<Long, A> window = windows.pollFirstEntry();
+        emit(window.getKey(), window.getValue());
+      }
+    }
+
+    @Override void closeAll() {
+      while (!windows.isEmpty()) {
+        Map.Entry<Long, A> window = windows.pollFirstEntry();
+        emit(window.getKey(), window.getValue());
+      }
+    }
+  }
+
+  private static final class SessionWindows<T, A, R> extends WindowSpliterator<T, A, R> {
+    private final long gap;
+    private final TreeMap<Long, Session> sessions = new TreeMap<>();
+
+    SessionWindows(
+        Spliterator<T> upstream,
+        ToLongFunction<? super T> eventTime,
+        long allowedLateness,
+        Collector<? super T, A, R> collector,
+        long gap) {
+      super(upstream, eventTime, allowedLateness, collector);
+      this.gap = gap;
+    }
+
+    @Override void add(T element, long time) {
+      // Sessions are more than gap apart, so at most one before and one after can be joined.
+      Session session = null;
+      long earliestEnd = saturatedSubtract(time, gap);
+      for (Iterator<Session> it =
+              sessions.headMap(saturatedAdd(time, gap), true).descendingMap().values().iterator();
+          it.hasNext(); ) {
+        Session earlier = it.next();
+        if (earlier.end < earliestEnd) break;
+        it.remove();
+        session = session == null ? earlier : earlier.join(session);
+      }
+      if (session == null) {
+        session = new Session(time);
+      }
+      session.add(element, time);
+      sessions.put(session.start, session);
+    }
+
+    @Override void close(long watermark) {
+      long limit = saturatedSubtract(watermark, gap);
+      while (!sessions.isEmpty() && sessions.firstEntry().getValue().end < limit) {
+        Session session = sessions.pollFirstEntry().getValue();
+        emit(session.start, session.container);
+      }
+    }
+
+    @Override void closeAll() {
+      while (!sessions.isEmpty()) {
+        Session session = sessions.pollFirstEntry().getValue();
+        emit(session.start, session.container);
+      }
+    }
+
+    private final class Session {
+      long start;
+      long end;
+      A container = collector.supplier().get();
+
+      Session(long time) {
+        this.start = time;
+        this.end = time;
+      }
+
+      void add(T element, long time) {
+        start = Math.min(start, time);
+        end = Math.max(end, time);
+        collector.accumulator().accept(container, element);
+      }
+
+      /** Joins {@code later} into this session. */
+      Session join(Session later) {
+        end = Math.max(end, later.end);
+        container = collector.combiner().apply(container, later.container);
+        return this;
+      }
+    }
+  }
+
   private MoreStreams() {}
 }
@@ -0,0 +1,352 @@
+/*****************************************************************************
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package com.google.mu.util.stream;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.DoubleSummaryStatistics;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators.AbstractDoubleSpliterator;
+import java.util.Spliterators.AbstractSpliterator;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoubleConsumer;
+import java.util.function.DoublePredicate;
+import java.util.function.DoubleUnaryOperator;
+import java.util.function.ObjDoubleConsumer;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.function.ToDoubleFunction;
+import java.util.stream.DoubleStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A sequential stream of pairs, each with an object key and a primitive {@code double} value. Use
+ * it in place of {@code BiStream<K, Double>} for weighting pipelines that would otherwise box every
+ * value.
+ *
+ * <p>For example, to total the weights of the edges leaving each node:
+ *
+ * <pre>{@code
+ * Map<Node, Double> outWeights =
+ *     ObjDoubleBiStream.from(edges.stream(), Edge::from, Edge::weight)
+ *         .filterValues(w -> w > 0)
+ *         .sumByKey();
+ * }</pre>
+ *
+ * <p>Like {@link Stream}, intermediary operations are lazy, and a stream can only be used once:
+ * deriving another stream from it or running a terminal operation on it a second time throws {@link
+ * IllegalStateException}. Closing the stream, or any stream derived from it, closes the source.
+ * Per-key results such as {@link #sumByKey} are accumulated in primitive form and only boxed once
+ * per distinct key. Sums are compensated (as in {@link DoubleStream#sum}), so rounding error
+ * doesn't build up over many values. For {@code long} values, use {@link ObjLongBiStream}.
+ *
+ * @param <K> the key type
+ * @since 8.6
+ */
+public final class ObjDoubleBiStream<K> implements AutoCloseable {
+  private final Supplier<? extends Pairs<K>> source;
+  private final Runnable closeHandler;
+  private boolean linked;
+
+  private ObjDoubleBiStream(Supplier<? extends Pairs<K>> source, Runnable closeHandler) {
+    this.source = source;
+    this.closeHandler = closeHandler;
+  }
+
+  /**
+   * Returns a stream of the pairs mapped from each element in {@code stream} using {@code toKey}
+   * and {@code toValue}. Each function is invoked exactly once per element.
+   */
+  public static <T, K> ObjDoubleBiStream<K> from(
+      Stream<T> stream,
+      Function<? super T, ? extends K> toKey,
+      ToDoubleFunction<? super T> toValue) {
+    requireNonNull(stream);
+    requireNonNull(toKey);
+    requireNonNull(toValue);
+    return new ObjDoubleBiStream<K>(() -> new Pairs<K>() {
+      private final Spliterator<T> elements = stream.spliterator();
+
+      @Override boolean tryAdvance(ObjDoubleConsumer<? super K> action) {
+        return elements.tryAdvance(e -> action.accept(toKey.apply(e), toValue.applyAsDouble(e)));
+      }
+
+      @Override void forEachRemaining(ObjDoubleConsumer<? super K> action) {
+        elements.forEachRemaining(e -> action.accept(toKey.apply(e), toValue.applyAsDouble(e)));
+      }
+    }, stream::close);
+  }
+
+  /** Returns a stream of the pairs that satisfy {@code predicate}. */
+  public ObjDoubleBiStream<K> filter(ObjDoublePredicate<? super K> predicate) {
+    requireNonNull(predicate);
+    return then(pairs -> new Stage<K, K>(pairs) {
+      @Override boolean emit(K key, double value, ObjDoubleConsumer<? super K> action) {
+        if (!predicate.test(key, value)) return false;
+        action.accept(key, value);
+        return true;
+      }
+    });
+  }
+
+  /** Returns a stream of the pairs whose keys satisfy {@code predicate}. */
+  public ObjDoubleBiStream<K> filterKeys(Predicate<? super K> predicate) {
+    requireNonNull(predicate);
+    return filter((k, v) -> predicate.test(k));
+  }
+
+  /** Returns a stream of the pairs whose values satisfy {@code predicate}. */
+  public ObjDoubleBiStream<K> filterValues(DoublePredicate predicate) {
+    requireNonNull(predicate);
+    return filter((k, v) -> predicate.test(v));
+  }
+
+  /** Returns a stream with the keys mapped by {@code keyMapper} and the values unchanged. */
+  public <K2> ObjDoubleBiStream<K2> mapKeys(Function<? super K, ? extends K2> keyMapper) {
+    requireNonNull(keyMapper);
+    return then(pairs -> new Stage<K, K2>(pairs) {
+      @Override boolean emit(K key, double value, ObjDoubleConsumer<? super K2> action) {
+        action.accept(keyMapper.apply(key), value);
+        return true;
+      }
+    });
+  }
+
+  /** Returns a stream with the values mapped by {@code valueMapper} and the keys unchanged. */
+  public ObjDoubleBiStream<K> mapValues(DoubleUnaryOperator valueMapper) {
+    requireNonNull(valueMapper);
+    return then(pairs -> new Stage<K, K>(pairs) {
+      @Override boolean emit(K key, double value, ObjDoubleConsumer<? super K> action) {
+        action.accept(key, valueMapper.applyAsDouble(value));
+        return true;
+      }
+    });
+  }
+
+  /** Returns a stream that invokes {@code action} on each pair as it's consumed. */
+  public ObjDoubleBiStream<K> peek(ObjDoubleConsumer<? super K> action) {
+    requireNonNull(action);
+    return then(pairs -> new Stage<K, K>(pairs) {
+      @Override boolean emit(K key, double value, ObjDoubleConsumer<? super K> downstream) {
+        action.accept(key, value);
+        downstream.accept(key, value);
+        return true;
+      }
+    });
+  }
+
+  /** Returns a lazy stream of the objects mapped from each pair by {@code mapper}. */
+  public <R> Stream<R> mapToObj(ObjDoubleFunction<? super K, ? extends R> mapper) {
+    requireNonNull(mapper);
+    Supplier<? extends Pairs<K>> pairs = link();
+    return StreamSupport.<R>stream(() -> pairs.get().mapToObj(mapper), Spliterator.ORDERED, false)
+        .onClose(closeHandler);
+  }
+
+  /** Returns a lazy stream of the keys. */
+  public Stream<K> keys() {
+    return mapToObj((k, v) -> k);
+  }
+
+  /** Returns a lazy {@link DoubleStream} of the values. */
+  public DoubleStream values() {
+    Supplier<? extends Pairs<K>> pairs = link();
+    return StreamSupport.doubleStream(() -> pairs.get().values(), Spliterator.ORDERED, false)
+        .onClose(closeHandler);
+  }
+
+  /** Returns a {@code BiStream} of the pairs, with the values boxed. */
+  public BiStream<K, Double> boxed() {
+    return BiStream.fromEntries(mapToObj(BiStream::kv));
+  }
+
+  /** Invokes {@code action} on each pair, in encounter order. */
+  public void forEach(ObjDoubleConsumer<? super K> action) {
+    requireNonNull(action);
+    pairs().forEachRemaining(action);
+  }
+
+  /** Returns the sum of all the values, using compensated summation. */
+  public double sum() {
+    return summaryStatistics().getSum();
+  }
+
+  /** Returns the count, sum, min, max and average of the values. */
+  public DoubleSummaryStatistics summaryStatistics() {
+    DoubleSummaryStatistics stats = new DoubleSummaryStatistics();
+    pairs().forEachRemaining((k, v) -> stats.accept(v));
+    return stats;
+  }
+
+  /**
+   * Returns an immutable map from each distinct key to the sum of its values, in encounter order
+   * of the keys. Like {@link #sum}, the values are summed using compensated summation.
+   */
+  public Map<K, Double> sumByKey() {
+    Map<K, Double> sums = new LinkedHashMap<>();
+    summarizingByKey().forEach((k, stats) -> sums.put(k, stats.getSum()));
+    return Collections.unmodifiableMap(sums);
+  }
+
+  /**
+   * Returns an immutable map from each distinct key to the statistics of its values, in encounter
+   * order of the keys.
+   */
+  public Map<K, DoubleSummaryStatistics> summarizingByKey() {
+    Map<K, DoubleSummaryStatistics> groups = new LinkedHashMap<>();
+    pairs().forEachRemaining(
+        (k, v) -> groups.computeIfAbsent(k, x -> new DoubleSummaryStatistics()).accept(v));
+    return Collections.unmodifiableMap(groups);
+  }
+
+  /**
+   * Groups the pairs by the result of applying {@code classifier} to the keys, and reduces the
+   * values of each group using {@code reducer}. The reduction is done on primitive {@code double}
+   * values. For example, to find the heaviest edge leaving each cluster:
+   *
+   * <pre>{@code
+   * Map<Cluster, Double> heaviest =
+   *     ObjDoubleBiStream.from(edges.stream(), Edge::from, Edge::weight)
+   *         .groupingBy(Node::cluster, Math::max);
+   * }</pre>
+   *
+   * @return an immutable map, in encounter order of the groups
+   */
+  public <G> Map<G, Double> groupingBy(
+      Function<? super K, ? extends G> classifier, DoubleBinaryOperator reducer) {
+    requireNonNull(classifier);
+    requireNonNull(reducer);
+    Map<G, double[]> groups = new LinkedHashMap<>();
+    pairs().forEachRemaining((k, v) -> {
+      G group = classifier.apply(k);
+      double[] accumulated = groups.get(group);
+      if (accumulated == null) {
+        groups.put(group, new double[] {v});
+      } else {
+        accumulated[0] = reducer.applyAsDouble(accumulated[0], v);
+      }
+    });
+    Map<G, Double> result = new LinkedHashMap<>(groups.size() * 4 / 3 + 1);
+    groups.forEach((g, accumulated) -> result.put(g, accumulated[0]));
+    return Collections.unmodifiableMap(result);
+  }
+
+  /** Closes the source stream. */
+  @Override public void close() {
+    closeHandler.run();
+  }
+
+  /** Returns the supplier of the pairs, after making sure this stream is only used once. */
+  private Supplier<? extends Pairs<K>> link() {
+    if (linked) {
+      throw new IllegalStateException("stream has already been operated upon or closed");
+    }
+    linked = true;
+    return source;
+  }
+
+  private Pairs<K> pairs() {
+    return link().get();
+  }
+
+  private <K2> ObjDoubleBiStream<K2> then(
+      Function<? super Pairs<K>, ? extends Pairs<K2>> stage) {
+    Supplier<? extends Pairs<K>> upstream = link();
+    return new ObjDoubleBiStream<>(() -> stage.apply(upstream.get()), closeHandler);
+  }
+
+  /**
+   * A predicate of an object and a {@code double} value.
+   *
+   * @since 8.6
+   */
+  @FunctionalInterface
+  public interface ObjDoublePredicate<T> {
+    boolean test(T obj, double value);
+  }
+
+  /**
+   * A function of an object and a {@code double} value.
+   *
+   * @since 8.6
+   */
+  @FunctionalInterface
+  public interface ObjDoubleFunction<T, R> {
+    R apply(T obj, double value);
+  }
+
+  private abstract static class Pairs<K> {
+    abstract boolean tryAdvance(ObjDoubleConsumer<? super K> action);
+
+    void forEachRemaining(ObjDoubleConsumer<? super K> action) {
+      while (tryAdvance(action)) {}
+    }
+
+    final <R> Spliterator<R> mapToObj(ObjDoubleFunction<? super K, ? extends R> mapper) {
+      return new AbstractSpliterator<R>(Long.MAX_VALUE, Spliterator.ORDERED) {
+        @Override public boolean tryAdvance(Consumer<? super R> action) {
+          return Pairs.this.tryAdvance((k, v) -> action.accept(mapper.apply(k, v)));
+        }
+
+        @Override public void forEachRemaining(Consumer<? super R> action) {
+          Pairs.this.forEachRemaining((k, v) -> action.accept(mapper.apply(k, v)));
+        }
+      };
+    }
+
+    final Spliterator.OfDouble values() {
+      return new AbstractDoubleSpliterator(Long.MAX_VALUE, Spliterator.ORDERED) {
+        @Override public boolean tryAdvance(DoubleConsumer action) {
+          return Pairs.this.tryAdvance((k, v) -> action.accept(v));
+        }
+
+        @Override public void forEachRemaining(DoubleConsumer action) {
+          Pairs.this.forEachRemaining((k, v) -> action.accept(v));
+        }
+      };
+    }
+  }
+
+  private abstract static class Stage<K0, K> extends Pairs<K> {
+    private final Pairs<K0> upstream;
+    private boolean emitted;
+
+    Stage(Pairs<K0> upstream) {
+      this.upstream = upstream;
+    }
+
+    /** Passes on the pair derived from {@code (key, value)}, if any, to {@code action}. */
+    abstract boolean emit(K0 key, double value, ObjDoubleConsumer<? super K> action);
+
+    @Override final boolean tryAdvance(ObjDoubleConsumer<? super K> action) {
+      ObjDoubleConsumer<K0> step = (k, v) -> emitted = emit(k, v, action);
+      emitted = false;
+      while (upstream.tryAdvance(step)) {
+        if (emitted) return true;
+      }
+      return false;
+    }
+
+    @Override final void forEachRemaining(ObjDoubleConsumer<? super K> action) {
+      upstream.forEachRemaining((k, v) -> emit(k, v, action));
+    }
+  }
+}
@@ -0,0 +1,353 @@
+/*****************************************************************************
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package com.google.mu.util.stream;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LongSummaryStatistics;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators.AbstractLongSpliterator;
+import java.util.Spliterators.AbstractSpliterator;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.LongBinaryOperator;
+import java.util.function.LongConsumer;
+import java.util.function.LongPredicate;
+import java.util.function.LongUnaryOperator;
+import java.util.function.ObjLongConsumer;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A sequential stream of pairs, each with an object key and a primitive {@code long} value. Use it
+ * in place of {@code BiStream<K, Long>} for counting and weighting pipelines that would otherwise
+ * box every value.
+ *
+ * <p>For example, to total the order amounts per customer:
+ *
+ * <pre>{@code
+ * Map<Customer, Long> totals =
+ *     ObjLongBiStream.from(orders.stream(), Order::customer, Order::amountInCents)
+ *         .filterValues(cents -> cents > 0)
+ *         .sumByKey();
+ * }</pre>
+ *
+ * <p>Like {@link Stream}, intermediary operations are lazy, and a stream can only be used once:
+ * deriving another stream from it or running a terminal operation on it a second time throws {@link
+ * IllegalStateException}. Closing the stream, or any stream derived from it, closes the source.
+ * Per-key results such as {@link #sumByKey} are accumulated in primitive form and only boxed once
+ * per distinct key. For {@code int} values, use this class since they widen to {@code long}
+ * losslessly.
+ *
+ * @param <K> the key type
+ * @since 8.6
+ */
+public final class ObjLongBiStream<K> implements AutoCloseable {
+  private final Supplier<? extends Pairs<K>> source;
+  private final Runnable closeHandler;
+  private boolean linked;
+
+  private ObjLongBiStream(Supplier<? extends Pairs<K>> source, Runnable closeHandler) {
+    this.source = source;
+    this.closeHandler = closeHandler;
+  }
+
+  /**
+   * Returns a stream of the pairs mapped from each element in {@code stream} using {@code toKey}
+   * and {@code toValue}. Each function is invoked exactly once per element.
+   */
+  public static <T, K> ObjLongBiStream<K> from(
+      Stream<T> stream, Function<? super T, ? extends K> toKey, ToLongFunction<? super T> toValue) {
+    requireNonNull(stream);
+    requireNonNull(toKey);
+    requireNonNull(toValue);
+    return new ObjLongBiStream<K>(() -> new Pairs<K>() {
+      private final Spliterator<T> elements = stream.spliterator();
+
+      @Override boolean tryAdvance(ObjLongConsumer<? super K> action) {
+        return elements.tryAdvance(e -> action.accept(toKey.apply(e), toValue.applyAsLong(e)));
+      }
+
+      @Override void forEachRemaining(ObjLongConsumer<? super K> action) {
+        elements.forEachRemaining(e -> action.accept(toKey.apply(e), toValue.applyAsLong(e)));
+      }
+    }, stream::close);
+  }
+
+  /** Returns a stream of the pairs that satisfy {@code predicate}. */
+  public ObjLongBiStream<K> filter(ObjLongPredicate<? super K> predicate) {
+    requireNonNull(predicate);
+    return then(pairs -> new Stage<K, K>(pairs) {
+      @Override boolean emit(K key, long value, ObjLongConsumer<? super K> action) {
+        if (!predicate.test(key, value)) return false;
+        action.accept(key, value);
+        return true;
+      }
+    });
+  }
+
+  /** Returns a stream of the pairs whose keys satisfy {@code predicate}. */
+  public ObjLongBiStream<K> filterKeys(Predicate<? super K> predicate) {
+    requireNonNull(predicate);
+    return filter((k, v) -> predicate.test(k));
+  }
+
+  /** Returns a stream of the pairs whose values satisfy {@code predicate}. */
+  public ObjLongBiStream<K> filterValues(LongPredicate predicate) {
+    requireNonNull(predicate);
+    return filter((k, v) -> predicate.test(v));
+  }
+
+  /** Returns a stream with the keys mapped by {@code keyMapper} and the values unchanged. */
+  public <K2> ObjLongBiStream<K2> mapKeys(Function<? super K, ? extends K2> keyMapper) {
+    requireNonNull(keyMapper);
+    return then(pairs -> new Stage<K, K2>(pairs) {
+      @Override boolean emit(K key, long value, ObjLongConsumer<? super K2> action) {
+        action.accept(keyMapper.apply(key), value);
+        return true;
+      }
+    });
+  }
+
+  /** Returns a stream with the values mapped by {@code valueMapper} and the keys unchanged. */
+  public ObjLongBiStream<K> mapValues(LongUnaryOperator valueMapper) {
+    requireNonNull(valueMapper);
+    return then(pairs -> new Stage<K, K>(pairs) {
+      @Override boolean emit(K key, long value, ObjLongConsumer<? super K> action) {
+        action.accept(key, valueMapper.applyAsLong(value));
+        return true;
+      }
+    });
+  }
+
+  /** Returns a stream that invokes {@code action} on each pair as it's consumed. */
+  public ObjLongBiStream<K> peek(ObjLongConsumer<? super K> action) {
+    requireNonNull(action);
+    return then(pairs -> new Stage<K, K>(pairs) {
+      @Override boolean emit(K key, long value, ObjLongConsumer<? super K> downstream) {
+        action.accept(key, value);
+        downstream.accept(key, value);
+        return true;
+      }
+    });
+  }
+
+  /** Returns a lazy stream of the objects mapped from each pair by {@code mapper}. */
+  public <R> Stream<R> mapToObj(ObjLongFunction<? super K, ? extends R> mapper) {
+    requireNonNull(mapper);
+    Supplier<? extends Pairs<K>> pairs = link();
+    return StreamSupport.<R>stream(() -> pairs.get().mapToObj(mapper), Spliterator.ORDERED, false)
+        .onClose(closeHandler);
+  }
+
+  /** Returns a lazy stream of the keys. */
+  public Stream<K> keys() {
+    return mapToObj((k, v) -> k);
+  }
+
+  /** Returns a lazy {@link LongStream} of the values. */
+  public LongStream values() {
+    Supplier<? extends Pairs<K>> pairs = link();
+    return StreamSupport.longStream(() -> pairs.get().values(), Spliterator.ORDERED, false)
+        .onClose(closeHandler);
+  }
+
+  /** Returns a {@code BiStream} of the pairs, with the values boxed. */
+  public BiStream<K, Long> boxed() {
+    return BiStream.fromEntries(mapToObj(BiStream::kv));
+  }
+
+  /** Invokes {@code action} on each pair, in encounter order. */
+  public void forEach(ObjLongConsumer<? super K> action) {
+    requireNonNull(action);
+    pairs().forEachRemaining(action);
+  }
+
+  /** Returns the sum of all the values. */
+  public long sum() {
+    long[] sum = new long[1];
+    pairs().forEachRemaining((k, v) -> sum[0] += v);
+    return sum[0];
+  }
+
+  /** Returns the count, sum, min, max and average of the values. */
+  public LongSummaryStatistics summaryStatistics() {
+    LongSummaryStatistics stats = new LongSummaryStatistics();
+    pairs().forEachRemaining((k, v) -> stats.accept(v));
+    return stats;
+  }
+
+  /**
+   * Returns an immutable map from each distinct key to the sum of its values, in encounter order
+   * of the keys. For example, to count the words in a document:
+   *
+   * <pre>{@code
+   * Map<String, Long> wordCounts = ObjLongBiStream.from(words.stream(), w -> w, w -> 1).sumByKey();
+   * }</pre>
+   */
+  public Map<K, Long> sumByKey() {
+    return groupingBy(k -> k, Long::sum);
+  }
+
+  /**
+   * Returns an immutable map from each distinct key to the statistics of its values, in encounter
+   * order of the keys.
+   */
+  public Map<K, LongSummaryStatistics> summarizingByKey() {
+    Map<K, LongSummaryStatistics> groups = new LinkedHashMap<>();
+    pairs().forEachRemaining(
+        (k, v) -> groups.computeIfAbsent(k, x -> new LongSummaryStatistics()).accept(v));
+    return Collections.unmodifiableMap(groups);
+  }
+
+  /**
+   * Groups the pairs by the result of applying {@code classifier} to the keys, and reduces the
+   * values of each group using {@code reducer}. The reduction is done on primitive {@code long}
+   * values. For example, to find the maximum latency per server:
+   *
+   * <pre>{@code
+   * Map<Server, Long> maxLatencies =
+   *     ObjLongBiStream.from(requests.stream(), Request::endpoint, Request::latencyMillis)
+   *         .groupingBy(Endpoint::server, Math::max);
+   * }</pre>
+   *
+   * @return an immutable map, in encounter order of the groups
+   */
+  public <G> Map<G, Long> groupingBy(
+      Function<? super K, ? extends G> classifier, LongBinaryOperator reducer) {
+    requireNonNull(classifier);
+    requireNonNull(reducer);
+    Map<G, long[]> groups = new LinkedHashMap<>();
+    pairs().forEachRemaining((k, v) -> {
+      G group = classifier.apply(k);
+      long[] accumulated = groups.get(group);
+      if (accumulated == null) {
+        groups.put(group, new long[] {v});
+      } else {
+        accumulated[0] = reducer.applyAsLong(accumulated[0], v);
+      }
+    });
+    Map<G, Long> result = new LinkedHashMap<>(groups.size() * 4 / 3 + 1);
+    groups.forEach((g, accumulated) -> result.put(g, accumulated[0]));
+    return Collections.unmodifiableMap(result);
+  }
+
+  /** Closes the source stream. */
+  @Override public void close() {
+    closeHandler.run();
+  }
+
+  /** Returns the supplier of the pairs, after making sure this stream is only used once. */
+  private Supplier<? extends Pairs<K>> link() {
+    if (linked) {
+      throw new IllegalStateException("stream has already been operated upon or closed");
+    }
+    linked = true;
+    return source;
+  }
+
+  private Pairs<K> pairs() {
+    return link().get();
+  }
+
+  private <K2> ObjLongBiStream<K2> then(Function<? super Pairs<K>, ? extends Pairs<K2>> stage) {
+    Supplier<? extends Pairs<K>> upstream = link();
+    return new ObjLongBiStream<>(() -> stage.apply(upstream.get()), closeHandler);
+  }
+
+  /**
+   * A predicate of an object and a {@code long} value.
+   *
+   * @since 8.6
+   */
+  @FunctionalInterface
+  public interface ObjLongPredicate<T> {
+    boolean test(T obj, long value);
+  }
+
+  /**
+   * A function of an object and a {@code long} value.
+   *
+   * @since 8.6
+   */
+  @FunctionalInterface
+  public interface ObjLongFunction<T, R> {
+    R apply(T obj, long value);
+  }
+
+  private abstract static class Pairs<K> {
+    abstract boolean tryAdvance(ObjLongConsumer<? super K> action);
+
+    void forEachRemaining(ObjLongConsumer<? super K> action) {
+      while (tryAdvance(action)) {}
+    }
+
+    final <R> Spliterator<R> mapToObj(ObjLongFunction<? super K, ? extends R> mapper) {
+      return new AbstractSpliterator<R>(Long.MAX_VALUE, Spliterator.ORDERED) {
+        @Override public boolean tryAdvance(Consumer<? super R> action) {
+          return Pairs.this.tryAdvance((k, v) -> action.accept(mapper.apply(k, v)));
+        }
+
+        @Override public void forEachRemaining(Consumer<? super R> action) {
+          Pairs.this.forEachRemaining((k, v) -> action.accept(mapper.apply(k, v)));
+        }
+      };
+    }
+
+    final Spliterator.OfLong values() {
+      return new AbstractLongSpliterator(Long.MAX_VALUE, Spliterator.ORDERED) {
+        @Override public boolean tryAdvance(LongConsumer action) {
+          return Pairs.this.tryAdvance((k, v) -> action.accept(v));
+        }
+
+        @Override public void forEachRemaining(LongConsumer action) {
+          Pairs.this.forEachRemaining((k, v) -> action.accept(v));
+        }
+      };
+    }
+  }
+
+  private abstract static class Stage<K0, K> extends Pairs<K> {
+    private final Pairs<K0> upstream;
+    private boolean emitted;
+
+    Stage(Pairs<K0> upstream) {
+      this.upstream = upstream;
+    }
+
+    /** Passes on the pair derived from {@code (key, value)}, if any, to {@code action}. */
+    abstract boolean emit(K0 key, long value, ObjLongConsumer<? super K> action);
+
+    @Override final boolean tryAdvance(ObjLongConsumer<? super K> action) {
+      ObjLongConsumer<K0> step = (k, v) -> emitted = emit(k, v, action);
+      emitted = false;
+      while (upstream.tryAdvance(step)) {
+        if (emitted) return true;
+      }
+      return false;
+    }
+
+    @Override final void forEachRemaining(ObjLongConsumer<? super K> action) {
+      upstream.forEachRemaining((k, v) -> emit(k, v, action));
+    }
+  }
+}
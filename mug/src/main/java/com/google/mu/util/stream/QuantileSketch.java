@@ -0,0 +1,250 @@
+/*****************************************************************************
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package com.google.mu.util.stream;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.ToDoubleFunction;
+import java.util.stream.Collector;
+
+/**
+ * A <a href="https://arxiv.org/abs/1603.05346">KLL</a> sketch that estimates the quantiles (such
+ * as the median or the 99th percentile) of a stream of {@code double} values, retaining only
+ * {@code O(k)} of them. For example:
+ *
+ * <pre>{@code
+ * QuantileSketch latencies =
+ *     requests.stream().collect(QuantileSketch.toQuantileSketch(Request::latencyMillis));
+ * double p99 = latencies.quantile(0.99);
+ * }</pre>
+ *
+ * <p>The sketch is randomized. With the default {@code k} of 200, the rank of the returned value
+ * is typically within 1% to 2% of the requested rank. Larger {@code k} is more accurate and uses
+ * proportionally more memory.
+ *
+ * <p>Sketches can be {@link #merge merged}, for example to combine the partial results of
+ * different workers. The sketch is serializable for that purpose.
+ *
+ * <p>Instances are not thread safe.
+ *
+ * @since 8.6
+ */
+public final class QuantileSketch implements Serializable {
+  private static final long serialVersionUID = 1L;
+  private static final int DEFAULT_K = 200;
+
+  private final int k;
+
+  /** The compactors. Values at level {@code h} each represent {@code 2^h} input values. */
+  private double[][] levels = {new double[8]};
+  private int[] sizes = {0};
+  private int retained;
+  private int totalCapacity;
+  private long count;
+  private double min = Double.NaN;
+  private double max = Double.NaN;
+
+  private QuantileSketch(int k) {
+    this.k = checkK(k);
+    this.totalCapacity = k;
+  }
+
+  /** Returns an empty sketch with the default {@code k} of 200. */
+  public static QuantileSketch create() {
+    return new QuantileSketch(DEFAULT_K);
+  }
+
+  /**
+   * Returns an empty sketch that uses {@code k} to control accuracy and memory.
+   *
+   * @throws IllegalArgumentException if {@code k} is less than 8
+   */
+  public static QuantileSketch create(int k) {
+    return new QuantileSketch(k);
+  }
+
+  /**
+   * Returns a collector that adds the values mapped from the input elements by {@code toValue}
+   * into a sketch with the default {@code k} of 200.
+   */
+  public static <T> Collector<T, ?, QuantileSketch> toQuantileSketch(
+      ToDoubleFunction<? super T> toValue) {
+    return toQuantileSketch(DEFAULT_K, toValue);
+  }
+
+  /**
+   * Returns a collector that adds the values mapped from the input elements by {@code toValue}
+   * into a sketch that uses {@code k} to control accuracy and memory.
+   *
+   * @throws IllegalArgumentException if {@code k} is less than 8
+   */
+  public static <T> Collector<T, ?, QuantileSketch> toQuantileSketch(
+      int k, ToDoubleFunction<? super T> toValue) {
+    requireNonNull(toValue);
+    checkK(k);
+    return Collector.of(
+        () -> new QuantileSketch(k),
+        (sketch, e) -> sketch.add(toValue.applyAsDouble(e)),
+        QuantileSketch::merge,
+        Collector.Characteristics.UNORDERED);
+  }
+
+  /**
+   * Adds {@code value} to this sketch.
+   *
+   * @throws IllegalArgumentException if {@code value} is NaN
+   */
+  public void add(double value) {
+    if (Double.isNaN(value)) throw new IllegalArgumentException("NaN");
+    append(0, value);
+    min = count == 0 ? value : Math.min(min, value);
+    max = count == 0 ? value : Math.max(max, value);
+    count++;
+    compress();
+  }
+
+  /** Adds all values of {@code that} sketch to this sketch, and returns this sketch. */
+  public QuantileSketch merge(QuantileSketch that) {
+    if (that.count == 0) return this;
+    for (int h = 0; h < that.levels.length; h++) {
+      for (int i = 0; i < that.sizes[h]; i++) {
+        append(h, that.levels[h][i]);
+      }
+    }
+    min = count == 0 ? that.min : Math.min(min, that.min);
+    max = count == 0 ? that.max : Math.max(max, that.max);
+    count += that.count;
+    compress();
+    return this;
+  }
+
+  /**
+   * Returns the estimated {@code q}-quantile of the values added to this sketch. For example
+   * {@code quantile(0.5)} is the median, and {@code quantile(0.99)} is the 99th percentile.
+   * {@code quantile(0)} and {@code quantile(1)} are exactly the minimum and maximum.
+   *
+   * @return NaN if the sketch is empty
+   * @throws IllegalArgumentException if {@code q} isn't in the range of {@code [0, 1]}
+   */
+  public double quantile(double q) {
+    if (!(q >= 0 && q <= 1)) throw new IllegalArgumentException("q = " + q);
+    if (count == 0) return Double.NaN;
+    if (q == 0) return min;
+    if (q == 1) return max;
+    double[] values = new double[0];
+    long[] weights = new long[0];
+    for (int h = 0; h < levels.length; h++) {
+      double[] level = Arrays.copyOf(levels[h], sizes[h]);
+      Arrays.sort(level);
+      double[] mergedValues = new double[values.length + level.length];
+      long[] mergedWeights = new long[mergedValues.length];
+      for (int i = 0, j = 0, m = 0; m < mergedValues.length; m++) {
+        if (j >= level.length || (i < values.length && values[i] <= level[j])) {
+          mergedValues[m] = values[i];
+          mergedWeights[m] = weights[i++];
+        } else {
+          mergedValues[m] = level[j++];
+          mergedWeights[m] = 1L << h;
+        }
+      }
+      values = mergedValues;
+      weights = mergedWeights;
+    }
+    double rank = q * count;
+    long cumulative = 0;
+    for (int i = 0; i < values.length; i++) {
+      cumulative += weights[i];
+      if (cumulative >= rank) return values[i];
+    }
+    return max;
+  }
+
+  /** Returns the number of values added to this sketch. */
+  public long count() {
+    return count;
+  }
+
+  /** Returns the minimum value added to this sketch, or NaN if the sketch is empty. */
+  public double min() {
+    return min;
+  }
+
+  /** Returns the maximum value added to this sketch, or NaN if the sketch is empty. */
+  public double max() {
+    return max;
+  }
+
+  @Override public String toString() {
+    return "QuantileSketch(count = " + count + ", min = " + min + ", max = " + max + ")";
+  }
+
+  private void append(int level, double value) {
+    if (level == levels.length) {
+      levels = Arrays.copyOf(levels, level + 1);
+      levels[level] = new double[8];
+      sizes = Arrays.copyOf(sizes, level + 1);
+      totalCapacity = 0;
+      for (int h = 0; h < levels.length; h++) {
+        totalCapacity += capacity(h);
+      }
+    }
+    if (sizes[level] == levels[level].length) {
+      levels[level] = Arrays.copyOf(levels[level], sizes[level] * 2);
+    }
+    levels[level][sizes[level]++] = value;
+    retained++;
+  }
+
+  /** Compacts the lowest full levels until the total size is within capacity. */
+  private void compress() {
+    while (retained > totalCapacity) {
+      for (int h = 0; h < levels.length; h++) {
+        if (sizes[h] >= capacity(h)) {
+          compact(h);
+          break;
+        }
+      }
+    }
+  }
+
+  /**
+   * Sorts the values at {@code level} and promotes every other one, starting from a random offset,
+   * to the next level with double weight. An odd one out stays.
+   */
+  private void compact(int level) {
+    double[] values = levels[level];
+    int size = sizes[level];
+    Arrays.sort(values, 0, size);
+    int start = size % 2 + (ThreadLocalRandom.current().nextBoolean() ? 1 : 0);
+    for (int i = start; i < size; i += 2) {
+      append(level + 1, values[i]);
+    }
+    retained -= size - size % 2;
+    sizes[level] = size % 2;
+  }
+
+  private int capacity(int level) {
+    int depth = levels.length - 1 - level;
+    return Math.max(2, (int) Math.ceil(k * Math.pow(2.0 / 3, depth)));
+  }
+
+  private static int checkK(int k) {
+    if (k < 8) throw new IllegalArgumentException("k = " + k);
+    return k;
+  }
+}
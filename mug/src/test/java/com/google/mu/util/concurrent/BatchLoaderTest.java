@@ -0,0 +1,220 @@
+/*****************************************************************************
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package com.google.mu.util.concurrent;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.mu.util.concurrent.FutureAssertions.assertAfterCompleted;
+import static com.google.mu.util.concurrent.FutureAssertions.assertCauseOf;
+import static com.google.mu.util.concurrent.FutureAssertions.assertPending;
+import static java.util.Arrays.asList;
+import static java.util.stream.Collectors.toList;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.function.Function;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import com.google.common.testing.NullPointerTester;
+
+@RunWith(JUnit4.class)
+public class BatchLoaderTest {
+  private final ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(2);
+  private final ConcurrentLinkedQueue<List<Integer>> sent = new ConcurrentLinkedQueue<>();
+
+  @After public void shutDownExecutor() {
+    executor.shutdownNow();
+  }
+
+  @Test public void invalidParameters() {
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> new BatchLoader<>(this::spell, 0, Duration.ofMillis(1), executor));
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> new BatchLoader<>(this::spell, 1, Duration.ofMillis(-1), executor));
+  }
+
+  @Test public void testNulls() {
+    new NullPointerTester()
+        .testAllPublicInstanceMethods(
+            new BatchLoader<>(this::spell, 10, Duration.ofMillis(1), executor));
+  }
+
+  @Test public void dispatchedWhenBatchIsFull() throws Exception {
+    BatchLoader<Integer, String> loader =
+        new BatchLoader<>(this::spell, 2, Duration.ofHours(1), executor);
+    CompletionStage<String> one = loader.load(1);
+    assertPending(one);
+    CompletionStage<String> two = loader.load(2);
+    assertAfterCompleted(one).isEqualTo("one");
+    assertAfterCompleted(two).isEqualTo("two");
+    assertThat(sent).containsExactly(asList(1, 2));
+  }
+
+  @Test public void dispatchedAfterMaxDelay() throws Exception {
+    BatchLoader<Integer, String> loader =
+        new BatchLoader<>(this::spell, 100, Duration.ofMillis(10), executor);
+    CompletionStage<String> one = loader.load(1);
+    CompletionStage<String> two = loader.load(2);
+    assertAfterCompleted(one).isEqualTo("one");
+    assertAfterCompleted(two).isEqualTo("two");
+    assertThat(sent).containsExactly(asList(1, 2));
+  }
+
+  @Test public void flush() throws Exception {
+    BatchLoader<Integer, String> loader =
+        new BatchLoader<>(this::spell, 100, Duration.ofHours(1), executor);
+    CompletionStage<String> one = loader.load(1);
+    loader.flush();
+    assertAfterCompleted(one).isEqualTo("one");
+    CompletionStage<String> three = loader.load(3);
+    loader.flush();
+    assertAfterCompleted(three).isEqualTo("three");
+    assertThat(sent).containsExactly(asList(1), asList(3)).inOrder();
+  }
+
+  @Test public void flush_nothingPending() {
+    BatchLoader<Integer, String> loader =
+        new BatchLoader<>(this::spell, 100, Duration.ofHours(1), executor);
+    loader.flush();
+    assertThat(sent).isEmpty();
+  }
+
+  @Test public void dispatchedWhenBatchIsFull_delayedDispatchCanceled() throws Exception {
+    executor.setRemoveOnCancelPolicy(true);
+    BatchLoader<Integer, String> loader =
+        new BatchLoader<>(this::spell, 2, Duration.ofHours(1), executor);
+    CompletionStage<String> one = loader.load(1);
+    assertThat(executor.getQueue()).hasSize(1);
+    loader.load(2);
+    assertAfterCompleted(one).isEqualTo("one");
+    assertThat(executor.getQueue()).isEmpty();
+  }
+
+  @Test public void flush_delayedDispatchCanceled() throws Exception {
+    executor.setRemoveOnCancelPolicy(true);
+    BatchLoader<Integer, String> loader =
+        new BatchLoader<>(this::spell, 100, Duration.ofHours(1), executor);
+    CompletionStage<String> one = loader.load(1);
+    loader.flush();
+    assertAfterCompleted(one).isEqualTo("one");
+    assertThat(executor.getQueue()).isEmpty();
+  }
+
+  @Test public void delayedDispatchRejected_loadFails() {
+    executor.shutdown();
+    BatchLoader<Integer, String> loader =
+        new BatchLoader<>(this::spell, 100, Duration.ofHours(1), executor);
+    assertCauseOf(ExecutionException.class, loader.load(1))
+        .isInstanceOf(RejectedExecutionException.class);
+    assertThat(sent).isEmpty();
+  }
+
+  @Test public void batchCallRejected_allCallersFail() {
+    ScheduledThreadPoolExecutor rejecting = new ScheduledThreadPoolExecutor(1) {
+      @Override public void execute(Runnable task) {
+        throw new RejectedExecutionException();
+      }
+    };
+    try {
+      BatchLoader<Integer, String> loader =
+          new BatchLoader<>(this::spell, 2, Duration.ofHours(1), rejecting);
+      CompletionStage<String> one = loader.load(1);
+      CompletionStage<String> two = loader.load(2);
+      assertCauseOf(ExecutionException.class, one).isInstanceOf(RejectedExecutionException.class);
+      assertCauseOf(ExecutionException.class, two).isInstanceOf(RejectedExecutionException.class);
+    } finally {
+      rejecting.shutdownNow();
+    }
+  }
+
+  @Test public void duplicateKeysDeduplicated() throws Exception {
+    BatchLoader<Integer, String> loader =
+        new BatchLoader<>(this::spell, 3, Duration.ofHours(1), executor);
+    CompletionStage<String> one = loader.load(1);
+    CompletionStage<String> oneAgain = loader.load(1);
+    CompletionStage<String> two = loader.load(2);
+    loader.load(3);
+    assertAfterCompleted(one).isEqualTo("one");
+    assertAfterCompleted(oneAgain).isEqualTo("one");
+    assertAfterCompleted(two).isEqualTo("two");
+    assertThat(sent).containsExactly(asList(1, 2, 3));
+  }
+
+  @Test public void cancelingOneCallerDoesNotAffectOthers() throws Exception {
+    BatchLoader<Integer, String> loader =
+        new BatchLoader<>(this::spell, 100, Duration.ofHours(1), executor);
+    CompletionStage<String> one = loader.load(1);
+    CompletionStage<String> oneAgain = loader.load(1);
+    one.toCompletableFuture().cancel(true);
+    loader.flush();
+    assertAfterCompleted(oneAgain).isEqualTo("one");
+  }
+
+  @Test public void batchFunctionThrows_allCallersFail() {
+    IllegalStateException error = new IllegalStateException("test");
+    Function<List<Integer>, List<String>> failing = keys -> {
+      throw error;
+    };
+    BatchLoader<Integer, String> loader =
+        new BatchLoader<>(failing, 2, Duration.ofHours(1), executor);
+    CompletionStage<String> one = loader.load(1);
+    CompletionStage<String> two = loader.load(2);
+    assertCauseOf(ExecutionException.class, one).isSameInstanceAs(error);
+    assertCauseOf(ExecutionException.class, two).isSameInstanceAs(error);
+  }
+
+  @Test public void batchFunctionReturnsWrongSize_allCallersFail() {
+    BatchLoader<Integer, String> loader =
+        new BatchLoader<>(keys -> asList("one"), 2, Duration.ofHours(1), executor);
+    CompletionStage<String> one = loader.load(1);
+    CompletionStage<String> two = loader.load(2);
+    assertCauseOf(ExecutionException.class, one).isInstanceOf(IllegalStateException.class);
+    assertCauseOf(ExecutionException.class, two).isInstanceOf(IllegalStateException.class);
+  }
+
+  @Test public void concurrentLoads() throws Exception {
+    BatchLoader<Integer, String> loader =
+        new BatchLoader<>(this::spell, 3, Duration.ofMillis(10), executor);
+    List<CompletionStage<String>> results =
+        asList(1, 2, 3, 4, 5, 6).stream()
+            .collect(Fanout.withMaxConcurrency(6).inParallel(loader::load))
+            .values()
+            .collect(toList());
+    for (int i = 0; i < results.size(); i++) {
+      assertAfterCompleted(results.get(i)).isEqualTo(NAMES.get(i + 1));
+    }
+    assertThat(sent.stream().mapToInt(List::size).sum()).isEqualTo(6);
+    sent.forEach(batch -> assertThat(batch.size()).isAtMost(3));
+  }
+
+  private static final List<String> NAMES =
+      asList("zero", "one", "two", "three", "four", "five", "six");
+
+  private List<String> spell(List<Integer> numbers) {
+    sent.add(numbers);
+    return numbers.stream().map(NAMES::get).collect(toList());
+  }
+}
@@ -0,0 +1,218 @@
+/*****************************************************************************
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package com.google.mu.util.concurrent;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.mu.util.concurrent.FutureAssertions.assertCauseOf;
+import static java.util.Arrays.asList;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import com.google.mu.util.concurrent.CircuitBreaker.State;
+import com.google.mu.util.concurrent.Retryer.Delay;
+
+@RunWith(JUnit4.class)
+public class CircuitBreakerTest {
+  private final FakeClock clock = new FakeClock();
+  private final CircuitBreaker breaker =
+      new CircuitBreaker(4, 0.5, Duration.ofSeconds(10), clock);
+
+  @Test public void invalidParameters() {
+    assertThrows(
+        IllegalArgumentException.class, () -> new CircuitBreaker(0, 0.5, Duration.ofSeconds(1)));
+    assertThrows(
+        IllegalArgumentException.class, () -> new CircuitBreaker(1, 0, Duration.ofSeconds(1)));
+    assertThrows(
+        IllegalArgumentException.class, () -> new CircuitBreaker(1, 1.1, Duration.ofSeconds(1)));
+    assertThrows(
+        IllegalArgumentException.class, () -> new CircuitBreaker(1, Double.NaN, Duration.ZERO));
+    assertThrows(
+        IllegalArgumentException.class, () -> new CircuitBreaker(1, 0.5, Duration.ofSeconds(-1)));
+  }
+
+  @Test public void initiallyClosed() {
+    assertThat(breaker.state()).isEqualTo(State.CLOSED);
+    assertThat(breaker.call(() -> "ok")).isEqualTo("ok");
+    assertThat(breaker.state()).isEqualTo(State.CLOSED);
+  }
+
+  @Test public void failuresBelowThreshold_staysClosed() {
+    succeed(2);
+    fail(1);
+    succeed(5);
+    assertThat(breaker.state()).isEqualTo(State.CLOSED);
+  }
+
+  @Test public void windowNotFull_staysClosed() {
+    fail(3);
+    assertThat(breaker.state()).isEqualTo(State.CLOSED);
+  }
+
+  @Test public void failureRateReachesThreshold_opens() {
+    succeed(2);
+    fail(2);
+    assertThat(breaker.state()).isEqualTo(State.OPEN);
+  }
+
+  @Test public void slidingWindow_evictsOldFailures() {
+    fail(1);
+    succeed(3);
+    succeed(1);  // evicts the failure
+    fail(1);
+    assertThat(breaker.state()).isEqualTo(State.CLOSED);
+    fail(1);
+    assertThat(breaker.state()).isEqualTo(State.OPEN);
+  }
+
+  @Test public void open_rejectsCallsWithoutInvoking() {
+    fail(4);
+    AtomicInteger invocations = new AtomicInteger();
+    assertThrows(
+        CircuitBreakerOpenException.class, () -> breaker.call(invocations::incrementAndGet));
+    assertThat(invocations.get()).isEqualTo(0);
+  }
+
+  @Test public void open_callAsyncRejected() throws Exception {
+    fail(4);
+    AtomicInteger invocations = new AtomicInteger();
+    CompletionStage<Integer> stage =
+        breaker.callAsync(
+            () -> CompletableFuture.completedFuture(invocations.incrementAndGet()));
+    assertCauseOf(ExecutionException.class, stage).isInstanceOf(CircuitBreakerOpenException.class);
+    assertThat(invocations.get()).isEqualTo(0);
+  }
+
+  @Test public void coolDownElapsed_trialSuccessCloses() {
+    fail(4);
+    clock.elapse(Duration.ofSeconds(9));
+    assertThrows(CircuitBreakerOpenException.class, () -> breaker.call(() -> "ok"));
+    clock.elapse(Duration.ofSeconds(1));
+    assertThat(breaker.call(() -> "ok")).isEqualTo("ok");
+    assertThat(breaker.state()).isEqualTo(State.CLOSED);
+    fail(3);
+    assertThat(breaker.state()).isEqualTo(State.CLOSED);
+  }
+
+  @Test public void coolDownElapsed_trialFailureReopens() {
+    fail(4);
+    clock.elapse(Duration.ofSeconds(10));
+    fail(1);
+    assertThat(breaker.state()).isEqualTo(State.OPEN);
+    clock.elapse(Duration.ofSeconds(9));
+    assertThrows(CircuitBreakerOpenException.class, () -> breaker.call(() -> "ok"));
+    clock.elapse(Duration.ofSeconds(1));
+    assertThat(breaker.call(() -> "ok")).isEqualTo("ok");
+    assertThat(breaker.state()).isEqualTo(State.CLOSED);
+  }
+
+  @Test public void halfOpen_rejectsConcurrentCalls() {
+    fail(4);
+    clock.elapse(Duration.ofSeconds(10));
+    String result = breaker.call(() -> {
+      assertThat(breaker.state()).isEqualTo(State.HALF_OPEN);
+      assertThrows(CircuitBreakerOpenException.class, () -> breaker.call(() -> "concurrent"));
+      return "trial";
+    });
+    assertThat(result).isEqualTo("trial");
+    assertThat(breaker.state()).isEqualTo(State.CLOSED);
+  }
+
+  @Test public void halfOpen_asyncTrialRecordedUponCompletion() {
+    fail(4);
+    clock.elapse(Duration.ofSeconds(10));
+    CompletableFuture<String> trial = new CompletableFuture<>();
+    assertThat(breaker.callAsync(() -> trial)).isSameInstanceAs(trial);
+    assertThat(breaker.state()).isEqualTo(State.HALF_OPEN);
+    trial.completeExceptionally(new IOException());
+    assertThat(breaker.state()).isEqualTo(State.OPEN);
+  }
+
+  @Test public void guard_emptyWhileOpen() {
+    List<Delay<?>> delays = breaker.guard(asList(Delay.ofMillis(1), Delay.ofMillis(2)));
+    assertThat(delays).hasSize(2);
+    fail(4);
+    assertThat(delays).isEmpty();
+    assertThrows(IndexOutOfBoundsException.class, () -> delays.get(0));
+    clock.elapse(Duration.ofSeconds(10));
+    assertThat(delays).hasSize(2);
+  }
+
+  @Test public void retryer_stopsRetryingOnceOpen() throws Exception {
+    AtomicInteger invocations = new AtomicInteger();
+    IOException error = new IOException("bad");
+    Retryer retryer = new Retryer()
+        .upon(IOException.class, breaker.guard(Delay.ofMillis(0).exponentialBackoff(1, 100)));
+    IOException thrown = assertThrows(
+        IOException.class,
+        () -> retryer.retryBlockingly(() -> breaker.call(() -> {
+          invocations.incrementAndGet();
+          throw error;
+        })));
+    assertThat(thrown).isSameInstanceAs(error);
+    assertThat(invocations.get()).isEqualTo(4);
+    assertThat(breaker.state()).isEqualTo(State.OPEN);
+  }
+
+  @Test public void testToString() {
+    assertThat(breaker.toString()).isEqualTo("CircuitBreaker(CLOSED)");
+  }
+
+  private void succeed(int times) {
+    for (int i = 0; i < times; i++) {
+      breaker.call(() -> "ok");
+    }
+  }
+
+  private void fail(int times) {
+    for (int i = 0; i < times; i++) {
+      assertThrows(IOException.class, () -> breaker.call(() -> {throw new IOException();}));
+    }
+  }
+
+  private static final class FakeClock extends Clock {
+    private Instant now = Instant.ofEpochMilli(123456789L);
+
+    @Override public Instant instant() {
+      return now;
+    }
+
+    @Override public ZoneId getZone() {
+      return ZoneOffset.UTC;
+    }
+
+    @Override public Clock withZone(ZoneId zone) {
+      throw new UnsupportedOperationException();
+    }
+
+    void elapse(Duration duration) {
+      now = now.plus(duration);
+    }
+  }
+}
@@ -0,0 +1,171 @@
+/*****************************************************************************
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package com.google.mu.util.concurrent;
+
+import static com.google.common.truth.Truth.assertThat;
+import static java.util.Arrays.asList;
+import static java.util.stream.Collectors.toList;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.IntStream;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import com.google.common.testing.NullPointerTester;
+
+@RunWith(JUnit4.class)
+public class ConcurrentFunnelTest {
+  private final ConcurrentLinkedQueue<List<?>> sent = new ConcurrentLinkedQueue<>();
+  private final ConcurrentFunnel<String> funnel =
+      new ConcurrentFunnel<>(Fanout.withMaxConcurrency(3), 2);
+
+  @Test public void invalidMaxBatchSize() {
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> new ConcurrentFunnel<>(Fanout.withMaxConcurrency(1), 0));
+  }
+
+  @Test public void testNulls() {
+    new NullPointerTester().testAllPublicInstanceMethods(funnel);
+    new NullPointerTester().testAllPublicInstanceMethods(funnel.through(this::spell));
+  }
+
+  @Test public void emptyFunnel() {
+    assertThat(funnel.run()).isEmpty();
+  }
+
+  @Test public void passthroughOnly() {
+    funnel.add("hello");
+    funnel.add("world");
+    assertThat(funnel.run()).containsExactly("hello", "world").inOrder();
+  }
+
+  @Test public void batchFunctionNotCalledIfNothingAdded() {
+    funnel.through(this::spell);
+    assertThat(funnel.run()).isEmpty();
+    assertThat(sent).isEmpty();
+  }
+
+  @Test public void batchWithinMaxBatchSize() {
+    ConcurrentFunnel.Batch<Integer, String> toSpell = funnel.through(this::spell);
+    toSpell.accept(1);
+    toSpell.accept(2);
+    assertThat(funnel.run()).containsExactly("one", "two").inOrder();
+    assertThat(sent).containsExactly(asList(1, 2));
+  }
+
+  @Test public void oversizedBatchIsSplit() {
+    ConcurrentFunnel.Batch<Integer, String> toSpell = funnel.through(this::spell);
+    for (int i = 1; i <= 5; i++) {
+      toSpell.accept(i);
+    }
+    assertThat(funnel.run()).containsExactly("one", "two", "three", "four", "five").inOrder();
+    assertThat(sent).containsExactly(asList(1, 2), asList(3, 4), asList(5));
+  }
+
+  @Test public void interleavedButRespectsOrder() {
+    ConcurrentFunnel.Batch<Integer, String> toSpell = funnel.through(this::spell);
+    ConcurrentFunnel.Batch<String, String> toLowerCase = funnel.through(this::lowerCase);
+    funnel.add("zero");
+    toSpell.accept(1);
+    funnel.add("two");
+    toLowerCase.accept("THREE");
+    toSpell.accept(4);
+    toSpell.accept(5);
+    assertThat(funnel.run())
+        .containsExactly("zero", "one", "two", "three", "four", "five")
+        .inOrder();
+    assertThat(sent).containsExactly(asList(1, 4), asList(5), asList("THREE"));
+  }
+
+  @Test public void batchesRunConcurrently() throws Exception {
+    CountDownLatch allStarted = new CountDownLatch(3);
+    ConcurrentFunnel.Batch<Integer, String> toSpell = funnel.through(numbers -> {
+      allStarted.countDown();
+      try {
+        // Deadlocks unless all 3 batches are running at the same time.
+        assertThat(allStarted.await(10, TimeUnit.SECONDS)).isTrue();
+      } catch (InterruptedException e) {
+        throw new AssertionError(e);
+      }
+      return spell(numbers);
+    });
+    IntStream.rangeClosed(1, 6).forEach(toSpell::accept);
+    assertThat(funnel.run())
+        .containsExactly("one", "two", "three", "four", "five", "six")
+        .inOrder();
+  }
+
+  @Test public void postConversionAppliedInCallingThread() {
+    Thread caller = Thread.currentThread();
+    AtomicReference<Thread> postConversionThread = new AtomicReference<>();
+    ConcurrentFunnel.Batch<Integer, String> toSpell = funnel.through(this::spell);
+    toSpell.accept(1, s -> {
+      postConversionThread.set(Thread.currentThread());
+      return s + s;
+    });
+    toSpell.accept(2);
+    assertThat(funnel.run()).containsExactly("oneone", "two").inOrder();
+    assertThat(postConversionThread.get()).isSameInstanceAs(caller);
+  }
+
+  @Test public void aftereffectApplied() {
+    List<String> spelled = new ArrayList<>();
+    ConcurrentFunnel.Batch<Integer, String> toSpell = funnel.through(this::spell);
+    toSpell.acceptAndThen(1, spelled::add);
+    toSpell.accept(2);
+    toSpell.acceptAndThen(3, s -> spelled.add(s));
+    assertThat(funnel.run()).containsExactly("one", "two", "three").inOrder();
+    assertThat(spelled).containsExactly("one", "three").inOrder();
+  }
+
+  @Test public void batchReturnsLessThanInput() {
+    ConcurrentFunnel.Batch<Integer, String> toSpell =
+        funnel.through(numbers -> spell(numbers).subList(0, 1));
+    toSpell.accept(1);
+    toSpell.accept(2);
+    RuntimeException thrown = assertThrows(RuntimeException.class, funnel::run);
+    assertThat(thrown).hasCauseThat().isInstanceOf(IllegalStateException.class);
+  }
+
+  @Test public void batchThrows() {
+    IllegalArgumentException error = new IllegalArgumentException("test");
+    ConcurrentFunnel.Batch<Integer, String> toSpell = funnel.through(numbers -> {
+      throw error;
+    });
+    toSpell.accept(1);
+    RuntimeException thrown = assertThrows(RuntimeException.class, funnel::run);
+    assertThat(thrown).hasCauseThat().isSameInstanceAs(error);
+  }
+
+  private List<String> spell(List<Integer> numbers) {
+    sent.add(numbers);
+    List<String> names = asList("zero", "one", "two", "three", "four", "five", "six");
+    return numbers.stream().map(names::get).collect(toList());
+  }
+
+  private List<String> lowerCase(List<String> strings) {
+    sent.add(strings);
+    return strings.stream().map(String::toLowerCase).collect(toList());
+  }
+}
@@ -116,6 +116,29 @@ public final class FanoutTest {
     assertThat(interruptionPropagated.get()).isTrue();
   }
 
+  @Test
+  public void concurrently_tasksDismissedBeforeRunning_doesNotHang() throws Exception {
+    AtomicBoolean ran = new AtomicBoolean();
+    AtomicBoolean interrupted = new AtomicBoolean();
+    Thread thread =
+        new Thread(
+            () -> {
+              // Interrupted before the first task is submitted, so no task ever runs.
+              Thread.currentThread().interrupt();
+              try {
+                concurrently(() -> ran.set(true), () -> ran.set(true));
+              } catch (StructuredConcurrencyInterruptedException e) {
+                interrupted.set(true);
+              }
+            });
+    thread.setDaemon(true);
+    thread.start();
+    thread.join(10_000);
+    assertThat(thread.isAlive()).isFalse();
+    assertThat(interrupted.get()).isTrue();
+    assertThat(ran.get()).isFalse();
+  }
+
   @Test
   public void concurrently_twoTasks() {
     String[] results = new String[2];
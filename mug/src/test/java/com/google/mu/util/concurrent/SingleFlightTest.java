@@ -0,0 +1,198 @@
+/*****************************************************************************
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package com.google.mu.util.concurrent;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.mu.util.concurrent.FutureAssertions.assertCauseOf;
+import static com.google.mu.util.concurrent.FutureAssertions.assertCompleted;
+import static com.google.mu.util.concurrent.FutureAssertions.assertPending;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import com.google.common.testing.NullPointerTester;
+
+@RunWith(JUnit4.class)
+public class SingleFlightTest {
+  private final SingleFlight<String, String> singleFlight = new SingleFlight<>();
+  private final AtomicInteger loads = new AtomicInteger();
+
+  @After public void clearInterruption() {
+    Thread.interrupted();
+  }
+
+  @Test public void load_noContention() {
+    assertThat(singleFlight.load("k", k -> k + loads.incrementAndGet())).isEqualTo("k1");
+    assertThat(singleFlight.load("k", k -> k + loads.incrementAndGet())).isEqualTo("k2");
+    assertThat(singleFlight.isInFlight("k")).isFalse();
+  }
+
+  @Test public void load_concurrentCallersShareResult() throws Exception {
+    CountDownLatch loading = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    AtomicReference<String> leaderResult = new AtomicReference<>();
+    Thread leader = new Thread(() -> leaderResult.set(singleFlight.load("k", k -> {
+      loading.countDown();
+      awaitUninterruptibly(release);
+      return k + loads.incrementAndGet();
+    })));
+    leader.start();
+    loading.await();
+    assertThat(singleFlight.isInFlight("k")).isTrue();
+    AtomicReference<String> followerResult = new AtomicReference<>();
+    Thread follower = new Thread(
+        () -> followerResult.set(singleFlight.load("k", k -> k + loads.incrementAndGet())));
+    follower.start();
+    release.countDown();
+    leader.join();
+    follower.join();
+    assertThat(leaderResult.get()).isEqualTo("k1");
+    // The follower either shared the in-flight call, or came after it had completed.
+    assertThat(followerResult.get()).isAnyOf("k1", "k2");
+    assertThat(singleFlight.isInFlight("k")).isFalse();
+  }
+
+  @Test public void load_followerSharesInFlightCall() throws Exception {
+    CompletableFuture<String> inFlight = new CompletableFuture<>();
+    singleFlight.loadAsync("k", k -> inFlight);
+    AtomicReference<String> result = new AtomicReference<>();
+    Thread follower = new Thread(
+        () -> result.set(singleFlight.load("k", k -> k + loads.incrementAndGet())));
+    follower.start();
+    awaitWaiting(follower);
+    inFlight.complete("shared");
+    follower.join();
+    assertThat(result.get()).isEqualTo("shared");
+    assertThat(loads.get()).isEqualTo(0);
+  }
+
+  @Test public void load_differentKeysNotShared() {
+    CompletableFuture<String> inFlight = new CompletableFuture<>();
+    singleFlight.loadAsync("a", k -> inFlight);
+    assertThat(singleFlight.load("b", k -> k + loads.incrementAndGet())).isEqualTo("b1");
+    assertThat(singleFlight.isInFlight("a")).isTrue();
+  }
+
+  @Test public void load_leaderSeesOriginalException() {
+    IllegalStateException error = new IllegalStateException("test");
+    IllegalStateException thrown = assertThrows(
+        IllegalStateException.class, () -> singleFlight.load("k", k -> {throw error;}));
+    assertThat(thrown).isSameInstanceAs(error);
+    assertThat(singleFlight.isInFlight("k")).isFalse();
+    assertThat(singleFlight.load("k", k -> "recovered")).isEqualTo("recovered");
+  }
+
+  @Test public void load_followerSeesWrappedException() throws Exception {
+    CompletableFuture<String> inFlight = new CompletableFuture<>();
+    singleFlight.loadAsync("k", k -> inFlight);
+    AtomicReference<Throwable> thrown = new AtomicReference<>();
+    Thread follower = new Thread(() -> {
+      try {
+        singleFlight.load("k", k -> "should not load");
+      } catch (Throwable e) {
+        thrown.set(e);
+      }
+    });
+    follower.start();
+    awaitWaiting(follower);
+    IllegalStateException error = new IllegalStateException("test");
+    inFlight.completeExceptionally(error);
+    follower.join();
+    assertThat(thrown.get()).isInstanceOf(RuntimeException.class);
+    assertThat(thrown.get()).hasCauseThat().isSameInstanceAs(error);
+  }
+
+  @Test public void load_followerInterrupted() {
+    CompletableFuture<String> inFlight = new CompletableFuture<>();
+    singleFlight.loadAsync("k", k -> inFlight);
+    Thread.currentThread().interrupt();
+    assertThrows(
+        StructuredConcurrencyInterruptedException.class,
+        () -> singleFlight.load("k", k -> "should not load"));
+    assertThat(Thread.currentThread().isInterrupted()).isTrue();
+    assertThat(singleFlight.isInFlight("k")).isTrue();
+    inFlight.complete("done");
+    assertThat(singleFlight.isInFlight("k")).isFalse();
+  }
+
+  @Test public void loadAsync_concurrentCallersShareStage() throws Exception {
+    CompletableFuture<String> inFlight = new CompletableFuture<>();
+    CompletionStage<String> first = singleFlight.loadAsync("k", k -> inFlight);
+    CompletionStage<String> second =
+        singleFlight.loadAsync("k", k -> CompletableFuture.completedFuture("should not load"));
+    assertPending(first);
+    assertPending(second);
+    inFlight.complete("shared");
+    assertCompleted(first).isEqualTo("shared");
+    assertCompleted(second).isEqualTo("shared");
+    assertThat(singleFlight.isInFlight("k")).isFalse();
+  }
+
+  @Test public void loadAsync_failurePropagatedToAllCallers() throws Exception {
+    CompletableFuture<String> inFlight = new CompletableFuture<>();
+    CompletionStage<String> first = singleFlight.loadAsync("k", k -> inFlight);
+    CompletionStage<String> second = singleFlight.loadAsync("k", k -> inFlight);
+    IllegalStateException error = new IllegalStateException("test");
+    inFlight.completeExceptionally(error);
+    assertCauseOf(ExecutionException.class, first).isSameInstanceAs(error);
+    assertCauseOf(ExecutionException.class, second).isSameInstanceAs(error);
+  }
+
+  @Test public void loadAsync_cancelingOneCallerDoesNotAffectOthers() throws Exception {
+    CompletableFuture<String> inFlight = new CompletableFuture<>();
+    CompletionStage<String> first = singleFlight.loadAsync("k", k -> inFlight);
+    CompletionStage<String> second = singleFlight.loadAsync("k", k -> inFlight);
+    first.toCompletableFuture().cancel(true);
+    assertThat(inFlight.isCancelled()).isFalse();
+    inFlight.complete("shared");
+    assertCompleted(second).isEqualTo("shared");
+  }
+
+  @Test public void loadAsync_loaderThrows() {
+    IllegalStateException error = new IllegalStateException("test");
+    IllegalStateException thrown = assertThrows(
+        IllegalStateException.class, () -> singleFlight.loadAsync("k", k -> {throw error;}));
+    assertThat(thrown).isSameInstanceAs(error);
+    assertThat(singleFlight.isInFlight("k")).isFalse();
+  }
+
+  @Test public void testNulls() {
+    new NullPointerTester().testAllPublicInstanceMethods(singleFlight);
+  }
+
+  private static void awaitWaiting(Thread thread) {
+    while (thread.getState() != Thread.State.WAITING) {
+      Thread.yield();
+    }
+  }
+
+  private static void awaitUninterruptibly(CountDownLatch latch) {
+    try {
+      latch.await();
+    } catch (InterruptedException e) {
+      throw new AssertionError(e);
+    }
+  }
+}
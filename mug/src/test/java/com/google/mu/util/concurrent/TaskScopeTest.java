@@ -0,0 +1,243 @@
+/*****************************************************************************
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package com.google.mu.util.concurrent;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import com.google.common.testing.NullPointerTester;
+import com.google.mu.util.concurrent.TaskScope.Subtask;
+
+@RunWith(JUnit4.class)
+public class TaskScopeTest {
+  private final ExecutorService executor = Executors.newCachedThreadPool();
+
+  @After public void shutDownExecutor() {
+    executor.shutdownNow();
+    Thread.interrupted();
+  }
+
+  @Test public void invalidMaxConcurrency() {
+    assertThrows(IllegalArgumentException.class, () -> new TaskScope(executor, 0));
+  }
+
+  @Test public void noSubtask() {
+    try (TaskScope scope = TaskScope.open()) {
+      scope.join();
+    }
+  }
+
+  @Test public void subtasksSucceed() {
+    try (TaskScope scope = TaskScope.open()) {
+      Subtask<String> foo = scope.fork(() -> "foo");
+      Subtask<Integer> bar = scope.fork(() -> 1);
+      scope.join();
+      assertThat(foo.state()).isEqualTo(Subtask.State.SUCCEEDED);
+      assertThat(foo.get()).isEqualTo("foo");
+      assertThat(bar.get()).isEqualTo(1);
+    }
+  }
+
+  @Test public void subtaskGetBeforeCompletion() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    try (TaskScope scope = new TaskScope(executor, 1)) {
+      Subtask<String> pending = scope.fork(() -> {
+        await(release);
+        return "done";
+      });
+      assertThat(pending.state()).isEqualTo(Subtask.State.PENDING);
+      assertThrows(IllegalStateException.class, pending::get);
+      release.countDown();
+      scope.join();
+      assertThat(pending.get()).isEqualTo("done");
+    }
+  }
+
+  @Test public void manyForks_maxConcurrencyRespected() {
+    AtomicInteger running = new AtomicInteger();
+    AtomicInteger maxRunning = new AtomicInteger();
+    AtomicInteger sum = new AtomicInteger();
+    try (TaskScope scope = new TaskScope(executor, 4)) {
+      for (int i = 0; i < 20000; i++) {
+        int n = i;
+        scope.fork(() -> {
+          maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+          sum.addAndGet(n % 3);
+          running.decrementAndGet();
+          return null;
+        });
+      }
+      scope.join();
+    }
+    assertThat(maxRunning.get()).isAtMost(4);
+    assertThat(sum.get()).isEqualTo(19999);
+  }
+
+  @Test public void subtaskFails_othersCanceled() throws Exception {
+    CountDownLatch blocking = new CountDownLatch(1);
+    AtomicBoolean interrupted = new AtomicBoolean();
+    IllegalStateException error = new IllegalStateException("test");
+    try (TaskScope scope = new TaskScope(executor, 10)) {
+      Subtask<?> slow = scope.fork(() -> {
+        blocking.countDown();
+        try {
+          new CountDownLatch(1).await();
+        } catch (InterruptedException e) {
+          interrupted.set(true);
+        }
+        return null;
+      });
+      blocking.await();
+      Subtask<?> failed = scope.fork(() -> {throw error;});
+      RuntimeException thrown = assertThrows(RuntimeException.class, scope::join);
+      assertThat(thrown).hasCauseThat().isSameInstanceAs(error);
+      assertThat(scope.isShutdown()).isTrue();
+      assertThat(failed.state()).isEqualTo(Subtask.State.FAILED);
+      assertThat(slow.state()).isEqualTo(Subtask.State.SUCCEEDED);
+      assertThat(interrupted.get()).isTrue();
+      Subtask<?> skipped = scope.fork(() -> "should not run");
+      assertThat(skipped.state()).isEqualTo(Subtask.State.CANCELLED);
+    }
+  }
+
+  @Test public void join_timeout() throws Exception {
+    AtomicBoolean interrupted = new AtomicBoolean();
+    CountDownLatch terminated = new CountDownLatch(1);
+    try (TaskScope scope = new TaskScope(executor, 10)) {
+      scope.fork(() -> {
+        try {
+          new CountDownLatch(1).await();
+        } catch (InterruptedException e) {
+          interrupted.set(true);
+        } finally {
+          terminated.countDown();
+        }
+        return null;
+      });
+      assertThrows(TimeoutException.class, () -> scope.join(Duration.ofMillis(10)));
+      assertThat(scope.isShutdown()).isTrue();
+    }
+    assertThat(terminated.getCount()).isEqualTo(0);
+    assertThat(interrupted.get()).isTrue();
+  }
+
+  @Test public void join_withinTimeout() throws Exception {
+    try (TaskScope scope = new TaskScope(executor, 10)) {
+      Subtask<String> foo = scope.fork(() -> "foo");
+      scope.join(Duration.ofSeconds(10));
+      assertThat(foo.get()).isEqualTo("foo");
+    }
+  }
+
+  @Test public void shutdown_cooperativeCancellation() throws Exception {
+    CountDownLatch started = new CountDownLatch(1);
+    AtomicBoolean observedShutdown = new AtomicBoolean();
+    try (TaskScope scope = new TaskScope(executor, 10)) {
+      scope.fork(() -> {
+        started.countDown();
+        while (!scope.isShutdown()) {
+          Thread.yield();
+        }
+        observedShutdown.set(true);
+        return null;
+      });
+      started.await();
+      scope.shutdown();
+      scope.join();
+    }
+    assertThat(observedShutdown.get()).isTrue();
+  }
+
+  @Test public void shutdown_pendingForksSkipped() throws Exception {
+    CountDownLatch started = new CountDownLatch(1);
+    ExecutorService singleThread = Executors.newSingleThreadExecutor();
+    try (TaskScope scope = new TaskScope(singleThread, 10)) {
+      scope.fork(() -> {
+        started.countDown();
+        while (!scope.isShutdown()) {
+          Thread.yield();
+        }
+        return null;
+      });
+      started.await();
+      Subtask<?> queued = scope.fork(() -> "should not run");
+      scope.shutdown();
+      scope.join();
+      assertThat(queued.state()).isEqualTo(Subtask.State.CANCELLED);
+    } finally {
+      singleThread.shutdownNow();
+    }
+  }
+
+  @Test public void join_interrupted() {
+    CountDownLatch release = new CountDownLatch(1);
+    try (TaskScope scope = new TaskScope(executor, 10)) {
+      scope.fork(() -> {
+        await(release);
+        return null;
+      });
+      Thread.currentThread().interrupt();
+      assertThrows(StructuredConcurrencyInterruptedException.class, scope::join);
+      assertThat(scope.isShutdown()).isTrue();
+      Thread.interrupted();
+    }
+  }
+
+  @Test public void close_waitsForRunningSubtasks() throws Exception {
+    CountDownLatch started = new CountDownLatch(1);
+    AtomicBoolean done = new AtomicBoolean();
+    try (TaskScope scope = new TaskScope(executor, 10)) {
+      scope.fork(() -> {
+        started.countDown();
+        try {
+          new CountDownLatch(1).await();
+        } catch (InterruptedException e) {
+          // canceled by close()
+        }
+        done.set(true);
+        return null;
+      });
+      started.await();
+    }
+    assertThat(done.get()).isTrue();
+  }
+
+  @Test public void testNulls() {
+    try (TaskScope scope = new TaskScope(executor, 1)) {
+      new NullPointerTester().testAllPublicInstanceMethods(scope);
+    }
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      latch.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
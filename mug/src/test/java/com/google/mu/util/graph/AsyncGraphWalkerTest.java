@@ -0,0 +1,204 @@
+package com.google.mu.util.graph;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.common.truth.Truth8.assertThat;
+import static java.util.Arrays.asList;
+import static java.util.concurrent.CompletableFuture.completedFuture;
+import static java.util.stream.Collectors.toList;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.testing.NullPointerTester;
+import com.google.mu.util.concurrent.Parallelizer.UncheckedExecutionException;
+import com.google.mu.util.concurrent.StructuredConcurrencyInterruptedException;
+
+public class AsyncGraphWalkerTest {
+  private final Map<String, CompletableFuture<List<String>>> lookups = new ConcurrentHashMap<>();
+
+  @Test public void invalidMaxInFlight() {
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> AsyncGraphWalker.inGraph(n -> completedFuture(asList()), 0));
+  }
+
+  @Test public void testNulls() {
+    new NullPointerTester()
+        .setDefault(Iterable.class, ImmutableList.of())
+        .testAllPublicStaticMethods(AsyncGraphWalker.class);
+    new NullPointerTester()
+        .testAllPublicInstanceMethods(
+            AsyncGraphWalker.inGraph((String n) -> completedFuture(asList()), 1));
+  }
+
+  @Test public void noStartNode() {
+    assertThat(AsyncGraphWalker.inGraph(n -> completedFuture(asList()), 1).walkFrom()).isEmpty();
+  }
+
+  @Test public void nullSuccessors() {
+    assertThat(AsyncGraphWalker.inGraph(n -> null, 1).walkFrom("foo")).containsExactly("foo");
+    assertThat(AsyncGraphWalker.inGraph(n -> completedFuture(null), 1).walkFrom("foo"))
+        .containsExactly("foo");
+  }
+
+  @Test public void cyclicGraph() {
+    ImmutableListMultimap<String, String> edges = ImmutableListMultimap.of(
+        "foo", "bar", "bar", "baz", "baz", "foo", "baz", "zoo", "foo", "zoo");
+    AsyncGraphWalker<String> walker =
+        AsyncGraphWalker.inGraph(n -> completedFuture(edges.get(n)), 2);
+    assertThat(walker.walkFrom("foo", "bar")).containsExactly("foo", "bar", "zoo", "baz");
+  }
+
+  @Test public void eachWalkTracksItsOwnNodes() {
+    AsyncGraphWalker<Integer> walker =
+        AsyncGraphWalker.inGraph(n -> completedFuture(n < 3 ? asList(n + 1) : null), 1);
+    assertThat(walker.walkFrom(1)).containsExactly(1, 2, 3).inOrder();
+    assertThat(walker.walkFrom(1)).containsExactly(1, 2, 3).inOrder();
+  }
+
+  @Test public void customTracker() {
+    AsyncGraphWalker<Integer> walker =
+        AsyncGraphWalker.inGraph(n -> completedFuture(asList(n + 1)), n -> n < 5, 3);
+    assertThat(walker.walkFrom(1)).containsExactly(1, 2, 3, 4).inOrder();
+  }
+
+  @Test public void nodesYieldedAsLookupsResolve() {
+    AsyncGraphWalker<String> walker = AsyncGraphWalker.inGraph(this::lookUp, 2);
+    Iterator<String> nodes = walker.walkFrom("a", "b").iterator();
+    assertThat(nodes.next()).isEqualTo("a");
+    assertThat(nodes.next()).isEqualTo("b");
+    assertThat(lookups).isEmpty();
+    lookUp("b").complete(asList("b1"));
+    assertThat(nodes.next()).isEqualTo("b1");
+    assertThat(lookups.get("a").isDone()).isFalse();
+  }
+
+  @Test public void maxInFlightRespected() {
+    AtomicInteger inFlight = new AtomicInteger();
+    AtomicInteger maxInFlight = new AtomicInteger();
+    AsyncGraphWalker<Integer> walker = AsyncGraphWalker.inGraph(
+        n -> {
+          maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+          return CompletableFuture.supplyAsync(() -> {
+            inFlight.decrementAndGet();
+            return n < 500 ? asList(n * 2, n * 2 + 1) : null;
+          });
+        },
+        4);
+    assertThat(walker.walkFrom(1).collect(toList())).hasSize(999);
+    assertThat(maxInFlight.get()).isAtMost(4);
+  }
+
+  @Test public void lookupFails_othersCanceled() {
+    IllegalStateException error = new IllegalStateException("test");
+    AsyncGraphWalker<String> walker = AsyncGraphWalker.inGraph(this::lookUp, 2);
+    Iterator<String> nodes = walker.walkFrom("a", "b").iterator();
+    CompletableFuture<List<String>> a = lookUp("a");
+    CompletableFuture<List<String>> b = lookUp("b");
+    nodes.next();
+    nodes.next();
+    b.completeExceptionally(error);
+    UncheckedExecutionException thrown =
+        assertThrows(UncheckedExecutionException.class, nodes::hasNext);
+    assertThat(thrown).hasCauseThat().isSameInstanceAs(error);
+    assertThat(a.isCancelled()).isTrue();
+  }
+
+  @Test public void findSuccessorsThrows_othersCanceled() {
+    IllegalStateException error = new IllegalStateException("test");
+    AsyncGraphWalker<String> walker = AsyncGraphWalker.inGraph(
+        n -> {
+          if (n.equals("b")) throw error;
+          return lookUp(n);
+        },
+        2);
+    Iterator<String> nodes = walker.walkFrom("a", "b").iterator();
+    nodes.next();
+    nodes.next();
+    UncheckedExecutionException thrown =
+        assertThrows(UncheckedExecutionException.class, nodes::hasNext);
+    assertThat(thrown).hasCauseThat().isSameInstanceAs(error);
+    assertThat(lookups.get("a").isCancelled()).isTrue();
+  }
+
+  @Test public void sameStageForDifferentNodes_eachLookupCounted() {
+    CompletableFuture<List<String>> shared = new CompletableFuture<>();
+    AsyncGraphWalker<String> walker = AsyncGraphWalker.inGraph(
+        n -> n.equals("c") ? null : shared, n -> true, 2);
+    Iterator<String> nodes = walker.walkFrom("a", "b").iterator();
+    assertThat(nodes.next()).isEqualTo("a");
+    assertThat(nodes.next()).isEqualTo("b");
+    shared.complete(asList("c"));
+    assertThat(ImmutableList.copyOf(nodes)).containsExactly("c", "c");
+  }
+
+  @Test public void sameStageForDifferentNodes_maxInFlightRespected() {
+    CompletableFuture<List<String>> shared = new CompletableFuture<>();
+    List<String> expanded = new ArrayList<>();
+    AsyncGraphWalker<String> walker = AsyncGraphWalker.inGraph(
+        n -> {
+          expanded.add(n);
+          return shared;
+        },
+        2);
+    Iterator<String> nodes = walker.walkFrom("a", "b", "c").iterator();
+    nodes.next();
+    nodes.next();
+    nodes.next();
+    Thread.currentThread().interrupt();
+    try {
+      assertThrows(StructuredConcurrencyInterruptedException.class, nodes::hasNext);
+    } finally {
+      Thread.interrupted();
+    }
+    assertThat(expanded).containsExactly("a", "b").inOrder();
+  }
+
+  @Test public void close_cancelsInFlightLookups() {
+    AsyncGraphWalker<String> walker = AsyncGraphWalker.inGraph(this::lookUp, 2);
+    lookUp("a").complete(asList("a1"));
+    try (Stream<String> stream = walker.walkFrom("a", "b", "c")) {
+      assertThat(stream.skip(3).findFirst()).hasValue("a1");
+    }
+    assertThat(lookups.keySet()).containsExactly("a", "b");
+    assertThat(lookups.get("b").isCancelled()).isTrue();
+  }
+
+  @Test public void interrupted_inFlightLookupsCanceled() {
+    AsyncGraphWalker<String> walker = AsyncGraphWalker.inGraph(this::lookUp, 2);
+    Iterator<String> nodes = walker.walkFrom("a").iterator();
+    nodes.next();
+    Thread.currentThread().interrupt();
+    try {
+      assertThrows(StructuredConcurrencyInterruptedException.class, nodes::hasNext);
+    } finally {
+      Thread.interrupted();
+    }
+    assertThat(lookups.get("a").isCancelled()).isTrue();
+  }
+
+  private CompletableFuture<List<String>> lookUp(String node) {
+    return lookups.computeIfAbsent(node, n -> new CompletableFuture<>());
+  }
+
+  private static CompletionStage<ImmutableList<String>> lookUpImmutable(String node) {
+    return completedFuture(ImmutableList.of());
+  }
+
+  @Test public void completionStageOfSubtype() {
+    assertThat(AsyncGraphWalker.inGraph(AsyncGraphWalkerTest::lookUpImmutable, 1).walkFrom("x"))
+        .containsExactly("x");
+  }
+}
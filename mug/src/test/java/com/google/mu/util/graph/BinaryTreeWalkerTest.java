@@ -14,10 +14,16 @@
  *****************************************************************************/
 package com.google.mu.util.graph;
 
+import static com.google.common.truth.Truth.assertThat;
 import static com.google.common.truth.Truth8.assertThat;
 import static com.google.mu.util.graph.BinaryTreeWalkerTest.Tree.tree;
+import static java.util.stream.Collectors.toList;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+
 import org.junit.Test;
 
 public class BinaryTreeWalkerTest {
@@ -297,6 +303,81 @@ public class BinaryTreeWalkerTest {
         .inOrder();
   }
 
+  @Test public void preOrder_trySplit_handsOffLeftSubtree() {
+    Spliterator<Integer> remaining = heap(7).preOrderFrom(1).spliterator();
+    Spliterator<Integer> prefix = remaining.trySplit();
+    assertThat(drain(prefix)).containsExactly(1, 2, 4, 5).inOrder();
+    assertThat(drain(remaining)).containsExactly(3, 6, 7).inOrder();
+  }
+
+  @Test public void preOrder_trySplit_multipleRoots() {
+    Spliterator<Integer> remaining = heap(7).preOrderFrom(2, 3, 1).spliterator();
+    Spliterator<Integer> prefix = remaining.trySplit();
+    assertThat(drain(prefix)).containsExactly(2, 4, 5).inOrder();
+    assertThat(drain(remaining)).containsExactly(3, 6, 7, 1, 2, 4, 5, 3, 6, 7).inOrder();
+  }
+
+  @Test public void preOrder_trySplit_leaf() {
+    Spliterator<Integer> remaining = heap(1).preOrderFrom(1).spliterator();
+    Spliterator<Integer> prefix = remaining.trySplit();
+    assertThat(drain(prefix)).containsExactly(1);
+    assertThat(remaining.trySplit()).isNull();
+    assertThat(remaining.estimateSize()).isEqualTo(0);
+    assertThat(drain(remaining)).isEmpty();
+  }
+
+  @Test public void preOrder_trySplit_afterAdvance() {
+    Spliterator<Integer> remaining = heap(7).preOrderFrom(1).spliterator();
+    assertThat(remaining.tryAdvance(n -> {})).isTrue();
+    Spliterator<Integer> prefix = remaining.trySplit();
+    assertThat(drain(prefix)).containsExactly(2, 4, 5).inOrder();
+    assertThat(drain(remaining)).containsExactly(3, 6, 7).inOrder();
+  }
+
+  @Test public void preOrder_parallel_sameAsSequential() {
+    BinaryTreeWalker<Integer> walker = heap(100000);
+    assertThat(walker.preOrderFrom(1).parallel().collect(toList()))
+        .containsExactlyElementsIn(walker.preOrderFrom(1).collect(toList()))
+        .inOrder();
+  }
+
+  @Test public void preOrder_parallel_infiniteTree() {
+    BinaryTreeWalker<Integer> infinite = Walker.inBinaryTree(n -> n * 2, n -> n * 2 + 1);
+    assertThat(infinite.preOrderFrom(1).parallel().limit(5).collect(toList()))
+        .containsExactly(1, 2, 4, 8, 16)
+        .inOrder();
+  }
+
+  @Test public void breadthFirst_trySplit_handsOffFrontier() {
+    Spliterator<Integer> remaining = heap(7).breadthFirstFrom(1).spliterator();
+    assertThat(drain(remaining.trySplit())).containsExactly(1);
+    assertThat(drain(remaining.trySplit())).containsExactly(2, 3).inOrder();
+    assertThat(drain(remaining)).containsExactly(4, 5, 6, 7).inOrder();
+  }
+
+  @Test public void breadthFirst_trySplit_exhausted() {
+    Spliterator<Integer> remaining = heap(3).breadthFirstFrom(1).spliterator();
+    assertThat(drain(remaining.trySplit())).containsExactly(1);
+    assertThat(remaining.estimateSize()).isGreaterThan(0L);
+    assertThat(drain(remaining.trySplit())).containsExactly(2, 3).inOrder();
+    assertThat(remaining.trySplit()).isNull();
+    assertThat(remaining.estimateSize()).isEqualTo(0);
+  }
+
+  @Test public void breadthFirst_parallel_sameAsSequential() {
+    BinaryTreeWalker<Integer> walker = heap(100000);
+    assertThat(walker.breadthFirstFrom(1).parallel().collect(toList()))
+        .containsExactlyElementsIn(walker.breadthFirstFrom(1).collect(toList()))
+        .inOrder();
+  }
+
+  @Test public void breadthFirst_parallel_infiniteTree() {
+    BinaryTreeWalker<Integer> infinite = Walker.inBinaryTree(n -> n * 2, n -> n * 2 + 1);
+    assertThat(infinite.breadthFirstFrom(1).parallel().limit(5).collect(toList()))
+        .containsExactly(1, 2, 3, 4, 5)
+        .inOrder();
+  }
+
   @Test public void nullProhibited() {
     Tree<Integer> nullNode = null;
     assertThrows(NullPointerException.class, () -> Tree.<Integer>walker().preOrderFrom(nullNode));
@@ -305,6 +386,18 @@ public class BinaryTreeWalkerTest {
     assertThrows(NullPointerException.class, () -> Tree.<Integer>walker().breadthFirstFrom(nullNode));
   }
 
+  /** A complete binary tree of nodes 1 to {@code size}, where the children of n are 2n and 2n+1. */
+  private static BinaryTreeWalker<Integer> heap(int size) {
+    return Walker.inBinaryTree(
+        n -> n * 2 <= size ? n * 2 : null, n -> n * 2 + 1 <= size ? n * 2 + 1 : null);
+  }
+
+  private static <T> List<T> drain(Spliterator<T> spliterator) {
+    List<T> list = new ArrayList<>();
+    spliterator.forEachRemaining(list::add);
+    return list;
+  }
+
   interface Tree<T> {
     static <T> Node<T> tree(T value) {
       return new Node<>(value);
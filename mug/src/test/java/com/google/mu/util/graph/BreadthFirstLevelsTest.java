@@ -0,0 +1,153 @@
+package com.google.mu.util.graph;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.common.truth.Truth8.assertThat;
+import static java.util.Arrays.asList;
+import static java.util.stream.Collectors.toList;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.collect.Multimap;
+import com.google.common.graph.ElementOrder;
+import com.google.common.graph.Graph;
+import com.google.common.graph.GraphBuilder;
+import com.google.common.graph.MutableGraph;
+import com.google.common.testing.NullPointerTester;
+import com.google.mu.util.concurrent.Fanout;
+import com.google.mu.util.concurrent.Parallelizer;
+import com.google.mu.util.concurrent.Parallelizer.UncheckedExecutionException;
+import com.google.mu.util.stream.BiStream;
+
+public class BreadthFirstLevelsTest {
+  private final Parallelizer parallelizer = Fanout.withMaxConcurrency(3);
+
+  @Test public void noStartNode() {
+    GraphWalker<String> walker = Walker.inGraph(Stream::of);
+    assertThat(walker.breadthFirstLevelsFrom(parallelizer)).isEmpty();
+  }
+
+  @Test public void noChildren() {
+    assertThat(Walker.inGraph(n -> null).breadthFirstLevelsFrom(parallelizer, "root"))
+        .containsExactly(asList("root"));
+  }
+
+  @Test public void duplicateStartNodes() {
+    assertThat(Walker.inGraph(n -> null).breadthFirstLevelsFrom(parallelizer, "foo", "foo"))
+        .containsExactly(asList("foo"));
+  }
+
+  @Test public void dag() {
+    Graph<String> graph = toDirectedGraph(
+        ImmutableListMultimap.of("foo", "baz", "foo", "bar", "bar", "zoo", "baz", "zoo"));
+    assertThat(levels(graph, "foo"))
+        .containsExactly(asList("foo"), asList("baz", "bar"), asList("zoo"))
+        .inOrder();
+  }
+
+  @Test public void cyclic() {
+    Graph<String> graph = toDirectedGraph(
+        ImmutableListMultimap.of("foo", "bar", "bar", "baz", "baz", "foo", "baz", "zoo"));
+    assertThat(levels(graph, "foo"))
+        .containsExactly(asList("foo"), asList("bar"), asList("baz"), asList("zoo"))
+        .inOrder();
+  }
+
+  @Test public void sameOrderAsBreadthFirst() {
+    GraphWalker<Integer> walker = Walker.inGraph(n -> Stream.of(n * 2, n * 3).filter(i -> i < 1000));
+    List<Integer> flattened =
+        walker.breadthFirstLevelsFrom(parallelizer, 1, 5)
+            .flatMap(List::stream)
+            .collect(toList());
+    assertThat(flattened)
+        .containsExactlyElementsIn(walker.breadthFirstFrom(1, 5).collect(toList()))
+        .inOrder();
+  }
+
+  @Test public void infiniteGraph_shortCircuited() {
+    GraphWalker<Integer> walker = Walker.inGraph(n -> Stream.of(n * 2, n * 2 + 1));
+    assertThat(walker.breadthFirstLevelsFrom(parallelizer, 1).limit(3))
+        .containsExactly(asList(1), asList(2, 3), asList(4, 5, 6, 7))
+        .inOrder();
+  }
+
+  @Test public void levelIsLazilyExpanded() {
+    AtomicInteger calls = new AtomicInteger();
+    GraphWalker<Integer> walker = Walker.inGraph(n -> {
+      calls.incrementAndGet();
+      return Stream.of(n * 2, n * 2 + 1);
+    });
+    assertThat(walker.breadthFirstLevelsFrom(parallelizer, 1).limit(2))
+        .containsExactly(asList(1), asList(2, 3))
+        .inOrder();
+    assertThat(calls.get()).isEqualTo(1);
+  }
+
+  @Test public void successorsFoundConcurrently() {
+    CountDownLatch allStarted = new CountDownLatch(3);
+    GraphWalker<Integer> walker = Walker.inGraph(n -> {
+      if (n == 0) return Stream.of(1, 2, 3);
+      if (n >= 10) return null;
+      allStarted.countDown();
+      try {
+        // Deadlocks unless the 3 nodes of the same level are expanded concurrently.
+        assertThat(allStarted.await(10, TimeUnit.SECONDS)).isTrue();
+      } catch (InterruptedException e) {
+        throw new AssertionError(e);
+      }
+      return Stream.of(n * 10);
+    });
+    assertThat(walker.breadthFirstLevelsFrom(parallelizer, 0))
+        .containsExactly(asList(0), asList(1, 2, 3), asList(10, 20, 30))
+        .inOrder();
+  }
+
+  @Test public void trackerNotCalledConcurrently() {
+    Thread caller = Thread.currentThread();
+    GraphWalker<Integer> walker = Walker.inGraph(
+        n -> Stream.of(n * 2, n * 2 + 1).filter(i -> i < 100),
+        n -> Thread.currentThread() == caller);
+    assertThat(walker.breadthFirstLevelsFrom(parallelizer, 1).flatMap(List::stream).count())
+        .isEqualTo(99);
+  }
+
+  @Test public void findSuccessorsThrows() {
+    IllegalStateException error = new IllegalStateException("test");
+    GraphWalker<Integer> walker = Walker.inGraph(n -> {
+      throw error;
+    });
+    UncheckedExecutionException thrown =
+        assertThrows(
+            UncheckedExecutionException.class,
+            () -> walker.breadthFirstLevelsFrom(parallelizer, 1).collect(toList()));
+    assertThat(thrown).hasCauseThat().isSameInstanceAs(error);
+  }
+
+  @Test public void testNulls() {
+    new NullPointerTester()
+        .setDefault(Parallelizer.class, parallelizer)
+        .setDefault(Iterable.class, ImmutableList.of())
+        .testAllPublicInstanceMethods(Walker.inGraph(Stream::of));
+  }
+
+  private Stream<List<String>> levels(Graph<String> graph, String... startNodes) {
+    return Walker.inGraph((String n) -> graph.successors(n).stream())
+        .breadthFirstLevelsFrom(parallelizer, startNodes);
+  }
+
+  private static <N> Graph<N> toDirectedGraph(Multimap<N, N> edges) {
+    MutableGraph<N> graph =
+        GraphBuilder.directed().incidentEdgeOrder(ElementOrder.stable()).build();
+    BiStream.from(edges.asMap()).flatMapValues(Collection::stream).forEach(graph::putEdge);
+    return graph;
+  }
+}
@@ -0,0 +1,136 @@
+package com.google.mu.util.graph;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.common.truth.Truth8.assertThat;
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toMap;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.testing.NullPointerTester;
+import com.google.mu.util.stream.BiStream;
+
+public class CsrGraphTest {
+  private static final CsrGraph<String> DAG = CsrGraph.fromEdges(BiStream.from(
+      ImmutableListMultimap.of("foo", "baz", "foo", "bar", "bar", "zoo", "baz", "zoo").entries()));
+
+  @Test public void empty() {
+    CsrGraph<String> graph = CsrGraph.fromEdges(BiStream.empty());
+    assertThat(graph.nodes()).isEmpty();
+    assertThat(graph.edgeCount()).isEqualTo(0);
+    assertThat(graph.walker().topologicalOrderFrom()).isEmpty();
+  }
+
+  @Test public void nodesAndEdges() {
+    assertThat(DAG.nodes()).containsExactly("foo", "baz", "bar", "zoo").inOrder();
+    assertThat(DAG.edgeCount()).isEqualTo(4);
+    assertThat(DAG.contains("foo")).isTrue();
+    assertThat(DAG.contains("dog")).isFalse();
+    assertThat(DAG.toString()).isEqualTo("CsrGraph(4 nodes, 4 edges)");
+  }
+
+  @Test public void successors_inEncounterOrder() {
+    assertThat(DAG.successors("foo")).containsExactly("baz", "bar").inOrder();
+    assertThat(DAG.successors("zoo")).isEmpty();
+    assertThat(DAG.weightedSuccessors("foo").toMap()).containsExactly("baz", 1.0, "bar", 1.0);
+  }
+
+  @Test public void unknownNode() {
+    assertThrows(IllegalArgumentException.class, () -> DAG.successors("dog"));
+    assertThrows(IllegalArgumentException.class, () -> DAG.walker().preOrderFrom("dog"));
+    assertThrows(
+        IllegalArgumentException.class, () -> ShortestPath.shortestPathsFrom("dog", DAG));
+  }
+
+  @Test public void walker() {
+    GraphWalker<String> walker = DAG.walker();
+    assertThat(walker.preOrderFrom("foo")).containsExactly("foo", "baz", "zoo", "bar").inOrder();
+    assertThat(walker.postOrderFrom("foo")).containsExactly("zoo", "baz", "bar", "foo").inOrder();
+    assertThat(walker.breadthFirstFrom("foo"))
+        .containsExactly("foo", "baz", "bar", "zoo")
+        .inOrder();
+    assertThat(walker.topologicalOrderFrom("foo"))
+        .containsExactly("foo", "bar", "baz", "zoo")
+        .inOrder();
+    assertThat(walker.detectCycleFrom("foo")).isEmpty();
+  }
+
+  @Test public void cyclic() {
+    CsrGraph<String> graph = CsrGraph.fromEdges(BiStream.of("a", "b", "b", "c", "c", "a"));
+    CyclicGraphException thrown =
+        assertThrows(CyclicGraphException.class, () -> graph.walker().topologicalOrderFrom("a"));
+    assertThat(thrown.cyclicPath()).containsExactly("a", "b", "c", "a").inOrder();
+    assertThat(graph.walker().stronglyConnectedComponentsFrom("a"))
+        .containsExactly(ImmutableList.of("c", "b", "a"));
+    assertThat(graph.walker().cyclicComponentsFrom("a"))
+        .containsExactly(ImmutableList.of("c", "b", "a"));
+  }
+
+  @Test public void weightedShortestPaths() {
+    CsrGraph<String> graph = CsrGraph.fromWeightedEdges(
+        BiStream.of("a", "b", "a", "c", "b", "c", "c", "d"),
+        (from, to) -> from.equals("a") && to.equals("c") ? 5 : 1);
+    assertThat(graph.weightedSuccessors("a").toMap()).containsExactly("b", 1.0, "c", 5.0);
+    assertThat(ShortestPath.shortestPathsFrom("a", graph).map(ShortestPath::toString))
+        .containsExactly("a", "a->b", "a->b->c", "a->b->c->d")
+        .inOrder();
+  }
+
+  @Test public void negativeWeight() {
+    CsrGraph<String> graph = CsrGraph.fromWeightedEdges(BiStream.of("a", "b"), (from, to) -> -1);
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> ShortestPath.shortestPathsFrom("a", graph).collect(toList()));
+  }
+
+  @Test public void randomGraphs_consistentWithGenericAlgorithms() {
+    Random random = new Random(1);
+    for (int round = 0; round < 30; round++) {
+      int nodeCount = 1 + random.nextInt(30);
+      List<Integer> sources = random.ints(nodeCount * 2, 0, nodeCount).boxed().collect(toList());
+      List<Integer> targets = random.ints(nodeCount * 2, 0, nodeCount).boxed().collect(toList());
+      CsrGraph<Integer> graph = CsrGraph.fromWeightedEdges(
+          BiStream.zip(sources, targets), (from, to) -> Math.abs(from * 31 + to * 17) % 10);
+      GraphWalker<Integer> generic = Walker.inGraph(graph::successors);
+      int start = sources.get(0);
+      assertThat(graph.walker().preOrderFrom(start))
+          .containsExactlyElementsIn(generic.preOrderFrom(start).collect(toList()))
+          .inOrder();
+      assertThat(graph.walker().postOrderFrom(start))
+          .containsExactlyElementsIn(generic.postOrderFrom(start).collect(toList()))
+          .inOrder();
+      assertThat(graph.walker().breadthFirstFrom(start))
+          .containsExactlyElementsIn(generic.breadthFirstFrom(start).collect(toList()))
+          .inOrder();
+      assertThat(distances(ShortestPath.shortestPathsFrom(start, graph)))
+          .containsExactlyEntriesIn(
+              distances(ShortestPath.shortestPathsFrom(start, graph::weightedSuccessors)));
+      assertThat(graph.walker().stronglyConnectedComponentsFrom(start))
+          .containsExactlyElementsIn(
+              generic.stronglyConnectedComponentsFrom(start).collect(toList()))
+          .inOrder();
+      assertThat(graph.walker().cyclicComponentsFrom(start))
+          .containsExactlyElementsIn(generic.cyclicComponentsFrom(start).collect(toList()))
+          .inOrder();
+    }
+  }
+
+  @Test public void testNulls() {
+    new NullPointerTester()
+        .setDefault(BiStream.class, BiStream.empty())
+        .testAllPublicStaticMethods(CsrGraph.class);
+    new NullPointerTester().testAllPublicInstanceMethods(DAG);
+  }
+
+  private static Map<Integer, Double> distances(Stream<ShortestPath<Integer>> paths) {
+    return paths.collect(toMap(ShortestPath::to, ShortestPath::distance));
+  }
+}
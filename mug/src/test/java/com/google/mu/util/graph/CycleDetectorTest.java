@@ -31,6 +31,8 @@ import com.google.common.graph.Graph;
 import com.google.common.graph.GraphBuilder;
 import com.google.common.graph.MutableGraph;
 import com.google.common.testing.NullPointerTester;
+import com.google.mu.util.concurrent.Fanout;
+import com.google.mu.util.concurrent.Parallelizer;
 import com.google.mu.util.stream.BiStream;
 
 public class CycleDetectorTest {
@@ -107,7 +109,9 @@ public class CycleDetectorTest {
 
   @Test public void instanceMethods_nullCheck()
       throws Exception {
-    new NullPointerTester().testAllPublicInstanceMethods(Walker.inGraph(n -> null));
+    new NullPointerTester()
+        .setDefault(Parallelizer.class, Fanout.withMaxConcurrency(1))
+        .testAllPublicInstanceMethods(Walker.inGraph(n -> null));
   }
 
   @SafeVarargs
@@ -0,0 +1,71 @@
+package com.google.mu.util.graph;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class IndexedMinHeapTest {
+  @Test public void empty() {
+    assertThat(new IndexedMinHeap(0).isEmpty()).isTrue();
+  }
+
+  @Test public void pollsInKeyOrder() {
+    IndexedMinHeap heap = new IndexedMinHeap(4);
+    assertThat(heap.offer(2, 3)).isTrue();
+    assertThat(heap.offer(0, 1)).isTrue();
+    assertThat(heap.offer(3, 2)).isTrue();
+    assertThat(heap.peekKey()).isEqualTo(1.0);
+    assertThat(heap.poll()).isEqualTo(0);
+    assertThat(heap.poll()).isEqualTo(3);
+    assertThat(heap.poll()).isEqualTo(2);
+    assertThat(heap.isEmpty()).isTrue();
+  }
+
+  @Test public void decreaseKey() {
+    IndexedMinHeap heap = new IndexedMinHeap(3);
+    heap.offer(0, 1);
+    heap.offer(1, 5);
+    assertThat(heap.offer(1, 6)).isFalse();
+    assertThat(heap.offer(1, 0.5)).isTrue();
+    assertThat(heap.peekKey()).isEqualTo(0.5);
+    assertThat(heap.poll()).isEqualTo(1);
+    assertThat(heap.poll()).isEqualTo(0);
+  }
+
+  @Test public void offerAfterPoll_ignored() {
+    IndexedMinHeap heap = new IndexedMinHeap(2);
+    heap.offer(0, 1);
+    heap.poll();
+    assertThat(heap.offer(0, 0)).isFalse();
+    assertThat(heap.isEmpty()).isTrue();
+  }
+
+  @Test public void randomOffers_pollsMinimumKeysInOrder() {
+    Random random = new Random(1);
+    int capacity = 200;
+    IndexedMinHeap heap = new IndexedMinHeap(capacity);
+    double[] minKeys = new double[capacity];
+    Arrays.fill(minKeys, Double.POSITIVE_INFINITY);
+    for (int i = 0; i < 1000; i++) {
+      int id = random.nextInt(capacity);
+      double key = random.nextInt(100);
+      assertThat(heap.offer(id, key)).isEqualTo(key < minKeys[id]);
+      minKeys[id] = Math.min(minKeys[id], key);
+    }
+    List<Double> polledKeys = new ArrayList<>();
+    while (!heap.isEmpty()) {
+      double key = heap.peekKey();
+      assertThat(minKeys[heap.poll()]).isEqualTo(key);
+      polledKeys.add(key);
+    }
+    assertThat(polledKeys).isInOrder();
+    assertThat(polledKeys)
+        .containsExactlyElementsIn(
+            Arrays.stream(minKeys).filter(k -> k < Double.POSITIVE_INFINITY).boxed().toArray());
+  }
+}
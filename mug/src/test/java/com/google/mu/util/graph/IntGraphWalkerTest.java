@@ -0,0 +1,210 @@
+package com.google.mu.util.graph;
+
+import static com.google.common.collect.ImmutableSet.toImmutableSet;
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.common.truth.Truth8.assertThat;
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toSet;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.primitives.Ints;
+import com.google.common.testing.NullPointerTester;
+
+public class IntGraphWalkerTest {
+  // 0 -> 1 -> 2 -> 3, 0 -> 2, 4 -> 0
+  private static final int[][] DAG = {{1, 2}, {2}, {3}, {}, {0}};
+
+  @Test public void invalidNodeCount() {
+    assertThrows(IllegalArgumentException.class, () -> IntGraphWalker.inGraph(-1, n -> null));
+  }
+
+  @Test public void invalidOffsets() {
+    assertThrows(
+        IllegalArgumentException.class, () -> IntGraphWalker.inGraph(new int[0], new int[0]));
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> IntGraphWalker.inGraph(new int[] {0, 2, 1}, new int[] {0, 0}));
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> IntGraphWalker.inGraph(new int[] {0, 3}, new int[] {0, 0}));
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> IntGraphWalker.inGraph(new int[] {-1, 0}, new int[] {0, 0}));
+  }
+
+  @Test public void testNulls() {
+    new NullPointerTester().testAllPublicStaticMethods(IntGraphWalker.class);
+    new NullPointerTester().testAllPublicInstanceMethods(IntGraphWalker.inGraph(1, n -> null));
+  }
+
+  @Test public void nodeCount() {
+    assertThat(IntGraphWalker.inGraph(3, n -> null).nodeCount()).isEqualTo(3);
+    assertThat(IntGraphWalker.inGraph(new int[] {0, 0}, new int[0]).nodeCount()).isEqualTo(1);
+  }
+
+  @Test public void noStartNode() {
+    IntGraphWalker walker = IntGraphWalker.inGraph(3, n -> null);
+    assertThat(walker.preOrderFrom().toArray()).isEmpty();
+    assertThat(walker.postOrderFrom().toArray()).isEmpty();
+    assertThat(walker.breadthFirstFrom().toArray()).isEmpty();
+    assertThat(walker.topologicalOrderFrom()).isEmpty();
+    assertThat(walker.stronglyConnectedComponentsFrom().count()).isEqualTo(0);
+  }
+
+  @Test public void nodeOutOfRange() {
+    IntGraphWalker walker = IntGraphWalker.inGraph(2, n -> new int[] {n + 1});
+    assertThrows(IllegalArgumentException.class, () -> walker.preOrderFrom(-1).toArray());
+    assertThrows(IllegalArgumentException.class, () -> walker.preOrderFrom(0).toArray());
+    assertThrows(IllegalArgumentException.class, () -> walker.breadthFirstFrom(0).toArray());
+    assertThrows(IllegalArgumentException.class, () -> walker.topologicalOrderFrom(0));
+  }
+
+  @Test public void dag() {
+    IntGraphWalker walker = IntGraphWalker.inGraph(DAG.length, n -> DAG[n]);
+    assertThat(walker.preOrderFrom(4).toArray()).asList().containsExactly(4, 0, 1, 2, 3).inOrder();
+    assertThat(walker.postOrderFrom(4).toArray()).asList().containsExactly(3, 2, 1, 0, 4).inOrder();
+    assertThat(walker.breadthFirstFrom(4).toArray()).asList()
+        .containsExactly(4, 0, 1, 2, 3)
+        .inOrder();
+    assertThat(walker.topologicalOrderFrom(4)).asList().containsExactly(4, 0, 1, 2, 3).inOrder();
+  }
+
+  @Test public void csr() {
+    // Same as DAG
+    IntGraphWalker walker =
+        IntGraphWalker.inGraph(new int[] {0, 2, 3, 4, 4, 5}, new int[] {1, 2, 2, 3, 0});
+    assertThat(walker.preOrderFrom(4).toArray()).asList().containsExactly(4, 0, 1, 2, 3).inOrder();
+    assertThat(walker.topologicalOrderFrom(4)).asList().containsExactly(4, 0, 1, 2, 3).inOrder();
+  }
+
+  @Test public void lazy() {
+    IntGraphWalker walker = IntGraphWalker.inGraph(Integer.MAX_VALUE, n -> new int[] {n + 1});
+    assertThat(walker.preOrderFrom(0).limit(3).toArray()).asList()
+        .containsExactly(0, 1, 2)
+        .inOrder();
+    assertThat(walker.breadthFirstFrom(0).limit(3).toArray()).asList()
+        .containsExactly(0, 1, 2)
+        .inOrder();
+  }
+
+  @Test public void topologicalOrder_cycle() {
+    int[][] graph = {{1}, {2}, {3, 1}, {}};
+    IntGraphWalker walker = IntGraphWalker.inGraph(graph.length, n -> graph[n]);
+    CyclicGraphException thrown =
+        assertThrows(CyclicGraphException.class, () -> walker.topologicalOrderFrom(0));
+    assertThat(thrown.cyclicPath()).containsExactly(0, 1, 2, 1).inOrder();
+  }
+
+  @Test public void topologicalOrder_selfCycle() {
+    IntGraphWalker walker = IntGraphWalker.inGraph(1, n -> new int[] {n});
+    CyclicGraphException thrown =
+        assertThrows(CyclicGraphException.class, () -> walker.topologicalOrderFrom(0));
+    assertThat(thrown.cyclicPath()).containsExactly(0, 0).inOrder();
+  }
+
+  @Test public void stronglyConnectedComponents() {
+    int[][] graph = {{1}, {2}, {0, 3}, {4}, {3}, {}};
+    IntGraphWalker walker = IntGraphWalker.inGraph(graph.length, n -> graph[n]);
+    assertThat(walker.stronglyConnectedComponentsFrom(0, 5).map(Ints::asList).collect(toList()))
+        .containsExactly(Arrays.asList(4, 3), Arrays.asList(2, 1, 0), Arrays.asList(5))
+        .inOrder();
+  }
+
+  @Test public void cyclicComponents() {
+    int[][] graph = {{1, 3}, {2}, {1}, {3, 4}, {}};
+    IntGraphWalker walker = IntGraphWalker.inGraph(graph.length, n -> graph[n]);
+    assertThat(walker.cyclicComponentsFrom(0).map(Ints::asList).collect(toList()))
+        .containsExactly(Arrays.asList(2, 1), Arrays.asList(3))
+        .inOrder();
+  }
+
+  @Test public void deepGraph_noStackOverflow() {
+    int n = 1_000_000;
+    IntGraphWalker walker = IntGraphWalker.inGraph(n, i -> i + 1 < n ? new int[] {i + 1} : null);
+    assertThat(walker.postOrderFrom(0).count()).isEqualTo(n);
+    assertThat(walker.topologicalOrderFrom(0)).hasLength(n);
+    assertThat(walker.stronglyConnectedComponentsFrom(0).count()).isEqualTo(n);
+    assertThat(walker.cyclicComponentsFrom(0).count()).isEqualTo(0);
+  }
+
+  @Test public void randomGraphs_consistentWithGraphWalker() {
+    Random random = new Random(1);
+    for (int round = 0; round < 50; round++) {
+      int nodeCount = 1 + random.nextInt(40);
+      int[][] graph = randomGraph(random, nodeCount, random.nextInt(3));
+      IntGraphWalker intWalker = IntGraphWalker.inGraph(nodeCount, n -> graph[n]);
+      GraphWalker<Integer> walker = Walker.inGraph(n -> Arrays.stream(graph[n]).boxed());
+      int[] starts = {random.nextInt(nodeCount), random.nextInt(nodeCount)};
+      Integer[] boxedStarts = IntStream.of(starts).boxed().toArray(Integer[]::new);
+      assertThat(Ints.asList(intWalker.preOrderFrom(starts).toArray()))
+          .containsExactlyElementsIn(walker.preOrderFrom(boxedStarts).collect(toList()))
+          .inOrder();
+      assertThat(Ints.asList(intWalker.postOrderFrom(starts).toArray()))
+          .containsExactlyElementsIn(walker.postOrderFrom(boxedStarts).collect(toList()))
+          .inOrder();
+      assertThat(Ints.asList(intWalker.breadthFirstFrom(starts).toArray()))
+          .containsExactlyElementsIn(walker.breadthFirstFrom(boxedStarts).collect(toList()))
+          .inOrder();
+      assertThat(
+              intWalker.stronglyConnectedComponentsFrom(starts)
+                  .map(component -> ImmutableSet.copyOf(Ints.asList(component)))
+                  .collect(toList()))
+          .containsExactlyElementsIn(mutuallyReachable(intWalker, starts));
+      assertThat(intWalker.stronglyConnectedComponentsFrom(starts).map(Ints::asList))
+          .containsExactlyElementsIn(
+              walker.stronglyConnectedComponentsFrom(boxedStarts).collect(toList()))
+          .inOrder();
+      assertThat(intWalker.cyclicComponentsFrom(starts).map(Ints::asList))
+          .containsExactlyElementsIn(walker.cyclicComponentsFrom(boxedStarts).collect(toList()))
+          .inOrder();
+      List<Integer> expectedTopologicalOrder;
+      try {
+        expectedTopologicalOrder = walker.topologicalOrderFrom(boxedStarts);
+      } catch (CyclicGraphException e) {
+        CyclicGraphException thrown = assertThrows(
+            CyclicGraphException.class, () -> intWalker.topologicalOrderFrom(starts));
+        assertThat(thrown.cyclicPath()).containsExactlyElementsIn(e.cyclicPath()).inOrder();
+        continue;
+      }
+      assertThat(Ints.asList(intWalker.topologicalOrderFrom(starts)))
+          .containsExactlyElementsIn(expectedTopologicalOrder)
+          .inOrder();
+    }
+  }
+
+  private static Set<ImmutableSet<Integer>> mutuallyReachable(
+      IntGraphWalker walker, int... starts) {
+    return walker.preOrderFrom(starts)
+        .mapToObj(
+            n -> walker.preOrderFrom(n)
+                .filter(m -> walker.preOrderFrom(m).anyMatch(r -> r == n))
+                .boxed()
+                .collect(toImmutableSet()))
+        .collect(toSet());
+  }
+
+  /** Mode 0: any edges; mode 1: DAG; mode 2: sparse. */
+  private static int[][] randomGraph(Random random, int nodeCount, int mode) {
+    int[][] graph = new int[nodeCount][];
+    for (int i = 0; i < nodeCount; i++) {
+      int from = i;
+      int degree = random.nextInt(mode == 2 ? 2 : 4);
+      graph[i] = Stream.generate(() -> random.nextInt(nodeCount))
+          .limit(degree)
+          .mapToInt(Integer::intValue)
+          .filter(to -> mode != 1 || to > from)
+          .toArray();
+    }
+    return graph;
+  }
+}
@@ -0,0 +1,196 @@
+package com.google.mu.util.graph;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.common.truth.Truth8.assertThat;
+import static java.util.stream.Collectors.toList;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.collect.ListMultimap;
+import com.google.common.testing.NullPointerTester;
+import com.google.common.testing.SerializableTester;
+
+public class ResumableWalkTest {
+  private static final ListMultimap<String, String> GRAPH =
+      ImmutableListMultimap.<String, String>builder()
+          .putAll("a", "b", "c")
+          .putAll("b", "d", "e")
+          .putAll("c", "e", "f")
+          .putAll("e", "a", "g")
+          .build();
+
+  @Test public void noStartNode() {
+    assertThat(ResumableWalk.preOrderFrom(this::successors).stream()).isEmpty();
+    assertThat(ResumableWalk.breadthFirstFrom(this::successors).stream()).isEmpty();
+  }
+
+  @Test public void preOrder_sameAsWalker() {
+    assertThat(ResumableWalk.preOrderFrom(this::successors, "a").stream())
+        .containsExactlyElementsIn(
+            Walker.inGraph(this::successors).preOrderFrom("a").collect(toList()))
+        .inOrder();
+  }
+
+  @Test public void breadthFirst_sameAsWalker() {
+    assertThat(ResumableWalk.breadthFirstFrom(this::successors, "a").stream())
+        .containsExactlyElementsIn(
+            Walker.inGraph(this::successors).breadthFirstFrom("a").collect(toList()))
+        .inOrder();
+  }
+
+  @Test public void nullSuccessors() {
+    assertThat(ResumableWalk.preOrderFrom(n -> null, "a", "b", "a").stream())
+        .containsExactly("a", "b")
+        .inOrder();
+  }
+
+  @Test public void stream_continuesFromPreviousStream() {
+    ResumableWalk<String> walk = ResumableWalk.breadthFirstFrom(this::successors, "a");
+    assertThat(walk.stream().limit(2)).containsExactly("a", "b").inOrder();
+    assertThat(walk.stream().limit(2)).containsExactly("c", "d").inOrder();
+    assertThat(walk.stream()).containsExactly("e", "f", "g").inOrder();
+    assertThat(walk.stream()).isEmpty();
+  }
+
+  @Test public void checkpoint_initial() {
+    ResumableWalk.Checkpoint<String> checkpoint =
+        ResumableWalk.preOrderFrom(this::successors, "a", "b").checkpoint();
+    assertThat(checkpoint.visited()).isEmpty();
+    assertThat(checkpoint.expanding()).isEmpty();
+    assertThat(ResumableWalk.resume(this::successors, checkpoint).stream())
+        .containsExactly("a", "b", "d", "e", "g", "c", "f")
+        .inOrder();
+  }
+
+  @Test public void checkpoint_savesNodesBeingExpanded() {
+    ResumableWalk<String> walk = ResumableWalk.breadthFirstFrom(this::successors, "a");
+    assertThat(walk.stream().limit(5)).containsExactly("a", "b", "c", "d", "e").inOrder();
+    ResumableWalk.Checkpoint<String> checkpoint = walk.checkpoint();
+    assertThat(checkpoint.visited()).containsExactly("a", "b", "c", "d", "e");
+    assertThat(checkpoint.expanding()).containsExactly("b", "c", "d", "e").inOrder();
+    assertThat(checkpoint.toString()).isEqualTo("Checkpoint(5 visited, 4 expanding)");
+  }
+
+  @Test public void checkpoint_infiniteSuccessors() {
+    Function<Integer, Stream<Integer>> successors = n -> Stream.iterate(n + 1, i -> i + 1);
+    ResumableWalk<Integer> walk = ResumableWalk.preOrderFrom(successors, 0);
+    assertThat(walk.stream().limit(3)).containsExactly(0, 1, 2).inOrder();
+    ResumableWalk.Checkpoint<Integer> checkpoint =
+        SerializableTester.reserialize(walk.checkpoint());
+    assertThat(checkpoint.expanding()).containsExactly(2, 1, 0).inOrder();
+    assertThat(walk.stream().limit(3)).containsExactly(3, 4, 5).inOrder();
+    assertThat(ResumableWalk.resume(successors, checkpoint).stream().limit(3))
+        .containsExactly(3, 4, 5)
+        .inOrder();
+  }
+
+  @Test public void checkpoint_infiniteSuccessors_breadthFirst() {
+    Function<Integer, Stream<Integer>> successors = n -> Stream.iterate(n * 10, i -> i + 1);
+    ResumableWalk<Integer> walk = ResumableWalk.breadthFirstFrom(successors, 1);
+    assertThat(walk.stream().limit(3)).containsExactly(1, 10, 11).inOrder();
+    ResumableWalk.Checkpoint<Integer> checkpoint =
+        SerializableTester.reserialize(walk.checkpoint());
+    assertThat(ResumableWalk.resume(successors, checkpoint).stream().limit(3))
+        .containsExactly(12, 13, 14)
+        .inOrder();
+  }
+
+  @Test public void checkpoint_walkContinues() {
+    ResumableWalk<String> walk = ResumableWalk.preOrderFrom(this::successors, "a");
+    assertThat(walk.stream().limit(3)).containsExactly("a", "b", "d").inOrder();
+    walk.checkpoint();
+    assertThat(walk.stream()).containsExactly("e", "g", "c", "f").inOrder();
+  }
+
+  @Test public void checkpoint_fromWithinStream() {
+    ResumableWalk<String> walk = ResumableWalk.preOrderFrom(this::successors, "a");
+    List<ResumableWalk.Checkpoint<String>> checkpoints = new ArrayList<>();
+    List<String> visited = walk.stream()
+        .peek(n -> { if (n.equals("e")) checkpoints.add(walk.checkpoint()); })
+        .collect(toList());
+    assertThat(visited).containsExactly("a", "b", "d", "e", "g", "c", "f").inOrder();
+    assertThat(ResumableWalk.resume(this::successors, checkpoints.get(0)).stream())
+        .containsExactly("g", "c", "f")
+        .inOrder();
+  }
+
+  @Test public void resume_afterSerialization_preOrder() {
+    assertResumable(n -> ResumableWalk.preOrderFrom(this::successors, n));
+  }
+
+  @Test public void resume_afterSerialization_breadthFirst() {
+    assertResumable(n -> ResumableWalk.breadthFirstFrom(this::successors, n));
+  }
+
+  @Test public void resume_infiniteGraph() {
+    Function<Integer, Stream<Integer>> children = n -> Stream.of(n * 2, n * 2 + 1);
+    ResumableWalk<Integer> walk = ResumableWalk.breadthFirstFrom(children, 1);
+    assertThat(walk.stream().limit(5)).containsExactly(1, 2, 3, 4, 5).inOrder();
+    ResumableWalk<Integer> resumed =
+        ResumableWalk.resume(children, SerializableTester.reserialize(walk.checkpoint()));
+    assertThat(resumed.stream().limit(5)).containsExactly(6, 7, 8, 9, 10).inOrder();
+  }
+
+  @Test public void resume_multipleTimes_randomGraphs() {
+    Random random = new Random(1);
+    for (int round = 0; round < 30; round++) {
+      int nodeCount = 1 + random.nextInt(30);
+      ImmutableListMultimap.Builder<Integer, Integer> builder = ImmutableListMultimap.builder();
+      for (int i = 0; i < nodeCount * 2; i++) {
+        builder.put(random.nextInt(nodeCount), random.nextInt(nodeCount));
+      }
+      ListMultimap<Integer, Integer> edges = builder.build();
+      Function<Integer, Stream<Integer>> successors = n -> edges.get(n).stream();
+      boolean depthFirst = random.nextBoolean();
+      List<Integer> expected =
+          (depthFirst
+                  ? Walker.inGraph(successors).preOrderFrom(0)
+                  : Walker.inGraph(successors).breadthFirstFrom(0))
+              .collect(toList());
+      ResumableWalk<Integer> walk =
+          depthFirst
+              ? ResumableWalk.preOrderFrom(successors, 0)
+              : ResumableWalk.breadthFirstFrom(successors, 0);
+      List<Integer> visited = new ArrayList<>();
+      while (visited.size() < expected.size()) {
+        walk.stream().limit(1 + random.nextInt(3)).forEach(visited::add);
+        walk = ResumableWalk.resume(successors, SerializableTester.reserialize(walk.checkpoint()));
+      }
+      assertThat(walk.stream()).isEmpty();
+      assertThat(visited).containsExactlyElementsIn(expected).inOrder();
+    }
+  }
+
+  @Test public void testNulls() {
+    new NullPointerTester()
+        .setDefault(
+            ResumableWalk.Checkpoint.class,
+            ResumableWalk.preOrderFrom(this::successors, "a").checkpoint())
+        .testAllPublicStaticMethods(ResumableWalk.class);
+    new NullPointerTester()
+        .testAllPublicInstanceMethods(ResumableWalk.preOrderFrom(this::successors, "a"));
+  }
+
+  private Stream<String> successors(String node) {
+    return GRAPH.get(node).stream();
+  }
+
+  private void assertResumable(Function<String, ResumableWalk<String>> startFrom) {
+    List<String> expected = startFrom.apply("a").stream().collect(toList());
+    for (int i = 0; i <= expected.size(); i++) {
+      ResumableWalk<String> walk = startFrom.apply("a");
+      List<String> visited = walk.stream().limit(i).collect(toList());
+      ResumableWalk.Checkpoint<String> checkpoint =
+          SerializableTester.reserialize(walk.checkpoint());
+      ResumableWalk.resume(this::successors, checkpoint).stream().forEach(visited::add);
+      assertThat(visited).containsExactlyElementsIn(expected).inOrder();
+    }
+  }
+}
@@ -15,21 +15,35 @@
 package com.google.mu.util.graph;
 
 import static com.google.common.truth.Truth.assertThat;
+import static com.google.common.truth.Truth8.assertThat;
+import static com.google.mu.util.graph.ShortestPath.aStar;
+import static com.google.mu.util.graph.ShortestPath.bidirectionalShortestPath;
 import static com.google.mu.util.graph.ShortestPath.shortestPathsFrom;
+import static com.google.mu.util.graph.ShortestPath.unweightedBidirectionalShortestPath;
 import static com.google.mu.util.graph.ShortestPath.unweightedShortestPathsFrom;
 import static com.google.mu.util.stream.BiStream.biStream;
 import static java.util.stream.Collectors.toList;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.Function;
 
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
 
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ImmutableListMultimap;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ListMultimap;
+import com.google.common.collect.Multimaps;
 import com.google.common.graph.GraphBuilder;
 import com.google.common.graph.MutableGraph;
 import com.google.common.testing.NullPointerTester;
@@ -203,8 +217,183 @@ public class ShortestPathTest {
     assertThat(paths.get(2).stream().toMap()).isEqualTo(ImmutableMap.of("foo", 0D, "baz", 1D));
   }
 
+  @Test public void aStar_startIsGoal() {
+    graph.addNode("foo");
+    assertThat(aStar("foo", "foo", this::neighbors, n -> 0).get().toString()).isEqualTo("foo");
+  }
+
+  @Test public void aStar_unreachable() {
+    addEdge("foo", "bar", 1);
+    graph.addNode("baz");
+    assertThat(aStar("foo", "baz", this::neighbors, n -> 0)).isEmpty();
+  }
+
+  @Test public void aStar_zeroHeuristic_sameAsDijkstra() {
+    addEdge("foo", "bar", 10);
+    addEdge("bar", "baz", 5);
+    addEdge("foo", "baz", 20);
+    ShortestPath<String> path = aStar("foo", "baz", this::neighbors, n -> 0).get();
+    assertThat(path.distance()).isEqualTo(15D);
+    assertThat(path.stream().toMap())
+        .isEqualTo(ImmutableMap.of("foo", 0D, "bar", 10D, "baz", 15D));
+  }
+
+  @Test public void aStar_inconsistentHeuristic_stillShortest() {
+    // Admissible but inconsistent: "b" looks closer to the goal than it is via "a".
+    addEdge("s", "a", 1);
+    addEdge("s", "b", 4);
+    addEdge("a", "b", 1);
+    addEdge("b", "g", 3);
+    ImmutableMap<String, Double> estimates = ImmutableMap.of("s", 0D, "a", 4D, "b", 0D, "g", 0D);
+    ShortestPath<String> path = aStar("s", "g", this::neighbors, estimates::get).get();
+    assertThat(path.toString()).isEqualTo("s->a->b->g");
+    assertThat(path.distance()).isEqualTo(5D);
+  }
+
+  @Test public void aStar_negativeHeuristicDisallowed() {
+    addEdge("foo", "bar", 1);
+    assertThrows(
+        IllegalArgumentException.class, () -> aStar("foo", "bar", this::neighbors, n -> -1));
+  }
+
+  @Test public void aStar_negativeDistanceDisallowed() {
+    addEdge("foo", "bar", -1);
+    assertThrows(
+        IllegalArgumentException.class, () -> aStar("foo", "bar", this::neighbors, n -> 0));
+  }
+
+  @Test public void aStar_manhattanDistance_exploresFewerNodes() {
+    int size = 50;
+    Set<Integer> aStarExplored = new HashSet<>();
+    Set<Integer> dijkstraExplored = new HashSet<>();
+    int goal = size * size - 1;
+    ShortestPath<Integer> path = aStar(
+            0, goal,
+            n -> { aStarExplored.add(n); return gridNeighbors(n, size); },
+            n -> (size - 1 - n / size) + (size - 1 - n % size))
+        .get();
+    ShortestPath<Integer> dijkstraPath = aStar(
+            0, goal, n -> { dijkstraExplored.add(n); return gridNeighbors(n, size); }, n -> 0)
+        .get();
+    assertThat(path.distance()).isEqualTo(2D * (size - 1));
+    assertThat(dijkstraPath.distance()).isEqualTo(2D * (size - 1));
+    assertThat(aStarExplored.size()).isLessThan(dijkstraExplored.size() / 10);
+  }
+
+  @Test public void bidirectional_startIsGoal() {
+    graph.addNode("foo");
+    assertThat(
+            bidirectionalShortestPath("foo", "foo", this::neighbors, this::neighbors)
+                .get()
+                .stream()
+                .toMap())
+        .isEqualTo(ImmutableMap.of("foo", 0D));
+  }
+
+  @Test public void bidirectional_unreachable() {
+    addEdge("foo", "bar", 1);
+    addEdge("baz", "zoo", 1);
+    assertThat(bidirectionalShortestPath("foo", "zoo", this::neighbors, this::neighbors))
+        .isEmpty();
+  }
+
+  @Test public void bidirectional_shortestPath() {
+    addEdge("foo", "bar", 10);
+    addEdge("bar", "baz", 5);
+    addEdge("baz", "zoo", 1);
+    addEdge("foo", "dog", 3);
+    addEdge("dog", "zoo", 20);
+    ShortestPath<String> path =
+        bidirectionalShortestPath("foo", "zoo", this::neighbors, this::neighbors).get();
+    assertThat(path.distance()).isEqualTo(16D);
+    assertThat(path.stream().toMap())
+        .isEqualTo(ImmutableMap.of("foo", 0D, "bar", 10D, "baz", 15D, "zoo", 16D));
+  }
+
+  @Test public void bidirectional_directedGraph() {
+    ImmutableListMultimap<String, String> edges =
+        ImmutableListMultimap.of("a", "b", "b", "c", "c", "a", "a", "c");
+    ShortestPath<String> path = unweightedBidirectionalShortestPath(
+            "b", "a", n -> edges.get(n).stream(), n -> edges.inverse().get(n).stream())
+        .get();
+    assertThat(path.toString()).isEqualTo("b->c->a");
+    assertThat(path.distance()).isEqualTo(2D);
+    assertThat(
+            unweightedBidirectionalShortestPath(
+                    "a", "c", n -> edges.get(n).stream(), n -> edges.inverse().get(n).stream())
+                .get()
+                .toString())
+        .isEqualTo("a->c");
+  }
+
+  @Test public void bidirectional_negativeDistanceDisallowed() {
+    addEdge("foo", "bar", -1);
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> bidirectionalShortestPath("foo", "bar", this::neighbors, this::neighbors));
+  }
+
+  @Test public void randomGraphs_consistentWithDijkstra() {
+    Random random = new Random(1);
+    for (int round = 0; round < 50; round++) {
+      int nodeCount = 2 + random.nextInt(30);
+      ListMultimap<Integer, Integer> edges = ArrayListMultimap.create();
+      Map<String, Double> weights = new HashMap<>();
+      for (int i = 0; i < nodeCount * 2; i++) {
+        int from = random.nextInt(nodeCount);
+        int to = random.nextInt(nodeCount);
+        edges.put(from, to);
+        weights.merge(from + "->" + to, (double) random.nextInt(10), Math::min);
+      }
+      ListMultimap<Integer, Integer> reversed =
+          Multimaps.invertFrom(edges, ArrayListMultimap.create());
+      Function<Integer, BiStream<Integer, Double>> successors =
+          n -> biStream(edges.get(n)).mapValues(t -> weights.get(n + "->" + t));
+      Function<Integer, BiStream<Integer, Double>> predecessors =
+          n -> biStream(reversed.get(n)).mapValues(f -> weights.get(f + "->" + n));
+      int start = random.nextInt(nodeCount);
+      int goal = random.nextInt(nodeCount);
+      Optional<Double> expected = shortestPathsFrom(start, successors)
+          .filter(p -> p.to() == goal)
+          .findFirst()
+          .map(ShortestPath::distance);
+      Optional<ShortestPath<Integer>> bidirectional =
+          bidirectionalShortestPath(start, goal, successors, predecessors);
+      Optional<ShortestPath<Integer>> aStar = aStar(start, goal, successors, n -> 0);
+      assertThat(bidirectional.map(ShortestPath::distance)).isEqualTo(expected);
+      assertThat(aStar.map(ShortestPath::distance)).isEqualTo(expected);
+      bidirectional.ifPresent(path -> assertValidPath(path, start, goal, weights));
+      aStar.ifPresent(path -> assertValidPath(path, start, goal, weights));
+    }
+  }
+
   @Test public void testNulls() throws Exception {
-    new NullPointerTester().testAllPublicStaticMethods(ShortestPath.class);
+    new NullPointerTester()
+        .setDefault(CsrGraph.class, CsrGraph.fromEdges(BiStream.empty()))
+        .testAllPublicStaticMethods(ShortestPath.class);
+  }
+
+  private static void assertValidPath(
+      ShortestPath<Integer> path, int start, int goal, Map<String, Double> weights) {
+    List<Integer> nodes = path.stream().keys().collect(toList());
+    assertThat(nodes.get(0)).isEqualTo(start);
+    assertThat(nodes.get(nodes.size() - 1)).isEqualTo(goal);
+    double total = 0;
+    for (int i = 1; i < nodes.size(); i++) {
+      total += weights.get(nodes.get(i - 1) + "->" + nodes.get(i));
+    }
+    assertThat(total).isEqualTo(path.distance());
+  }
+
+  private static BiStream<Integer, Double> gridNeighbors(int node, int size) {
+    int row = node / size;
+    int col = node % size;
+    List<Integer> neighbors = new ArrayList<>();
+    if (row > 0) neighbors.add(node - size);
+    if (row < size - 1) neighbors.add(node + size);
+    if (col > 0) neighbors.add(node - 1);
+    if (col < size - 1) neighbors.add(node + 1);
+    return biStream(neighbors).mapValues(n -> 1D);
   }
 
   private BiStream<String, Double> neighbors(String node) {
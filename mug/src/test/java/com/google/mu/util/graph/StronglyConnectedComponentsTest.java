@@ -1,10 +1,15 @@
 package com.google.mu.util.graph;
 
+import static com.google.common.truth.Truth.assertThat;
 import static com.google.common.truth.Truth8.assertThat;
 import static java.util.Arrays.asList;
+import static java.util.stream.Collectors.toSet;
 
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Random;
+import java.util.Set;
 import java.util.stream.Stream;
 
 import org.junit.Test;
@@ -113,12 +118,103 @@ public class StronglyConnectedComponentsTest {
         .containsExactly(asList("baz", "bar", "foo"), asList("zoo"), asList("dog"), asList("cat"));
   }
 
+  @Test public void stronglyConnectedComponents_edgesIntoCompletedComponentIgnored() {
+    Graph<String> graph = toDirectedGraph(
+        ImmutableListMultimap.of("a", "b", "b", "a", "c", "a", "c", "d", "d", "c"));
+    assertThat(stronglyConnectedFrom(graph, "a", "c"))
+        .containsExactly(asList("b", "a"), asList("d", "c"))
+        .inOrder();
+  }
+
+  @Test public void stronglyConnectedComponents_crossEdgeIntoPendingComponent() {
+    // 2 -> 1 is a cross edge into the pending component of 1 and 0.
+    Graph<Integer> graph = toDirectedGraph(ImmutableListMultimap.of(0, 1, 0, 2, 1, 0, 2, 1));
+    assertThat(stronglyConnectedFrom(graph, 0)).containsExactly(asList(2, 1, 0));
+  }
+
+  @Test public void stronglyConnectedComponents_deepGraph_noStackOverflow() {
+    int depth = 100_000;
+    GraphWalker<Integer> walker = Walker.inGraph(n -> n < depth ? Stream.of(n + 1, 0) : Stream.of(0));
+    assertThat(walker.stronglyConnectedComponentsFrom(0).map(List::size))
+        .containsExactly(depth + 1);
+  }
+
+  @Test public void stronglyConnectedComponents_customTracker() {
+    Multimap<String, String> edges = ImmutableListMultimap.of("a", "b", "b", "a", "b", "c");
+    Set<String> seen = new HashSet<>();
+    GraphWalker<String> walker =
+        Walker.inGraph(n -> edges.get(n).stream(), n -> !n.equals("c") && seen.add(n));
+    assertThat(walker.stronglyConnectedComponentsFrom("a")).containsExactly(asList("b", "a"));
+  }
+
+  @Test public void cyclicComponents_noCycle() {
+    Graph<String> graph = toDirectedGraph(
+        ImmutableListMultimap.of("foo", "bar", "bar", "zoo", "foo", "zoo"));
+    assertThat(cyclicFrom(graph, "foo")).isEmpty();
+  }
+
+  @Test public void cyclicComponents_selfLoop() {
+    Multimap<String, String> edges = ImmutableListMultimap.of("foo", "bar", "bar", "bar");
+    assertThat(Walker.inGraph((String n) -> edges.get(n).stream()).cyclicComponentsFrom("foo"))
+        .containsExactly(asList("bar"));
+  }
+
+  @Test public void cyclicComponents_reportsEveryCycle() {
+    Graph<String> graph = toDirectedGraph(
+        ImmutableListMultimap.<String, String>builder()
+            .putAll("a", "b", "d")
+            .putAll("b", "c")
+            .putAll("c", "b")
+            .putAll("d", "e", "f")
+            .putAll("e", "d")
+            .build());
+    assertThat(cyclicFrom(graph, "a"))
+        .containsExactly(asList("c", "b"), asList("e", "d"))
+        .inOrder();
+  }
+
+  @Test public void cyclicComponents_lazy() {
+    GraphWalker<Integer> walker = Walker.inGraph(n -> Stream.of(n, n + 1));
+    assertThat(walker.cyclicComponentsFrom(0).limit(0)).isEmpty();
+  }
+
+  @Test public void randomGraphs_consistentWithMutualReachability() {
+    Random random = new Random(1);
+    for (int round = 0; round < 50; round++) {
+      int nodeCount = 1 + random.nextInt(30);
+      ImmutableListMultimap.Builder<Integer, Integer> builder = ImmutableListMultimap.builder();
+      for (int i = 0; i < nodeCount * 2; i++) {
+        builder.put(random.nextInt(nodeCount), random.nextInt(nodeCount));
+      }
+      Multimap<Integer, Integer> edges = builder.build();
+      GraphWalker<Integer> walker = Walker.inGraph(n -> edges.get(n).stream());
+      int start = random.nextInt(nodeCount);
+      Set<Set<Integer>> expected = walker.preOrderFrom(start)
+          .map(n -> walker.preOrderFrom(n)
+              .filter(m -> walker.preOrderFrom(m).anyMatch(n::equals))
+              .collect(toSet()))
+          .collect(toSet());
+      assertThat(walker.stronglyConnectedComponentsFrom(start).map(HashSet::new).collect(toSet()))
+          .isEqualTo(expected);
+      assertThat(walker.cyclicComponentsFrom(start).map(HashSet::new).collect(toSet()))
+          .isEqualTo(
+              expected.stream()
+                  .filter(c -> c.size() > 1 || c.stream().anyMatch(n -> edges.containsEntry(n, n)))
+                  .collect(toSet()));
+    }
+  }
+
   @SafeVarargs
   private static <N> Stream<List<N>> stronglyConnectedFrom(Graph<N> graph, N... startNodes) {
     return Walker.inGraph((N n) -> graph.successors(n).stream())
         .stronglyConnectedComponentsFrom(startNodes);
   }
 
+  @SafeVarargs
+  private static <N> Stream<List<N>> cyclicFrom(Graph<N> graph, N... startNodes) {
+    return Walker.inGraph((N n) -> graph.successors(n).stream()).cyclicComponentsFrom(startNodes);
+  }
+
   private static <N> Graph<N> toDirectedGraph(Multimap<N, N> edges) {
     MutableGraph<N> graph =
         GraphBuilder.directed().incidentEdgeOrder(ElementOrder.stable()).build();
@@ -0,0 +1,260 @@
+package com.google.mu.util.graph;
+
+import static com.google.common.truth.Truth.assertThat;
+import static java.util.Arrays.asList;
+import static java.util.stream.Collectors.toList;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.collect.ListMultimap;
+import com.google.common.testing.NullPointerTester;
+import com.google.mu.util.concurrent.Fanout;
+import com.google.mu.util.concurrent.Parallelizer;
+import com.google.mu.util.concurrent.StructuredConcurrencyInterruptedException;
+
+public class TopologicalWavesTest {
+  private final Parallelizer parallelizer = Fanout.withMaxConcurrency(3);
+
+  @Test public void noStartNode() {
+    assertThat(Walker.inGraph(n -> null).topologicalWavesFrom()).isEmpty();
+  }
+
+  @Test public void singleNode() {
+    assertThat(Walker.inGraph(n -> null).topologicalWavesFrom("root"))
+        .containsExactly(asList("root"));
+  }
+
+  @Test public void duplicateStartNodes() {
+    assertThat(Walker.inGraph(n -> null).topologicalWavesFrom("foo", "foo"))
+        .containsExactly(asList("foo"));
+  }
+
+  @Test public void diamond() {
+    GraphWalker<String> walker =
+        walker(ImmutableListMultimap.of("a", "b", "a", "c", "b", "d", "c", "d"));
+    assertThat(walker.topologicalWavesFrom("a"))
+        .containsExactly(asList("a"), asList("b", "c"), asList("d"))
+        .inOrder();
+  }
+
+  @Test public void longerPathDeterminesWave() {
+    GraphWalker<String> walker =
+        walker(ImmutableListMultimap.of("a", "d", "a", "b", "b", "c", "c", "d"));
+    assertThat(walker.topologicalWavesFrom("a"))
+        .containsExactly(asList("a"), asList("b"), asList("c"), asList("d"))
+        .inOrder();
+  }
+
+  @Test public void startNodeWithPredecessor() {
+    GraphWalker<String> walker = walker(ImmutableListMultimap.of("a", "b", "b", "c", "x", "c"));
+    assertThat(walker.topologicalWavesFrom("b", "x"))
+        .containsExactly(asList("b", "x"), asList("c"))
+        .inOrder();
+  }
+
+  @Test public void duplicateEdges() {
+    GraphWalker<String> walker = walker(ImmutableListMultimap.of("a", "b", "a", "b"));
+    assertThat(walker.topologicalWavesFrom("a"))
+        .containsExactly(asList("a"), asList("b"))
+        .inOrder();
+  }
+
+  @Test public void cyclic() {
+    GraphWalker<String> walker =
+        walker(ImmutableListMultimap.of("a", "b", "b", "c", "c", "b", "a", "d"));
+    CyclicGraphException thrown =
+        assertThrows(CyclicGraphException.class, () -> walker.topologicalWavesFrom("a"));
+    assertThat(thrown.cyclicPath()).containsExactly("a", "b", "c", "b").inOrder();
+  }
+
+  @Test public void selfCycle() {
+    GraphWalker<String> walker = walker(ImmutableListMultimap.of("a", "a"));
+    CyclicGraphException thrown =
+        assertThrows(CyclicGraphException.class, () -> walker.topologicalWavesFrom("a"));
+    assertThat(thrown.cyclicPath()).containsExactly("a", "a").inOrder();
+  }
+
+  @Test public void customTracker_prunedNodesIgnored() {
+    ListMultimap<String, String> edges = ImmutableListMultimap.of("a", "b", "b", "c", "a", "c");
+    Set<String> seen = new HashSet<>();
+    GraphWalker<String> walker =
+        Walker.inGraph(n -> edges.get(n).stream(), n -> !n.equals("b") && seen.add(n));
+    assertThat(walker.topologicalWavesFrom("a"))
+        .containsExactly(asList("a"), asList("c"))
+        .inOrder();
+  }
+
+  @Test public void randomDags_consistentWithTopologicalOrder() {
+    Random random = new Random(1);
+    for (int round = 0; round < 50; round++) {
+      int nodeCount = 1 + random.nextInt(30);
+      ImmutableListMultimap.Builder<Integer, Integer> builder = ImmutableListMultimap.builder();
+      for (int i = 0; i < nodeCount * 2; i++) {
+        int from = random.nextInt(nodeCount);
+        int to = random.nextInt(nodeCount);
+        if (from < to) builder.put(from, to);
+      }
+      ListMultimap<Integer, Integer> edges = builder.build();
+      GraphWalker<Integer> walker = walker(edges);
+      List<List<Integer>> waves = walker.topologicalWavesFrom(0);
+      List<Integer> flattened = waves.stream().flatMap(List::stream).collect(toList());
+      assertThat(flattened).containsExactlyElementsIn(walker.topologicalOrderFrom(0));
+      for (int i = 0; i < waves.size(); i++) {
+        for (int node : waves.get(i)) {
+          for (int successor : edges.get(node)) {
+            assertThat(waveOf(waves, successor)).isGreaterThan(i);
+          }
+        }
+      }
+    }
+  }
+
+  @Test public void forEachInTopologicalOrder_noStartNode() throws Exception {
+    List<String> visited = new ArrayList<>();
+    Walker.<String>inGraph(n -> null)
+        .forEachInTopologicalOrderFrom(parallelizer, visited::add);
+    assertThat(visited).isEmpty();
+  }
+
+  @Test public void forEachInTopologicalOrder_predecessorsCompleteFirst() throws Exception {
+    ListMultimap<String, String> edges = ImmutableListMultimap.<String, String>builder()
+        .putAll("a", "b", "c")
+        .putAll("b", "d")
+        .putAll("c", "d", "e")
+        .putAll("d", "f")
+        .build();
+    List<String> completed = Collections.synchronizedList(new ArrayList<>());
+    walker(edges).forEachInTopologicalOrderFrom(parallelizer, completed::add, "a");
+    assertThat(completed).containsExactly("a", "b", "c", "d", "e", "f");
+    for (String from : edges.keySet()) {
+      for (String to : edges.get(from)) {
+        assertThat(completed.indexOf(from)).isLessThan(completed.indexOf(to));
+      }
+    }
+  }
+
+  @Test public void forEachInTopologicalOrder_doesNotWaitForUnrelatedNodes() throws Exception {
+    // "slow" blocks until "fast2" runs, which is only possible if "fast2" doesn't wait for the
+    // entire first wave.
+    ListMultimap<String, String> edges = ImmutableListMultimap.of("fast1", "fast2");
+    CountDownLatch fast2Done = new CountDownLatch(1);
+    walker(edges).forEachInTopologicalOrderFrom(
+        parallelizer,
+        n -> {
+          if (n.equals("slow")) {
+            try {
+              assertThat(fast2Done.await(10, TimeUnit.SECONDS)).isTrue();
+            } catch (InterruptedException e) {
+              throw new AssertionError(e);
+            }
+          } else if (n.equals("fast2")) {
+            fast2Done.countDown();
+          }
+        },
+        "slow", "fast1");
+    assertThat(fast2Done.getCount()).isEqualTo(0);
+  }
+
+  @Test public void forEachInTopologicalOrder_respectsMaxConcurrency() throws Exception {
+    ListMultimap<Integer, Integer> edges = ImmutableListMultimap.of(0, 1, 0, 2, 0, 3, 0, 4, 0, 5);
+    AtomicInteger running = new AtomicInteger();
+    Set<Integer> concurrency = ConcurrentHashMap.newKeySet();
+    walker(edges).forEachInTopologicalOrderFrom(
+        parallelizer,
+        n -> {
+          concurrency.add(running.incrementAndGet());
+          try {
+            Thread.sleep(5);
+          } catch (InterruptedException e) {
+            throw new AssertionError(e);
+          }
+          running.decrementAndGet();
+        },
+        0);
+    assertThat(Collections.max(concurrency)).isAtMost(3);
+  }
+
+  @Test public void forEachInTopologicalOrder_cyclic_nothingRun() {
+    List<String> visited = new ArrayList<>();
+    GraphWalker<String> walker = walker(ImmutableListMultimap.of("a", "b", "b", "a"));
+    assertThrows(
+        CyclicGraphException.class,
+        () -> walker.forEachInTopologicalOrderFrom(parallelizer, visited::add, "a"));
+    assertThat(visited).isEmpty();
+  }
+
+  @Test public void forEachInTopologicalOrder_failureStopsSuccessors() {
+    List<String> visited = Collections.synchronizedList(new ArrayList<>());
+    GraphWalker<String> walker = walker(ImmutableListMultimap.of("a", "b", "b", "c"));
+    RuntimeException thrown = assertThrows(
+        RuntimeException.class,
+        () -> walker.forEachInTopologicalOrderFrom(
+            parallelizer,
+            n -> {
+              if (n.equals("b")) throw new IllegalStateException("bad b");
+              visited.add(n);
+            },
+            "a"));
+    assertThat(thrown).hasCauseThat().isInstanceOf(IllegalStateException.class);
+    assertThat(visited).containsExactly("a");
+  }
+
+  @Test public void forEachInTopologicalOrder_interrupted() throws Exception {
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch blocked = new CountDownLatch(1);
+    Thread main = Thread.currentThread();
+    GraphWalker<String> walker = walker(ImmutableListMultimap.of("a", "b"));
+    try {
+      assertThrows(
+          StructuredConcurrencyInterruptedException.class,
+          () -> walker.forEachInTopologicalOrderFrom(
+              parallelizer,
+              n -> {
+                started.countDown();
+                main.interrupt();
+                try {
+                  blocked.await();
+                } catch (InterruptedException e) {
+                  // canceled
+                }
+              },
+              "a"));
+      assertThat(Thread.currentThread().isInterrupted()).isTrue();
+    } finally {
+      blocked.countDown();
+      Thread.interrupted();
+    }
+    assertThat(started.getCount()).isEqualTo(0);
+  }
+
+  @Test public void testNulls() {
+    GraphWalker<String> walker = Walker.inGraph(n -> null);
+    new NullPointerTester()
+        .setDefault(Parallelizer.class, parallelizer)
+        .testAllPublicInstanceMethods(walker);
+  }
+
+  private static int waveOf(List<List<Integer>> waves, int node) {
+    for (int i = 0; i < waves.size(); i++) {
+      if (waves.get(i).contains(node)) return i;
+    }
+    throw new AssertionError(node + " not found");
+  }
+
+  private static <N> GraphWalker<N> walker(ListMultimap<N, N> edges) {
+    return Walker.inGraph(n -> edges.get(n).stream());
+  }
+}
@@ -34,6 +34,8 @@ import com.google.common.graph.GraphBuilder;
 import com.google.common.graph.MutableGraph;
 import com.google.common.testing.ClassSanityTester;
 import com.google.common.testing.NullPointerTester;
+import com.google.mu.util.concurrent.Fanout;
+import com.google.mu.util.concurrent.Parallelizer;
 import com.google.mu.util.stream.BiStream;
 import com.google.mu.util.stream.MoreStreams;
 
@@ -285,13 +287,20 @@ public class WalkerTest {
   }
 
   @Test public void staticMethods_nullCheck() throws Exception {
-    new NullPointerTester().testAllPublicStaticMethods(Walker.class);
-    new ClassSanityTester().forAllPublicStaticMethods(Walker.class).testNulls();
+    new NullPointerTester()
+        .setDefault(Parallelizer.class, Fanout.withMaxConcurrency(1))
+        .testAllPublicStaticMethods(Walker.class);
+    new ClassSanityTester()
+        .setDefault(Parallelizer.class, Fanout.withMaxConcurrency(1))
+        .forAllPublicStaticMethods(Walker.class)
+        .testNulls();
   }
 
   @Test public void instanceMethods_nullCheck()
       throws Exception {
-    new NullPointerTester().testAllPublicInstanceMethods(dataType.newWalker());
+    new NullPointerTester()
+        .setDefault(Parallelizer.class, Fanout.withMaxConcurrency(1))
+        .testAllPublicInstanceMethods(dataType.newWalker());
   }
 
   private static <N> Streamer<N> findSuccessors(Map<?, Streamer<N>> edges, N node) {
@@ -28,6 +28,7 @@ import static com.google.mu.util.stream.BiCollectors.partitioningBy;
 import static com.google.mu.util.stream.BiCollectors.toMap;
 import static com.google.mu.util.stream.BiStream.biStream;
 import static com.google.mu.util.stream.BiStreamTest.assertKeyValues;
+import static java.util.Arrays.asList;
 import static java.util.Collections.nCopies;
 import static java.util.Comparator.naturalOrder;
 import static java.util.stream.Collectors.summingInt;
@@ -38,6 +39,11 @@ import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.Collector;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
 import java.util.stream.Stream;
 
 import org.junit.Test;
@@ -48,6 +54,7 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableListMultimap;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSetMultimap;
+import com.google.common.collect.Range;
 import com.google.mu.util.BiOptional;
 
 @RunWith(JUnit4.class)
@@ -166,6 +173,93 @@ public class BiCollectorsTest {
         () -> BiStream.of("foo", "nonnull", "foo", null).collect(toMap(() -> null)));
   }
 
+  @Test public void testToConcurrentMap() {
+    ConcurrentMap<String, Integer> map =
+        BiStream.of("one", 1, "two", 2).collect(BiCollectors.toConcurrentMap());
+    assertThat(map).containsExactly("one", 1, "two", 2);
+  }
+
+  @Test public void testToConcurrentMap_duplicateKey() {
+    IllegalArgumentException thrown =
+        assertThrows(
+            IllegalArgumentException.class,
+            () -> BiStream.of("k", 1, "k", 2).collect(BiCollectors.toConcurrentMap()));
+    assertThat(thrown).hasMessageThat().contains("[k]");
+  }
+
+  @Test public void testToConcurrentMap_parallel() {
+    ConcurrentMap<Integer, Integer> map =
+        BiStream.from(IntStream.range(0, 10000).boxed().parallel(), i -> i, i -> i * 2)
+            .collect(BiCollectors.toConcurrentMap());
+    assertThat(map).hasSize(10000);
+    assertThat(map).containsEntry(9999, 19998);
+  }
+
+  @Test public void testToConcurrentMap_parallel_duplicateKey() {
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> BiStream.from(IntStream.range(0, 10000).boxed().parallel(), i -> i % 9999, i -> i)
+            .collect(BiCollectors.toConcurrentMap()));
+  }
+
+  @Test public void testToConcurrentMap_withMerger() {
+    assertThat(
+            BiStream.of("a", 1, "b", 2, "a", 3).collect(BiCollectors.toConcurrentMap(Integer::sum)))
+        .containsExactly("a", 4, "b", 2);
+  }
+
+  @Test public void testToConcurrentMap_withMerger_parallel() {
+    ConcurrentMap<Integer, Long> map =
+        BiStream.from(LongStream.range(0, 100000).boxed().parallel(), i -> (int) (i % 10), i -> i)
+            .collect(BiCollectors.toConcurrentMap(Long::sum));
+    assertThat(map).hasSize(10);
+    assertThat(map.values().stream().mapToLong(Long::longValue).sum()).isEqualTo(4999950000L);
+    assertThat(map).containsEntry(0, 499950000L);
+  }
+
+  @Test public void testToConcurrentMap_characteristics() {
+    assertThat(
+            BiCollectors.<String, Integer>toConcurrentMap()
+                .collectorOf(Map.Entry<String, Integer>::getKey, Map.Entry::getValue)
+                .characteristics())
+        .containsAtLeast(Collector.Characteristics.CONCURRENT, Collector.Characteristics.UNORDERED);
+    assertThat(
+            BiCollectors.<String, Integer>toConcurrentMap(Integer::sum)
+                .collectorOf(Map.Entry<String, Integer>::getKey, Map.Entry::getValue)
+                .characteristics())
+        .containsAtLeast(Collector.Characteristics.CONCURRENT, Collector.Characteristics.UNORDERED);
+  }
+
+  @Test public void testGroupingByConcurrent_reducer() {
+    ConcurrentMap<Character, Integer> map =
+        BiStream.of("foo", 1, "bar", 2, "fun", 3)
+            .collect(BiCollectors.groupingByConcurrent(s -> s.charAt(0), Integer::sum));
+    assertThat(map).containsExactly('f', 4, 'b', 2);
+  }
+
+  @Test public void testGroupingByConcurrent_reducer_parallel() {
+    ConcurrentMap<Boolean, Long> map =
+        BiStream.from(LongStream.rangeClosed(1, 100000).boxed().parallel(), i -> i, i -> i)
+            .collect(BiCollectors.groupingByConcurrent(i -> i % 2 == 0, Long::sum));
+    assertThat(map).containsExactly(true, 2500050000L, false, 2500000000L);
+  }
+
+  @Test public void testGroupingByConcurrent_collector() {
+    ConcurrentMap<Integer, List<String>> map =
+        BiStream.of("a", "x", "bb", "y", "c", "z")
+            .collect(BiCollectors.groupingByConcurrent(String::length, toList()));
+    assertThat(map).containsExactly(1, asList("x", "z"), 2, asList("y"));
+  }
+
+  @Test public void testGroupingByConcurrent_collector_parallel() {
+    ConcurrentMap<Integer, Long> map =
+        BiStream.from(IntStream.range(0, 100000).boxed().parallel(), i -> i % 7, i -> i)
+            .collect(BiCollectors.groupingByConcurrent(k -> k, Collectors.counting()));
+    assertThat(map).hasSize(7);
+    assertThat(map.values().stream().mapToLong(Long::longValue).sum()).isEqualTo(100000L);
+    assertThat(map).containsEntry(0, 14286L);
+  }
+
   @Test public void testToImmutableMap_covariance() {
     Map<Object, String> map = BiStream.of(1, "one").collect(toMap());
     assertThat(map).containsExactly(1, "one");
@@ -207,6 +301,29 @@ public class BiCollectorsTest {
         .isEqualTo(2);
   }
 
+  @Test public void testCountingDistinctApproximately() {
+    assertThat(
+            BiStream.of(1, "one", 1, "one", 1, "uno", 2, "one")
+                .collect(BiCollectors.countingDistinctApproximately()))
+        .isEqualTo(3);
+  }
+
+  @Test public void testCountingDistinctApproximately_symmetricPairsNotConflated() {
+    assertThat(
+            BiStream.from(IntStream.range(0, 1000).boxed(), i -> i % 10, i -> i / 10)
+                .inverse()
+                .append(BiStream.from(IntStream.range(0, 1000).boxed(), i -> i % 10, i -> i / 10))
+                .collect(BiCollectors.countingDistinctApproximately()))
+        .isIn(Range.closed(1870L, 1930L));
+  }
+
+  @Test public void testCountingDistinctApproximately_parallel() {
+    assertThat(
+            BiStream.from(IntStream.range(0, 100_000).boxed().parallel(), i -> i % 1000, i -> i)
+                .collect(BiCollectors.countingDistinctApproximately()))
+        .isIn(Range.closed(97_000L, 103_000L));
+  }
+
   @Test public void testSummingInt() {
     assertThat(BiStream.of(1, 10, 2, 20).collect(BiCollectors.summingInt((a, b) -> a + b))).isEqualTo(33);
   }
@@ -474,6 +591,36 @@ public class BiCollectorsTest {
         .isEqualTo(BiOptional.empty());
   }
 
+  @Test public void testGreatestByValue() {
+    assertKeyValues(
+            BiStream.of("a", 3, "b", 5, "c", 1, "d", 5, "e", 4)
+                .collect(BiCollectors.greatestByValue(3, naturalOrder())))
+        .containsExactly("b", 5, "d", 5, "e", 4)
+        .inOrder();
+  }
+
+  @Test public void testGreatestByValue_parallel() {
+    assertKeyValues(
+            BiStream.from(IntStream.range(0, 10000).boxed().parallel(), i -> "#" + i, i -> i)
+                .collect(BiCollectors.greatestByValue(2, naturalOrder())))
+        .containsExactly("#9999", 9999, "#9998", 9998)
+        .inOrder();
+  }
+
+  @Test public void testLeastByValue() {
+    assertKeyValues(
+            BiStream.of("a", 3, "b", 5, "c", 1, "d", 5, "e", 4)
+                .collect(BiCollectors.leastByValue(2, naturalOrder())))
+        .containsExactly("c", 1, "a", 3)
+        .inOrder();
+  }
+
+  @Test public void testLeastByValue_empty() {
+    assertKeyValues(
+            BiStream.<String, Integer>empty().collect(BiCollectors.leastByValue(2, naturalOrder())))
+        .isEmpty();
+  }
+
  @Test public void testMaxByValue_found() {
     assertThat(BiStream.of(1, "y", 2, "x").collect(maxByValue(naturalOrder())))
         .isEqualTo(BiOptional.of(1, "y"));
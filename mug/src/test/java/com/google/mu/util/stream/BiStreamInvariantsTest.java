@@ -704,6 +704,29 @@ public void testMaxBy_notFound() {
         .inOrder();
   }
 
+  @Test public void reusedAfterTerminalOperation_throws() {
+    BiStream<String, Integer> stream =
+        of("a", "x", "bb", "y").mapValues(String::length).filter((k, v) -> true);
+    assertThat(stream.toMap()).containsExactly("a", 1, "bb", 1).inOrder();
+    assertThrows(IllegalStateException.class, stream::toMap);
+  }
+
+  @Test public void branched_throws() {
+    BiStream<String, Integer> stream = of("a", 1, "b", 2).mapValues(v -> v * 10);
+    BiStream<String, Integer> small = stream.filter((k, v) -> v < 15);
+    assertThrows(IllegalStateException.class, () -> stream.filter((k, v) -> v >= 15));
+    assertThat(small.toMap()).containsExactly("a", 10);
+  }
+
+  @Test public void notConsumedUntilTerminalOperation() {
+    List<String> peeked = new ArrayList<>();
+    BiStream<String, Integer> stream =
+        of("a", 1).mapValues(v -> v * 10).peek((k, v) -> peeked.add(k));
+    assertThat(peeked).isEmpty();
+    assertThat(stream.toMap()).containsExactly("a", 10);
+    assertThat(peeked).containsExactly("a");
+  }
+
   @Test public void testGroupConsecutiveBy_emptyStream() {
     assertKeyValues(of().groupConsecutiveBy(identity(), toList())).isEmpty();
   }
@@ -1142,6 +1165,18 @@ public void testMaxBy_notFound() {
         return stream.skipValuesIf(k -> false);
       }
     },
+    MAP_KEY_TO_SELF_THEN_TRIVIAL_FILTER {
+      @Override
+      <K, V> BiStream<K, V> wrap(BiStream<K, V> stream) {
+        return stream.mapKeys(identity()).filter((k, v) -> true);
+      }
+    },
+    MAP_VALUE_TO_SELF_THEN_TRIVIAL_PEEK {
+      @Override
+      <K, V> BiStream<K, V> wrap(BiStream<K, V> stream) {
+        return stream.mapValues(identity()).peek((k, v) -> {});
+      }
+    },
     ;
 
     abstract <K, V> BiStream<K, V> wrap(BiStream<K, V> stream);
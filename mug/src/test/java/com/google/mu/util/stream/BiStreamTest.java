@@ -35,16 +35,20 @@ import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.Spliterator;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collector;
 import java.util.stream.Collectors;
 import java.util.stream.DoubleStream;
@@ -145,6 +149,80 @@ public class BiStreamTest {
         .inOrder();
   }
 
+  @Test public void testFilterAfterMapping_functionsInvokedOncePerPair() {
+    AtomicInteger keyCalls = new AtomicInteger();
+    AtomicInteger valueCalls = new AtomicInteger();
+    BiStream<String, Integer> stream =
+        BiStream.from(
+            Stream.of(1, 2, 3, 4),
+            n -> { keyCalls.incrementAndGet(); return "k" + n; },
+            n -> { valueCalls.incrementAndGet(); return n * 10; });
+    assertKeyValues(stream.filter((k, v) -> v > 10).mapValues(v -> v + 1).filterKeys(k -> true))
+        .containsExactlyEntriesIn(ImmutableMultimap.of("k2", 21, "k3", 31, "k4", 41))
+        .inOrder();
+    assertThat(keyCalls.get()).isEqualTo(4);
+    assertThat(valueCalls.get()).isEqualTo(4);
+  }
+
+  @Test public void testFilterAfterMapping_peek() {
+    List<String> peeked = new ArrayList<>();
+    Map<String, Integer> map =
+        BiStream.from(ImmutableMap.of("a", 1, "b", 2, "c", 3))
+            .mapKeys(k -> k.toUpperCase())
+            .peek((k, v) -> peeked.add(k + v))
+            .filterValues(v -> v % 2 == 1)
+            .toMap();
+    assertThat(map).containsExactly("A", 1, "C", 3).inOrder();
+    assertThat(peeked).containsExactly("A1", "B2", "C3").inOrder();
+  }
+
+  @Test public void testFilterAfterMapping_shortCircuits() {
+    List<Integer> evaluated = new ArrayList<>();
+    BiStream<Integer, Integer> stream =
+        BiStream.from(indexesFrom(1), n -> n, n -> { evaluated.add(n); return n * n; })
+            .filter((k, v) -> v > 1);
+    assertThat(stream.anyMatch((k, v) -> v == 9)).isTrue();
+    assertThat(evaluated).containsExactly(1, 2, 3).inOrder();
+  }
+
+  @Test public void testFilterAfterMapping_limitAndSkip() {
+    assertKeyValues(
+            BiStream.from(indexesFrom(1), n -> n, n -> n * 2)
+                .filterKeys(n -> n % 2 == 0)
+                .skip(1)
+                .limit(2))
+        .containsExactlyEntriesIn(ImmutableMultimap.of(4, 8, 6, 12))
+        .inOrder();
+  }
+
+  @Test public void testFilterAfterMapping_parallel() {
+    List<Integer> numbers = IntStream.range(0, 100000).boxed().collect(toList());
+    BiStream<Integer, Integer> stream =
+        BiStream.from(numbers.parallelStream(), n -> n, n -> n * 2)
+            .filter((k, v) -> k % 3 == 0)
+            .mapValues(v -> v + 1);
+    Stream<Integer> values = stream.mapToObj((k, v) -> v);
+    assertThat(values.isParallel()).isTrue();
+    assertThat(values.collect(toList()))
+        .containsExactlyElementsIn(
+            numbers.stream().filter(n -> n % 3 == 0).map(n -> n * 2 + 1).collect(toList()))
+        .inOrder();
+    Map<Integer, Integer> map =
+        BiStream.from(numbers.parallelStream(), n -> n, n -> n * 2).filterKeys(n -> n < 3).toMap();
+    assertThat(map).containsExactly(0, 0, 1, 2, 2, 4);
+  }
+
+  @Test public void testFilterAfterMapping_closeHandlerCalled() {
+    AtomicBoolean closed = new AtomicBoolean();
+    try (Stream<String> stream =
+        BiStream.from(Stream.of(1, 2).onClose(() -> closed.set(true)), n -> n, n -> n)
+            .filter((k, v) -> true)
+            .mapToObj((k, v) -> k + ":" + v)) {
+      assertThat(closed.get()).isFalse();
+    }
+    assertThat(closed.get()).isTrue();
+  }
+
   @Test public void testGroupConsecutive_emptyStream() {
     assertKeyValues(BiStream.empty().groupConsecutiveBy(identity(), toList())).isEmpty();
   }
@@ -361,6 +439,93 @@ public class BiStreamTest {
     assertThat(rightClosed.get()).isTrue();
   }
 
+  @Test public void testZip_mapToObj_bothParallel() {
+    Stream<String> zipped =
+        BiStream.zip(
+                asList(1, 2, 3).parallelStream(), asList("one", "two", "three").parallelStream())
+            .mapToObj(Joiner.on(':')::join);
+    assertThat(zipped.isParallel()).isTrue();
+    assertThat(zipped.collect(toList())).containsExactly("1:one", "2:two", "3:three").inOrder();
+  }
+
+  @Test public void testZip_mapToObj_bothParallel_notLockstep_runsSequentially() {
+    Integer[] values = IntStream.range(0, 10000).boxed().toArray(Integer[]::new);
+    Stream<Integer> left = unsizedParallel(values);
+    Stream<Integer> right = unsizedParallel(values);
+    Set<Thread> threads = ConcurrentHashMap.newKeySet();
+    List<Integer> zipped =
+        BiStream.zip(left, right)
+            .mapToObj((l, r) -> {
+              threads.add(Thread.currentThread());
+              return l + r;
+            })
+            .collect(toList());
+    assertThat(zipped)
+        .containsExactlyElementsIn(IntStream.range(0, 10000).map(i -> i * 2).boxed().toArray())
+        .inOrder();
+    assertThat(threads).containsExactly(Thread.currentThread());
+  }
+
+  @Test public void testZip_mapToPrimitive_notLockstep_doesNotSplit() {
+    Supplier<BiStream<Integer, Integer>> zipped =
+        () -> BiStream.zip(unsizedParallel(1, 2, 3), unsizedParallel(1, 2, 3));
+    assertThat(zipped.get().mapToObj((l, r) -> l).spliterator().trySplit()).isNull();
+    assertThat(zipped.get().mapToInt((l, r) -> l).spliterator().trySplit()).isNull();
+    assertThat(zipped.get().mapToLong((l, r) -> l).spliterator().trySplit()).isNull();
+    assertThat(zipped.get().mapToDouble((l, r) -> l).spliterator().trySplit()).isNull();
+  }
+
+  @Test public void testZip_mapToObj_sizedInputsSplitInLockstep() {
+    Spliterator<String> remaining =
+        BiStream.zip(asList(1, 2, 3, 4), asList("one", "two", "three", "four"))
+            .mapToObj(Joiner.on(':')::join)
+            .spliterator();
+    Spliterator<String> prefix = remaining.trySplit();
+    assertThat(prefix.estimateSize()).isEqualTo(2);
+    assertThat(remaining.estimateSize()).isEqualTo(2);
+    List<String> visited = new ArrayList<>();
+    prefix.forEachRemaining(visited::add);
+    remaining.forEachRemaining(visited::add);
+    assertThat(visited).containsExactly("1:one", "2:two", "3:three", "4:four").inOrder();
+  }
+
+  @Test public void testZip_mapToObj_parallel_sizedInputs() {
+    List<Integer> left = IntStream.range(0, 100000).boxed().collect(toList());
+    List<Integer> right = IntStream.range(0, 100000).map(i -> i * 2).boxed().collect(toList());
+    assertThat(BiStream.zip(left, right).mapToObj((l, r) -> r - l).parallel().collect(toList()))
+        .containsExactlyElementsIn(left)
+        .inOrder();
+  }
+
+  @Test public void testZip_mapToObj_parallel_differentSizes() {
+    List<Integer> left = IntStream.range(0, 10000).boxed().collect(toList());
+    List<Integer> right = IntStream.range(0, 5000).boxed().collect(toList());
+    assertThat(BiStream.zip(left, right).mapToObj((l, r) -> l + r).parallel().collect(toList()))
+        .containsExactlyElementsIn(right.stream().map(i -> i * 2).collect(toList()))
+        .inOrder();
+  }
+
+  @Test public void testZip_mapToObj_parallel_misalignedSplits() {
+    List<Integer> left = IntStream.range(0, 10000).boxed().collect(toList());
+    Stream<Integer> right =
+        Stream.concat(left.subList(0, 10).stream(), left.subList(10, 10000).stream());
+    Stream<Integer> zipped = BiStream.zip(left.stream(), right).mapToObj((l, r) -> l + r);
+    assertThat(zipped.parallel().collect(toList()))
+        .containsExactlyElementsIn(left.stream().map(i -> i * 2).collect(toList()))
+        .inOrder();
+  }
+
+  @Test public void testZip_mapToPrimitive_parallel_sizedInputs() {
+    List<Integer> values = IntStream.range(0, 10000).boxed().collect(toList());
+    long expected = 2L * values.stream().mapToLong(i -> i).sum();
+    assertThat(BiStream.zip(values, values).mapToInt((l, r) -> l + r).parallel().sum())
+        .isEqualTo(expected);
+    assertThat(BiStream.zip(values, values).mapToLong((l, r) -> (long) l + r).parallel().sum())
+        .isEqualTo(expected);
+    assertThat(BiStream.zip(values, values).mapToDouble((l, r) -> l + r).parallel().sum())
+        .isEqualTo((double) expected);
+  }
+
   @Test public void testZip_mapToObj_lateBindingConsistentWithJdk() {
     Map<Integer, String> dict = new HashMap<>();
     Stream<String> jdk = dict.entrySet().stream().map(e -> e.getKey() + ":" + e.getValue());
@@ -1166,4 +1331,9 @@ public class BiStreamTest {
   private static Stream<Character> charactersOf(String s) {
     return s.chars().mapToObj(c -> (char) c);
   }
+
+  @SafeVarargs
+  private static <T> Stream<T> unsizedParallel(T... values) {
+    return Stream.of(values).parallel().filter(v -> true);
+  }
 }
@@ -0,0 +1,126 @@
+/*****************************************************************************
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package com.google.mu.util.stream;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import com.google.common.testing.EqualsTester;
+import com.google.common.testing.SerializableTester;
+
+@RunWith(JUnit4.class)
+public class CountMinSketchTest {
+  @Test public void empty() {
+    CountMinSketch sketch = CountMinSketch.create(100, 3);
+    assertThat(sketch.estimateCount("foo")).isEqualTo(0);
+    assertThat(sketch.totalCount()).isEqualTo(0);
+  }
+
+  @Test public void add() {
+    CountMinSketch sketch = CountMinSketch.create(100, 3);
+    sketch.add("foo");
+    sketch.add("foo", 10);
+    sketch.add(null, 2);
+    assertThat(sketch.estimateCount("foo")).isEqualTo(11);
+    assertThat(sketch.estimateCount(null)).isEqualTo(2);
+    assertThat(sketch.totalCount()).isEqualTo(13);
+  }
+
+  @Test public void add_negativeCount() {
+    assertThrows(
+        IllegalArgumentException.class, () -> CountMinSketch.create(10, 2).add("foo", -1));
+  }
+
+  @Test public void heavyHitters_neverUnderestimatedAndWithinBound() {
+    Random random = new Random(1);
+    int[] counts = new int[10000];
+    CountMinSketch sketch =
+        IntStream.range(0, 200_000)
+            .map(i -> i % 10 == 0 ? random.nextInt(5) : random.nextInt(counts.length))
+            .peek(n -> counts[n]++)
+            .boxed()
+            .collect(CountMinSketch.toCountMinSketch(2000, 5));
+    for (int n = 0; n < counts.length; n++) {
+      assertThat(sketch.estimateCount(n)).isAtLeast(counts[n]);
+      assertThat(sketch.estimateCount(n)).isAtMost(counts[n] + 2 * 200_000 / 2000);
+    }
+  }
+
+  @Test public void parallel_sameAsSequential() {
+    CountMinSketch sequential =
+        IntStream.range(0, 100_000).map(i -> i % 77).boxed()
+            .collect(CountMinSketch.toCountMinSketch(100, 4));
+    CountMinSketch parallel =
+        IntStream.range(0, 100_000).parallel().map(i -> i % 77).boxed()
+            .collect(CountMinSketch.toCountMinSketch(100, 4));
+    assertThat(parallel).isEqualTo(sequential);
+    assertThat(parallel.totalCount()).isEqualTo(100_000);
+  }
+
+  @Test public void merge() {
+    CountMinSketch sketch1 = CountMinSketch.create(50, 3);
+    sketch1.add("foo", 3);
+    CountMinSketch sketch2 = CountMinSketch.create(50, 3);
+    sketch2.add("foo", 4);
+    sketch2.add("bar");
+    assertThat(sketch1.merge(sketch2).estimateCount("foo")).isEqualTo(7);
+    assertThat(sketch1.totalCount()).isEqualTo(8);
+  }
+
+  @Test public void merge_differentDimensions() {
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> CountMinSketch.create(50, 3).merge(CountMinSketch.create(50, 4)));
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> CountMinSketch.create(50, 3).merge(CountMinSketch.create(51, 3)));
+  }
+
+  @Test public void badDimensions() {
+    assertThrows(IllegalArgumentException.class, () -> CountMinSketch.create(0, 3));
+    assertThrows(IllegalArgumentException.class, () -> CountMinSketch.toCountMinSketch(10, 0));
+  }
+
+  @Test public void serializable() {
+    CountMinSketch sketch = CountMinSketch.create(20, 2);
+    sketch.add("foo", 5);
+    CountMinSketch deserialized = SerializableTester.reserializeAndAssert(sketch);
+    assertThat(deserialized.estimateCount("foo")).isEqualTo(5);
+  }
+
+  @Test public void testEquals() {
+    CountMinSketch foo = CountMinSketch.create(10, 2);
+    foo.add("foo");
+    CountMinSketch foo2 = CountMinSketch.create(10, 2);
+    foo2.add("foo");
+    new EqualsTester()
+        .addEqualityGroup(CountMinSketch.create(10, 2), CountMinSketch.create(10, 2))
+        .addEqualityGroup(foo, foo2)
+        .addEqualityGroup(CountMinSketch.create(10, 3))
+        .testEquals();
+  }
+
+  @Test public void testToString() {
+    assertThat(CountMinSketch.create(10, 2).toString())
+        .isEqualTo("CountMinSketch(10x2, total = 0)");
+  }
+}
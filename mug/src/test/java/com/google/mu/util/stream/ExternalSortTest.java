@@ -0,0 +1,278 @@
+/*****************************************************************************
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package com.google.mu.util.stream;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.common.truth.Truth8.assertThat;
+import static java.util.Arrays.asList;
+import static java.util.Comparator.naturalOrder;
+import static java.util.stream.Collectors.toList;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermission;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import com.google.mu.util.stream.BiStream.PairSerializer;
+
+@RunWith(JUnit4.class)
+public class ExternalSortTest {
+  private static final PairSerializer<Integer, String> INT_STRING =
+      new PairSerializer<Integer, String>() {
+        @Override public void write(Integer key, String value, ObjectOutput out)
+            throws IOException {
+          out.writeInt(key);
+          out.writeUTF(value);
+        }
+
+        @Override public Map.Entry<Integer, String> read(ObjectInput in) throws IOException {
+          return new AbstractMap.SimpleImmutableEntry<>(in.readInt(), in.readUTF());
+        }
+      };
+
+  @Test public void sortedByKeys_empty() {
+    assertThat(
+            BiStream.<Integer, String>empty()
+                .sortedByKeys(naturalOrder(), 10, INT_STRING)
+                .toMap())
+        .isEmpty();
+  }
+
+  @Test public void sortedByKeys_fitsInOneRun() {
+    assertThat(
+            BiStream.of(3, "c", 1, "a", 2, "b")
+                .sortedByKeys(naturalOrder(), 10, INT_STRING)
+                .toMap())
+        .containsExactly(1, "a", 2, "b", 3, "c")
+        .inOrder();
+  }
+
+  @Test public void sortedByKeys_spilledRuns() {
+    assertThat(
+            BiStream.of(3, "c", 5, "e", 1, "a", 4, "d", 2, "b")
+                .sortedByKeys(naturalOrder(), 2, INT_STRING)
+                .toMap())
+        .containsExactly(1, "a", 2, "b", 3, "c", 4, "d", 5, "e")
+        .inOrder();
+  }
+
+  @Test public void sortedByKeys_reverseOrder() {
+    assertThat(
+            BiStream.of(3, "c", 5, "e", 1, "a", 4, "d", 2, "b")
+                .sortedByKeys(Collections.reverseOrder(), 2, INT_STRING)
+                .keys()
+                .collect(toList()))
+        .containsExactly(5, 4, 3, 2, 1)
+        .inOrder();
+  }
+
+  @Test public void sortedByKeys_stable() {
+    List<Integer> keys = new ArrayList<>();
+    Random random = new Random(1);
+    for (int i = 0; i < 1000; i++) {
+      keys.add(random.nextInt(20));
+    }
+    List<String> sorted =
+        BiStream.zip(keys.stream(), IntStream.range(0, keys.size()).mapToObj(Integer::toString))
+            .sortedByKeys(naturalOrder(), 7, INT_STRING)
+            .mapToObj((k, v) -> k + ":" + v)
+            .collect(toList());
+    List<String> expected =
+        BiStream.zip(keys.stream(), IntStream.range(0, keys.size()).mapToObj(Integer::toString))
+            .sortedByKeys(naturalOrder())
+            .mapToObj((k, v) -> k + ":" + v)
+            .collect(toList());
+    assertThat(sorted).containsExactlyElementsIn(expected).inOrder();
+  }
+
+  @Test public void sortedByKeys_moreRunsThanFanIn() {
+    List<Integer> shuffled = IntStream.range(0, 10000).boxed().collect(toList());
+    Collections.shuffle(shuffled, new Random(2));
+    assertThat(
+            BiStream.from(shuffled, k -> k, Object::toString)
+                .sortedByKeys(naturalOrder(), 10, INT_STRING)
+                .keys()
+                .collect(toList()))
+        .containsExactlyElementsIn(IntStream.range(0, 10000).boxed().collect(toList()))
+        .inOrder();
+  }
+
+  @Test public void sortedByKeys_multiLevelMerge() {
+    AtomicInteger written = new AtomicInteger();
+    PairSerializer<Integer, String> counting = new PairSerializer<Integer, String>() {
+      @Override public void write(Integer key, String value, ObjectOutput out)
+          throws IOException {
+        written.incrementAndGet();
+        INT_STRING.write(key, value, out);
+      }
+
+      @Override public Map.Entry<Integer, String> read(ObjectInput in) throws IOException {
+        return INT_STRING.read(in);
+      }
+    };
+    Random random = new Random(3);
+    List<Integer> keys =
+        IntStream.range(0, 5000).mapToObj(i -> random.nextInt(10)).collect(toList());
+    List<String> sorted =
+        BiStream.zip(keys.stream(), IntStream.range(0, keys.size()).mapToObj(Integer::toString))
+            .sortedByKeys(naturalOrder(), 1, counting)
+            .mapToObj((k, v) -> k + ":" + v)
+            .collect(toList());
+    List<String> expected =
+        BiStream.zip(keys.stream(), IntStream.range(0, keys.size()).mapToObj(Integer::toString))
+            .sortedByKeys(naturalOrder())
+            .mapToObj((k, v) -> k + ":" + v)
+            .collect(toList());
+    assertThat(sorted).containsExactlyElementsIn(expected).inOrder();
+    // 5000 runs are merged into 79, then into 2: each pair is written at most 3 times.
+    assertThat(written.get()).isAtMost(3 * keys.size());
+  }
+
+  @Test public void sortedByKeys_javaSerialization() {
+    assertThat(
+            BiStream.of("c", 3L, "a", 1L, "b", 2L, "d", 4L)
+                .sortedByKeys(naturalOrder(), 1, PairSerializer.javaSerialization())
+                .toMap())
+        .containsExactly("a", 1L, "b", 2L, "c", 3L, "d", 4L)
+        .inOrder();
+  }
+
+  @Test public void sortedByKeys_lazy() {
+    AtomicInteger read = new AtomicInteger();
+    BiStream<Integer, String> sorted =
+        BiStream.of(2, "b", 1, "a")
+            .peek((k, v) -> read.incrementAndGet())
+            .sortedByKeys(naturalOrder(), 1, INT_STRING);
+    assertThat(read.get()).isEqualTo(0);
+    assertThat(sorted.keys().collect(toList())).containsExactly(1, 2).inOrder();
+    assertThat(read.get()).isEqualTo(2);
+  }
+
+  @Test public void sortedByKeys_tempFilesDeletedWhenReadThrough() {
+    Set<String> before = spilledFiles();
+    Iterator<Integer> keys =
+        BiStream.from(asList(3, 1, 4, 2), k -> k, Object::toString)
+            .sortedByKeys(naturalOrder(), 2, INT_STRING)
+            .keys()
+            .iterator();
+    assertThat(keys.next()).isEqualTo(1);
+    assertThat(spilledFiles()).isNotEqualTo(before);
+    assertThat(keys.next()).isEqualTo(2);
+    assertThat(keys.next()).isEqualTo(3);
+    assertThat(keys.next()).isEqualTo(4);
+    assertThat(keys.hasNext()).isFalse();
+    assertThat(spilledFiles()).isEqualTo(before);
+  }
+
+  @Test public void sortedByKeys_tempFilesDeletedWhenClosed() {
+    Set<String> before = spilledFiles();
+    AtomicInteger closed = new AtomicInteger();
+    try (Stream<Integer> keys =
+        BiStream.from(Stream.of(3, 1, 4, 2).onClose(closed::incrementAndGet), k -> k, k -> "")
+            .sortedByKeys(naturalOrder(), 2, INT_STRING)
+            .keys()) {
+      assertThat(keys.findFirst()).hasValue(1);
+      assertThat(spilledFiles()).isNotEqualTo(before);
+    }
+    assertThat(closed.get()).isEqualTo(1);
+    assertThat(spilledFiles()).isEqualTo(before);
+  }
+
+  @Test public void sortedByKeys_tempDirectory() throws IOException {
+    Path directory = Files.createTempDirectory("mug-sort-test");
+    try {
+      Iterator<Integer> keys =
+          BiStream.from(asList(3, 1, 4, 2), k -> k, Object::toString)
+              .sortedByKeys(naturalOrder(), 2, INT_STRING, directory)
+              .keys()
+              .iterator();
+      assertThat(keys.next()).isEqualTo(1);
+      List<Path> files = list(directory);
+      assertThat(files).isNotEmpty();
+      if (directory.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+        for (Path file : files) {
+          assertThat(Files.getPosixFilePermissions(file))
+              .containsExactly(PosixFilePermission.OWNER_READ, PosixFilePermission.OWNER_WRITE);
+        }
+      }
+      assertThat(keys.next()).isEqualTo(2);
+      assertThat(keys.next()).isEqualTo(3);
+      assertThat(keys.next()).isEqualTo(4);
+      assertThat(list(directory)).isEmpty();
+    } finally {
+      Files.delete(directory);
+    }
+  }
+
+  @Test public void sortedByKeys_writeFailure() {
+    Set<String> before = spilledFiles();
+    PairSerializer<Integer, String> failing = new PairSerializer<Integer, String>() {
+      @Override public void write(Integer key, String value, ObjectOutput out)
+          throws IOException {
+        throw new IOException("disk full");
+      }
+
+      @Override public Map.Entry<Integer, String> read(ObjectInput in) {
+        throw new AssertionError();
+      }
+    };
+    UncheckedIOException thrown =
+        assertThrows(
+            UncheckedIOException.class,
+            () -> BiStream.of(2, "b", 1, "a").sortedByKeys(naturalOrder(), 1, failing).toMap());
+    assertThat(thrown).hasCauseThat().hasMessageThat().isEqualTo("disk full");
+    assertThat(spilledFiles()).isEqualTo(before);
+  }
+
+  @Test public void sortedByKeys_invalidMaxRunSize() {
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> BiStream.of(1, "a").sortedByKeys(naturalOrder(), 0, INT_STRING));
+  }
+
+  private static List<Path> list(Path directory) throws IOException {
+    try (Stream<Path> files = Files.list(directory)) {
+      return files.collect(toList());
+    }
+  }
+
+  private static Set<String> spilledFiles() {
+    String[] names =
+        new File(System.getProperty("java.io.tmpdir"))
+            .list((dir, name) -> name.startsWith("mug-sort") && name.endsWith(".run"));
+    return new HashSet<>(asList(names));
+  }
+}
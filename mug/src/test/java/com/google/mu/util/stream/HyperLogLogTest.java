@@ -0,0 +1,128 @@
+/*****************************************************************************
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package com.google.mu.util.stream;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import com.google.common.testing.EqualsTester;
+import com.google.common.testing.NullPointerTester;
+import com.google.common.testing.SerializableTester;
+
+@RunWith(JUnit4.class)
+public class HyperLogLogTest {
+  @Test public void empty() {
+    assertThat(HyperLogLog.create().estimate()).isEqualTo(0);
+  }
+
+  @Test public void duplicatesCountedOnce() {
+    HyperLogLog sketch = HyperLogLog.create();
+    for (int i = 0; i < 100; i++) {
+      sketch.add("foo");
+      sketch.add(null);
+    }
+    assertThat(sketch.estimate()).isEqualTo(2);
+  }
+
+  @Test public void smallCardinality_nearlyExact() {
+    HyperLogLog sketch = IntStream.range(0, 1000).boxed().collect(HyperLogLog.toHyperLogLog());
+    assertThat((double) sketch.estimate()).isWithin(10).of(1000);
+  }
+
+  @Test public void largeCardinality_withinErrorBound() {
+    HyperLogLog sketch =
+        LongStream.range(0, 1_000_000)
+            .mapToObj(i -> "user" + i)
+            .collect(HyperLogLog.toHyperLogLog());
+    assertThat((double) sketch.estimate()).isWithin(1_000_000 * 0.03).of(1_000_000);
+  }
+
+  @Test public void lowPrecision() {
+    HyperLogLog sketch = IntStream.range(0, 100_000).boxed().collect(HyperLogLog.toHyperLogLog(8));
+    assertThat(sketch.precision()).isEqualTo(8);
+    assertThat((double) sketch.estimate()).isWithin(100_000 * 0.2).of(100_000);
+  }
+
+  @Test public void parallel_sameAsSequential() {
+    HyperLogLog sequential =
+        IntStream.range(0, 200_000).boxed().collect(HyperLogLog.toHyperLogLog());
+    HyperLogLog parallel =
+        IntStream.range(0, 200_000).boxed().parallel().collect(HyperLogLog.toHyperLogLog());
+    assertThat(parallel).isEqualTo(sequential);
+  }
+
+  @Test public void merge() {
+    HyperLogLog evens = IntStream.range(0, 5000).map(i -> i * 2).boxed()
+        .collect(HyperLogLog.toHyperLogLog());
+    HyperLogLog all = IntStream.range(0, 10000).boxed().collect(HyperLogLog.toHyperLogLog());
+    HyperLogLog odds = IntStream.range(0, 5000).map(i -> i * 2 + 1).boxed()
+        .collect(HyperLogLog.toHyperLogLog());
+    assertThat(evens.merge(odds)).isEqualTo(all);
+  }
+
+  @Test public void merge_differentPrecision() {
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> HyperLogLog.create(10).merge(HyperLogLog.create(11)));
+  }
+
+  @Test public void addHash() {
+    HyperLogLog sketch = HyperLogLog.create(12);
+    LongStream.range(0, 50_000).map(HyperLogLog::mix).forEach(sketch::addHash);
+    assertThat((double) sketch.estimate()).isWithin(50_000 * 0.05).of(50_000);
+  }
+
+  @Test public void badPrecision() {
+    assertThrows(IllegalArgumentException.class, () -> HyperLogLog.create(3));
+    assertThrows(IllegalArgumentException.class, () -> HyperLogLog.create(19));
+    assertThrows(IllegalArgumentException.class, () -> HyperLogLog.toHyperLogLog(0));
+  }
+
+  @Test public void serializable() {
+    HyperLogLog sketch = IntStream.range(0, 100).boxed().collect(HyperLogLog.toHyperLogLog());
+    HyperLogLog deserialized = SerializableTester.reserializeAndAssert(sketch);
+    assertThat(deserialized.estimate()).isEqualTo(sketch.estimate());
+  }
+
+  @Test public void testEquals() {
+    HyperLogLog foo = HyperLogLog.create();
+    foo.add("foo");
+    HyperLogLog foo2 = HyperLogLog.create();
+    foo2.add("foo");
+    new EqualsTester()
+        .addEqualityGroup(HyperLogLog.create(), HyperLogLog.create())
+        .addEqualityGroup(foo, foo2)
+        .addEqualityGroup(HyperLogLog.create(10))
+        .testEquals();
+  }
+
+  @Test public void testToString() {
+    assertThat(HyperLogLog.create(10).toString())
+        .isEqualTo("HyperLogLog(precision = 10, estimate = 0)");
+  }
+
+  @Test public void testNulls() throws Exception {
+    new NullPointerTester()
+        .ignore(HyperLogLog.class.getMethod("add", Object.class))
+        .testAllPublicInstanceMethods(HyperLogLog.create());
+  }
+}
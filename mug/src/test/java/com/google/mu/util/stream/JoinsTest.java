@@ -0,0 +1,217 @@
+/*****************************************************************************
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package com.google.mu.util.stream;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.mu.util.stream.BiStream.hashJoin;
+import static com.google.mu.util.stream.BiStream.leftOuterMergeJoin;
+import static com.google.mu.util.stream.BiStream.mergeJoin;
+import static com.google.mu.util.stream.MoreStreams.indexesFrom;
+import static java.util.Arrays.asList;
+import static java.util.Comparator.naturalOrder;
+import static java.util.Comparator.reverseOrder;
+import static java.util.stream.Collectors.toList;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import com.google.mu.util.Both;
+
+@RunWith(JUnit4.class)
+public class JoinsTest {
+  @Test public void mergeJoin_uniqueKeys() {
+    assertThat(
+            format(
+                mergeJoin(
+                    BiStream.of(1, "a", 2, "b", 4, "d"),
+                    BiStream.of(2, "two", 3, "three", 4, "four"),
+                    naturalOrder())))
+        .containsExactly("2=b/two", "4=d/four")
+        .inOrder();
+  }
+
+  @Test public void mergeJoin_emptySides() {
+    assertThat(format(mergeJoin(BiStream.of(1, "a"), BiStream.empty(), naturalOrder())))
+        .isEmpty();
+    assertThat(format(mergeJoin(BiStream.empty(), BiStream.of(1, "a"), naturalOrder())))
+        .isEmpty();
+  }
+
+  @Test public void mergeJoin_duplicateKeys() {
+    assertThat(
+            format(
+                mergeJoin(
+                    BiStream.from(asList(1, 2, 2, 3), k -> k, k -> "L" + k),
+                    BiStream.of(0, "x", 2, "y", 2, "z", 3, "w"),
+                    naturalOrder())))
+        .containsExactly("2=L2/y", "2=L2/z", "2=L2/y", "2=L2/z", "3=L3/w")
+        .inOrder();
+  }
+
+  @Test public void mergeJoin_customKeyOrder() {
+    assertThat(
+            format(
+                mergeJoin(
+                    BiStream.of("c", 3, "b", 2, "a", 1),
+                    BiStream.of("b", 20, "a", 10),
+                    reverseOrder())))
+        .containsExactly("b=2/20", "a=1/10")
+        .inOrder();
+  }
+
+  @Test public void mergeJoin_keyedByLeftKeys() {
+    assertThat(
+            mergeJoin(
+                    BiStream.of("A", 1),
+                    BiStream.of("a", 2),
+                    String.CASE_INSENSITIVE_ORDER)
+                .keys()
+                .collect(toList()))
+        .containsExactly("A");
+  }
+
+  @Test public void mergeJoin_stopsReadingLeftWhenRightExhausted() {
+    AtomicInteger read = new AtomicInteger();
+    BiStream<Integer, String> left =
+        BiStream.from(indexesFrom(0), k -> k, k -> "L").peek((k, v) -> read.incrementAndGet());
+    assertThat(format(mergeJoin(left, BiStream.of(1, "x", 3, "y"), naturalOrder())))
+        .containsExactly("1=L/x", "3=L/y")
+        .inOrder();
+    assertThat(read.get()).isEqualTo(5);
+  }
+
+  @Test public void mergeJoin_infiniteSides() {
+    BiStream<Integer, Integer> evens =
+        BiStream.from(indexesFrom(0).map(i -> i * 2), k -> k, k -> k);
+    BiStream<Integer, Integer> triples =
+        BiStream.from(indexesFrom(0).map(i -> i * 3), k -> k, k -> k);
+    assertThat(
+            mergeJoin(evens, triples, naturalOrder())
+                .keys()
+                .limit(4)
+                .collect(toList()))
+        .containsExactly(0, 6, 12, 18)
+        .inOrder();
+  }
+
+  @Test public void mergeJoin_matchesHashJoinOnRandomInput() {
+    Random random = new Random(1);
+    List<Integer> leftKeys =
+        IntStream.range(0, 200).map(i -> random.nextInt(50)).sorted().boxed().collect(toList());
+    List<Integer> rightKeys =
+        IntStream.range(0, 200).map(i -> random.nextInt(50)).sorted().boxed().collect(toList());
+    BiStream<Integer, String> left = BiStream.from(leftKeys, k -> k, k -> "L" + k);
+    BiStream<Integer, String> right = BiStream.from(rightKeys, k -> k, k -> "R" + k);
+    List<String> merged = format(mergeJoin(left, right, naturalOrder()));
+    List<String> hashed =
+        format(
+            hashJoin(
+                BiStream.from(leftKeys, k -> k, k -> "L" + k),
+                BiStream.from(rightKeys, k -> k, k -> "R" + k)));
+    assertThat(merged).isNotEmpty();
+    assertThat(merged).containsExactlyElementsIn(hashed);
+  }
+
+  @Test public void mergeJoin_leftNotSorted() {
+    BiStream<Integer, Both<String, String>> joined =
+        mergeJoin(BiStream.of(2, "b", 1, "a"), BiStream.of(1, "x", 2, "y"), naturalOrder());
+    assertThrows(IllegalArgumentException.class, joined::toMap);
+  }
+
+  @Test public void mergeJoin_rightNotSorted() {
+    BiStream<Integer, Both<String, String>> joined =
+        mergeJoin(BiStream.of(1, "a", 3, "c"), BiStream.of(2, "y", 1, "x"), naturalOrder());
+    assertThrows(IllegalArgumentException.class, joined::toMap);
+  }
+
+  @Test public void mergeJoin_closesBothSides() {
+    AtomicInteger closed = new AtomicInteger();
+    BiStream<Integer, Integer> left =
+        BiStream.from(Stream.of(1).onClose(closed::incrementAndGet), k -> k, k -> k);
+    BiStream<Integer, Integer> right =
+        BiStream.from(Stream.of(1).onClose(closed::incrementAndGet), k -> k, k -> k);
+    try (BiStream<Integer, Both<Integer, Integer>> joined =
+        mergeJoin(left, right, naturalOrder())) {
+      assertThat(joined.keys().collect(toList())).containsExactly(1);
+    }
+    assertThat(closed.get()).isEqualTo(2);
+  }
+
+  @Test public void leftOuterMergeJoin_unmatchedJoinedWithNull() {
+    assertThat(
+            format(
+                leftOuterMergeJoin(
+                    BiStream.of(1, "a", 2, "b", 2, "bb", 4, "d", 5, "e"),
+                    BiStream.of(2, "two", 3, "three", 4, "four"),
+                    naturalOrder())))
+        .containsExactly("1=a/null", "2=b/two", "2=bb/two", "4=d/four", "5=e/null")
+        .inOrder();
+  }
+
+  @Test public void leftOuterMergeJoin_emptyRight() {
+    assertThat(
+            format(
+                leftOuterMergeJoin(BiStream.of(1, "a", 2, "b"), BiStream.empty(), naturalOrder())))
+        .containsExactly("1=a/null", "2=b/null")
+        .inOrder();
+  }
+
+  @Test public void hashJoin_inLeftOrderByDefault() {
+    assertThat(
+            format(
+                hashJoin(
+                    BiStream.of(3, "c", 1, "a", 2, "b", 1, "aa"),
+                    BiStream.of(1, "one", 3, "three", 1, "uno"))))
+        .containsExactly("3=c/three", "1=a/one", "1=a/uno", "1=aa/one", "1=aa/uno")
+        .inOrder();
+  }
+
+  @Test public void hashJoin_buildsOnSmallerLeftSide() {
+    assertThat(
+            format(
+                hashJoin(
+                    BiStream.from(asList(2, 1), k -> k, k -> "L" + k),
+                    BiStream.from(asList(1, 5, 2, 3), k -> k, k -> "R" + k))))
+        .containsExactly("1=L1/R1", "2=L2/R2")
+        .inOrder();
+  }
+
+  @Test public void hashJoin_buildsOnRightSideIfSizeUnknown() {
+    assertThat(
+            format(
+                hashJoin(
+                    BiStream.from(Stream.of(2, 1).filter(k -> true), k -> k, k -> "L" + k),
+                    BiStream.from(asList(1, 5, 2, 3), k -> k, k -> "R" + k))))
+        .containsExactly("2=L2/R2", "1=L1/R1")
+        .inOrder();
+  }
+
+  @Test public void hashJoin_noMatch() {
+    assertThat(format(hashJoin(BiStream.of(1, "a"), BiStream.of(2, "b")))).isEmpty();
+  }
+
+  private static <K, L, R> List<String> format(BiStream<K, Both<L, R>> joined) {
+    return joined.mapToObj((k, both) -> both.andThen((l, r) -> k + "=" + l + "/" + r))
+        .collect(toList());
+  }
+}
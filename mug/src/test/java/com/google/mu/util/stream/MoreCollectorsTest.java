@@ -28,6 +28,8 @@ import static com.google.mu.util.stream.MoreCollectors.collectingAndThen;
 import static com.google.mu.util.stream.MoreCollectors.combining;
 import static com.google.mu.util.stream.MoreCollectors.flatMapping;
 import static com.google.mu.util.stream.MoreCollectors.flatteningMaps;
+import static com.google.mu.util.stream.MoreCollectors.greatest;
+import static com.google.mu.util.stream.MoreCollectors.least;
 import static com.google.mu.util.stream.MoreCollectors.mapping;
 import static com.google.mu.util.stream.MoreCollectors.minMax;
 import static com.google.mu.util.stream.MoreCollectors.onlyElement;
@@ -46,7 +48,9 @@ import java.util.Comparator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 import org.junit.Test;
@@ -390,6 +394,88 @@ public class MoreCollectorsTest {
     assertThat(minMax.map((a, b) -> b)).hasValue("zoo");
   }
 
+  @Test public void testGreatest_empty() {
+    assertThat(Stream.<Integer>empty().collect(greatest(3, naturalOrder()))).isEmpty();
+  }
+
+  @Test public void testGreatest_fewerThanK() {
+    assertThat(Stream.of(2, 3, 1).collect(greatest(5, naturalOrder())))
+        .containsExactly(3, 2, 1)
+        .inOrder();
+  }
+
+  @Test public void testGreatest_moreThanK() {
+    assertThat(Stream.of(5, 1, 9, 3, 7, 2).collect(greatest(3, naturalOrder())))
+        .containsExactly(9, 7, 5)
+        .inOrder();
+  }
+
+  @Test public void testGreatest_zero() {
+    assertThat(Stream.of(1, 2).collect(greatest(0, naturalOrder()))).isEmpty();
+  }
+
+  @Test public void testGreatest_negative() {
+    assertThrows(IllegalArgumentException.class, () -> greatest(-1, naturalOrder()));
+  }
+
+  @Test public void testGreatest_tiesInEncounterOrder() {
+    assertThat(
+            Stream.of("foo", "quux", "banana", "papaya", "kiwi")
+                .collect(greatest(3, Comparator.comparingInt(String::length))))
+        .containsExactly("banana", "papaya", "quux")
+        .inOrder();
+  }
+
+  @Test public void testGreatest_immutable() {
+    List<Integer> greatest = Stream.of(1, 2).collect(greatest(1, naturalOrder()));
+    assertThrows(UnsupportedOperationException.class, () -> greatest.add(3));
+  }
+
+  @Test public void testLeast_moreThanK() {
+    assertThat(Stream.of(5, 1, 9, 3, 7, 2).collect(least(3, naturalOrder())))
+        .containsExactly(1, 2, 3)
+        .inOrder();
+  }
+
+  @Test public void testLeast_tiesInEncounterOrder() {
+    assertThat(
+            Stream.of("foo", "quux", "banana", "bar", "kiwi", "baz")
+                .collect(least(4, Comparator.comparingInt(String::length))))
+        .containsExactly("foo", "bar", "baz", "quux")
+        .inOrder();
+  }
+
+  @Test public void testLeast_withNullElements() {
+    assertThat(
+            Stream.of("foo", null, "bar").collect(least(2, Comparator.nullsFirst(naturalOrder()))))
+        .containsExactly(null, "bar")
+        .inOrder();
+  }
+
+  @Test public void testLeast_randomInputs_sameAsSortThenLimit() {
+    Random random = new Random(1);
+    for (int round = 0; round < 200; round++) {
+      List<Integer> input =
+          random.ints(random.nextInt(100), 0, 20).boxed().collect(Collectors.toList());
+      int k = random.nextInt(30);
+      Comparator<Integer> byTens = Comparator.comparingInt(n -> n / 10);
+      List<Integer> expected =
+          input.stream().sorted(byTens).limit(k).collect(Collectors.toList());
+      assertThat(input.stream().collect(least(k, byTens)))
+          .containsExactlyElementsIn(expected)
+          .inOrder();
+      assertThat(input.parallelStream().collect(least(k, byTens)))
+          .containsExactlyElementsIn(expected)
+          .inOrder();
+    }
+  }
+
+  @Test public void testGreatest_parallel() {
+    List<Integer> greatest =
+        IntStream.range(0, 100000).boxed().parallel().collect(greatest(5, naturalOrder()));
+    assertThat(greatest).containsExactly(99999, 99998, 99997, 99996, 99995).inOrder();
+  }
+
   @Test public void testNulls() throws Exception {
     new NullPointerTester()
         .setDefault(FixedSizeCollector.class, MoreCollectors.onlyElement(identity()))
@@ -22,6 +22,7 @@ import static com.google.mu.util.stream.MoreStreams.indexesFrom;
 import static com.google.mu.util.stream.MoreStreams.runLengthEncode;
 import static com.google.mu.util.stream.MoreStreams.whileNotNull;
 import static java.util.Arrays.asList;
+import static java.util.stream.Collectors.counting;
 import static java.util.stream.Collectors.toList;
 import static org.junit.Assume.assumeTrue;
 import static org.junit.jupiter.api.Assertions.assertThrows;
@@ -30,12 +31,24 @@ import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Deque;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Queue;
 import java.util.Set;
 import java.util.Spliterator;
 import java.util.TreeSet;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
@@ -387,4 +400,397 @@ public class MoreStreamsTest {
         .containsExactly(10, 2L, 9, 3L, 8, 1L)
         .inOrder();
   }
+
+  @Test public void tumblingWindows_inOrder() {
+    assertThat(
+            MoreStreams.tumblingWindows(Stream.of(1, 2, 5, 11, 12, 25), i -> i, 10, 0, toList())
+                .toMap())
+        .containsExactly(0L, asList(1, 2, 5), 10L, asList(11, 12), 20L, asList(25))
+        .inOrder();
+  }
+
+  @Test public void tumblingWindows_outOfOrderWithinAllowedLateness() {
+    assertThat(
+            MoreStreams.tumblingWindows(Stream.of(1, 12, 5, 25, 11, 3), i -> i, 10, 15, toList())
+                .toMap())
+        .containsExactly(0L, asList(1, 5), 10L, asList(12, 11), 20L, asList(25))
+        .inOrder();
+  }
+
+  @Test public void tumblingWindows_lateElementDropped() {
+    assertThat(
+            MoreStreams.tumblingWindows(Stream.of(10, 1, 12), i -> i, 5, 0, toList()).toMap())
+        .containsExactly(10L, asList(10, 12));
+  }
+
+  @Test public void tumblingWindows_negativeEventTime() {
+    assertThat(
+            MoreStreams.tumblingWindows(Stream.of(-11, -1, 0, 9), i -> i, 10, 0, toList())
+                .toMap())
+        .containsExactly(-20L, asList(-11), -10L, asList(-1), 0L, asList(0, 9))
+        .inOrder();
+  }
+
+  @Test public void tumblingWindows_emptyStream() {
+    assertThat(
+            MoreStreams.tumblingWindows(Stream.<Integer>empty(), i -> i, 10, 0, toList()).toMap())
+        .isEmpty();
+  }
+
+  @Test public void tumblingWindows_infiniteStream() {
+    assertThat(
+            MoreStreams.tumblingWindows(indexesFrom(0L), i -> i, 10, 0, counting())
+                .limit(3)
+                .toMap())
+        .containsExactly(0L, 10L, 10L, 10L, 20L, 10L)
+        .inOrder();
+  }
+
+  @Test public void tumblingWindows_parallelStream() {
+    assertThat(
+            MoreStreams.tumblingWindows(
+                    IntStream.range(0, 1000).boxed().parallel(), i -> i, 100, 0, counting())
+                .values()
+                .collect(toList()))
+        .containsExactly(100L, 100L, 100L, 100L, 100L, 100L, 100L, 100L, 100L, 100L);
+  }
+
+  @Test public void tumblingWindows_hugeAllowedLateness() {
+    assertThat(
+            MoreStreams.tumblingWindows(Stream.of(0, 5, 3), i -> i, 10, Long.MAX_VALUE, toList())
+                .toMap())
+        .containsExactly(0L, asList(0, 5, 3));
+  }
+
+  @Test public void tumblingWindows_eventTimeNearMinValue() {
+    long min = Long.MIN_VALUE;
+    // Long.MIN_VALUE is 2 past a multiple of 10, so its window is truncated to start at min.
+    assertThat(
+            MoreStreams.tumblingWindows(Stream.of(min, min + 1, min + 20), t -> t, 10, 0, toList())
+                .toMap())
+        .containsExactly(min, asList(min, min + 1), min + 18, asList(min + 20))
+        .inOrder();
+  }
+
+  @Test public void tumblingWindows_eventTimeNearMaxValue() {
+    long max = Long.MAX_VALUE;
+    assertThat(
+            MoreStreams.tumblingWindows(Stream.of(max - 20, max - 1, max), t -> t, 10, 0, toList())
+                .toMap())
+        .containsExactly(max - 27, asList(max - 20), max - 7, asList(max - 1, max))
+        .inOrder();
+  }
+
+  @Test public void tumblingWindows_invalidArguments() {
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> MoreStreams.tumblingWindows(Stream.of(1), i -> i, 0, 0, toList()));
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> MoreStreams.tumblingWindows(Stream.of(1), i -> i, 10, -1, toList()));
+  }
+
+  @Test public void slidingWindows_overlapping() {
+    assertThat(MoreStreams.slidingWindows(Stream.of(1, 4, 7), i -> i, 6, 3, 0, toList()).toMap())
+        .containsExactly(
+            -3L, asList(1), 0L, asList(1, 4), 3L, asList(4, 7), 6L, asList(7))
+        .inOrder();
+  }
+
+  @Test public void slidingWindows_withGaps() {
+    assertThat(
+            MoreStreams.slidingWindows(Stream.of(1, 3, 6, 11), i -> i, 2, 5, 0, toList()).toMap())
+        .containsExactly(0L, asList(1), 5L, asList(6), 10L, asList(11))
+        .inOrder();
+  }
+
+  @Test public void slidingWindows_emittedIncrementally() {
+    List<Integer> consumed = new ArrayList<>();
+    Map.Entry<Long, List<Integer>> first =
+        MoreStreams.slidingWindows(
+                indexesFrom(0).peek(consumed::add), i -> i, 4, 2, 0, toList())
+            .mapToObj(BiStream::kv)
+            .findFirst()
+            .get();
+    assertThat(first.getKey()).isEqualTo(-2L);
+    assertThat(first.getValue()).containsExactly(0, 1).inOrder();
+    assertThat(consumed).containsExactly(0, 1, 2).inOrder();
+  }
+
+  @Test public void slidingWindows_hugeAllowedLateness() {
+    assertThat(
+            MoreStreams.slidingWindows(Stream.of(1, 4), i -> i, 6, 3, Long.MAX_VALUE, toList())
+                .toMap())
+        .containsExactly(-3L, asList(1), 0L, asList(1, 4), 3L, asList(4))
+        .inOrder();
+  }
+
+  @Test public void slidingWindows_eventTimeNearMinValue() {
+    long min = Long.MIN_VALUE;
+    assertThat(
+            MoreStreams.slidingWindows(Stream.of(min, min + 9), t -> t, 30, 10, 0, toList())
+                .toMap())
+        .containsExactly(min, asList(min, min + 9), min + 8, asList(min + 9))
+        .inOrder();
+  }
+
+  @Test public void slidingWindows_hugeSize() {
+    assertThat(
+            MoreStreams.slidingWindows(Stream.of(0L), t -> t, Long.MAX_VALUE, Long.MAX_VALUE / 2, 0,
+                    toList())
+                .keys()
+                .collect(toList()))
+        .containsExactly(-(Long.MAX_VALUE - 1), -(Long.MAX_VALUE / 2), 0L)
+        .inOrder();
+  }
+
+  @Test public void slidingWindows_invalidArguments() {
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> MoreStreams.slidingWindows(Stream.of(1), i -> i, 0, 1, 0, toList()));
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> MoreStreams.slidingWindows(Stream.of(1), i -> i, 10, 0, 0, toList()));
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> MoreStreams.slidingWindows(Stream.of(1), i -> i, 10, 1, -1, toList()));
+  }
+
+  @Test public void sessionWindows_inOrder() {
+    assertThat(
+            MoreStreams.sessionWindows(Stream.of(1, 2, 10, 11, 16, 30), i -> i, 5, 0, toList())
+                .toMap())
+        .containsExactly(1L, asList(1, 2), 10L, asList(10, 11, 16), 30L, asList(30))
+        .inOrder();
+  }
+
+  @Test public void sessionWindows_outOfOrderElementExtendsSessionStart() {
+    assertThat(
+            MoreStreams.sessionWindows(Stream.of(10, 6, 30), i -> i, 5, 5, toList()).toMap())
+        .containsExactly(6L, asList(10, 6), 30L, asList(30))
+        .inOrder();
+  }
+
+  @Test public void sessionWindows_outOfOrderElementBridgesSessions() {
+    assertThat(
+            MoreStreams.sessionWindows(Stream.of(1, 10, 5, 20), i -> i, 5, 10, toList()).toMap())
+        .containsExactly(1L, asList(1, 10, 5), 20L, asList(20))
+        .inOrder();
+  }
+
+  @Test public void sessionWindows_lateElementDropped() {
+    assertThat(
+            MoreStreams.sessionWindows(Stream.of(1, 20, 2, 21), i -> i, 5, 0, toList()).toMap())
+        .containsExactly(1L, asList(1), 20L, asList(20, 21))
+        .inOrder();
+  }
+
+  @Test public void sessionWindows_emittedIncrementally() {
+    List<Integer> consumed = new ArrayList<>();
+    assertThat(
+            MoreStreams.sessionWindows(
+                    Stream.of(1, 2, 10, 11, 20).peek(consumed::add), i -> i, 3, 0, toList())
+                .keys()
+                .findFirst())
+        .hasValue(1L);
+    assertThat(consumed).containsExactly(1, 2, 10).inOrder();
+  }
+
+  @Test public void sessionWindows_hugeAllowedLateness() {
+    assertThat(
+            MoreStreams.sessionWindows(Stream.of(1, 20, 2), i -> i, 5, Long.MAX_VALUE, toList())
+                .toMap())
+        .containsExactly(1L, asList(1, 2), 20L, asList(20))
+        .inOrder();
+  }
+
+  @Test public void sessionWindows_eventTimeNearMinValue() {
+    long min = Long.MIN_VALUE;
+    assertThat(
+            MoreStreams.sessionWindows(Stream.of(min, min + 1, min + 10), t -> t, 5, 0, toList())
+                .toMap())
+        .containsExactly(min, asList(min, min + 1), min + 10, asList(min + 10))
+        .inOrder();
+  }
+
+  @Test public void sessionWindows_eventTimeNearMaxValue() {
+    long max = Long.MAX_VALUE;
+    assertThat(
+            MoreStreams.sessionWindows(Stream.of(max - 10, max - 1, max), t -> t, 5, 0, toList())
+                .toMap())
+        .containsExactly(max - 10, asList(max - 10), max - 1, asList(max - 1, max))
+        .inOrder();
+  }
+
+  @Test public void sessionWindows_invalidArguments() {
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> MoreStreams.sessionWindows(Stream.of(1), i -> i, 0, 0, toList()));
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> MoreStreams.sessionWindows(Stream.of(1), i -> i, 10, -1, toList()));
+  }
+
+  @Test public void dice_prefetching_chunksInOrder() throws Exception {
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try (Stream<List<Integer>> chunks =
+        MoreStreams.dice(IntStream.range(0, 10).boxed(), 3, 2, executor)) {
+      assertThat(chunks)
+          .containsExactly(asList(0, 1, 2), asList(3, 4, 5), asList(6, 7, 8), asList(9))
+          .inOrder();
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test public void dice_prefetching_emptyStream() throws Exception {
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try (Stream<List<Integer>> chunks = MoreStreams.dice(Stream.<Integer>empty(), 3, 2, executor)) {
+      assertThat(chunks).isEmpty();
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test public void dice_prefetching_parallelStream() throws Exception {
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try (Stream<List<Integer>> chunks =
+        MoreStreams.dice(IntStream.range(0, 1000).boxed().parallel(), 10, 4, executor)) {
+      assertThat(chunks.flatMap(List::stream).collect(toList()))
+          .containsExactlyElementsIn(IntStream.range(0, 1000).boxed().collect(toList()))
+          .inOrder();
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test public void dice_prefetching_readsOnExecutor() throws Exception {
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    Set<Thread> readers = ConcurrentHashMap.newKeySet();
+    Stream<Integer> source = Stream.of(1, 2, 3).peek(i -> readers.add(Thread.currentThread()));
+    try (Stream<List<Integer>> chunks = MoreStreams.dice(source, 2, 1, executor)) {
+      assertThat(chunks).containsExactly(asList(1, 2), asList(3)).inOrder();
+    } finally {
+      executor.shutdownNow();
+    }
+    assertThat(readers).hasSize(1);
+    assertThat(readers).doesNotContain(Thread.currentThread());
+  }
+
+  @Test public void dice_prefetching_readAheadIsBounded() throws Exception {
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    AtomicInteger read = new AtomicInteger();
+    AtomicReference<Thread> reader = new AtomicReference<>();
+    CountDownLatch threeChunksRead = new CountDownLatch(30);
+    Stream<Integer> source =
+        indexesFrom(0).peek(i -> {
+          reader.set(Thread.currentThread());
+          read.incrementAndGet();
+          threeChunksRead.countDown();
+        });
+    try (Stream<List<Integer>> chunks = MoreStreams.dice(source, 10, 2, executor)) {
+      Iterator<List<Integer>> it = chunks.iterator();
+      assertThat(it.next()).isEqualTo(IntStream.range(0, 10).boxed().collect(toList()));
+      // One chunk consumed, 2 prefetched. The reader then parks waiting for a permit.
+      assertThat(threeChunksRead.await(10, TimeUnit.SECONDS)).isTrue();
+      while (reader.get().getState() != Thread.State.WAITING) {
+        Thread.yield();
+      }
+      assertThat(read.get()).isEqualTo(30);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test public void dice_prefetching_closeStopsReading() throws Exception {
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    Set<Thread> readers = ConcurrentHashMap.newKeySet();
+    Set<Thread> closers = ConcurrentHashMap.newKeySet();
+    Stream<Integer> source =
+        indexesFrom(0)
+            .peek(i -> readers.add(Thread.currentThread()))
+            .onClose(() -> closers.add(Thread.currentThread()));
+    try (Stream<List<Integer>> chunks = MoreStreams.dice(source, 10, 1, executor)) {
+      assertThat(chunks.findFirst().get()).hasSize(10);
+    }
+    executor.shutdown();
+    assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+    // Closed by the reader once it stopped reading.
+    assertThat(closers).containsExactlyElementsIn(readers);
+  }
+
+  @Test public void dice_prefetching_closedBeforeConsumed() throws Exception {
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    AtomicBoolean read = new AtomicBoolean();
+    AtomicBoolean closed = new AtomicBoolean();
+    Stream<Integer> source = Stream.of(1).peek(i -> read.set(true)).onClose(() -> closed.set(true));
+    MoreStreams.dice(source, 10, 1, executor).close();
+    assertThat(closed.get()).isTrue();
+    assertThat(read.get()).isFalse();
+    executor.shutdown();
+  }
+
+  @Test public void dice_prefetching_directExecutorRejected() {
+    AtomicBoolean closed = new AtomicBoolean();
+    Stream<Integer> source = Stream.of(1, 2, 3).onClose(() -> closed.set(true));
+    try (Stream<List<Integer>> chunks = MoreStreams.dice(source, 1, 1, Runnable::run)) {
+      assertThrows(IllegalArgumentException.class, () -> chunks.findFirst());
+    }
+    assertThat(closed.get()).isTrue();
+  }
+
+  @Test public void dice_prefetching_rejectedSubmissionCanBeRetried() throws Exception {
+    ExecutorService delegate = Executors.newSingleThreadExecutor();
+    AtomicInteger submissions = new AtomicInteger();
+    Executor executor = task -> {
+      if (submissions.incrementAndGet() == 1) throw new RejectedExecutionException("busy");
+      delegate.execute(task);
+    };
+    try (Stream<List<Integer>> chunks = MoreStreams.dice(Stream.of(1, 2, 3), 2, 1, executor)) {
+      Iterator<List<Integer>> it = chunks.iterator();
+      assertThrows(RejectedExecutionException.class, it::hasNext);
+      assertThat(it.next()).containsExactly(1, 2).inOrder();
+      assertThat(it.next()).containsExactly(3);
+      assertThat(it.hasNext()).isFalse();
+    } finally {
+      delegate.shutdownNow();
+    }
+    assertThat(submissions.get()).isEqualTo(2);
+  }
+
+  @Test public void dice_prefetching_readFailurePropagated() throws Exception {
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    IllegalStateException failure = new IllegalStateException("bad");
+    Stream<Integer> source = Stream.of(1, 2, 3).peek(i -> {
+      if (i == 3) throw failure;
+    });
+    try (Stream<List<Integer>> chunks = MoreStreams.dice(source, 1, 1, executor)) {
+      CompletionException thrown =
+          assertThrows(CompletionException.class, () -> chunks.collect(toList()));
+      assertThat(thrown).hasCauseThat().isSameInstanceAs(failure);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test public void dice_prefetching_consumerInterrupted() throws Exception {
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try (Stream<List<Long>> chunks = MoreStreams.dice(indexesFrom(0L), 10, 1, executor)) {
+      Thread.currentThread().interrupt();
+      CompletionException thrown =
+          assertThrows(CompletionException.class, () -> chunks.findFirst());
+      assertThat(thrown).hasCauseThat().isInstanceOf(InterruptedException.class);
+      assertThat(Thread.interrupted()).isTrue();
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test public void dice_prefetching_invalidArguments() {
+    Executor executor = Runnable::run;
+    assertThrows(
+        IllegalArgumentException.class, () -> MoreStreams.dice(Stream.of(1), 0, 1, executor));
+    assertThrows(
+        IllegalArgumentException.class, () -> MoreStreams.dice(Stream.of(1), 1, 0, executor));
+  }
 }
@@ -0,0 +1,209 @@
+/*****************************************************************************
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package com.google.mu.util.stream;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.common.truth.Truth8.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.DoubleSummaryStatistics;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.DoubleStream;
+import java.util.stream.Stream;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import com.google.common.testing.NullPointerTester;
+
+@RunWith(JUnit4.class)
+public class ObjDoubleBiStreamTest {
+  @Test public void sumByKey() {
+    assertThat(weights().sumByKey()).containsExactly("a", 3.5, "b", 0.25).inOrder();
+  }
+
+  @Test public void filterAndMap() {
+    assertThat(
+            weights()
+                .filter((k, v) -> v < 2)
+                .mapKeys(String::toUpperCase)
+                .mapValues(v -> v * 2)
+                .sumByKey())
+        .containsExactly("A", 3.0, "B", 0.5)
+        .inOrder();
+  }
+
+  @Test public void filterKeysAndValues() {
+    assertThat(weights().filterKeys("a"::equals).filterValues(v -> v > 1.5).values().boxed())
+        .containsExactly(2.0);
+  }
+
+  @Test public void peek() {
+    List<String> peeked = new ArrayList<>();
+    assertThat(weights().peek((k, v) -> peeked.add(k)).keys().limit(2))
+        .containsExactly("a", "b")
+        .inOrder();
+    assertThat(peeked).containsExactly("a", "b").inOrder();
+  }
+
+  @Test public void mapToObj() {
+    assertThat(weights().mapToObj((k, v) -> k + v)).containsExactly("a1.5", "b0.25", "a2.0");
+  }
+
+  @Test public void boxed() {
+    assertThat(weights().boxed().filterKeys("b"::equals).toMap()).containsExactly("b", 0.25);
+  }
+
+  @Test public void forEach() {
+    List<Double> values = new ArrayList<>();
+    weights().forEach((k, v) -> values.add(v));
+    assertThat(values).containsExactly(1.5, 0.25, 2.0).inOrder();
+  }
+
+  @Test public void sumAndStatistics() {
+    assertThat(weights().sum()).isEqualTo(3.75);
+    DoubleSummaryStatistics stats = weights().summaryStatistics();
+    assertThat(stats.getMax()).isEqualTo(2.0);
+    assertThat(stats.getCount()).isEqualTo(3);
+  }
+
+  @Test public void sum_compensated() {
+    // Summed naively, each tiny value is rounded away: 1.0 + 1e-16 == 1.0.
+    assertThat(tinyWeights().values().reduce(0, Double::sum)).isEqualTo(1.0);
+    assertThat(tinyWeights().sum()).isWithin(1e-17).of(1 + 1e-15);
+  }
+
+  @Test public void sumByKey_compensated() {
+    assertThat(tinyWeights().sumByKey().get("a")).isWithin(1e-17).of(1 + 1e-15);
+  }
+
+  @Test public void summarizingByKey() {
+    Map<String, DoubleSummaryStatistics> stats = weights().summarizingByKey();
+    assertThat(stats.keySet()).containsExactly("a", "b").inOrder();
+    assertThat(stats.get("a").getAverage()).isEqualTo(1.75);
+  }
+
+  @Test public void groupingBy() {
+    assertThat(weights().groupingBy(String::length, Math::min)).containsExactly(1, 0.25);
+  }
+
+  @Test public void reusedAfterTerminalOperation_throws() {
+    ObjDoubleBiStream<String> stream = words().filterValues(v -> v > 0);
+    assertThat(stream.sumByKey()).hasSize(4);
+    assertThrows(IllegalStateException.class, stream::sumByKey);
+  }
+
+  @Test public void branched_throws() {
+    ObjDoubleBiStream<String> stream = words();
+    ObjDoubleBiStream<String> toBe = stream.filterKeys(w -> w.length() == 2);
+    assertThrows(IllegalStateException.class, () -> stream.filterKeys(w -> w.length() > 2));
+    assertThat(toBe.sumByKey()).containsExactly("to", 2.0, "be", 2.0, "or", 1.0).inOrder();
+  }
+
+  @Test public void notConsumedUntilTerminalOperation() {
+    List<String> pulled = new ArrayList<>();
+    ObjDoubleBiStream<String> stream =
+        ObjDoubleBiStream.from(Stream.of("a").peek(pulled::add), w -> w, w -> 1)
+            .mapValues(v -> v * 2);
+    assertThat(pulled).isEmpty();
+    assertThat(stream.sumByKey()).containsExactly("a", 2.0);
+    assertThat(pulled).containsExactly("a");
+  }
+
+  @Test public void close_closesSource() {
+    AtomicBoolean closed = new AtomicBoolean();
+    try (ObjDoubleBiStream<String> stream = closeable(closed)) {
+      assertThat(stream.filterValues(v -> v > 0).sumByKey()).containsExactly("a", 1.0);
+    }
+    assertThat(closed.get()).isTrue();
+  }
+
+  @Test public void mapToObj_closesSource() {
+    AtomicBoolean closed = new AtomicBoolean();
+    try (Stream<String> keys = closeable(closed).mapValues(v -> v + 1).keys()) {
+      assertThat(keys).containsExactly("a");
+    }
+    assertThat(closed.get()).isTrue();
+  }
+
+  @Test public void values_closesSource() {
+    AtomicBoolean closed = new AtomicBoolean();
+    try (DoubleStream values = closeable(closed).values()) {
+      assertThat(values.sum()).isEqualTo(1.0);
+    }
+    assertThat(closed.get()).isTrue();
+  }
+
+  @Test public void boxed_closesSource() {
+    AtomicBoolean closed = new AtomicBoolean();
+    try (BiStream<String, Double> boxed = closeable(closed).boxed()) {
+      assertThat(boxed.toMap()).containsExactly("a", 1.0);
+    }
+    assertThat(closed.get()).isTrue();
+  }
+
+  @Test public void biStream_mapValuesToDouble() {
+    assertThat(
+            BiStream.biStream(Stream.of("to", "be", "or", "not"))
+                .mapKeys(String::length)
+                .mapValuesToDouble(String::length)
+                .sumByKey())
+        .containsExactly(2, 6.0, 3, 3.0)
+        .inOrder();
+  }
+
+  @Test public void biStream_mapValuesToDouble_afterFusedStage() {
+    AtomicBoolean closed = new AtomicBoolean();
+    try (ObjDoubleBiStream<String> stream =
+        BiStream.biStream(Stream.of("to", "be", "or", "not").onClose(() -> closed.set(true)))
+            .filter((k, v) -> !k.equals("or"))
+            .mapValuesToDouble(String::length)) {
+      assertThat(stream.sumByKey()).containsExactly("to", 2.0, "be", 2.0, "not", 3.0).inOrder();
+    }
+    assertThat(closed.get()).isTrue();
+  }
+
+  @Test public void testNulls() {
+    new NullPointerTester().testAllPublicStaticMethods(ObjDoubleBiStream.class);
+    new NullPointerTester().testAllPublicInstanceMethods(weights());
+  }
+
+  private static ObjDoubleBiStream<String> closeable(AtomicBoolean closed) {
+    return ObjDoubleBiStream.from(Stream.of("a").onClose(() -> closed.set(true)), w -> w, w -> 1);
+  }
+
+  private static ObjDoubleBiStream<String> words() {
+    return ObjDoubleBiStream.from(Stream.of("to", "be", "or", "not", "to", "be"), w -> w, w -> 1);
+  }
+
+  private static ObjDoubleBiStream<String> tinyWeights() {
+    return ObjDoubleBiStream.from(
+        DoubleStream.concat(DoubleStream.of(1), DoubleStream.generate(() -> 1e-16).limit(10))
+            .boxed(),
+        v -> "a",
+        v -> v);
+  }
+
+  private static ObjDoubleBiStream<String> weights() {
+    return ObjDoubleBiStream.from(
+        Stream.of("a=1.5", "b=0.25", "a=2.0"),
+        s -> s.substring(0, 1),
+        s -> Double.parseDouble(s.substring(2)));
+  }
+}
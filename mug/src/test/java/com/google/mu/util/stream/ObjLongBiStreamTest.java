@@ -0,0 +1,266 @@
+/*****************************************************************************
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package com.google.mu.util.stream;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.common.truth.Truth8.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.LongSummaryStatistics;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import com.google.common.testing.NullPointerTester;
+
+@RunWith(JUnit4.class)
+public class ObjLongBiStreamTest {
+  @Test public void from_functionsInvokedOncePerElement() {
+    List<String> keyed = new ArrayList<>();
+    List<String> valued = new ArrayList<>();
+    Map<String, Long> result =
+        ObjLongBiStream.from(
+                Stream.of("a", "bb", "a"),
+                s -> { keyed.add(s); return s; },
+                s -> { valued.add(s); return s.length(); })
+            .filter((k, v) -> v > 0)
+            .mapValues(v -> v * 10)
+            .sumByKey();
+    assertThat(result).containsExactly("a", 20L, "bb", 20L).inOrder();
+    assertThat(keyed).containsExactly("a", "bb", "a").inOrder();
+    assertThat(valued).containsExactly("a", "bb", "a").inOrder();
+  }
+
+  @Test public void sumByKey_empty() {
+    assertThat(words().filterKeys(w -> false).sumByKey()).isEmpty();
+  }
+
+  @Test public void sumByKey_wordCounts() {
+    assertThat(words().sumByKey())
+        .containsExactly("to", 2L, "be", 2L, "or", 1L, "not", 1L)
+        .inOrder();
+  }
+
+  @Test public void sumByKey_immutable() {
+    Map<String, Long> counts = words().sumByKey();
+    assertThrows(UnsupportedOperationException.class, () -> counts.put("x", 1L));
+  }
+
+  @Test public void sumByKey_nullKey() {
+    assertThat(ObjLongBiStream.from(Stream.of("a", null, null), s -> s, s -> 1).sumByKey())
+        .containsExactly("a", 1L, null, 2L)
+        .inOrder();
+  }
+
+  @Test public void filterKeys() {
+    assertThat(words().filterKeys(w -> w.length() == 2).keys())
+        .containsExactly("to", "be", "or", "to", "be")
+        .inOrder();
+  }
+
+  @Test public void filterValues() {
+    assertThat(lengths().filterValues(n -> n > 2).keys()).containsExactly("not");
+  }
+
+  @Test public void mapKeys() {
+    assertThat(words().mapKeys(String::length).sumByKey())
+        .containsExactly(2, 5L, 3, 1L)
+        .inOrder();
+  }
+
+  @Test public void peek() {
+    List<String> peeked = new ArrayList<>();
+    assertThat(lengths().peek((k, v) -> peeked.add(k + v)).filterValues(n -> n > 2).keys())
+        .containsExactly("not");
+    assertThat(peeked).containsExactly("to2", "be2", "or2", "not3", "to2", "be2").inOrder();
+  }
+
+  @Test public void mapToObj() {
+    assertThat(lengths().mapToObj((k, v) -> k + ":" + v).limit(2))
+        .containsExactly("to:2", "be:2")
+        .inOrder();
+  }
+
+  @Test public void mapToObj_lazy() {
+    List<String> visited = new ArrayList<>();
+    Stream<String> stream =
+        ObjLongBiStream.from(Stream.of("a", "b"), s -> { visited.add(s); return s; }, s -> 1)
+            .mapToObj((k, v) -> k);
+    assertThat(visited).isEmpty();
+    assertThat(stream.findFirst()).hasValue("a");
+    assertThat(visited).containsExactly("a");
+  }
+
+  @Test public void values() {
+    assertThat(lengths().values().boxed()).containsExactly(2L, 2L, 2L, 3L, 2L, 2L).inOrder();
+  }
+
+  @Test public void values_iterator() {
+    assertThat(lengths().filterKeys("not"::equals).values().iterator().next()).isEqualTo(3L);
+  }
+
+  @Test public void boxed() {
+    assertThat(lengths().boxed().filterKeys("not"::equals).toMap()).containsExactly("not", 3L);
+  }
+
+  @Test public void forEach() {
+    List<String> pairs = new ArrayList<>();
+    lengths().filterValues(n -> n > 2).forEach((k, v) -> pairs.add(k + v));
+    assertThat(pairs).containsExactly("not3");
+  }
+
+  @Test public void sum() {
+    assertThat(lengths().sum()).isEqualTo(13L);
+    assertThat(lengths().filterKeys(w -> false).sum()).isEqualTo(0L);
+  }
+
+  @Test public void summaryStatistics() {
+    LongSummaryStatistics stats = lengths().summaryStatistics();
+    assertThat(stats.getCount()).isEqualTo(6);
+    assertThat(stats.getMin()).isEqualTo(2);
+    assertThat(stats.getMax()).isEqualTo(3);
+    assertThat(stats.getSum()).isEqualTo(13);
+  }
+
+  @Test public void summarizingByKey() {
+    Map<Integer, LongSummaryStatistics> stats =
+        ObjLongBiStream.from(Stream.of(1L, 20L, 3L, 40L), n -> (int) (n % 2), n -> n)
+            .summarizingByKey();
+    assertThat(stats.keySet()).containsExactly(1, 0).inOrder();
+    assertThat(stats.get(1).getSum()).isEqualTo(4);
+    assertThat(stats.get(0).getMax()).isEqualTo(40);
+    assertThat(stats.get(0).getCount()).isEqualTo(2);
+  }
+
+  @Test public void groupingBy() {
+    assertThat(lengths().groupingBy(w -> w.charAt(0), Math::max))
+        .containsExactly('t', 2L, 'b', 2L, 'o', 2L, 'n', 3L)
+        .inOrder();
+    assertThat(lengths().groupingBy(String::length, (a, b) -> a * b))
+        .containsExactly(2, 32L, 3, 3L)
+        .inOrder();
+  }
+
+  @Test public void largeInput_longSums() {
+    assertThat(
+            ObjLongBiStream.from(
+                    Stream.iterate(0L, i -> i + 1).limit(1000), i -> i % 3, i -> i * 1_000_000_000L)
+                .sumByKey())
+        .containsExactly(
+            0L, 166_833_000_000_000L, 1L, 166_167_000_000_000L, 2L, 166_500_000_000_000L)
+        .inOrder();
+  }
+
+  @Test public void reusedAfterTerminalOperation_throws() {
+    ObjLongBiStream<String> stream = words().filterValues(v -> v > 0);
+    assertThat(stream.sumByKey()).hasSize(4);
+    assertThrows(IllegalStateException.class, stream::sumByKey);
+  }
+
+  @Test public void branched_throws() {
+    ObjLongBiStream<String> stream = words();
+    ObjLongBiStream<String> toBe = stream.filterKeys(w -> w.length() == 2);
+    assertThrows(IllegalStateException.class, () -> stream.filterKeys(w -> w.length() > 2));
+    assertThat(toBe.sumByKey()).containsExactly("to", 2L, "be", 2L, "or", 1L).inOrder();
+  }
+
+  @Test public void notConsumedUntilTerminalOperation() {
+    List<String> pulled = new ArrayList<>();
+    ObjLongBiStream<String> stream =
+        ObjLongBiStream.from(Stream.of("a").peek(pulled::add), w -> w, w -> 1)
+            .mapValues(v -> v * 2);
+    assertThat(pulled).isEmpty();
+    assertThat(stream.sumByKey()).containsExactly("a", 2L);
+    assertThat(pulled).containsExactly("a");
+  }
+
+  @Test public void close_closesSource() {
+    AtomicBoolean closed = new AtomicBoolean();
+    try (ObjLongBiStream<String> stream = closeable(closed)) {
+      assertThat(stream.filterValues(v -> v > 0).sumByKey()).containsExactly("a", 1L);
+    }
+    assertThat(closed.get()).isTrue();
+  }
+
+  @Test public void mapToObj_closesSource() {
+    AtomicBoolean closed = new AtomicBoolean();
+    try (Stream<String> keys = closeable(closed).mapValues(v -> v + 1).keys()) {
+      assertThat(keys).containsExactly("a");
+    }
+    assertThat(closed.get()).isTrue();
+  }
+
+  @Test public void values_closesSource() {
+    AtomicBoolean closed = new AtomicBoolean();
+    try (LongStream values = closeable(closed).values()) {
+      assertThat(values.sum()).isEqualTo(1L);
+    }
+    assertThat(closed.get()).isTrue();
+  }
+
+  @Test public void boxed_closesSource() {
+    AtomicBoolean closed = new AtomicBoolean();
+    try (BiStream<String, Long> boxed = closeable(closed).boxed()) {
+      assertThat(boxed.toMap()).containsExactly("a", 1L);
+    }
+    assertThat(closed.get()).isTrue();
+  }
+
+  @Test public void biStream_mapValuesToLong() {
+    assertThat(
+            BiStream.biStream(Stream.of("to", "be", "or", "not"))
+                .mapKeys(String::length)
+                .mapValuesToLong(String::length)
+                .sumByKey())
+        .containsExactly(2, 6L, 3, 3L)
+        .inOrder();
+  }
+
+  @Test public void biStream_mapValuesToLong_afterFusedStage() {
+    AtomicBoolean closed = new AtomicBoolean();
+    try (ObjLongBiStream<String> stream =
+        BiStream.biStream(Stream.of("to", "be", "or", "not").onClose(() -> closed.set(true)))
+            .filter((k, v) -> !k.equals("or"))
+            .mapValuesToLong(String::length)) {
+      assertThat(stream.sumByKey()).containsExactly("to", 2L, "be", 2L, "not", 3L).inOrder();
+    }
+    assertThat(closed.get()).isTrue();
+  }
+
+  @Test public void testNulls() {
+    new NullPointerTester().testAllPublicStaticMethods(ObjLongBiStream.class);
+    new NullPointerTester().testAllPublicInstanceMethods(words());
+  }
+
+  private static ObjLongBiStream<String> closeable(AtomicBoolean closed) {
+    return ObjLongBiStream.from(Stream.of("a").onClose(() -> closed.set(true)), w -> w, w -> 1);
+  }
+
+  private static ObjLongBiStream<String> words() {
+    return ObjLongBiStream.from(Stream.of("to", "be", "or", "not", "to", "be"), w -> w, w -> 1);
+  }
+
+  private static ObjLongBiStream<String> lengths() {
+    return ObjLongBiStream.from(
+        Stream.of("to", "be", "or", "not", "to", "be"), w -> w, String::length);
+  }
+}
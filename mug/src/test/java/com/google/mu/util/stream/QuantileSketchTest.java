@@ -0,0 +1,147 @@
+/*****************************************************************************
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package com.google.mu.util.stream;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import com.google.common.testing.NullPointerTester;
+import com.google.common.testing.SerializableTester;
+
+@RunWith(JUnit4.class)
+public class QuantileSketchTest {
+  @Test public void empty() {
+    QuantileSketch sketch = QuantileSketch.create();
+    assertThat(sketch.count()).isEqualTo(0);
+    assertThat(sketch.quantile(0.5)).isNaN();
+    assertThat(sketch.min()).isNaN();
+    assertThat(sketch.max()).isNaN();
+  }
+
+  @Test public void singleValue() {
+    QuantileSketch sketch = QuantileSketch.create();
+    sketch.add(3.5);
+    assertThat(sketch.quantile(0)).isEqualTo(3.5);
+    assertThat(sketch.quantile(0.5)).isEqualTo(3.5);
+    assertThat(sketch.quantile(1)).isEqualTo(3.5);
+  }
+
+  @Test public void fewValues_exact() {
+    QuantileSketch sketch =
+        IntStream.rangeClosed(1, 100).boxed().collect(QuantileSketch.toQuantileSketch(i -> i));
+    assertThat(sketch.count()).isEqualTo(100);
+    assertThat(sketch.quantile(0.5)).isEqualTo(50);
+    assertThat(sketch.quantile(0.99)).isEqualTo(99);
+    assertThat(sketch.quantile(0.001)).isEqualTo(1);
+    assertThat(sketch.min()).isEqualTo(1);
+    assertThat(sketch.max()).isEqualTo(100);
+  }
+
+  @Test public void manyValues_withinRankError() {
+    Random random = new Random(1);
+    double[] values = random.doubles(1_000_000).map(d -> d * d).toArray();
+    QuantileSketch sketch = QuantileSketch.create();
+    Arrays.stream(values).forEach(sketch::add);
+    assertWithinRankError(sketch, values, 0.02);
+  }
+
+  @Test public void sortedInput_withinRankError() {
+    double[] values = IntStream.range(0, 300_000).asDoubleStream().toArray();
+    QuantileSketch sketch = QuantileSketch.create();
+    Arrays.stream(values).forEach(sketch::add);
+    assertWithinRankError(sketch, values, 0.02);
+  }
+
+  @Test public void parallel_withinRankError() {
+    Random random = new Random(2);
+    double[] values = random.doubles(500_000).toArray();
+    QuantileSketch sketch =
+        Arrays.stream(values).boxed().parallel()
+            .collect(QuantileSketch.toQuantileSketch(Double::doubleValue));
+    assertThat(sketch.count()).isEqualTo(values.length);
+    assertWithinRankError(sketch, values, 0.02);
+  }
+
+  @Test public void merge() {
+    QuantileSketch low = QuantileSketch.create(50);
+    QuantileSketch high = QuantileSketch.create(50);
+    for (int i = 0; i < 10000; i++) {
+      low.add(i);
+      high.add(10000 + i);
+    }
+    QuantileSketch merged = low.merge(high);
+    assertThat(merged.count()).isEqualTo(20000);
+    assertThat(merged.min()).isEqualTo(0);
+    assertThat(merged.max()).isEqualTo(19999);
+    assertThat(merged.quantile(0.5)).isWithin(20000 * 0.05).of(10000);
+  }
+
+  @Test public void merge_empty() {
+    QuantileSketch sketch = QuantileSketch.create();
+    sketch.add(1);
+    assertThat(sketch.merge(QuantileSketch.create()).count()).isEqualTo(1);
+    assertThat(QuantileSketch.create().merge(sketch).quantile(0.5)).isEqualTo(1);
+  }
+
+  @Test public void badArguments() {
+    assertThrows(IllegalArgumentException.class, () -> QuantileSketch.create(7));
+    assertThrows(IllegalArgumentException.class, () -> QuantileSketch.create().add(Double.NaN));
+    assertThrows(IllegalArgumentException.class, () -> QuantileSketch.create().quantile(-0.1));
+    assertThrows(IllegalArgumentException.class, () -> QuantileSketch.create().quantile(1.1));
+    assertThrows(
+        IllegalArgumentException.class, () -> QuantileSketch.create().quantile(Double.NaN));
+  }
+
+  @Test public void serializable() {
+    QuantileSketch sketch =
+        IntStream.range(0, 10000).boxed().collect(QuantileSketch.toQuantileSketch(i -> i));
+    QuantileSketch deserialized = SerializableTester.reserialize(sketch);
+    assertThat(deserialized.count()).isEqualTo(10000);
+    assertThat(deserialized.quantile(0.3)).isEqualTo(sketch.quantile(0.3));
+    deserialized.add(-1);
+    assertThat(deserialized.min()).isEqualTo(-1);
+  }
+
+  @Test public void testToString() {
+    QuantileSketch sketch = QuantileSketch.create();
+    sketch.add(2);
+    assertThat(sketch.toString()).isEqualTo("QuantileSketch(count = 1, min = 2.0, max = 2.0)");
+  }
+
+  @Test public void testNulls() {
+    new NullPointerTester().testAllPublicStaticMethods(QuantileSketch.class);
+    new NullPointerTester().testAllPublicInstanceMethods(QuantileSketch.create());
+  }
+
+  private static void assertWithinRankError(
+      QuantileSketch sketch, double[] values, double rankError) {
+    double[] sorted = values.clone();
+    Arrays.sort(sorted);
+    for (double q = 0.01; q < 1; q += 0.01) {
+      double estimate = sketch.quantile(q);
+      int rank = Arrays.binarySearch(sorted, estimate);
+      assertThat(rank).isAtLeast(0);
+      assertThat((double) rank / sorted.length).isWithin(rankError).of(q);
+    }
+  }
+}